@@ -58,6 +58,10 @@ public class PreferencePage extends FieldEditorPreferencePage
         	new IntegerFieldEditor(Preferences.MAX_PROPERTIES, Messages.Pref_MaxProperties, parent);
         max_properties.setValidRange(0, Integer.MAX_VALUE);
         addField(max_properties);
+        final IntegerFieldEditor page_size =
+            new IntegerFieldEditor(Preferences.PAGE_SIZE, Messages.Pref_PageSize, parent);
+        page_size.setValidRange(1, Integer.MAX_VALUE);
+        addField(page_size);
         addField(new TableColumnsFieldEditor(parent));
     }
 }
@@ -9,6 +9,7 @@ package org.csstudio.alarm.beast.msghist;
 
 import java.util.concurrent.TimeUnit;
 
+import org.csstudio.alarm.beast.msghist.rdb.MessageRDB;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
 
@@ -26,6 +27,7 @@ public class Preferences
 	public static final String COLUMNS = "prop_cols";
     public static final String START = "start";
     public static final String MAX_PROPERTIES = "max_properties"; 
+    public static final String PAGE_SIZE = "page_size";
     public static final String AUTO_REFRESH_PERIOD = "auto_refresh_period"; 
     
     
@@ -123,6 +125,17 @@ public class Preferences
     }
 	
 	
+    /** @return Number of messages to read per page */
+    public static int getPageSize()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        int page_size = MessageRDB.DEFAULT_PAGE_SIZE;
+        if (service != null)
+            page_size = service.getInt(Activator.ID, Preferences.PAGE_SIZE,
+                    page_size, null);
+        return Math.max(1, page_size);
+    }
+
 	/**
 	 * Gets the default auto refresh timer.
 	 *
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.msghist.Activator;
@@ -81,6 +82,12 @@ public class GUI implements ModelListener, DisposeListener
     
     /** The table_viewer. */
     private TableViewer table_viewer;
+
+    /** Is a table update already scheduled?
+     *  Model sends an update for each page of messages,
+     *  which are combined while the display thread is busy.
+     */
+    final private AtomicBoolean update_pending = new AtomicBoolean(false);
     
     /** The end. */
     private Text start, end;
@@ -492,12 +499,14 @@ public class GUI implements ModelListener, DisposeListener
     public void modelChanged(final Model model)
     {   // Can be called from background thread...
     	if (table_viewer.getTable().isDisposed()) return;
+    	if (! update_pending.compareAndSet(false, true)) return;
     	final Display display = table_viewer.getTable().getDisplay();
     	display.asyncExec(new Runnable()
         {
 			@Override
             public void run()
             {
+                update_pending.set(false);
                 if (start.isDisposed())
                     return;
                 if (!start.isFocusControl())
@@ -9,6 +9,7 @@ package org.csstudio.alarm.beast.msghist.model;
 
 import java.util.Calendar;
 
+import org.csstudio.alarm.beast.msghist.rdb.MessagePageListener;
 import org.csstudio.alarm.beast.msghist.rdb.MessageRDB;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -20,6 +21,10 @@ import org.eclipse.core.runtime.jobs.Job;
  *  The job actually connects to the RDB each time
  *  and disconnects when done to avoid timeouts with
  *  a long running RDB connection.
+ *  <p>
+ *  Messages are passed on one page at a time,
+ *  so the first messages can be displayed while
+ *  the rest are still being read.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -33,6 +38,7 @@ abstract public class GetMessagesJob extends Job
     final private Calendar end;
     final private MessagePropertyFilter[] filters;
     final private int max_properties;
+    final private int page_size;
 
     /** Initialize message job
      *  @param url RDB URL
@@ -43,14 +49,14 @@ abstract public class GetMessagesJob extends Job
      *  @param end End time
      *  @param filters Message filters
      *  @param max_properties Max. message property count
-     *  @param shell UI shell to display error dialog
+     *  @param page_size Number of messages per page
      */
     public GetMessagesJob(
             final String url, final String user,
             final String password, final String schema,
             final Calendar start, final Calendar end,
             final MessagePropertyFilter filters[],
-            final int max_properties)
+            final int max_properties, final int page_size)
     {
         super("Get Messages from RDB");
         this.url = url;
@@ -61,6 +67,7 @@ abstract public class GetMessagesJob extends Job
         this.end = end;
         this.filters = filters;
         this.max_properties = max_properties;
+        this.page_size = page_size;
     }
 
     @Override
@@ -70,10 +77,24 @@ abstract public class GetMessagesJob extends Job
         try
         {
             rdb = new MessageRDB(url, user, password, schema);
-            final Message[] messages =
-                rdb.getMessages(monitor, start, end, filters, max_properties);
+            final MessagePageListener listener = new MessagePageListener()
+            {
+                private boolean first = true;
+
+                @Override
+                public void gotMessages(final Message[] messages)
+                {
+                    if (monitor.isCanceled())
+                        return;
+                    GetMessagesJob.this.gotMessages(messages, first);
+                    first = false;
+                }
+            };
+            rdb.readMessages(monitor, start, end, filters, page_size, max_properties, listener);
+            // Final update, which also replaces previous messages
+            // in case nothing was found
             if (! monitor.isCanceled())
-                gotMessages(messages);
+                listener.gotMessages(new Message[0]);
         }
         catch (final Exception ex)
         {
@@ -93,6 +114,10 @@ abstract public class GetMessagesJob extends Job
     abstract void handleError(final String message, final Exception ex);
     
     
-    /** Derived class must implement to handle received messages */
-    abstract void gotMessages(final Message[] messages);
+    /** Derived class must implement to handle received messages
+     *  @param messages Page of received messages
+     *  @param first <code>true</code> for the first page,
+     *               which replaces previously received messages
+     */
+    abstract void gotMessages(final Message[] messages, final boolean first);
 }
@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.msghist.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 
@@ -20,6 +23,8 @@ import org.eclipse.swt.widgets.Shell;
  *  <p>
  *  Handles async. database requests, notifies listeners
  *  on change.
+ *  Messages are read in pages, and listeners are notified
+ *  as each page is added to the model.
  *
  *  @author Kay Kasemir
  *  @author benhadj naceur @  sopra group - iter
@@ -30,7 +35,10 @@ public class Model
     final private String user;
     final private String password;
     final private String schema;
-    private volatile Message messages[] = new Message[0];
+    /** Messages, synchronized on this */
+    final private List<Message> messages = new ArrayList<Message>();
+    /** Array of messages, created on demand, synchronized on this */
+    private Message message_array[] = null;
     private CopyOnWriteArrayList<ModelListener> listeners =
         new CopyOnWriteArrayList<ModelListener>();
     private String start_spec = Preferences.getDefaultStart();
@@ -152,14 +160,20 @@ public class Model
         message_job = new GetMessagesJob(
                 url, user, password, schema,
                 times.getStart(), times.getEnd(),
-                filters, max_properties)
+                filters, max_properties, Preferences.getPageSize())
         {
             @Override
-            void gotMessages(final Message[] messages)
+            void gotMessages(final Message[] messages, final boolean first)
             {
-                if (messages == null)
-                    return;
-                Model.this.messages = messages;
+                synchronized (Model.this)
+                {   // Ignore pages from a job that has been replaced
+                    if (message_job != this)
+                        return;
+                    if (first)
+                        Model.this.messages.clear();
+                    Model.this.messages.addAll(Arrays.asList(messages));
+                    message_array = null;
+                }
                 fireModelChanged();
             }
 
@@ -194,12 +208,14 @@ public class Model
     }
 
     /** @return All model messages */
-    public Message[] getMessages()
+    public synchronized Message[] getMessages()
     {
-        // Actually hands the original array out, no defensive copy.
+        // Hands the same array out until messages are added, no defensive copy.
         // Seems to be OK because TableViewer creates copy anyway
         // before filtering, sorting etc.
-        return messages;
+        if (message_array == null)
+            message_array = messages.toArray(new Message[messages.size()]);
+        return message_array;
     }
 
     /** Send 'modelChanged' event to all listeners */
@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.msghist.rdb;
+
+import org.csstudio.alarm.beast.msghist.model.Message;
+
+/** Listener to pages of messages read from the RDB
+ *  @see MessageRDB#readMessages
+ */
+public interface MessagePageListener
+{
+    /** Invoked for each page of messages
+     *  @param messages Messages, newest first
+     */
+    public void gotMessages(Message[] messages);
+}
@@ -7,13 +7,16 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.msghist.rdb;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.csstudio.alarm.beast.msghist.Messages;
@@ -25,11 +28,23 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
 
 /** Helper for accessing the CSS message RDB.
+ *  <p>
+ *  Messages are read in pages, newest first.
+ *  Each page first reads the MESSAGE rows,
+ *  then the MESSAGE_CONTENT for the messages on that page.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class MessageRDB
 {
+    /** Default number of messages per page */
+    final public static int DEFAULT_PAGE_SIZE = 500;
+
+    /** Maximum number of message IDs in one MESSAGE_CONTENT query.
+     *  Oracle limits the IN (...) list to 1000 elements.
+     */
+    final private static int MAX_IDS_PER_QUERY = 1000;
+
 	/** Util. for connection to RDB */
 	final private RDBUtil rdb_util;
     
@@ -68,116 +83,200 @@ public class MessageRDB
      *                        Unclear how many properties to expect per message,
      *                        so this is a vague overload throttle.
      *  @return Array of Messages or <code>null</code>
+     *  @see #readMessages
      */
     public Message[] getMessages(
     		final IProgressMonitor monitor,
             final Calendar start, final Calendar end,
             final MessagePropertyFilter filters[],
             final int max_properties) throws Exception
+    {
+        final List<Message> messages = new ArrayList<Message>();
+        readMessages(monitor, start, end, filters, DEFAULT_PAGE_SIZE, max_properties,
+            new MessagePageListener()
+            {
+                @Override
+                public void gotMessages(final Message[] page)
+                {
+                    messages.addAll(Arrays.asList(page));
+                }
+            });
+        // Convert to plain array
+        final Message[] ret_val = new Message[messages.size()];
+        return messages.toArray(ret_val);
+    }
+
+    /** Read messages from start to end time, maybe including filters,
+     *  one page at a time.
+     *  <p>
+     *  The listener receives the first page as soon as it has been read,
+     *  so it can display those messages while the following pages
+     *  are still being read.
+     *
+     *  @param monitor Used to display progress, also checked for cancellation
+     *  @param start Start time
+     *  @param end End time
+     *  @param filters Filters to use (not <code>null</code>).
+     *  @param page_size Number of messages to read per page
+     *  @param max_properties Limit on the number of properties(!) retrieved.
+     *                        Checked after each page.
+     *  @param listener Listener that receives each page of messages
+     *  @throws Exception on error
+     */
+    public void readMessages(
+            final IProgressMonitor monitor,
+            final Calendar start, final Calendar end,
+            final MessagePropertyFilter filters[],
+            final int page_size, final int max_properties,
+            final MessagePageListener listener) throws Exception
     {
         monitor.beginTask("Reading Messages", IProgressMonitor.UNKNOWN);
-        final ArrayList<Message> messages = new ArrayList<Message>();
-        // Create new select statement
-        final String sql_txt = sql.createSelect(rdb_util, filters);
-        final PreparedStatement statement =
-            rdb_util.getConnection().prepareStatement(sql_txt);
+        final Connection connection = rdb_util.getConnection();
+        final PreparedStatement first_page =
+            connection.prepareStatement(sql.createMessageSelect(rdb_util, filters, false));
+        PreparedStatement next_page = null;
         try
         {
-            int parm = 1;
-            statement.setTimestamp(parm++, new Timestamp(start.getTimeInMillis()));
-            statement.setTimestamp(parm++, new Timestamp(end.getTimeInMillis()));
-            // Set filter parameters
-            for (MessagePropertyFilter filter : filters)
-                statement.setString(parm++, filter.getPattern());
-            // Set start/end/limit
-            statement.setInt(parm++, max_properties);
-            
-            // One benchmark example:
-            // Query took <<1 second, but reading all the messages took ~30.
-            // Same result when only calling 'next',
-            // i.e. commenting the 'next' loop body.
-            // So the local lookup of properties and packing
-            // into a HashMap adds almost nothing to the overall time.
-            final ResultSet result = statement.executeQuery();
             int sequence = 0;
-            // Initialize id and datum as "no current message"
-            int id = -1;
-            Date datum = null;
-            Date last_datum = null;
-            Message last_message = null;
-            Map<String, String> props = null;
             int prop_count = 0;
-            while (!monitor.isCanceled()  &&  result.next())
+            // Last message of the previous page, or none
+            Message last_message = null;
+            Date last_datum = null;
+            int last_id = -1;
+            while (! monitor.isCanceled())
             {
-                // Fixed ID and DATUM
-                final int next_id = result.getInt(1);
-                final Date next_datum = result.getTimestamp(2);
-                // New message?
-                if (next_id != id)
-                {   // Does this conclude a previous message?
-                    if (props != null)
-                    {
-                        final Message message = createMessage(++sequence, id, props);
-                        messages.add(message);
-                        // Maybe set the 'delta' of previous message
-                        if (last_message != null  &&  last_datum != null)
-                            last_message.setDelta(last_datum, datum);
-                        last_datum = datum;
-                        last_message = message;
-                        // Update monitor every 50 messages
-                        final int count = messages.size();
-                        if (count % 50 == 0)
-                            monitor.subTask(count + " messages...");
-                    }
-                    // Construct new message and values
-                    props = new HashMap<String, String>();
-                    id = next_id;
-                    datum = next_datum;
+                final PreparedStatement statement;
+                int parm = 1;
+                if (last_message == null)
+                    statement = first_page;
+                else
+                {
+                    if (next_page == null)
+                        next_page = connection.prepareStatement(
+                                sql.createMessageSelect(rdb_util, filters, true));
+                    statement = next_page;
+                }
+                statement.setTimestamp(parm++, new Timestamp(start.getTimeInMillis()));
+                statement.setTimestamp(parm++, new Timestamp(end.getTimeInMillis()));
+                if (last_message != null)
+                {   // Continue after last message
+                    final Timestamp stamp = new Timestamp(last_datum.getTime());
+                    statement.setTimestamp(parm++, stamp);
+                    statement.setTimestamp(parm++, stamp);
+                    statement.setInt(parm++, last_id);
+                }
+                // Set filter parameters
+                for (MessagePropertyFilter filter : filters)
+                    statement.setString(parm++, filter.getPattern());
+                statement.setInt(parm++, page_size);
+
+                // Read MESSAGE rows of this page
+                final List<Integer> ids = new ArrayList<Integer>(page_size);
+                final List<Date> datums = new ArrayList<Date>(page_size);
+                final Map<Integer, Map<String, String>> page_props =
+                    new HashMap<Integer, Map<String, String>>();
+                final ResultSet result = statement.executeQuery();
+                while (result.next())
+                {
+                    final Integer id = result.getInt(1);
+                    final Date datum = result.getTimestamp(2);
+                    final Map<String, String> props = new HashMap<String, String>();
                     props.put(Message.DATUM, Message.format(datum));
+                    int res_idx = 3;
+                    for (int i=0; i<sql.messagePropertyCount(); ++i)
+                        props.put(sql.getMessageProperty(i), result.getString(res_idx++));
+                    ids.add(id);
+                    datums.add(datum);
+                    page_props.put(id, props);
+                }
+                result.close();
+                if (ids.isEmpty())
+                    break;
+
+                // Add MESSAGE_CONTENT
+                prop_count += readContent(ids, page_props);
+                if (monitor.isCanceled())
+                    break;
+
+                final Message[] page = new Message[ids.size()];
+                for (int i=0; i<page.length; ++i)
+                {
+                    final Integer id = ids.get(i);
+                    final Date datum = datums.get(i);
+                    page[i] = createMessage(++sequence, id, page_props.get(id));
+                    // Set the 'delta' of previous message
+                    if (last_message != null  &&  last_datum != null)
+                        last_message.setDelta(last_datum, datum);
+                    last_message = page[i];
+                    last_datum = datum;
+                    last_id = id;
+                }
+                listener.gotMessages(page);
+                monitor.subTask(sequence + " messages...");
+
+                // Was this the last page?
+                if (ids.size() < page_size)
+                    break;
+                // Was readout stopped because we reached max. number of properties?
+                if (prop_count >= max_properties)
+                {
+                    final Map<String, String> props = new HashMap<String, String>();
+                    props.put(Message.TYPE, "internal");
+                    props.put("TEXT",
+                            NLS.bind(Messages.ReachedMaxPropertiesFmt, max_properties));
+                    listener.gotMessages(new Message[] { createMessage(++sequence, last_id, props) });
+                    break;
                 }
-                // Get Prop/Value from MESSAGE table
-                int res_idx = 3;
-                for (int i=0; i<sql.messagePropertyCount(); ++i)
-                    props.put(sql.getMessageProperty(i), result.getString(res_idx++));
-                // Prop/Value from MESSAGE_CONTENT table
-                final String prop = sql.getPropertyNameById(result.getInt(res_idx++));
-                final String value = result.getString(res_idx);
-                props.put(prop, value);
-                ++prop_count;
-            }
-            // No more results.
-            // Was another (partial) message assembled?
-            // This message may miss some properties because the RDB retrieval
-            // is limited by property max_properties...
-            if (props != null  &&  props.isEmpty() == false)
-            {
-                messages.add(createMessage(++sequence, id, props));
-                if (last_message != null  &&  last_datum != null)
-                    last_message.setDelta(last_datum, datum);
-            }
-            
-            // Was readout stopped because we reached max. number of properties?
-            if (prop_count >= max_properties)
-            {
-                props = new HashMap<String, String>();
-                props.put(Message.TYPE, "internal");
-                props.put("TEXT",
-                		NLS.bind(Messages.ReachedMaxPropertiesFmt, max_properties));
-                final Message message = createMessage(++sequence, id, props);
-            	messages.add(message);
             }
         }
         finally
         {
-            statement.close();
+            if (next_page != null)
+                next_page.close();
+            first_page.close();
             monitor.done();
         }
-        
-        // Convert to plain array
-        final Message[] ret_val = new Message[messages.size()];
-        return messages.toArray(ret_val);
     }
-    
+
+    /** Read MESSAGE_CONTENT properties
+     *  @param ids IDs of messages
+     *  @param page_props Properties of each message, will be updated
+     *  @return Number of properties that were read
+     *  @throws Exception on error
+     */
+    private int readContent(final List<Integer> ids,
+            final Map<Integer, Map<String, String>> page_props) throws Exception
+    {
+        int prop_count = 0;
+        for (int start=0; start<ids.size(); start += MAX_IDS_PER_QUERY)
+        {
+            final int count = Math.min(MAX_IDS_PER_QUERY, ids.size() - start);
+            final PreparedStatement statement =
+                rdb_util.getConnection().prepareStatement(sql.createContentSelect(count));
+            try
+            {
+                for (int i=0; i<count; ++i)
+                    statement.setInt(i+1, ids.get(start + i));
+                final ResultSet result = statement.executeQuery();
+                while (result.next())
+                {
+                    final Map<String, String> props = page_props.get(result.getInt(1));
+                    if (props == null)
+                        continue;
+                    final String prop = sql.getPropertyNameById(result.getInt(2));
+                    props.put(prop, result.getString(3));
+                    ++prop_count;
+                }
+                result.close();
+            }
+            finally
+            {
+                statement.close();
+            }
+        }
+        return prop_count;
+    }
+
     /** Create Message or PVMessage
      *  @param sequence Sequence number
      *  @param id RDB ID
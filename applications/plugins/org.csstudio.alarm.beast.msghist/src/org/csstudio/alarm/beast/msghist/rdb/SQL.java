@@ -175,48 +175,57 @@ public class SQL
         return id.intValue();
     }
 
-    /** Create "SELECT ... " which requires parameters
+    /** Create "SELECT ... " for one page of messages, which requires parameters
      *  <ol>
      *  <li>Start time
      *  <li>End time
+     *  <li>For a follow-up page: Datum, datum and ID of last message on previous page
      *  <li>Value pattern for property filter 1
      *  <li>Value pattern for property filter 2
      *  <li>...
-     *  <li value=99>overall property count limit
+     *  <li value=99>Page size
      *  </ol>
-     *  and returns the message
+     *  and returns the messages, newest first,
      *  <ol>
      *  <li>ID
      *  <li>Datum
      *  <li>First MESSAGE table property
      *  <li>Second MESSAGE table property
      *  <li>...
-     *  <li value=98>MESSAGE_CONTENT property ID
-     *  <li>MESSAGE_CONTENT property value
      *  </ol>
+     *  Pages are ordered by datum and ID, and the next page continues
+     *  after the last datum and ID of the previous page,
+     *  so each page can use an index on MESSAGE (datum, id)
+     *  instead of skipping over the previous pages.
+     *  <p>
+     *  Filters for MESSAGE_CONTENT properties are correlated
+     *  sub-queries on the message ID,
+     *  so they can use the index on MESSAGE_CONTENT (message_id).
+     *
      *  @param rdb_util RDBUtil
-     *  @param schema Database schema ending in "." or "" if not used
      *  @param filters Filters to use (not <code>null</code>)
+     *  @param next_page Select page that follows a previous page?
      *  @return SQL string
+     *  @throws Exception on error
      */
-    String createSelect(final RDBUtil rdb_util,
-            final MessagePropertyFilter filters[]) throws Exception
+    String createMessageSelect(final RDBUtil rdb_util,
+            final MessagePropertyFilter filters[],
+            final boolean next_page) throws Exception
     {
-        final StringBuffer sel = new StringBuffer();
+        final StringBuilder sel = new StringBuilder();
         sel.append("SELECT");
         // .. all columns from MESSAGE
-        sel.append(" m.id, m.datum,");
+        sel.append(" m.id, m.datum");
         for (String msg_prop : message_properties)
-            sel.append(" m." + msg_prop + ",");
-        // .. and the properties from MESSAGE_CONTENT
-        sel.append(" c.msg_property_type_id p, c.value");
-        sel.append(" FROM " + getSchemaPrefix() + "message m, "
-                + getSchemaPrefix() + "message_content c");
+            sel.append(", m." + msg_prop);
+        sel.append(" FROM " + getSchemaPrefix() + "message m");
         // Set time range
         sel.append(" WHERE m.datum BETWEEN ? AND ?");
-        // Join MESSAGE and ..CONTENT
-        sel.append(" AND m.id=c.message_id");
+        // Continue after last message of previous page
+        if (next_page)
+            sel.append(" AND (m.datum < ? OR (m.datum = ? AND m.id < ?))");
         // Some filters may be MESSAGE columns, rest is MESSAGE_CONTENT
+        int i = 0;
         for (MessagePropertyFilter filter : filters)
         {
             if (isMessageProperty(filter.getProperty()))
@@ -224,30 +233,49 @@ public class SQL
                 sel.append(" AND m." + filter.getProperty() + " LIKE ?");
             }
             else
-            {   // Create MESSAGE_CONTENT sub-query for this property/value
+            {   // Check MESSAGE_CONTENT of this message for property/value
                 final int id = getPropertyIdByName(filter.getProperty());
-                sel.append(" AND m.id IN (");
-                sel.append(" SELECT message_id");
-                sel.append(" FROM " + getSchemaPrefix() + "message_content");
-                sel.append(" WHERE msg_property_type_id=" + id
-                           + " AND value LIKE ?)");
+                final String f = "f" + (++i);
+                sel.append(" AND EXISTS (SELECT 1 FROM " + getSchemaPrefix() + "message_content " + f);
+                sel.append(" WHERE " + f + ".message_id=m.id");
+                sel.append(" AND " + f + ".msg_property_type_id=" + id);
+                sel.append(" AND " + f + ".value LIKE ?)");
             }
         }
-        // Oracle limits result count via ROWNUM check within WHERE clause...
+        sel.append(" ORDER BY m.datum DESC, m.id DESC");
+        // Oracle limits result count via ROWNUM, which needs to be
+        // applied after sorting
         if (rdb_util.getDialect() == Dialect.Oracle)
-            sel.append(" AND ROWNUM < ?");
-        sel.append(" ORDER BY m.id DESC");
+            return "SELECT * FROM (" + sel.toString() + ") WHERE ROWNUM <= ?";
         // MySQL uses designated LIMIT statement instead.
-        if (rdb_util.getDialect() == Dialect.MySQL || rdb_util.getDialect() == Dialect.PostgreSQL)
-            sel.append(" LIMIT ?");
-        
+        sel.append(" LIMIT ?");
         return sel.toString();
     }
-    
-    /** Idea: Use the above to ONLY select from MESSAGE table, then
-     *  use separate query to select remaining properties for a message
-     *  SELECT msg_property_type_id, value 
-     *  FROM message_content
-     *  WHERE message_id=?
+
+    /** Create "SELECT ... " for the MESSAGE_CONTENT of several messages,
+     *  which requires the message IDs as parameters
+     *  and returns
+     *  <ol>
+     *  <li>Message ID
+     *  <li>MESSAGE_CONTENT property ID
+     *  <li>MESSAGE_CONTENT property value
+     *  </ol>
+     *  @param count Number of message IDs
+     *  @return SQL string
      */
+    String createContentSelect(final int count)
+    {
+        final StringBuilder sel = new StringBuilder();
+        sel.append("SELECT message_id, msg_property_type_id, value");
+        sel.append(" FROM " + getSchemaPrefix() + "message_content");
+        sel.append(" WHERE message_id IN (");
+        for (int i=0; i<count; ++i)
+        {
+            if (i > 0)
+                sel.append(",");
+            sel.append("?");
+        }
+        sel.append(")");
+        return sel.toString();
+    }
 }
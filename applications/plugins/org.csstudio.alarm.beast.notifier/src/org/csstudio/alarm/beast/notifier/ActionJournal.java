@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014 ITER Organization.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.notifier;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Local append-only journal of scheduled automated actions.
+ * <p>
+ * Each scheduled action adds a line with its due time, and each action that
+ * was executed or canceled adds a line that marks it done. After a restart,
+ * the actions which were scheduled but not done are read back from the
+ * journal so they can be scheduled again.
+ * <p>
+ * The journal is compacted on start and whenever it contains many more
+ * lines than pending actions. The compacted journal is written to a temporary
+ * file which then atomically replaces the journal.
+ * <p>
+ * Changes are synced to the disk by a background thread, so that callers
+ * on the alarm update path don't wait for the disk. All changes that were
+ * added while one sync was in progress are synced together by the next one.
+ * A crash or power loss can therefore lose the changes of the last few
+ * milliseconds, typically causing an action to be scheduled again, or not at
+ * all, after a restart.
+ */
+@SuppressWarnings("nls")
+public class ActionJournal {
+
+	/** Action that was pending in the journal */
+	public static class Entry {
+		private final ActionID id;
+		private final long due;
+
+		public Entry(final ActionID id, final long due) {
+			this.id = id;
+			this.due = due;
+		}
+
+		public ActionID getID() {
+			return id;
+		}
+
+		/** @return Time in millisecs when the action was due to execute */
+		public long getDue() {
+			return due;
+		}
+	}
+
+	private static final String SCHEDULED = "S", DONE = "D";
+
+	/** Minimum number of lines before journal is compacted */
+	private static final int COMPACT_LINES = 1000;
+
+	private final File file;
+
+	/** Pending actions by ID, in the order they were scheduled */
+	private final Map<ActionID, Entry> pending = new LinkedHashMap<ActionID, Entry>();
+
+	/** Actions that were pending when the journal was opened */
+	private final List<Entry> recovered;
+
+	/** Stream of the writer, used to sync the journal to the disk */
+	private FileOutputStream out;
+	private Writer writer;
+	private int lines = 0;
+
+	/** Have lines been written that are not yet synced? */
+	private boolean unsynced = false;
+
+	/** Thread that syncs written lines to the disk */
+	private final Thread sync_thread;
+
+	/**
+	 * Open journal, reading actions that are still pending from a previous run.
+	 *
+	 * @param file Journal file, created if it does not exist
+	 * @throws IOException on error
+	 */
+	public ActionJournal(final File file) throws IOException {
+		this.file = file;
+		final File tmp = getTempFile();
+		if (file.exists())
+			read(file);
+		else if (tmp.exists()) {
+			// Crashed after removing the journal but before renaming the
+			// compacted journal, which is complete at that point
+			Activator.getLogger().log(Level.WARNING, "Recovering action journal from {0}",
+					tmp.getAbsolutePath());
+			read(tmp);
+		}
+		recovered = new ArrayList<Entry>(pending.values());
+		compact();
+		Activator.getLogger().log(Level.CONFIG, "Action journal {0}, {1} pending actions",
+				new Object[] { file.getAbsolutePath(), recovered.size() });
+		sync_thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				syncLoop();
+			}
+		}, "ActionJournal Sync");
+		sync_thread.setDaemon(true);
+		sync_thread.start();
+	}
+
+	/** @return Temporary file for compacting the journal */
+	private File getTempFile() {
+		return new File(file.getPath() + ".tmp");
+	}
+
+	private void read(final File source) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(source), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", -1);
+				if (SCHEDULED.equals(fields[0]) && fields.length == 4) {
+					final long due;
+					try {
+						due = Long.parseLong(fields[1]);
+					} catch (NumberFormatException ex) {
+						continue;
+					}
+					final ActionID id = new ActionID(decode(fields[2]), decode(fields[3]));
+					pending.remove(id);
+					pending.put(id, new Entry(id, due));
+				} else if (DONE.equals(fields[0]) && fields.length == 3) {
+					pending.remove(new ActionID(decode(fields[1]), decode(fields[2])));
+				}
+				// else: Ignore partially written line
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Write journal with only the pending actions.
+	 * <p>
+	 * When this fails, the existing journal is kept, and the writer appends
+	 * to it.
+	 */
+	private void compact() throws IOException {
+		if (writer != null)
+			writer.close();
+		writer = null;
+		final File tmp = getTempFile();
+		try {
+			out = new FileOutputStream(tmp);
+			writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+			lines = 0;
+			try {
+				for (Entry entry : pending.values())
+					append(SCHEDULED, Long.toString(entry.getDue()), entry.getID());
+				sync();
+			} finally {
+				writer.close();
+				writer = null;
+			}
+			// Journal is never missing: It's either the old or the compacted one
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Activator.getLogger().log(Level.WARNING,
+						"Cannot atomically replace action journal " + file, ex);
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ex) {
+			tmp.delete();
+			throw ex;
+		} finally {
+			// Append to the compacted journal, or the old one if compacting failed
+			out = new FileOutputStream(file, true);
+			writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+		}
+	}
+
+	/** Write buffered lines and sync them to the disk */
+	private void sync() throws IOException {
+		writer.flush();
+		out.getFD().sync();
+	}
+
+	/** Sync written lines until the journal is closed */
+	private void syncLoop() {
+		while (true) {
+			final FileOutputStream to_sync;
+			synchronized (this) {
+				while (writer != null && !unsynced) {
+					try {
+						wait();
+					} catch (InterruptedException ex) {
+						return;
+					}
+				}
+				if (writer == null)
+					return;
+				unsynced = false;
+				try {
+					writer.flush();
+				} catch (IOException ex) {
+					Activator.getLogger().log(Level.SEVERE, "Cannot write action journal " + file, ex);
+					continue;
+				}
+				to_sync = out;
+			}
+			// Sync without holding the lock, so scheduled() and done() can
+			// add the lines that the next sync will handle
+			try {
+				to_sync.getFD().sync();
+			} catch (IOException ex) {
+				synchronized (this) {
+					// Journal was compacted or closed, which syncs on its own
+					if (to_sync != out)
+						continue;
+				}
+				Activator.getLogger().log(Level.SEVERE, "Cannot sync action journal " + file, ex);
+			}
+		}
+	}
+
+	private void append(final String... fields) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0)
+				writer.write('\t');
+			writer.write(fields[i]);
+		}
+		writer.write('\n');
+		++lines;
+	}
+
+	private void append(final String type, final String due, final ActionID id)
+			throws IOException {
+		if (due == null)
+			append(type, encode(id.getItemPath()), encode(id.getAaTitle()));
+		else
+			append(type, due, encode(id.getItemPath()), encode(id.getAaTitle()));
+	}
+
+	/** @return Actions that were pending when the journal was opened */
+	public synchronized List<Entry> getRecoveredActions() {
+		return new ArrayList<Entry>(recovered);
+	}
+
+	/**
+	 * Add scheduled action.
+	 *
+	 * @param id Action ID
+	 * @param due Time in millisecs when the action is due to execute
+	 */
+	public synchronized void scheduled(final ActionID id, final long due) {
+		pending.remove(id);
+		pending.put(id, new Entry(id, due));
+		write(SCHEDULED, Long.toString(due), id);
+	}
+
+	/**
+	 * Mark action as done, i.e. executed or canceled.
+	 *
+	 * @param id Action ID
+	 */
+	public synchronized void done(final ActionID id) {
+		if (pending.remove(id) == null)
+			return;
+		write(DONE, null, id);
+	}
+
+	private void write(final String type, final String due, final ActionID id) {
+		if (writer == null)
+			return;
+		try {
+			append(type, due, id);
+			unsynced = true;
+			notifyAll();
+			if (lines > COMPACT_LINES && lines > 4 * pending.size())
+				compact();
+		} catch (IOException ex) {
+			Activator.getLogger().log(Level.SEVERE, "Cannot write action journal " + file, ex);
+		}
+	}
+
+	/** Close journal. Pending actions remain in the journal. */
+	public void close() {
+		synchronized (this) {
+			if (writer == null)
+				return;
+			try {
+				sync();
+				writer.close();
+			} catch (IOException ex) {
+				Activator.getLogger().log(Level.WARNING, "Cannot close action journal " + file, ex);
+			}
+			writer = null;
+			out = null;
+			notifyAll();
+		}
+		try {
+			sync_thread.join();
+		} catch (InterruptedException ex) {
+			// Ignore
+		}
+	}
+
+	private static String encode(final String text) {
+		if (text == null)
+			return "";
+		return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+	}
+
+	private static String decode(final String text) {
+		final StringBuilder buf = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length()) {
+				final char next = text.charAt(++i);
+				buf.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+			} else
+				buf.append(c);
+		}
+		return buf.toString();
+	}
+}
@@ -10,6 +10,7 @@ package org.csstudio.alarm.beast.notifier;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Preferences;
@@ -46,13 +47,37 @@ public class AlarmNotifier {
 
 	private boolean maintenanceMode = false;
 
+	/** Actions recovered from the journal, restored with the first configuration */
+	private List<ActionJournal.Entry> recoveredActions;
+
 	public AlarmNotifier(final String root_name,
 			final IAlarmRDBHandler rdbHandler,
 			final AutomatedActionFactory factory, final int timer_threshold)
 			throws Exception {
+		this(root_name, rdbHandler, factory, timer_threshold,
+				WorkQueue.DEFAULT_MAX_CONCURRENT, WorkQueue.DEFAULT_QUEUE_SIZE, null);
+	}
+
+	/**
+	 * @param root_name Name of alarm tree root element
+	 * @param rdbHandler Alarm model handler
+	 * @param factory Automated actions factory
+	 * @param timer_threshold Overflow threshold in actions per minute and type
+	 * @param max_concurrent Number of concurrently executing actions per type
+	 * @param queue_size Number of actions queued for execution per type
+	 * @param journal Journal of scheduled actions or <code>null</code>
+	 * @throws Exception on error
+	 */
+	public AlarmNotifier(final String root_name,
+			final IAlarmRDBHandler rdbHandler,
+			final AutomatedActionFactory factory, final int timer_threshold,
+			final int max_concurrent, final int queue_size,
+			final ActionJournal journal) throws Exception {
 		this.rdb = rdbHandler;
 		this.factory = factory;
-		this.workQueue = new WorkQueue(timer_threshold, 60000); // 60s
+		this.workQueue = new WorkQueue(timer_threshold, 60000, // 60s
+				max_concurrent, queue_size, journal);
+		this.recoveredActions = workQueue.getRecoveredActions();
 	}
 
 	/** @return Name of configuration root element */
@@ -68,7 +93,10 @@ public class AlarmNotifier {
 	/** Release all resources */
 	public void stop() {
 		rdb.close();
-		workQueue.flush();
+		// With a journal, pending actions are scheduled again after restart
+		if (!workQueue.isJournaled())
+			workQueue.flush();
+		workQueue.stop();
 		Activator.getLogger().log(Level.INFO, "Alarm Notifier stopped");
 	}
 
@@ -164,6 +192,80 @@ public class AlarmNotifier {
 	public void handleNewAlarmConfiguration() {
 		workQueue.interruptAll();
 		Activator.getLogger().config("New alarm configuration loaded, pending actions interrupted");
+		final List<ActionJournal.Entry> recovered;
+		synchronized (this) {
+			recovered = recoveredActions;
+			recoveredActions = null;
+		}
+		if (recovered != null && !recovered.isEmpty())
+			restoreActions(recovered);
+	}
+
+	/**
+	 * Schedule actions that were pending when the notifier stopped. Each
+	 * action is checked against the current alarm state, and dropped if its
+	 * item or automated action no longer exists or the alarm is gone.
+	 * 
+	 * @param entries Actions recovered from the journal
+	 */
+	private void restoreActions(final List<ActionJournal.Entry> entries) {
+		int restored = 0;
+		final long now = System.currentTimeMillis();
+		for (ActionJournal.Entry entry : entries) {
+			final ActionID id = entry.getID();
+			final AlarmTreeItem item = rdb.findItem(id.getItemPath());
+			if (item == null || item.getAutomatedActions() == null)
+				continue;
+			AADataStructure aa = null;
+			for (AADataStructure candidate : item.getAutomatedActions())
+				if (candidate.getTitle().equals(id.getAaTitle()))
+					aa = candidate;
+			if (aa == null)
+				continue;
+			final IAutomatedAction action = factory.getNotificationAction(item, aa);
+			if (action == null)
+				continue;
+			final AlarmHandler handler = new AlarmHandler(id,
+					ItemInfo.fromItem(item), action, aa.getDelay());
+			if (!addSnapshots(handler, item))
+				continue;
+			if (handler.getStatus().equals(EActionStatus.CANCELED)
+					|| (maintenanceMode && !handler.getPriority().equals(
+							EActionPriority.IMPORTANT)))
+				continue;
+			if (handler.getStatus().equals(EActionStatus.NO_DELAY)) {
+				handler.setStatus(EActionStatus.FORCED);
+				workQueue.schedule(handler, 0);
+			} else
+				workQueue.schedule(handler, Math.max(0, entry.getDue() - now));
+			++restored;
+		}
+		Activator.getLogger().log(Level.INFO,
+				"Restored {0} of {1} actions from journal",
+				new Object[] { restored, entries.size() });
+	}
+
+	/**
+	 * Add snapshots of the PV or of the PVs in alarm below a system.
+	 * 
+	 * @return <code>true</code> if a snapshot was added
+	 */
+	private boolean addSnapshots(final AlarmHandler handler,
+			final AlarmTreeItem item) {
+		if (item instanceof AlarmTreePV) {
+			final AlarmTreePV pv = (AlarmTreePV) item;
+			if (!pv.isEnabled())
+				return false;
+			handler.updateAlarms(PVSnapshot.fromPVItem(pv));
+			return true;
+		}
+		boolean added = false;
+		for (int i = 0; i < item.getChildCount(); i++) {
+			final AlarmTreeItem child = item.getChild(i);
+			if (child.getSeverity().ordinal() > 0)
+				added |= addSnapshots(handler, child);
+		}
+		return added;
 	}
 
 	/**
@@ -7,6 +7,7 @@
 ******************************************************************************/
 package org.csstudio.alarm.beast.notifier;
 
+import java.io.File;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Preferences;
@@ -67,14 +68,24 @@ public class Application implements IApplication {
         System.out.println("JMS Client Topic:   " + Preferences.getJMS_AlarmClientTopic(config_name.get()));
         System.out.println("JMS Global Topic:   " + Preferences.getJMS_GlobalServerTopic());
         System.out.println("Notifier timer threshold: " + org.csstudio.alarm.beast.notifier.Preferences.getTimerThreshold());
+        System.out.println("Notifier concurrent actions: " + org.csstudio.alarm.beast.notifier.Preferences.getMaxConcurrentActions()
+        		+ ", queue size: " + org.csstudio.alarm.beast.notifier.Preferences.getActionQueueSize());
         
 		try {
 			AutomatedActionFactory factory = AutomatedActionFactory.getInstance();
 			factory.init(NotifierUtils.getActions());
 			final IAlarmRDBHandler rdbHandler = new AlarmRDBHandler(config_name.get());
 			final int timer_threshold = org.csstudio.alarm.beast.notifier.Preferences.getTimerThreshold();
+			final int max_concurrent = org.csstudio.alarm.beast.notifier.Preferences.getMaxConcurrentActions();
+			final int queue_size = org.csstudio.alarm.beast.notifier.Preferences.getActionQueueSize();
+			final String journal_dir = org.csstudio.alarm.beast.notifier.Preferences.getJournalDirectory();
+			ActionJournal journal = null;
+			if (journal_dir != null && !journal_dir.trim().isEmpty())
+				journal = new ActionJournal(new File(journal_dir.trim(),
+						"alarm_notifier_" + config_name.get() + ".journal"));
 			final AlarmNotifier alarm_notifer = new AlarmNotifier(
-					config_name.get(), rdbHandler, factory, timer_threshold);
+					config_name.get(), rdbHandler, factory, timer_threshold,
+					max_concurrent, queue_size, journal);
 			rdbHandler.init(alarm_notifer);
 			alarm_notifer.start();
 			while (run) {
@@ -18,6 +18,9 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 @SuppressWarnings("nls")
 public class Preferences {
     final public static String TIMER_THRESHOLD = "timer_threshold";
+    final public static String MAX_CONCURRENT_ACTIONS = "max_concurrent_actions";
+    final public static String ACTION_QUEUE_SIZE = "action_queue_size";
+    final public static String JOURNAL_DIRECTORY = "journal_directory";
 
 	/**
 	 * @param setting Preference identifier
@@ -49,4 +52,27 @@ public class Preferences {
 		return service.getInt(Activator.ID, TIMER_THRESHOLD, 100, null);
 	}
 
+	/** @return Number of concurrently executing actions per action type */
+	public static int getMaxConcurrentActions() {
+		final IPreferencesService service = Platform.getPreferencesService();
+		if (service == null)
+			return WorkQueue.DEFAULT_MAX_CONCURRENT;
+		return service.getInt(Activator.ID, MAX_CONCURRENT_ACTIONS,
+				WorkQueue.DEFAULT_MAX_CONCURRENT, null);
+	}
+
+	/** @return Number of actions queued for execution per action type */
+	public static int getActionQueueSize() {
+		final IPreferencesService service = Platform.getPreferencesService();
+		if (service == null)
+			return WorkQueue.DEFAULT_QUEUE_SIZE;
+		return service.getInt(Activator.ID, ACTION_QUEUE_SIZE,
+				WorkQueue.DEFAULT_QUEUE_SIZE, null);
+	}
+
+	/** @return Directory for the action journal, empty to disable the journal */
+	public static String getJournalDirectory() {
+		return getString(JOURNAL_DIRECTORY, "");
+	}
+
 }
@@ -7,14 +7,23 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.notifier;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.TimestampHelper;
@@ -24,18 +33,32 @@ import org.csstudio.alarm.beast.notifier.util.OverflowManager;
 import org.epics.util.time.Timestamp;
 
 /**
- * Automated actions work queue. Each action is scheduled in a timer and then
- * executed in a stand-alone thread. A scheduled task is executed only if its
- * status is OK.
+ * Automated actions work queue. Each action is scheduled with its delay and
+ * then executed by the executor for its action class. A scheduled task is
+ * executed only if its status is OK.
+ * <p>
+ * Each action class (implementation of {@link IAutomatedAction}) has a limited
+ * number of threads and a bounded queue. When the queue of an action class is
+ * full, further actions of that class are dropped.
+ * <p>
+ * With an {@link ActionJournal}, scheduled actions are recorded so they can be
+ * scheduled again after a restart.
  * 
  * @author Fred Arnaud (Sopra Group)
  * 
  */
 public class WorkQueue {
 
-	private class ScheduledActionTask extends TimerTask {
+	/** Default number of concurrently executing actions per action class */
+	public static final int DEFAULT_MAX_CONCURRENT = 5;
+
+	/** Default number of actions queued for execution per action class */
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+
+	private class ScheduledActionTask implements Runnable {
 
 		private final AlarmHandler alarmHandler;
+		private volatile ScheduledFuture<?> future;
 
 		public ScheduledActionTask(final AlarmHandler alarmHandler) {
 			this.alarmHandler = alarmHandler;
@@ -55,10 +78,9 @@ public class WorkQueue {
 				Activator.getLogger().log(Level.INFO,
 						time + " CANCEL " + alarmHandler.getInfos() + " because " + alarmHandler.getReason());
 			}
-			remove(this.alarmHandler);
+			remove(this);
 		}
 
-		@Override
 		public boolean cancel() {
 			String time = TimestampHelper.format(Timestamp.now());
 			String reason = alarmHandler.getReason().isEmpty() ? "the timer has been canceled"
@@ -66,7 +88,8 @@ public class WorkQueue {
 			Activator.getLogger().log(Level.INFO,
 					time + " CANCEL " + alarmHandler.getInfos() + " because " + reason);
 			alarmHandler.setStatus(EActionStatus.CANCELED);
-			return super.cancel();
+			final ScheduledFuture<?> f = future;
+			return f != null && f.cancel(false);
 		}
 
 		public AlarmHandler getAlarmHandler() {
@@ -75,15 +98,14 @@ public class WorkQueue {
 
 	}
 
-	private class ExecuteActionThread extends Thread {
+	private class ExecuteActionTask implements Runnable {
 
 		private final String infos;
 		private final List<PVSnapshot> snapshots;
 		private final IAutomatedAction action;
 
-		public ExecuteActionThread(final IAutomatedAction action,
+		public ExecuteActionTask(final IAutomatedAction action,
 				final String info, final List<PVSnapshot> snapshots) {
-			super("ExecuteActionThread");
 			this.infos = info;
 			this.snapshots = snapshots;
 			this.action = action;
@@ -91,7 +113,7 @@ public class WorkQueue {
 
 		@Override
 		public void run() {
-			incrementRunningThreads();
+			count_running.incrementAndGet();
 			try {
 				String time = TimestampHelper.format(Timestamp.now());
 				Activator.getLogger().log(Level.INFO, time + " EXECUTION " + infos);
@@ -100,7 +122,86 @@ public class WorkQueue {
 				Activator.getLogger().log(Level.SEVERE,
 						"ERROR executing " + infos + ": " + e.getMessage());
 			}
-			decrementRunningThreads();
+			count_running.decrementAndGet();
+			count_executed.incrementAndGet();
+		}
+	}
+
+	/** Overflow detection and executor for one action class */
+	private class ActionClassQueue {
+
+		private final Class<?> actionClass;
+		private final OverflowManager overflowManager;
+		private final ThreadPoolExecutor executor;
+
+		/** Was class flushed since the overflow started? Synchronized on this */
+		private boolean cleaned = false;
+
+		public ActionClassQueue(final Class<?> actionClass) {
+			this.actionClass = actionClass;
+			this.overflowManager = new OverflowManager(timer_threshold, time_interval);
+			this.executor = new ThreadPoolExecutor(max_concurrent, max_concurrent,
+					60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue_size),
+					new NamedThreadFactory("ExecuteAction " + actionClass.getSimpleName()));
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+
+		/**
+		 * Check for overflow. The first check that detects an overflow flushes
+		 * the scheduled actions of this class.
+		 * 
+		 * @return <code>true</code> if overflowed
+		 */
+		public boolean checkOverflow() {
+			final boolean flush;
+			synchronized (this) {
+				overflowManager.refreshOverflow();
+				if (!overflowManager.isOverflowed()) {
+					cleaned = false;
+					return false;
+				}
+				flush = !cleaned;
+				cleaned = true;
+			}
+			if (flush) {
+				Activator.getLogger().log(Level.WARNING,
+						"Work queue OVERFLOWED, start cleaning: " + actionClass.getSimpleName() + " !");
+				flushClass(actionClass);
+				Activator.getLogger().log(Level.WARNING,
+						"Work queue CLEANED: " + actionClass.getSimpleName() + " !");
+			}
+			return true;
+		}
+
+		public void execute(final AlarmHandler alarmHandler) {
+			try {
+				executor.execute(new ExecuteActionTask(alarmHandler.getScheduledAction(),
+						alarmHandler.getInfos(), alarmHandler.getCurrentSnapshots()));
+			} catch (RejectedExecutionException ex) {
+				count_dropped.incrementAndGet();
+				Activator.getLogger().log(Level.SEVERE,
+						"DROPPED " + alarmHandler.getInfos() + " because "
+								+ actionClass.getSimpleName() + " queue is full");
+			}
+		}
+
+		/** @return Number of actions waiting for a thread */
+		public int countQueued() {
+			return executor.getQueue().size();
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+
+		public NamedThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			return new Thread(runnable, name + " " + count.incrementAndGet());
 		}
 	}
 
@@ -110,35 +211,59 @@ public class WorkQueue {
 	private final int timer_threshold;
 	private final int time_interval;
 
-	/** Number of running actions */
-	private int count_pending = 0;
-	private int count_thread = 0;
+	/** Limits for each action class */
+	private final int max_concurrent;
+	private final int queue_size;
+
+	/** Metrics */
+	private final AtomicInteger count_running = new AtomicInteger();
+	private final AtomicLong count_executed = new AtomicLong();
+	private final AtomicLong count_dropped = new AtomicLong();
 
 	/** Minimum allowed action priority if overflow occurs */
 	private final EActionPriority overflow_level = EActionPriority.MAJOR;
 
 	/** Automated actions scheduler */
-	private Timer timer;
-	private Map<ActionID, ScheduledActionTask> scheduledActions;
+	private final ScheduledExecutorService scheduler;
+	private final Map<ActionID, ScheduledActionTask> scheduledActions;
 
-	private Map<Class<?>, OverflowManager> overflowManagers;
-	private Map<Class<?>, ReentrantLock> flushLocks;
-	private Map<Class<?>, Boolean> classCleaned;
+	private final Map<Class<?>, ActionClassQueue> actionClasses;
+
+	/** Journal of scheduled actions or <code>null</code> */
+	private final ActionJournal journal;
 
 	public WorkQueue(final int timer_threshold, final int time_interval) {
-		timer = new Timer();
+		this(timer_threshold, time_interval, DEFAULT_MAX_CONCURRENT,
+				DEFAULT_QUEUE_SIZE, null);
+	}
+
+	/**
+	 * @param timer_threshold Number of actions per class and time interval that
+	 *            trigger an overflow
+	 * @param time_interval Overflow time interval in millisecs
+	 * @param max_concurrent Number of concurrently executing actions per class
+	 * @param queue_size Number of actions queued for execution per class
+	 * @param journal Journal of scheduled actions or <code>null</code>
+	 */
+	public WorkQueue(final int timer_threshold, final int time_interval,
+			final int max_concurrent, final int queue_size,
+			final ActionJournal journal) {
 		this.timer_threshold = timer_threshold;
 		this.time_interval = time_interval;
-		classCleaned = new ConcurrentHashMap<Class<?>, Boolean>();
-		flushLocks = new ConcurrentHashMap<Class<?>, ReentrantLock>();
-		overflowManagers = new ConcurrentHashMap<Class<?>, OverflowManager>();
+		this.max_concurrent = Math.max(1, max_concurrent);
+		this.queue_size = Math.max(1, queue_size);
+		this.journal = journal;
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new NamedThreadFactory("WorkQueue Scheduler"));
+		actionClasses = new ConcurrentHashMap<Class<?>, ActionClassQueue>();
 		scheduledActions = new ConcurrentHashMap<ActionID, ScheduledActionTask>();
 	}
 
-	// Remove an automated action from the list
-	private void remove(final AlarmHandler alarmHandler) {
-		if (scheduledActions.remove(alarmHandler.getID()) != null)
-			decrementPendingActions();
+	// Remove a scheduled automated action from the list
+	private void remove(final ScheduledActionTask task) {
+		final ActionID id = task.getAlarmHandler().getID();
+		if (scheduledActions.remove(id, task) && journal != null)
+			journal.done(id);
 	}
 
 	// If overflow => schedule only Systems actions or PV with a severity
@@ -151,27 +276,13 @@ public class WorkQueue {
 		return false;
 	}
 
-	private ReentrantLock getLock(final Class<?> actionClass) {
-		if (flushLocks.get(actionClass) == null)
-			flushLocks.put(actionClass, new ReentrantLock());
-		return flushLocks.get(actionClass);
-	}
-
-	private OverflowManager getOverflowManager(final Class<?> actionClass) {
-		if (overflowManagers.get(actionClass) == null)
-			overflowManagers.put(actionClass, new OverflowManager(
-					this.timer_threshold, this.time_interval));
-		return overflowManagers.get(actionClass);
-	}
-
-	private Boolean getCleaned(final Class<?> actionClass) {
-		if (classCleaned.get(actionClass) == null)
-			classCleaned.put(actionClass, false);
-		return classCleaned.get(actionClass);
-	}
-
-	private void setCleaned(final Class<?> actionClass, Boolean cleaned) {
-		classCleaned.put(actionClass, cleaned);
+	private synchronized ActionClassQueue getActionClass(final Class<?> actionClass) {
+		ActionClassQueue queue = actionClasses.get(actionClass);
+		if (queue == null) {
+			queue = new ActionClassQueue(actionClass);
+			actionClasses.put(actionClass, queue);
+		}
+		return queue;
 	}
 
 	/**
@@ -179,63 +290,64 @@ public class WorkQueue {
 	 * otherwise.
 	 */
 	public AlarmHandler find(final ActionID actionId) {
-		if (scheduledActions.get(actionId) == null)
+		final ScheduledActionTask task = scheduledActions.get(actionId);
+		if (task == null)
 			return null;
-		return scheduledActions.get(actionId).getAlarmHandler();
+		return task.getAlarmHandler();
+	}
+
+	/** @return <code>true</code> if scheduled actions are journaled */
+	public boolean isJournaled() {
+		return journal != null;
+	}
+
+	/** @return Actions that were pending in the journal when it was opened */
+	public List<ActionJournal.Entry> getRecoveredActions() {
+		if (journal == null)
+			return Collections.emptyList();
+		return journal.getRecoveredActions();
 	}
 
 	/** Add an automated action to the work queue and schedule it. */
 	public void schedule(final AlarmHandler alarmHandler, boolean noDelay) {
-		final Class<?> actionClass = alarmHandler.getScheduledAction().getClass();
-		final OverflowManager overflowManager = getOverflowManager(actionClass);
-		overflowManager.refreshOverflow();
-		if (overflowManager.isOverflowed()) {
-			boolean lockAcquired = false;
-			try {
-				if (getCleaned(actionClass) == false
-						&& getLock(actionClass).tryLock()) {
-					lockAcquired = true;
-					Activator.getLogger().log(Level.WARNING,
-							"Work queue OVERFLOWED, start cleaning: " + actionClass.getSimpleName() + " !");
-					flushClass(alarmHandler.getScheduledAction().getClass());
-					Activator.getLogger().log(Level.WARNING,
-							"Work queue CLEANED: " + actionClass.getSimpleName() + " !");
-					setCleaned(actionClass, true);
-				}
-			} finally {
-				if (lockAcquired)
-					getLock(actionClass).unlock();
-			}
-		} else {
-			setCleaned(actionClass, false);
+		schedule(alarmHandler, noDelay ? 0 : (alarmHandler.getDelay() * 1000L));
+	}
+
+	/**
+	 * Add an automated action to the work queue and schedule it.
+	 * 
+	 * @param alarmHandler Action to schedule
+	 * @param delay Delay in millisecs
+	 */
+	public void schedule(final AlarmHandler alarmHandler, final long delay) {
+		final ActionClassQueue queue = getActionClass(alarmHandler.getScheduledAction().getClass());
+		if (queue.checkOverflow() && !isAllowed(alarmHandler)) {
+			count_dropped.incrementAndGet();
+			return;
 		}
-		if ((overflowManager.isOverflowed() && isAllowed(alarmHandler))
-				|| !overflowManager.isOverflowed()) {
-			ActionID actionId = alarmHandler.getID();
-			ScheduledActionTask newTask = new ScheduledActionTask(alarmHandler);
-			// TODO: action already scheduled ? => remove
-			if (scheduledActions.get(actionId) != null) { // replace
-				ScheduledActionTask oldTask = scheduledActions.get(actionId);
-				oldTask.cancel();
-				scheduledActions.put(actionId, newTask);
-			} else {
-				scheduledActions.put(actionId, newTask);
-				incrementPendingActions();
-			}
-			int delay = noDelay ? 0 : (alarmHandler.getDelay() * 1000);
-			String time = TimestampHelper.format(Timestamp.now());
-			timer.schedule(newTask, delay);
-			Activator.getLogger().log(Level.INFO,
-							time + " SUBMISSION " + alarmHandler.getInfos()
-									+ " scheduled in " + (delay / 1000)
-									+ " seconds on " + alarmHandler.getItem().getName());
+		ActionID actionId = alarmHandler.getID();
+		ScheduledActionTask newTask = new ScheduledActionTask(alarmHandler);
+		ScheduledActionTask oldTask = scheduledActions.put(actionId, newTask);
+		if (oldTask != null) // replace
+			oldTask.cancel();
+		if (journal != null)
+			journal.scheduled(actionId, System.currentTimeMillis() + delay);
+		String time = TimestampHelper.format(Timestamp.now());
+		try {
+			newTask.future = scheduler.schedule(newTask, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) { // stopped
+			scheduledActions.remove(actionId, newTask);
+			return;
 		}
+		Activator.getLogger().log(Level.INFO,
+						time + " SUBMISSION " + alarmHandler.getInfos()
+								+ " scheduled in " + (delay / 1000)
+								+ " seconds on " + alarmHandler.getItem().getName());
 	}
 
 	/** Execute an automated action. */
 	public void execute(final AlarmHandler alarmHandler) {
-		new ExecuteActionThread(alarmHandler.getScheduledAction(),
-				alarmHandler.getInfos(), alarmHandler.getCurrentSnapshots()).start();
+		getActionClass(alarmHandler.getScheduledAction().getClass()).execute(alarmHandler);
 		if (debug)
 			AlarmNotifierHistory.getInstance().addAction(alarmHandler);
 	}
@@ -245,84 +357,102 @@ public class WorkQueue {
 		ScheduledActionTask task = scheduledActions.get(alarmHandler.getID());
 		if (task != null) {
 			task.cancel();
-			remove(task.getAlarmHandler());
+			remove(task);
 		}
 	}
 
 	/** Interrupt all automated actions. */
 	public void interruptAll() {
-		synchronized (scheduledActions) {
-			for (ScheduledActionTask task : scheduledActions.values())
-				task.cancel();
-			scheduledActions.clear();
-			this.count_pending = 0;
+		for (ScheduledActionTask task : scheduledActions.values()) {
+			task.cancel();
+			remove(task);
 		}
 	}
 
 	/** Flush the work queue. */
 	public void flush() {
-		for (Class<?> actionClass : overflowManagers.keySet())
+		for (Class<?> actionClass : actionClasses.keySet())
 			flushClass(actionClass);
 	}
 
 	private void flushClass(final Class<?> actionClass) {
-		Map<ActionID, ScheduledActionTask> scheduledActionsToFlush = null;
-		synchronized (scheduledActions) {
-			scheduledActionsToFlush = new ConcurrentHashMap<ActionID, ScheduledActionTask>();
-			Iterator<Entry<ActionID, ScheduledActionTask>> it = scheduledActions.entrySet().iterator();
-			while (it.hasNext()) {
-				final Entry<ActionID, ScheduledActionTask> entry = it.next();
-				if (entry.getValue().getAlarmHandler().getScheduledAction()
-						.getClass().equals(actionClass)) {
-					scheduledActionsToFlush.put(entry.getKey(),
-							entry.getValue());
-					it.remove();
-				}
-			}
-			this.count_pending -= scheduledActionsToFlush.size();
+		final List<ScheduledActionTask> scheduledActionsToFlush = new ArrayList<ScheduledActionTask>();
+		Iterator<Entry<ActionID, ScheduledActionTask>> it = scheduledActions.entrySet().iterator();
+		while (it.hasNext()) {
+			final ScheduledActionTask task = it.next().getValue();
+			if (task.getAlarmHandler().getScheduledAction().getClass()
+					.equals(actionClass))
+				scheduledActionsToFlush.add(task);
 		}
-		for (ScheduledActionTask task : scheduledActionsToFlush.values()) {
+		for (ScheduledActionTask task : scheduledActionsToFlush) {
 			task.cancel();
+			remove(task);
 			AlarmHandler alarmHandler = task.getAlarmHandler();
 			if (isAllowed(alarmHandler)) {
 				alarmHandler.setStatus(EActionStatus.FORCED);
 				execute(alarmHandler);
-			}
+			} else
+				count_dropped.incrementAndGet();
 		}
 	}
 
-	/** @return Number of currently queued actions on the work queue */
-	public int countPendingActions() {
-		return count_pending;
+	/**
+	 * Stop the work queue. Scheduled actions are discarded without marking
+	 * them done in the journal, so they will be scheduled again after a
+	 * restart. Actions that are already queued for execution are executed.
+	 */
+	public void stop() {
+		scheduler.shutdownNow();
+		for (ActionClassQueue queue : actionClasses.values())
+			queue.executor.shutdown();
+		for (ActionClassQueue queue : actionClasses.values()) {
+			try {
+				queue.executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				// Ignore
+			}
+		}
+		if (journal != null)
+			journal.close();
 	}
 
-	/** @return Number of currently running threads on the work queue */
-	public int countRunningThreads() {
-		return count_thread;
+	/** @return Number of scheduled actions which wait for their delay */
+	public int countPendingActions() {
+		return scheduledActions.size();
 	}
 
-	private synchronized void incrementPendingActions() {
-		count_pending++;
+	/** @return Number of actions which are due but wait for a free thread */
+	public int countDelayedActions() {
+		int count = 0;
+		for (ActionClassQueue queue : actionClasses.values())
+			count += queue.countQueued();
+		return count;
 	}
 
-	private synchronized void incrementRunningThreads() {
-		count_thread++;
+	/** @return Number of currently executing actions */
+	public int countRunningThreads() {
+		return count_running.get();
 	}
 
-	private synchronized void decrementPendingActions() {
-		count_pending--;
+	/** @return Number of executed actions */
+	public long countExecutedActions() {
+		return count_executed.get();
 	}
 
-	private synchronized void decrementRunningThreads() {
-		count_thread--;
+	/** @return Number of actions dropped because of overflow or full queue */
+	public long countDroppedActions() {
+		return count_dropped.get();
 	}
 
 	/** Dump to stdout */
 	public void dump() {
 		System.out.println("== Work Queue Snapshot ==");
 		System.out.println("Work work_queue size:");
-		System.out.println(">>>> Pending actions: " + count_pending);
-		System.out.println(">>>> Running threads: " + count_thread);
+		System.out.println(">>>> Pending actions: " + countPendingActions());
+		System.out.println(">>>> Delayed actions: " + countDelayedActions());
+		System.out.println(">>>> Running actions: " + countRunningThreads());
+		System.out.println(">>>> Executed actions: " + countExecutedActions());
+		System.out.println(">>>> Dropped actions: " + countDroppedActions());
 		System.out.println("Pending actions list:");
 		for (ScheduledActionTask task : scheduledActions.values()) {
 			System.out.println(task.getAlarmHandler().getScheduledAction());
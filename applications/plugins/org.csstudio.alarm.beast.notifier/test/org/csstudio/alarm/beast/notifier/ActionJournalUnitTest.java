@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014 ITER Organization.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.notifier;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ActionJournal}.
+ */
+@SuppressWarnings("nls")
+public class ActionJournalUnitTest {
+
+	@Test
+	public void testRecovery() throws Exception {
+		final File file = File.createTempFile("notifier", ".journal");
+		file.delete();
+		try {
+			ActionJournal journal = new ActionJournal(file);
+			Assert.assertEquals(0, journal.getRecoveredActions().size());
+
+			final ActionID done = new ActionID("/Root/Area/PV1", "Mail");
+			final ActionID pending = new ActionID("/Root/Area/PV2", "SMS\twith tab");
+			journal.scheduled(done, 1000);
+			journal.scheduled(pending, 2000);
+			journal.scheduled(pending, 3000);
+			journal.done(done);
+			journal.close();
+
+			// Partially written line is ignored
+			final FileOutputStream out = new FileOutputStream(file, true);
+			out.write("S\t40".getBytes("UTF-8"));
+			out.close();
+
+			journal = new ActionJournal(file);
+			final List<ActionJournal.Entry> recovered = journal.getRecoveredActions();
+			Assert.assertEquals(1, recovered.size());
+			Assert.assertEquals(pending, recovered.get(0).getID());
+			Assert.assertEquals(3000, recovered.get(0).getDue());
+
+			// Recovered actions stay in journal until done
+			journal.close();
+			journal = new ActionJournal(file);
+			Assert.assertEquals(1, journal.getRecoveredActions().size());
+			journal.done(pending);
+			journal.close();
+			journal = new ActionJournal(file);
+			Assert.assertEquals(0, journal.getRecoveredActions().size());
+			journal.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRecoveryFromCompaction() throws Exception {
+		final File file = File.createTempFile("notifier", ".journal");
+		final File tmp = new File(file.getPath() + ".tmp");
+		file.delete();
+		try {
+			ActionJournal journal = new ActionJournal(file);
+			final ActionID pending = new ActionID("/Root/Area/PV1", "Mail");
+			journal.scheduled(pending, 1000);
+			journal.close();
+
+			// Older versions could crash after deleting the journal
+			// but before renaming the compacted one
+			Assert.assertTrue(file.renameTo(tmp));
+			journal = new ActionJournal(file);
+			final List<ActionJournal.Entry> recovered = journal.getRecoveredActions();
+			Assert.assertEquals(1, recovered.size());
+			Assert.assertEquals(pending, recovered.get(0).getID());
+			journal.close();
+			Assert.assertTrue(file.exists());
+			Assert.assertFalse(tmp.exists());
+		} finally {
+			file.delete();
+			tmp.delete();
+		}
+	}
+
+	@Test
+	public void testCompactionFailure() throws Exception {
+		final File file = File.createTempFile("notifier", ".journal");
+		final File tmp = new File(file.getPath() + ".tmp");
+		final File blocker = new File(tmp, "blocker");
+		file.delete();
+		try {
+			ActionJournal journal = new ActionJournal(file);
+			final ActionID early = new ActionID("/Root/Area/PV1", "Mail");
+			journal.scheduled(early, 1000);
+
+			// Directory in place of the temporary file makes compaction fail
+			Assert.assertTrue(tmp.mkdir());
+			Assert.assertTrue(blocker.createNewFile());
+			for (int i = 0; i < 2000; i++) {
+				final ActionID id = new ActionID("/Root/Area/PV" + i, "SMS");
+				journal.scheduled(id, 2000);
+				journal.done(id);
+			}
+			// Still appending to the journal
+			final ActionID late = new ActionID("/Root/Area/PV2", "Mail");
+			journal.scheduled(late, 3000);
+			journal.close();
+
+			blocker.delete();
+			tmp.delete();
+			journal = new ActionJournal(file);
+			final List<ActionJournal.Entry> recovered = journal.getRecoveredActions();
+			Assert.assertEquals(2, recovered.size());
+			Assert.assertEquals(early, recovered.get(0).getID());
+			Assert.assertEquals(late, recovered.get(1).getID());
+			journal.close();
+		} finally {
+			blocker.delete();
+			tmp.delete();
+			file.delete();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testBackgroundSync() throws Exception {
+		final File file = File.createTempFile("notifier", ".journal");
+		file.delete();
+		try {
+			ActionJournal journal = new ActionJournal(file);
+			// Calls don't wait for the disk, lines are written in the background
+			for (int i = 0; i < 1000; i++)
+				journal.scheduled(new ActionID("/Root/Area/PV" + i, "Mail"), 1000);
+			while (file.length() < 1000 * "S\t1000\t/Root/Area/PV0\tMail\n".length())
+				Thread.sleep(10);
+			journal.close();
+			journal = new ActionJournal(file);
+			Assert.assertEquals(1000, journal.getRecoveredActions().size());
+			journal.close();
+		} finally {
+			file.delete();
+		}
+	}
+}
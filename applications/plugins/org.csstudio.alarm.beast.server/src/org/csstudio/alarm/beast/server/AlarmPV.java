@@ -11,6 +11,7 @@ import static org.epics.pvmanager.vtype.ExpressionLanguage.vType;
 import static org.epics.util.time.TimeDuration.ofSeconds;
 
 import java.io.PrintStream;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.AnnunciationFormatter;
@@ -19,6 +20,7 @@ import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TreeItem;
 import org.epics.pvmanager.PVManager;
 import org.epics.pvmanager.PVReader;
+import org.epics.pvmanager.PVReaderConfiguration;
 import org.epics.pvmanager.PVReaderEvent;
 import org.epics.pvmanager.PVReaderListener;
 import org.epics.vtype.VType;
@@ -46,6 +48,11 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
      */
     private volatile Filter filter;
 
+    /** Executor for alarm logic updates.
+     *  <code>null</code> to update on the PV's notification thread.
+     */
+    private volatile Executor executor = null;
+
     /** Initialize alarm PV
      *  @param server Alarm server that handles this PV. Within JUnit tests, this may be <code>null</code>.
      *  @param id RDB ID
@@ -94,6 +101,28 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
         setEnablement(enabled, filter);
     }
 
+    /** Set executor for alarm logic updates.
+     *  <p>
+     *  Must not be called on a running PV.
+     *  @param executor Executor that performs updates in order, or <code>null</code>
+     */
+    void setExecutor(final Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /** Perform an update of the alarm logic on the PV's executor
+     *  @param update Update to perform
+     */
+    void execute(final Runnable update)
+    {
+        final Executor safe_executor = executor;
+        if (safe_executor == null)
+            update.run();
+        else
+            safe_executor.execute(update);
+    }
+
     /** @return AlarmLogic used by this PV */
     AlarmLogic getAlarmLogic()
     {
@@ -168,7 +197,10 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
                 }
             }
         };
-        pv = PVManager.read(vType(getName())).readListener(listener).timeout(ofSeconds(Preferences.getConnectionGracePeriod())).maxRate(ofSeconds(0.5));
+        final PVReaderConfiguration<VType> config = PVManager.read(vType(getName())).readListener(listener);
+        if (executor != null)
+            config.notifyOn(executor);
+        pv = config.timeout(ofSeconds(Preferences.getConnectionGracePeriod())).maxRate(ofSeconds(0.5));
         if (filter != null)
             filter.start();
     }
@@ -194,7 +226,14 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     	final boolean new_enable_state = value > 0.0;
     	Activator.getLogger().log(Level.FINE, "{0} filter changed to {1}",
     	        new Object[] { getName(), new_enable_state });
-        logic.setEnabled(new_enable_state);
+    	execute(new Runnable()
+    	{
+            @Override
+            public void run()
+            {
+                logic.setEnabled(new_enable_state);
+            }
+    	});
 	}
 
 	/** AlarmLogicListener: {@inheritDoc} */
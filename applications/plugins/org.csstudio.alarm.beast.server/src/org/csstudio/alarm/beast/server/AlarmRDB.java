@@ -11,15 +11,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.logging.Level;
 
+import org.csstudio.alarm.beast.Preferences;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimestampHelper;
 import org.csstudio.alarm.beast.TreeItem;
+import org.csstudio.alarm.beast.client.AlarmConfigurationSnapshot;
 import org.csstudio.alarm.beast.server.AlarmServer.Update;
 import org.csstudio.platform.utility.rdb.RDBUtil;
 
@@ -110,17 +110,10 @@ public class AlarmRDB
             statement.close();
         }
 
-        // Fetch children
-        final PreparedStatement sel_items_by_parent =
-            conn.prepareStatement(sql.sel_items_by_parent);
-        try
-        {
-            readChildren(root, sel_items_by_parent);
-        }
-        finally
-        {
-            sel_items_by_parent.close();
-        }
+        // Fetch all items in bulk, then assemble the tree
+        final AlarmConfigurationSnapshot snapshot = AlarmConfigurationSnapshot.read(rdb, sql,
+                root_name, root.getID(), Preferences.getConfigSnapshotDirectory());
+        addChildren(root, snapshot);
 
         // In transactional mode (Connection.setAutoCommit(false)),
         // even SELECTs needed a commit() to end the transaction.
@@ -142,108 +135,66 @@ public class AlarmRDB
         return root;
     }
 
-    /** Read alarm tree hierarchy
+    /** Add alarm tree hierarchy
      *  @param parent Parent entry
-     *  @param sel_items_by_parent Prepared statement for fetching child elements
+     *  @param snapshot Configuration snapshot
      *  @throws Exception on error
      */
-    private void readChildren(final TreeItem parent, final PreparedStatement sel_items_by_parent) throws Exception
+    private void addChildren(final TreeItem parent, final AlarmConfigurationSnapshot snapshot) throws Exception
     {
-        final List<TreeItem> recurse_items = new ArrayList<TreeItem>();
-
-        sel_items_by_parent.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent.executeQuery();
-        try
+        final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
+        for (AlarmConfigurationSnapshot.Item item : snapshot.getChildren(parent.getID()))
         {
-            while (result.next())
+            final String name = item.getName();
+            if (name == null)
+                throw new Exception("NULL component Name");
+            final AlarmConfigurationSnapshot.PVInfo pv = item.getPV();
+            if (pv == null)
             {
-                final int id = result.getInt(1);
-                if (result.wasNull())
-                    throw new Exception("NULL component ID");
-                final String name = result.getString(17);
-                if (result.wasNull())
-                    throw new Exception("NULL component Name");
-                // Ignoring config. time from result.getTimestamp(2)
-
-                // Check PV's ID. If null, this is a component, not PV
-                final int pv_id = result.getInt(3);
-                if (result.wasNull())
-                {
-                    final TreeItem child = new TreeItem(parent, name, id);
-                    recurse_items.add(child);
-                }
-                else
-                {   // Handle PV
-                    if (id != pv_id)
-                        throw new Exception("Internal RDB error: Item '" + name + "' as ID " + id + " but also PV ID " + pv_id);
-                    // Easy results
-                    String description = result.getString(4);
-                    // Description should not be empty
-                    if (result.wasNull() || description == null || description.length() <= 0)
-                        description = name;
-                    // Default to most features turned 'on'
-                    boolean enabled = result.getBoolean(5);
-                    if (result.wasNull())
-                        enabled = true;
-                    boolean annunciate = result.getBoolean(6);
-                    if (result.wasNull())
-                        annunciate = true;
-                    boolean latch = result.getBoolean(7);
-                    if (result.wasNull())
-                        latch = true;
-                    // 0/null/empty disables these features
-                    final int min_alarm_delay = result.getInt(8);
-                    final int count = result.getInt(9);
-                    final String filter = result.getString(10);
-
-                    // Decode current severity/status IDs, handling NULL as "Ok"
-                    int severity_id = result.getInt(11);
-                    final SeverityLevel current_severity = result.wasNull()
-                        ? SeverityLevel.OK
-                        : severity_mapping.getSeverityLevel(severity_id);
-
-                    int status_id = result.getInt(12);
-                    final String current_status = result.wasNull()
-                        ? ""
-                        : message_mapping.findMessageById(status_id);
-
-                    // Alarm severity/status
-                    severity_id = result.getInt(13);
-                    final SeverityLevel severity = result.wasNull()
-                        ? SeverityLevel.OK
-                        : severity_mapping.getSeverityLevel(severity_id);
-
-                    status_id = result.getInt(14);
-                    final String status = result.wasNull()
-                        ? ""
-                        : message_mapping.findMessageById(status_id);
-
-                    // Alarm value, time
-                    final String value = result.getString(15);
-
-                    final Timestamp time = result.getTimestamp(16);
-                    final org.epics.util.time.Timestamp timestamp = result.wasNull()
-                        ? org.epics.util.time.Timestamp.now()
-                        : TimestampHelper.toEPICSTime(time);
-
-                    final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
-
-                    new AlarmPV(server, parent, id, name, description,
-                            enabled, latch, annunciate, min_alarm_delay, count, global_delay, filter,
-                            current_severity, current_status, severity, status, value, timestamp);
-                }
+                final TreeItem child = new TreeItem(parent, name, item.getID());
+                addChildren(child, snapshot);
+                continue;
             }
+            // Handle PV
+            String description = pv.getDescription();
+            // Description should not be empty
+            if (description == null || description.length() <= 0)
+                description = name;
+            // Default to most features turned 'on'
+            final boolean enabled = pv.isEnabled() == null || pv.isEnabled();
+            final boolean annunciate = pv.isAnnunciating() == null || pv.isAnnunciating();
+            final boolean latch = pv.isLatching() == null || pv.isLatching();
+            // 0/null/empty disables these features
+            final int min_alarm_delay = pv.getDelay();
+            final int count = pv.getCount();
+            final String filter = pv.getFilter();
+
+            // Decode current severity/status IDs, handling NULL as "Ok"
+            final SeverityLevel current_severity = pv.getCurrentSeverityID() == null
+                ? SeverityLevel.OK
+                : severity_mapping.getSeverityLevel(pv.getCurrentSeverityID());
+            final String current_status = pv.getCurrentStatusID() == null
+                ? ""
+                : message_mapping.findMessageById(pv.getCurrentStatusID());
+
+            // Alarm severity/status
+            final SeverityLevel severity = pv.getSeverityID() == null
+                ? SeverityLevel.OK
+                : severity_mapping.getSeverityLevel(pv.getSeverityID());
+            final String status = pv.getStatusID() == null
+                ? ""
+                : message_mapping.findMessageById(pv.getStatusID());
+
+            // Alarm value, time
+            final String value = pv.getValue();
+            final org.epics.util.time.Timestamp timestamp = pv.getAlarmTime() == null
+                ? org.epics.util.time.Timestamp.now()
+                : pv.getAlarmTime();
+
+            new AlarmPV(server, parent, item.getID(), name, description,
+                    enabled, latch, annunciate, min_alarm_delay, count, global_delay, filter,
+                    current_severity, current_status, severity, status, value, timestamp);
         }
-        finally
-        {
-            result.close();
-        }
-
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (TreeItem child : recurse_items)
-            readChildren(child, sel_items_by_parent);
     }
 
     /** Read configuration for PV, update it from RDB
@@ -155,6 +155,11 @@ public class AlarmServer implements Runnable
      */
     private Map<String, AlarmPV> pv_map = new HashMap<String, AlarmPV>();
 
+    /** Executors for alarm logic updates by area of the alarm tree,
+     *  or <code>null</code> to update on the PV notification threads
+     */
+    final private PartitionedExecutor partitions;
+
     /** Indicator for communication errors */
     private volatile boolean had_RDB_error = false;
 
@@ -164,6 +169,8 @@ public class AlarmServer implements Runnable
     private final long updatePeriod;
     /** The maximum size of batches when persisting messages */
     private final int batchSize;
+    /** Send state updates to clients in binary batches? */
+    private final boolean binaryUpdates;
 
     /** Initialize
      *  @param talker Talker that'll be used to annunciate
@@ -177,12 +184,15 @@ public class AlarmServer implements Runnable
         this.work_queue = work_queue;
         this.updatePeriod = (long)(Preferences.getBatchUpdatePeriod()*1000);
         this.batchSize = Preferences.getBatchSize();
+        this.binaryUpdates = AlarmServerPreferences.getBinaryUpdates();
         rdb = new AlarmRDB(this, Preferences.getRDB_Url(),
         		Preferences.getRDB_User(),
         		Preferences.getRDB_Password(),
         		Preferences.getRDB_Schema(),
         		root_name);
         messenger = new ServerCommunicator(this, work_queue, root_name);
+        final int threads = AlarmServerPreferences.getAlarmThreads();
+        partitions = threads > 0 ? new PartitionedExecutor(threads) : null;
         readConfiguration();
     }
 
@@ -229,7 +239,9 @@ public class AlarmServer implements Runnable
         	alarm_tree.dump(out);
         }
 
-        out.println("Work queue size: " + work_queue.size());
+        out.println(work_queue);
+        if (partitions != null)
+            out.println(partitions);
 
         // Log memory usage in MB
         final double free = Runtime.getRuntime().freeMemory() / (1024.0*1024.0);
@@ -241,6 +253,12 @@ public class AlarmServer implements Runnable
                 format.format(new Date()), max, free, 100.0*free/max, total, 100.0*total/max);
     }
 
+    /** @return Work queue of the 'main' thread */
+    public WorkQueue getWorkQueue()
+    {
+        return work_queue;
+    }
+
     /** @return list of all PVs known to the server */
     public AlarmPV[] getPVs()
     {
@@ -373,6 +391,8 @@ public class AlarmServer implements Runnable
         }
         messenger.sendAnnunciation("Alarm server exiting");
         stopPVs();
+        if (partitions != null)
+            partitions.shutdown();
         messenger.stop();
         if (batchExecutor != null)
         	batchExecutor.terminate();
@@ -433,6 +453,9 @@ public class AlarmServer implements Runnable
             for (AlarmPV pv : pv_list)
                 pv_map.put(pv.getName(), pv);
             pv_count = pv_list.length;
+            // Assign PVs to alarm logic threads
+            if (partitions != null)
+                partitions.assign(alarm_tree);
         }
         timer.stop();
         // LDAP results: Read 12614 PVs in 2.69 seconds, 4689.0 PVs/sec
@@ -507,7 +530,14 @@ public class AlarmServer implements Runnable
         resetNagTimer();
         final AlarmPV pv = findPV(pv_name);
         if (pv != null)
-            pv.getAlarmLogic().acknowledge(acknowledge);
+            pv.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    pv.getAlarmLogic().acknowledge(acknowledge);
+                }
+            });
     }
 
     /** Locate alarm PV by name
@@ -579,8 +609,10 @@ public class AlarmServer implements Runnable
 	public void sendEnablementUpdate(final AlarmPV pv, final boolean enabled)
 	{
 		messenger.sendEnablementUpdate(pv, enabled);
-        // Handle in separate queue & thread
-        work_queue.execute(new Runnable()
+        // Handle in separate queue & thread.
+        // Only the last enablement of a PV needs to be written,
+        // so it replaces a still queued one
+        work_queue.executeReplacable(pv, new Runnable()
         {
             @Override
             public void run()
@@ -658,10 +690,16 @@ public class AlarmServer implements Runnable
 	        }
 		}
 		
-		for (Update u : updates)
+		if (binaryUpdates)
+		{
+			if (updates.length > 0)
+				messenger.sendStateUpdates(updates);
+		}
+		else
 		{
-			messenger.sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
-    	        u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+			for (Update u : updates)
+				messenger.sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
+	    	        u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
 		}
 		
 		Update[] rdbGlobals = null;
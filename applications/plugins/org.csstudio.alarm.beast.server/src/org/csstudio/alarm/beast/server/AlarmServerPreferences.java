@@ -24,6 +24,9 @@ public class AlarmServerPreferences
 {
     final public static String GLOBAL_ALARM_DELAY = "global_alarm_delay";
     final public static String NAG_PERIOD = "nag_period";
+    final public static String ALARM_THREADS = "alarm_threads";
+    final public static String BINARY_UPDATES = "binary_updates";
+    final public static String STATE_LOG_TOPIC = "state_log_topic";
 
     /** @return Period for repeated 'There are .. active alarms' annunciations [seconds]
      *  @throws Exception on error in period specification
@@ -45,4 +48,33 @@ public class AlarmServerPreferences
             return 0;
         return service.getInt(Activator.ID, GLOBAL_ALARM_DELAY, 0, null);
     }
+
+    /** @return Number of threads for alarm logic updates, 0 to use PV notification threads */
+    public static int getAlarmThreads()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return 0;
+        return service.getInt(Activator.ID, ALARM_THREADS, 0, null);
+    }
+
+    /** @return <code>true</code> to send batches of state updates in binary format */
+    public static boolean getBinaryUpdates()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return false;
+        return service.getBoolean(Activator.ID, BINARY_UPDATES, false, null);
+    }
+
+    /** @return Topic for per-PV state messages to loggers when sending binary updates,
+     *          empty to not send them
+     */
+    public static String getStateLogTopic()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return "";
+        return service.getString(Activator.ID, STATE_LOG_TOPIC, "", null).trim();
+    }
 }
@@ -20,6 +20,7 @@ import java.io.PrintStream;
 
 import org.csstudio.alarm.beast.AlarmTreePath;
 import org.csstudio.alarm.beast.TreeItem;
+import org.csstudio.alarm.beast.WorkQueue;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.osgi.framework.console.CommandInterpreter;
@@ -64,6 +65,8 @@ public class ConsoleCommands implements CommandProvider
         buf.append("\tpwd                 - Print working 'directory'\n");
         buf.append("\tcd '/path'          - Change working 'directory'\n");
         buf.append("\tprefs               - List all preferences\n");
+        buf.append("\tqueue               - Show work queue statistics\n");
+        buf.append("\tqueue -r            - Show, then reset work queue statistics\n");
         return buf.toString();
     }
 
@@ -111,6 +114,17 @@ public class ConsoleCommands implements CommandProvider
         return null;
     }
 
+    /** 'queue' command */
+    public Object _queue(final CommandInterpreter intp)
+    {
+        final boolean reset = "-r".equals(intp.nextArgument());
+        final WorkQueue queue = server.getWorkQueue();
+        intp.println(queue.toString());
+        if (reset)
+            queue.resetStatistics();
+        return null;
+    }
+
     /** 'pwd' command */
     public Object _pwd(final CommandInterpreter intp)
     {
@@ -12,6 +12,7 @@ import static org.epics.util.time.TimeDuration.ofSeconds;
 
 import java.util.logging.Level;
 
+import org.csstudio.apputil.formula.CompiledFormula;
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
 import org.epics.pvmanager.PVManager;
@@ -46,7 +47,7 @@ public class Filter
     final private FilterListener listener;
 
     /** Formula to evaluate */
-    final private Formula formula;
+    final private CompiledFormula formula;
 
     /** Variables used in the formula. May be [0], but never null */
     final private VariableNode[] variables;
@@ -67,7 +68,7 @@ public class Filter
             final FilterListener listener) throws Exception
     {
         this.listener = listener;
-        formula = new Formula(filter_expression, true);
+        formula = new CompiledFormula(new Formula(filter_expression, true));
         final VariableNode vars[] = formula.getVariables();
         if (vars == null)
             variables = new VariableNode[0];
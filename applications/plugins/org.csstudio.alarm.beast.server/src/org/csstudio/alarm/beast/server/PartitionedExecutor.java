@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.csstudio.alarm.beast.TreeItem;
+
+/** Executors for partitions of the alarm tree.
+ *
+ *  <p>PVs are assigned to partitions by their top-level alarm tree area.
+ *  Each partition is handled by one thread, so alarm logic updates
+ *  for a PV are performed in the order received,
+ *  while PVs in different areas are evaluated concurrently.
+ */
+@SuppressWarnings("nls")
+class PartitionedExecutor
+{
+    /** PVs of a top-level alarm tree item */
+    private static class Area
+    {
+        final List<AlarmPV> pvs = new ArrayList<AlarmPV>();
+
+        Area(final TreeItem item)
+        {
+            addPVs(item);
+        }
+
+        private void addPVs(final TreeItem node)
+        {
+            if (node instanceof AlarmPV)
+                pvs.add((AlarmPV) node);
+            else
+                for (int i=0; i<node.getChildCount(); ++i)
+                    addPVs(node.getChild(i));
+        }
+    }
+
+    /** One single-threaded executor per partition */
+    final private ExecutorService[] executors;
+
+    /** Number of PVs assigned to each partition */
+    final private int[] pv_counts;
+
+    /** Initialize
+     *  @param partitions Number of partitions, i.e. threads
+     */
+    public PartitionedExecutor(final int partitions)
+    {
+        executors = new ExecutorService[partitions];
+        pv_counts = new int[partitions];
+        for (int i=0; i<partitions; ++i)
+        {
+            final String name = "AlarmLogic-" + (i+1);
+            executors[i] = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /** @return Number of partitions */
+    public int getPartitionCount()
+    {
+        return executors.length;
+    }
+
+    /** @param partition Partition index
+     *  @return Number of PVs assigned to that partition
+     */
+    public synchronized int getPVCount(final int partition)
+    {
+        return pv_counts[partition];
+    }
+
+    /** Assign the PVs of an alarm tree to partitions.
+     *
+     *  <p>Top-level areas are handled largest first,
+     *  each added to the partition with the fewest PVs so far.
+     *
+     *  @param root Root of the alarm tree
+     */
+    public synchronized void assign(final TreeItem root)
+    {
+        final List<Area> areas = new ArrayList<Area>(root.getChildCount());
+        for (int i=0; i<root.getChildCount(); ++i)
+            areas.add(new Area(root.getChild(i)));
+        Collections.sort(areas, new Comparator<Area>()
+        {
+            @Override
+            public int compare(final Area a, final Area b)
+            {
+                return b.pvs.size() - a.pvs.size();
+            }
+        });
+        for (int i=0; i<pv_counts.length; ++i)
+            pv_counts[i] = 0;
+        for (Area area : areas)
+        {
+            int partition = 0;
+            for (int i=1; i<pv_counts.length; ++i)
+                if (pv_counts[i] < pv_counts[partition])
+                    partition = i;
+            pv_counts[partition] += area.pvs.size();
+            for (AlarmPV pv : area.pvs)
+                pv.setExecutor(executors[partition]);
+        }
+    }
+
+    /** Stop the executor threads.
+     *  Queued updates are still performed.
+     */
+    public void shutdown()
+    {
+        for (ExecutorService executor : executors)
+            executor.shutdown();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(executors.length).append(" alarm logic threads, PVs per thread:");
+        for (int count : pv_counts)
+            buf.append(' ').append(count);
+        return buf.toString();
+    }
+}
@@ -17,6 +17,7 @@ import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 
+import org.csstudio.alarm.beast.AlarmUpdateBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.JMSCommunicationWorkQueueThread;
 import org.csstudio.alarm.beast.Preferences;
@@ -36,6 +37,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     /** TYPE identifier used for talk messages */
     private static final String TYPE_TALK = "talk";
 
+    /** Maximum number of updates in one {@link AlarmUpdateBatch} message */
+    private static final int MAX_BATCH_UPDATES = 10000;
+
     /** Format of time stamps */
     final private SimpleDateFormat date_format =
         new SimpleDateFormat(JMSLogMessage.DATE_FORMAT);
@@ -73,6 +77,11 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     /** Producer for sending to the 'global' topic */
     private MessageProducer global_producer;
 
+    /** Producer for sending per-PV state messages to loggers
+     *  when state updates are sent as binary batches, or <code>null</code>
+     */
+    private MessageProducer state_log_producer;
+
     /** Consumer for listening to the 'client' topic */
     private MessageConsumer client_consumer;
 
@@ -127,6 +136,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
         server_producer = createProducer(Preferences.getJMS_AlarmServerTopic(root_name));
         talk_producer = createProducer(Preferences.getJMS_TalkTopic(root_name));
         global_producer = createProducer(Preferences.getJMS_GlobalServerTopic());
+        final String state_log_topic = AlarmServerPreferences.getStateLogTopic();
+        if (AlarmServerPreferences.getBinaryUpdates()  &&  !state_log_topic.isEmpty())
+            state_log_producer = createProducer(state_log_topic);
         client_consumer = createConsumer(Preferences.getJMS_AlarmClientTopic(root_name));
         client_consumer.setMessageListener(new MessageListener()
         {
@@ -147,6 +159,11 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     {
         client_consumer.close();
         client_consumer = null;
+        if (state_log_producer != null)
+        {
+            state_log_producer.close();
+            state_log_producer = null;
+        }
         global_producer.close();
         global_producer = null;
         talk_producer.close();
@@ -281,19 +298,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
             {
             	try
                 {
-                    final MapMessage map = createAlarmMessage(
-                            AlarmLogic.getMaintenanceMode()
-                            ? JMSAlarmMessage.TEXT_STATE_MAINTENANCE
-                            : JMSAlarmMessage.TEXT_STATE);
-                    map.setString(JMSLogMessage.NAME, pv.getName());
-                    map.setString(JMSLogMessage.SEVERITY, alarm_severity.name());
-                    map.setString(JMSAlarmMessage.STATUS,  alarm_message);
-                    if (value != null)
-                        map.setString(JMSAlarmMessage.VALUE, value);
-                    map.setString(JMSAlarmMessage.EVENTTIME, date_format.format(timestamp.toDate()));
-                    map.setString(JMSAlarmMessage.CURRENT_SEVERITY, current_severity.name());
-                    map.setString(JMSAlarmMessage.CURRENT_STATUS, current_message);
-                    server_producer.send(map);
+                    server_producer.send(createStateMessage(AlarmLogic.getMaintenanceMode(), pv,
+                            current_severity, current_message, alarm_severity, alarm_message,
+                            value, timestamp));
                 }
                 catch (Exception ex)
                 {
@@ -304,6 +311,95 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
         idle_timer.reset();
     }
 
+    /** Create state update message
+     *  @param maintenance Maintenance mode?
+     *  @param pv PV that changes alarm state
+     *  @param current_severity Current severity of the PV
+     *  @param current_message Current message of the PV
+     *  @param alarm_severity Alarm severity
+     *  @param alarm_message Alarm message
+     *  @param value Value that triggered update
+     *  @param timestamp Time stamp for alarm severity/status
+     *  @return MapMessage
+     *  @throws Exception on error
+     */
+    private MapMessage createStateMessage(final boolean maintenance, final AlarmPV pv,
+            final SeverityLevel current_severity,
+            final String current_message,
+            final SeverityLevel alarm_severity, final String alarm_message,
+            final String value,
+            final Timestamp timestamp) throws Exception
+    {
+        final MapMessage map = createAlarmMessage(maintenance
+                ? JMSAlarmMessage.TEXT_STATE_MAINTENANCE
+                : JMSAlarmMessage.TEXT_STATE);
+        map.setString(JMSLogMessage.NAME, pv.getName());
+        map.setString(JMSLogMessage.SEVERITY, alarm_severity.name());
+        map.setString(JMSAlarmMessage.STATUS,  alarm_message);
+        if (value != null)
+            map.setString(JMSAlarmMessage.VALUE, value);
+        map.setString(JMSAlarmMessage.EVENTTIME, date_format.format(timestamp.toDate()));
+        map.setString(JMSAlarmMessage.CURRENT_SEVERITY, current_severity.name());
+        map.setString(JMSAlarmMessage.CURRENT_STATUS, current_message);
+        return map;
+    }
+
+    /** Notify clients of new alarm states in binary batches.
+     *  Loggers, which cannot decode the batches,
+     *  receive the per-PV state messages on a separate topic.
+     *  @param updates State updates
+     *  @see AlarmUpdateBatch
+     */
+    protected void sendStateUpdates(final AlarmServer.Update[] updates)
+    {
+        execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final boolean maintenance = AlarmLogic.getMaintenanceMode();
+                for (int start=0; start<updates.length; start+=MAX_BATCH_UPDATES)
+                {
+                    final int end = Math.min(updates.length, start + MAX_BATCH_UPDATES);
+                    final AlarmUpdateBatch batch = new AlarmUpdateBatch(maintenance);
+                    for (int i=start; i<end; ++i)
+                    {
+                        final AlarmServer.Update u = updates[i];
+                        batch.add(u.pv.getID(), u.currentSeverity, u.currentMessage,
+                                  u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+                    }
+                    try
+                    {
+                        final MapMessage map = createAlarmMessage(JMSAlarmMessage.TEXT_STATE_BATCH);
+                        map.setBytes(JMSAlarmMessage.UPDATES, batch.toByteArray());
+                        server_producer.send(map);
+                    }
+                    catch (Exception ex)
+                    {
+                        Activator.getLogger().log(Level.WARNING, "Cannot send state update batch", ex);
+                    }
+                }
+                if (state_log_producer == null)
+                    return;
+                for (AlarmServer.Update u : updates)
+                {
+                    try
+                    {
+                        state_log_producer.send(createStateMessage(maintenance, u.pv,
+                                u.currentSeverity, u.currentMessage, u.alarmSeverity, u.alarmMessage,
+                                u.value, u.timestamp));
+                    }
+                    catch (Exception ex)
+                    {
+                        Activator.getLogger().log(Level.WARNING, "Cannot send state update to log", ex);
+                        return;
+                    }
+                }
+            }
+        });
+        idle_timer.reset();
+    }
+
     /** Notify 'global' clients of new alarm state.
      *  @param pv PV that changes alarm state
      *  @param alarm_severity Alarm severity
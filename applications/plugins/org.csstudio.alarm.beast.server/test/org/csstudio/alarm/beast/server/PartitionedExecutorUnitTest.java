@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.alarm.beast.SeverityLevel;
+import org.csstudio.alarm.beast.TreeItem;
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link PartitionedExecutor} */
+@SuppressWarnings("nls")
+public class PartitionedExecutorUnitTest
+{
+    private int next_id = 1;
+
+    private void addPVs(final TreeItem parent, final int count, final List<AlarmPV> pvs) throws Exception
+    {
+        for (int i=0; i<count; ++i)
+        {
+            final int id = next_id++;
+            pvs.add(new AlarmPV(null, parent, id, "PV" + id, "Test", true, true, true, 0, 0, 0, null,
+                    SeverityLevel.OK, "", SeverityLevel.OK, "", "", Timestamp.now()));
+        }
+    }
+
+    @Test
+    public void testPartitions() throws Exception
+    {
+        final TreeItem root = new TreeItem(null, "Root", 0);
+        final List<AlarmPV> pvs = new ArrayList<AlarmPV>();
+        final TreeItem a = new TreeItem(root, "A", next_id++);
+        for (int s=0; s<3; ++s)
+            addPVs(new TreeItem(a, "System" + s, next_id++), 100, pvs);
+        addPVs(new TreeItem(root, "B", next_id++), 50, pvs);
+        addPVs(new TreeItem(root, "C", next_id++), 50, pvs);
+        addPVs(new TreeItem(root, "D", next_id++), 200, pvs);
+
+        final PartitionedExecutor partitions = new PartitionedExecutor(2);
+        partitions.assign(root);
+        System.out.println(partitions);
+        // A, 300 PVs, in one partition, D, B and C in the other
+        assertThat(partitions.getPVCount(0), equalTo(300));
+        assertThat(partitions.getPVCount(1), equalTo(300));
+
+        // Updates for each PV are performed in order,
+        // while PVs of different areas use different threads
+        final int UPDATES = 100;
+        final CountDownLatch done = new CountDownLatch(pvs.size() * UPDATES);
+        final List<List<Integer>> received = new ArrayList<List<Integer>>();
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        for (int p=0; p<pvs.size(); ++p)
+            received.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        for (int i=0; i<UPDATES; ++i)
+            for (int p=0; p<pvs.size(); ++p)
+            {
+                final List<Integer> values = received.get(p);
+                final int value = i;
+                pvs.get(p).execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        values.add(value);
+                        threads.add(Thread.currentThread().getName());
+                        done.countDown();
+                    }
+                });
+            }
+        assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+        for (List<Integer> values : received)
+        {
+            assertThat(values.size(), equalTo(UPDATES));
+            for (int i=0; i<UPDATES; ++i)
+                assertThat(values.get(i), equalTo(i));
+        }
+        assertThat(threads.size(), equalTo(2));
+        assertThat(threads.contains(Thread.currentThread().getName()), not(true));
+        partitions.shutdown();
+    }
+}
@@ -7,8 +7,13 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.ui.alarmtable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.csstudio.alarm.beast.ui.alarmtable.AlarmTableLabelProvider.ColumnInfo;
@@ -31,6 +36,9 @@ public class AlarmTableContentProvider implements ILazyContentProvider
 {
 	final private int alarm_table_row_limit = Preferences.getAlarmTableRowLimit();
     private TableViewer table_viewer;
+    /** All alarms, sorted */
+    private List<AlarmTreePV> all_alarms = new ArrayList<AlarmTreePV>();
+    /** Alarms to display, limited to alarm_table_row_limit */
     private AlarmTreePV[] alarms;
     private Comparator<AlarmTreePV> comparator = AlarmComparator.getComparator(ColumnInfo.SEVERITY, false);
 	
@@ -41,30 +49,76 @@ public class AlarmTableContentProvider implements ILazyContentProvider
     {
         if (alarms == null)
         {
+            all_alarms = new ArrayList<AlarmTreePV>();
         	this.alarms = null;
             table_viewer.setItemCount(0);
+            table_viewer.refresh();
+            return;
         }
-        else if (alarms.length > alarm_table_row_limit)
+        all_alarms = new ArrayList<AlarmTreePV>(Arrays.asList(alarms));
+        Collections.sort(all_alarms, comparator);
+        showAlarms();
+    }
+
+    /** Update the list of alarms to display with changes.
+     *  <p>
+     *  Changed PVs are removed from the sorted list of alarms,
+     *  then those that are still to be displayed are merged back in,
+     *  so only the changed PVs need to be sorted.
+     *
+     *  @param changed PVs that changed their alarm state
+     *  @param alarms Those changed PVs that are to be displayed
+     *  @see org.csstudio.alarm.beast.ui.clientmodel.AlarmChanges
+     */
+    public void updateAlarms(final AlarmTreePV changed[], final AlarmTreePV alarms[])
+    {
+        if (changed.length <= 0)
+            return;
+        final Set<AlarmTreePV> removed = new HashSet<AlarmTreePV>(Arrays.asList(changed));
+        final AlarmTreePV[] added = alarms.clone();
+        Arrays.sort(added, comparator);
+        final List<AlarmTreePV> merged = new ArrayList<AlarmTreePV>(all_alarms.size() + added.length);
+        int i = 0;
+        for (AlarmTreePV pv : all_alarms)
+        {
+            if (removed.contains(pv))
+                continue;
+            while (i < added.length  &&  comparator.compare(added[i], pv) < 0)
+                merged.add(added[i++]);
+            merged.add(pv);
+        }
+        while (i < added.length)
+            merged.add(added[i++]);
+        all_alarms = merged;
+        showAlarms();
+    }
+
+    /** Update table from sorted list of all alarms */
+    private void showAlarms()
+    {
+        final int count = all_alarms.size();
+        if (count > alarm_table_row_limit)
     	{	// Use only a subset of actual alarms
     		this.alarms = new AlarmTreePV[alarm_table_row_limit + 1];
-    		System.arraycopy(alarms, 0, this.alarms, 0, alarm_table_row_limit);
+    		for (int i=0; i<alarm_table_row_limit; ++i)
+    		    this.alarms[i] = all_alarms.get(i);
     		// Add explanatory entry to end
     		final AlarmTreePV info = new AlarmTreePV(null, Messages.AlarmTableRowLimitMessage, -1);
     		info.setDescription(NLS.bind(Messages.AlarmTableRowLimitInfoFmt, alarm_table_row_limit));
 			this.alarms[alarm_table_row_limit] = info;
-			// Sort all but that explanatory entry
-            Arrays.sort(this.alarms, 0, alarm_table_row_limit, comparator);
-            table_viewer.setItemCount(alarm_table_row_limit + 1);
     	}
     	else
-    	{	// Use alarms as received
-            this.alarms = alarms;
-            Arrays.sort(this.alarms, comparator);
-            table_viewer.setItemCount(alarms.length);
-    	}
+            this.alarms = all_alarms.toArray(new AlarmTreePV[count]);
+        table_viewer.setItemCount(this.alarms.length);
         table_viewer.refresh();
     }
 
+    /** @return Number of alarms, including those beyond the row limit */
+    public int getAlarmCount()
+    {
+        return all_alarms.size();
+    }
+
     /** @return Alarms to be shown in table */
     public AlarmTreePV[] getAlarms()
     {
@@ -77,7 +131,7 @@ public class AlarmTableContentProvider implements ILazyContentProvider
         this.comparator = comparator;
         // trigger refresh
         if (table_viewer != null)
-            setAlarms(alarms);
+            setAlarms(all_alarms.toArray(new AlarmTreePV[all_alarms.size()]));
     }
 
     /** {@inheritDoc} */
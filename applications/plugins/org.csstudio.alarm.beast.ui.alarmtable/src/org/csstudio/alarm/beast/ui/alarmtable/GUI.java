@@ -20,6 +20,7 @@ import org.csstudio.alarm.beast.ui.SelectionHelper;
 import org.csstudio.alarm.beast.ui.SeverityColorProvider;
 import org.csstudio.alarm.beast.ui.actions.AlarmPerspectiveAction;
 import org.csstudio.alarm.beast.ui.actions.ConfigureItemAction;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmChanges;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
 import org.csstudio.apputil.text.RegExHelper;
@@ -107,6 +108,11 @@ public class GUI implements AlarmClientModelListener
     /** Error message (no server...) */
     private Label error_message;
 
+    /** Version of the alarm changes shown in the tables.
+     *  Only accessed on UI thread.
+     */
+    private long alarm_version = 0;
+
     /** GUI updates are throttled to reduce flicker */
     final private GUIUpdateThrottle gui_update = new GUIUpdateThrottle()
     {
@@ -133,15 +139,28 @@ public class GUI implements AlarmClientModelListener
                     // Instead, tell ModelInstanceProvider about the data,
                     // which then updates the table with setItemCount(), refresh(),
                     // as that happens to not flicker.
-                    AlarmTreePV[] alarms = model.getActiveAlarms();
-                    current_alarms.setText(NLS.bind(Messages.CurrentAlarmsFmt, alarms.length));
+                    // Only changes since the last update are applied to the tables,
+                    // unless the model provides the complete alarm lists.
+                    final AlarmChanges changes = model.getAlarmChanges(alarm_version);
+                    alarm_version = changes.getVersion();
+                    final AlarmTableContentProvider active =
+                        (AlarmTableContentProvider) active_table_viewer.getContentProvider();
+                    final AlarmTableContentProvider acknowledged =
+                        (AlarmTableContentProvider) acknowledged_table_viewer.getContentProvider();
+                    if (changes.isFull())
+                    {
+                        active.setAlarms(changes.getActiveAlarms());
+                        acknowledged.setAlarms(changes.getAcknowledgedAlarms());
+                    }
+                    else
+                    {
+                        active.updateAlarms(changes.getChangedPVs(), changes.getActiveAlarms());
+                        acknowledged.updateAlarms(changes.getChangedPVs(), changes.getAcknowledgedAlarms());
+                    }
+                    current_alarms.setText(NLS.bind(Messages.CurrentAlarmsFmt, active.getAlarmCount()));
                     current_alarms.pack();
-                    ((AlarmTableContentProvider) active_table_viewer.getContentProvider()).setAlarms(alarms);
-
-                    alarms = model.getAcknowledgedAlarms();
-                    acknowledged_alarms.setText(NLS.bind(Messages.AcknowledgedAlarmsFmt, alarms.length));
+                    acknowledged_alarms.setText(NLS.bind(Messages.AcknowledgedAlarmsFmt, acknowledged.getAlarmCount()));
                     acknowledged_alarms.pack();
-                    ((AlarmTableContentProvider) acknowledged_table_viewer.getContentProvider()).setAlarms(alarms);
                 }
             });
         }
@@ -7,7 +7,9 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.ui.alarmtree;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.csstudio.alarm.beast.AlarmTreePath;
 import org.csstudio.alarm.beast.SeverityLevel;
@@ -15,6 +17,7 @@ import org.csstudio.alarm.beast.client.AlarmTreeItem;
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.csstudio.alarm.beast.client.AlarmTreePosition;
 import org.csstudio.alarm.beast.client.AlarmTreeRoot;
+import org.csstudio.alarm.beast.client.GUIUpdateThrottle;
 import org.csstudio.alarm.beast.ui.AuthIDs;
 import org.csstudio.alarm.beast.ui.ContextMenuHelper;
 import org.csstudio.alarm.beast.ui.Messages;
@@ -26,6 +29,7 @@ import org.csstudio.alarm.beast.ui.actions.DuplicatePVAction;
 import org.csstudio.alarm.beast.ui.actions.MoveItemAction;
 import org.csstudio.alarm.beast.ui.actions.RemoveComponentAction;
 import org.csstudio.alarm.beast.ui.actions.RenameItemAction;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmChanges;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
 import org.csstudio.security.SecuritySupport;
@@ -87,6 +91,32 @@ public class GUI implements AlarmClientModelListener
     /** Show only alarms, or all items? */
     private boolean show_only_alarms;
 
+    /** Version of the alarm changes shown in the tree.
+     *  Only accessed on UI thread.
+     */
+    private long alarm_version = 0;
+
+    /** Refresh the whole tree on next update? */
+    private volatile boolean refresh_all = false;
+
+    /** Alarm state updates are throttled, then applied for all changed PVs */
+    final private GUIUpdateThrottle gui_update = new GUIUpdateThrottle()
+    {
+        @Override
+        protected void fire()
+        {
+            if (display.isDisposed())
+                return;
+            display.asyncExec(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    updateAlarmState();
+                }
+            });
+        }
+    };
 
     /** Initialize GUI
      *  @param parent SWT parent
@@ -114,8 +144,10 @@ public class GUI implements AlarmClientModelListener
             public void widgetDisposed(DisposeEvent e)
             {
                 model.removeListener(GUI.this);
+                gui_update.dispose();
             }
         });
+        gui_update.start();
 
         connectContextMenu(site);
 
@@ -457,46 +489,53 @@ public class GUI implements AlarmClientModelListener
     public void newAlarmState(final AlarmClientModel model,
             final AlarmTreePV pv, final boolean parent_changed)
     {
-        display.asyncExec(new Runnable()
-        {
-            @Override
-            public void run()
+        if (pv == null)
+            refresh_all = true;
+        gui_update.trigger();
+    }
+
+    /** Refresh items for PVs that changed their alarm state since last update */
+    private void updateAlarmState()
+    {
+        final Tree tree = tree_viewer.getTree();
+        if (tree.isDisposed())
+            return;
+        if (model.isServerAlive())
+            setErrorMessage(null);
+        final AlarmChanges changes = model.getAlarmChanges(alarm_version);
+        alarm_version = changes.getVersion();
+        if (refresh_all  ||  changes.isFull())
+        {   // Refresh whole tree
+            refresh_all = false;
+            tree_viewer.refresh();
+            return;
+        }
+        // Refresh affected items to indicate new state.
+        // A complete tree_viewer.refresh() would 'work'
+        // but be quite slow, so determine what needs to be refreshed,
+        // handling parents shared by several changed PVs only once.
+        final Set<AlarmTreeItem> parents = new LinkedHashSet<AlarmTreeItem>();
+        for (AlarmTreePV pv : changes.getChangedPVs())
+        {	// Update tree item for PV
+            if (show_only_alarms  &&  pv.getSeverity() == SeverityLevel.OK)
+                tree_viewer.remove(pv);
+            else
+                tree_viewer.refresh(pv, true);
+            // Update parents up to root
+            AlarmTreeItem item = pv.getParent();
+            while (item != null  &&  ! (item instanceof AlarmTreeRoot))
             {
-                final Tree tree = tree_viewer.getTree();
-                if (tree.isDisposed())
-                    return;
-                if (model.isServerAlive())
-                    setErrorMessage(null);
-                // Refresh affected items to indicate new state.
-                // A complete tree_viewer.refresh() would 'work'
-                // but be quite slow, so try to determine what
-                // needs to be refreshed
-                if (pv != null)
-                {	// Update tree item for PV
-                	final boolean pv_hidden = show_only_alarms  &&
-    			                              pv.getSeverity() == SeverityLevel.OK;
-                	if (pv_hidden)
-                		tree_viewer.remove(pv);
-                	else
-                		tree_viewer.refresh(pv, true);
-                	if (parent_changed)
-            		{	// Update parents up to root
-            			AlarmTreeItem item = pv.getParent();
-            			while (! (item instanceof AlarmTreeRoot))
-	                	{
-	            			// Parent could become hidden with its PV
-            				if (pv_hidden && item.getSeverity() == SeverityLevel.OK)
-	            				tree_viewer.remove(item);
-	            			else
-	            				tree_viewer.refresh(item);
-	                		item = item.getParent();
-	                	}
-            		}
-                }
-                else // Refresh whole tree
-                    tree_viewer.refresh();
+                parents.add(item);
+                item = item.getParent();
             }
-        });
+        }
+        for (AlarmTreeItem item : parents)
+        {   // Parent could become hidden with its PVs
+            if (show_only_alarms  &&  item.getSeverity() == SeverityLevel.OK)
+                tree_viewer.remove(item);
+            else
+                tree_viewer.refresh(item);
+        }
     }
 
     /** Acknowledge currently selected alarms */
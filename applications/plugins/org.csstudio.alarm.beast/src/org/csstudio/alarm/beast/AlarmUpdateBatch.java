@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.util.time.Timestamp;
+
+/** Compact binary encoding of alarm state updates.
+ *
+ *  <p>Instead of one MapMessage with string-keyed fields per update,
+ *  the alarm server can send the updates of one batch period
+ *  as a single {@link JMSAlarmMessage#TEXT_STATE_BATCH} message
+ *  that holds the encoded updates in its {@link JMSAlarmMessage#UPDATES}.
+ *
+ *  <p>Format:
+ *  <pre>
+ *  byte    version
+ *  byte    1 for maintenance mode, else 0
+ *  varint  number of updates
+ *  For each update:
+ *    varint  PV ID, the RDB ID of the PV's alarm tree item
+ *    varint  Current severity, SeverityLevel ordinal
+ *    string  Current message
+ *    varint  Alarm severity, SeverityLevel ordinal
+ *    string  Alarm message
+ *    string  Value
+ *    varlong Time stamp seconds, zig-zag encoded difference to previous update
+ *    varlong Time stamp nanoseconds, zig-zag encoded difference to previous update
+ *  </pre>
+ *  Strings are interned within the batch:
+ *  0 for <code>null</code>,
+ *  1 followed by varint length and UTF-8 bytes for a new string,
+ *  otherwise 2 + index of a string that was already sent in the batch.
+ */
+@SuppressWarnings("nls")
+public class AlarmUpdateBatch
+{
+    /** Handler for decoded updates */
+    public static interface Handler
+    {
+        /** @param id RDB ID of the PV
+         *  @param current_severity Current severity of the PV
+         *  @param current_message Current message of the PV
+         *  @param severity Alarm severity
+         *  @param message Alarm message
+         *  @param value Value that triggered update, may be <code>null</code>
+         *  @param timestamp Time stamp for alarm severity/status
+         *  @throws Exception on error
+         */
+        public void handleUpdate(int id,
+                SeverityLevel current_severity, String current_message,
+                SeverityLevel severity, String message,
+                String value, Timestamp timestamp) throws Exception;
+    }
+
+    final private static int VERSION = 1;
+
+    final private static Charset UTF8 = Charset.forName("UTF-8");
+
+    final private static SeverityLevel[] severities = SeverityLevel.values();
+
+    /** Maintenance mode? */
+    final private boolean maintenance;
+
+    /** Encoded updates */
+    final private ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+    /** Index of strings that were already written */
+    final private Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    /** Number of updates */
+    private int count = 0;
+
+    /** Previous time stamp */
+    private long last_seconds = 0, last_nanos = 0;
+
+    /** Initialize empty batch
+     *  @param maintenance Is the server in maintenance mode?
+     */
+    public AlarmUpdateBatch(final boolean maintenance)
+    {
+        this.maintenance = maintenance;
+    }
+
+    /** Add update to batch
+     *  @param id RDB ID of the PV
+     *  @param current_severity Current severity of the PV
+     *  @param current_message Current message of the PV
+     *  @param severity Alarm severity
+     *  @param message Alarm message
+     *  @param value Value that triggered update, may be <code>null</code>
+     *  @param timestamp Time stamp for alarm severity/status
+     */
+    public void add(final int id,
+            final SeverityLevel current_severity, final String current_message,
+            final SeverityLevel severity, final String message,
+            final String value, final Timestamp timestamp)
+    {
+        writeVarLong(buf, id);
+        writeVarLong(buf, current_severity.ordinal());
+        writeString(current_message);
+        writeVarLong(buf, severity.ordinal());
+        writeString(message);
+        writeString(value);
+        final long seconds = timestamp.getSec();
+        final long nanos = timestamp.getNanoSec();
+        writeVarLong(buf, zigZag(seconds - last_seconds));
+        writeVarLong(buf, zigZag(nanos - last_nanos));
+        last_seconds = seconds;
+        last_nanos = nanos;
+        ++count;
+    }
+
+    /** @return Number of updates in batch */
+    public int size()
+    {
+        return count;
+    }
+
+    /** @return Encoded batch */
+    public byte[] toByteArray()
+    {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream(buf.size() + 8);
+        data.write(VERSION);
+        data.write(maintenance ? 1 : 0);
+        writeVarLong(data, count);
+        try
+        {
+            buf.writeTo(data);
+        }
+        catch (IOException ex)
+        {   // Cannot happen for ByteArrayOutputStream
+            throw new IllegalStateException(ex);
+        }
+        return data.toByteArray();
+    }
+
+    private void writeString(final String text)
+    {
+        if (text == null)
+        {
+            buf.write(0);
+            return;
+        }
+        final Integer index = strings.get(text);
+        if (index != null)
+        {
+            writeVarLong(buf, 2 + index.intValue());
+            return;
+        }
+        strings.put(text, strings.size());
+        final byte[] bytes = text.getBytes(UTF8);
+        buf.write(1);
+        writeVarLong(buf, bytes.length);
+        buf.write(bytes, 0, bytes.length);
+    }
+
+    /** @param value Signed value
+     *  @return Value with sign in lowest bit, so small negative values remain small
+     */
+    private static long zigZag(final long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** @param value Zig-zag encoded value
+     *  @return Signed value
+     */
+    private static long unZigZag(final long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(final ByteArrayOutputStream out, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Decode a batch of updates
+     *  @param data Encoded batch
+     *  @param handler Handler that is called for each update
+     *  @return <code>true</code> if the server was in maintenance mode
+     *  @throws Exception on error in data or handler
+     */
+    public static boolean decode(final byte[] data, final Handler handler) throws Exception
+    {
+        final Decoder decoder = new Decoder(data);
+        final int version = decoder.readByte();
+        if (version != VERSION)
+            throw new Exception("Unknown alarm update batch version " + version);
+        final boolean maintenance = decoder.readByte() != 0;
+        final int count = (int) decoder.readVarLong();
+        long seconds = 0, nanos = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final int id = (int) decoder.readVarLong();
+            final SeverityLevel current_severity = decoder.readSeverity();
+            final String current_message = decoder.readString();
+            final SeverityLevel severity = decoder.readSeverity();
+            final String message = decoder.readString();
+            final String value = decoder.readString();
+            seconds += unZigZag(decoder.readVarLong());
+            nanos += unZigZag(decoder.readVarLong());
+            handler.handleUpdate(id, current_severity, current_message,
+                                 severity, message, value, Timestamp.of(seconds, (int) nanos));
+        }
+        return maintenance;
+    }
+
+    /** Reader for the encoded data */
+    private static class Decoder
+    {
+        final private byte[] data;
+        final private List<String> strings = new ArrayList<String>();
+        private int pos = 0;
+
+        Decoder(final byte[] data)
+        {
+            this.data = data;
+        }
+
+        int readByte() throws Exception
+        {
+            if (pos >= data.length)
+                throw new Exception("Truncated alarm update batch");
+            return data[pos++] & 0xFF;
+        }
+
+        long readVarLong() throws Exception
+        {
+            long value = 0;
+            for (int shift = 0;  shift < 64;  shift += 7)
+            {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new Exception("Invalid varint in alarm update batch");
+        }
+
+        SeverityLevel readSeverity() throws Exception
+        {
+            final int ordinal = (int) readVarLong();
+            if (ordinal >= severities.length)
+                throw new Exception("Invalid severity " + ordinal);
+            return severities[ordinal];
+        }
+
+        String readString() throws Exception
+        {
+            final int code = (int) readVarLong();
+            if (code == 0)
+                return null;
+            if (code >= 2)
+            {
+                if (code - 2 >= strings.size())
+                    throw new Exception("Invalid string index " + (code - 2));
+                return strings.get(code - 2);
+            }
+            final int length = (int) readVarLong();
+            if (length < 0  ||  pos + length > data.length)
+                throw new Exception("Truncated alarm update batch");
+            final String text = new String(data, pos, length, UTF8);
+            pos += length;
+            strings.add(text);
+            return text;
+        }
+    }
+}
@@ -54,6 +54,11 @@ public class JMSAlarmMessage
      */
     final public static String TEXT_STATE_MAINTENANCE = "STATE_MAINTENANCE";
 
+    /** Value for TEXT that indicates a batch of state changes.
+     *  UPDATES will contain the {@link AlarmUpdateBatch}
+     */
+    final public static String TEXT_STATE_BATCH = "STATE_BATCH";
+
     /** Value for TEXT that indicates a configuration change.
      *  NAME will contain path to item that was added, removed,
      *  reconfigured, or null for an overall change.
@@ -94,4 +99,7 @@ public class JMSAlarmMessage
 
     /** Value that caused the severity/message update */
     final public static String VALUE = "VALUE";
+
+    /** Message property that holds the bytes of an {@link AlarmUpdateBatch} */
+    final public static String UPDATES = "UPDATES";
 }
@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast;
 
+import java.io.File;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -56,6 +57,7 @@ public class Preferences
     final public static String GUI_UPDATE_INITIAL_MILLIS = "gui_update_initial_millis";
     final public static String BATCH_UPDATE_PERIOD = "batch_update_period";
     final public static String BATCH_SIZE = "batch_size";
+    final public static String CONFIG_SNAPSHOT_DIRECTORY = "config_snapshot_directory";
 
     final private static String SERVER_SUFFIX = "_SERVER";
     final private static String CLIENT_SUFFIX = "_CLIENT";
@@ -316,4 +318,21 @@ public class Preferences
     	final IPreferencesService service = Platform.getPreferencesService();
         return service.getInt(Activator.ID, BATCH_SIZE, 3000, null);
     }
+
+    /** @return Directory for alarm configuration snapshots or <code>null</code> if disabled */
+    public static File getConfigSnapshotDirectory()
+    {
+        final String directory = getString(CONFIG_SNAPSHOT_DIRECTORY, "");
+        if (directory == null  ||  directory.trim().isEmpty())
+            return null;
+        try
+        {
+            return new File(replaceProperties(directory.trim()));
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Error in config_snapshot_directory preference setting", ex);
+            return null;
+        }
+    }
 }
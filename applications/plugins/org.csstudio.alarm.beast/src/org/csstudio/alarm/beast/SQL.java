@@ -30,6 +30,13 @@ public class SQL
 	final public String sel_auto_actions_by_id;
     final public String sel_items_by_parent;
     final public String sel_item_by_parent_and_name;
+    final public String sel_all_items;
+    final public String sel_all_pvs;
+    final public String sel_all_guidance;
+    final public String sel_all_displays;
+    final public String sel_all_commands;
+    final public String sel_all_auto_actions;
+    final public String sel_configuration_fingerprint;
     final public String sel_last_item_id;
     final public String insert_item;
 
@@ -134,6 +141,36 @@ public class SQL
             " LEFT JOIN " + schema_prefix + "PV p ON p.COMPONENT_ID = t.COMPONENT_ID" +
             " WHERE t.PARENT_CMPNT_ID=? AND t.NAME=?";
 
+        // Bulk reads of the complete configuration, see AlarmConfigurationSnapshot.
+        // Rather than a recursive query, which MySQL does not support,
+        // these read all configurations and the subtree of the desired root
+        // is selected in memory.
+        sel_all_items =
+            "SELECT COMPONENT_ID, PARENT_CMPNT_ID, NAME, CONFIG_TIME FROM " + schema_prefix + "ALARM_TREE" +
+            " WHERE PARENT_CMPNT_ID IS NOT NULL ORDER BY COMPONENT_ID";
+        // Except for the leading COMPONENT_ID,
+        // the columns must match sel_items_by_parent 4..16
+        sel_all_pvs =
+            //        1             2      3            4
+            "SELECT COMPONENT_ID, DESCR, ENABLED_IND, ANNUNCIATE_IND," +
+            // 5         6      7            8       9
+            " LATCH_IND, DELAY, DELAY_COUNT, FILTER, CUR_SEVERITY_ID," +
+            // 10            11           12         13        14
+            " CUR_STATUS_ID, SEVERITY_ID, STATUS_ID, PV_VALUE, ALARM_TIME" +
+            " FROM " + schema_prefix + "PV";
+        sel_all_guidance =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "GUIDANCE ORDER BY COMPONENT_ID, GUIDANCE_ORDER";
+        sel_all_displays =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "DISPLAY ORDER BY COMPONENT_ID, DISPLAY_ORDER";
+        sel_all_commands =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "COMMAND ORDER BY COMPONENT_ID, COMMAND_ORDER";
+        sel_all_auto_actions =
+            "SELECT COMPONENT_ID, TITLE, DETAIL, DELAY FROM " + schema_prefix + "AUTOMATED_ACTION ORDER BY COMPONENT_ID, AUTO_ACTION_ORDER";
+        // Changes to the tree structure, names or guidance etc.
+        // update the item count, IDs or CONFIG_TIME
+        sel_configuration_fingerprint =
+            "SELECT COUNT(*), MAX(COMPONENT_ID), SUM(PARENT_CMPNT_ID), MAX(CONFIG_TIME) FROM " + schema_prefix + "ALARM_TREE";
+
         sel_last_item_id =
             "SELECT MAX(COMPONENT_ID) FROM " + schema_prefix + "ALARM_TREE";
 
@@ -200,8 +237,10 @@ public class SQL
         update_pv_enablement =
             "UPDATE " + schema_prefix + "PV SET ENABLED_IND=?  WHERE COMPONENT_ID=?";
         delete_pv_by_id = "DELETE FROM " + schema_prefix + "PV WHERE COMPONENT_ID = ?";
-        rename_item = "UPDATE " + schema_prefix + "ALARM_TREE SET NAME=? WHERE COMPONENT_ID=?";
-        move_item = "UPDATE " + schema_prefix + "ALARM_TREE SET PARENT_CMPNT_ID=? WHERE COMPONENT_ID=?";
+        // Rename and move also update the config time, which is then
+        // reflected in sel_configuration_fingerprint
+        rename_item = "UPDATE " + schema_prefix + "ALARM_TREE SET NAME=?, CONFIG_TIME=" + now + " WHERE COMPONENT_ID=?";
+        move_item = "UPDATE " + schema_prefix + "ALARM_TREE SET PARENT_CMPNT_ID=?, CONFIG_TIME=" + now + " WHERE COMPONENT_ID=?";
 
         sel_severity =
             "SELECT SEVERITY_ID FROM " + schema_prefix + "SEVERITY WHERE NAME=?";
@@ -174,9 +174,20 @@ public class TreeItem
             parent = null;
         }
         p.removeChild(this);
+        p.childRemoved(this);
         return true;
     }
 
+    /** Invoked after a child item was removed.
+     *  Derived classes can override to update information
+     *  that they keep about their child items.
+     *  @param child Child item that has been removed
+     */
+    protected void childRemoved(final TreeItem child)
+    {
+        // NOP
+    }
+
     /** Remove child
      *  @param child
      *  @throws Error if child not known
@@ -7,8 +7,10 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
@@ -21,6 +23,10 @@ import java.util.logging.Level;
  *  For example used to re-direct execution of commands to a 'main'
  *  thread, to assert that all interactions with a certain resource
  *  happen on the same thread.
+ *  <p>
+ *  Commands can be queued with a key.
+ *  A command for a key that's already queued replaces the queued command,
+ *  keeping its position in the queue.
  *
  *  @author Kay Kasemir
  *  @author Jaka Bobnar - RDB batching
@@ -28,10 +34,31 @@ import java.util.logging.Level;
 @SuppressWarnings("nls")
 public class WorkQueue implements Executor
 {
-    /** Task queue */
-    final Queue<Runnable> tasks = new LinkedList<Runnable>();
-    
-    // Compared these data structures for 'tasks':
+    /** Queued command */
+    private static class Task
+    {
+        Runnable command;
+        final boolean keyed;
+        final long queued = System.nanoTime();
+
+        Task(final Runnable command, final boolean keyed)
+        {
+            this.command = command;
+            this.keyed = keyed;
+        }
+    }
+
+    /** Task queue, mapping key to task, in order of insertion.
+     *  Tasks without key use the task itself as the key.
+     */
+    final LinkedHashMap<Object, Task> tasks = new LinkedHashMap<Object, Task>();
+
+    /** Number of queued tasks without key, by command.
+     *  Used by executeIfNotPending to find a command, guarded by tasks
+     */
+    final private Map<Runnable, Integer> unkeyed = new HashMap<Runnable, Integer>();
+
+    // Compared these data structures for 'tasks' (see WorkQueueDemo):
     //
     // final Queue<Runnable> tasks = new LinkedList<Runnable>();
     // final LinkedHashMap<Object, Runnable> tasks = new LinkedHashMap<Object, Runnable>();
@@ -39,25 +66,23 @@ public class WorkQueue implements Executor
     // Considered LinkedHashSet, but didn't work:
     // Inserting a 'new' ReplacableRunnable would simply keep
     // an older entry, not update it.
-
-    // JProfile results for 100 tasks, replaced 4 times:
     //
-    //                     LinkedList  LinkedHashMap
-    // execute                 4us         10us
-    // executeReplacable      44us         10us
-    // getOldestRunnable       1us         12us
+    // Originally, JProfile results for 100 tasks, replaced 4 times,
+    // favored the LinkedList for execute() and getOldestRunnable(),
+    // expecting only a few noisy PVs in the queue.
+    // In an alarm storm, however, the queue grows to thousands of entries
+    // and the linear lookup of the LinkedList dominates:
     //
-    // Linked list is obviously slower when asked to replaced an existing
-    // runnable for the same object because of the linear lookup.
-    // But how long is the list going to be?
-    // Usually only a few noisy PVs, so maybe just 2 or 3 entries
-    // that keep getting replaced.
-    // If the test is run with only 10 tasks in the queue,
-    // executeReplacable for the LinkedList takes only 11us,
-    // i.e. similar to LinkedHashMap
+    // Entries  Replace: LinkedList  LinkedHashMap
+    //      10              0.02us         0.02us
+    //    1000              1.7us          0.02us
+    //  100000            133us            0.06us
     //
-    // -> Simple linked list is probably good enough for the
-    // common use case, plus uses less memory.
+    // -> LinkedHashMap
+
+    /** Statistics, guarded by tasks */
+    private long executed = 0, coalesced = 0, total_wait_nanos = 0, max_wait_nanos = 0;
+    private int max_size = 0;
 
     /** Thread that executes the queue. Set on first access */
     private Thread thread;
@@ -70,7 +95,7 @@ public class WorkQueue implements Executor
             return tasks.size();
         }
     }
-    
+
     /** Add a command to the queue
      *  @param command Command to be executed
      *  @see Executor#execute(Runnable)
@@ -78,52 +103,155 @@ public class WorkQueue implements Executor
     @Override
     public void execute(final Runnable command)
     {
+        final Task task = new Task(command, false);
         synchronized (tasks)
         {
-            // Hash: Use dummy key to add a new element
-            // tasks.put(new Object(), command);
-            
-            // Queue:
-            tasks.add(command);
-            
-            tasks.notifyAll();
+            tasks.put(task, task);
+            final Integer count = unkeyed.get(command);
+            unkeyed.put(command, count == null ? 1 : count + 1);
+            added();
         }
     }
-    
+
     /** Add a command to the queue but only if that same command is not already in the queue.
      *  If it is, do nothing.
-     * 
+     *  <p>
+     *  Detects commands that were added via this method or {@link #execute(Runnable)}.
+     *
      *  @param command the command to be added to the queue
      */
     public void executeIfNotPending(final Runnable command)
     {
         synchronized (tasks)
         {
-            if (!tasks.contains(command))
+            if (unkeyed.containsKey(command))
+                ++coalesced;
+            else
+                execute(command);
+        }
+    }
+
+    /** Add a command to the queue, replacing a queued command for the same key.
+     *  <p>
+     *  A replaced command keeps its original position in the queue.
+     *
+     *  @param key Key, for example the PV that the command updates
+     *  @param command Command to be executed
+     */
+    public void executeReplacable(final Object key, final Runnable command)
+    {
+        synchronized (tasks)
+        {
+            final Task task = tasks.get(key);
+            if (task != null)
+            {
+                task.command = command;
+                ++coalesced;
+            }
+            else
             {
-                tasks.add(command);
-                tasks.notifyAll();
+                tasks.put(key, new Task(command, true));
+                added();
             }
         }
     }
 
+    /** Must be called with lock on tasks after adding a task */
+    private void added()
+    {
+        if (tasks.size() > max_size)
+            max_size = tasks.size();
+        tasks.notifyAll();
+    }
+
     /** @return Oldest runnable in the queue or <code>null</code> */
     private Runnable getOldestRunnable()
     {
         synchronized (tasks)
         {
-            // Hash: Need iterator to get oldest
-            //final Iterator<Runnable> iter = tasks.values().iterator();
-            //if (iter.hasNext())
-            //{
-            //    final Runnable result = iter.next();
-            //    iter.remove();
-            //    return result;
-            //}
-            //return null;
-            
-            // Queue was designed for this
-            return tasks.poll();
+            final Iterator<Task> iter = tasks.values().iterator();
+            if (! iter.hasNext())
+                return null;
+            final Task task = iter.next();
+            iter.remove();
+            if (! task.keyed)
+            {
+                final int count = unkeyed.remove(task.command);
+                if (count > 1)
+                    unkeyed.put(task.command, count - 1);
+            }
+            final long wait = System.nanoTime() - task.queued;
+            ++executed;
+            total_wait_nanos += wait;
+            if (wait > max_wait_nanos)
+                max_wait_nanos = wait;
+            return task.command;
+        }
+    }
+
+    /** @return Number of commands taken from the queue for execution */
+    public long getExecutedCount()
+    {
+        synchronized (tasks)
+        {
+            return executed;
+        }
+    }
+
+    /** @return Number of commands that were dropped or replaced because the key was already queued */
+    public long getCoalescedCount()
+    {
+        synchronized (tasks)
+        {
+            return coalesced;
+        }
+    }
+
+    /** @return Maximum number of queued commands */
+    public int getMaxSize()
+    {
+        synchronized (tasks)
+        {
+            return max_size;
+        }
+    }
+
+    /** @return Average time in seconds that commands waited in the queue */
+    public double getAverageWait()
+    {
+        synchronized (tasks)
+        {
+            return executed > 0 ? total_wait_nanos / 1e9 / executed : 0.0;
+        }
+    }
+
+    /** @return Maximum time in seconds that a command waited in the queue */
+    public double getMaxWait()
+    {
+        synchronized (tasks)
+        {
+            return max_wait_nanos / 1e9;
+        }
+    }
+
+    /** Reset statistics */
+    public void resetStatistics()
+    {
+        synchronized (tasks)
+        {
+            executed = coalesced = total_wait_nanos = max_wait_nanos = 0;
+            max_size = tasks.size();
+        }
+    }
+
+    /** @return Queue size and statistics */
+    @Override
+    public String toString()
+    {
+        synchronized (tasks)
+        {
+            return String.format("Work queue size: %d (max. %d), executed: %d, coalesced: %d, wait: %.3f sec avg., %.3f sec max.",
+                    tasks.size(), max_size, executed, coalesced, getAverageWait(), getMaxWait());
         }
     }
 
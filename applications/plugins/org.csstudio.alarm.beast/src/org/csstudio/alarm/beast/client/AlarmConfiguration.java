@@ -24,6 +24,7 @@ import java.util.logging.Level;
 import org.csstudio.alarm.beast.Activator;
 import org.csstudio.alarm.beast.AlarmTreePath;
 import org.csstudio.alarm.beast.Messages;
+import org.csstudio.alarm.beast.Preferences;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.TimestampHelper;
 import org.csstudio.apputil.time.DelayCheck;
@@ -72,8 +73,11 @@ public class AlarmConfiguration
     /** Hash of all PVs in config_tree that maps PV name to PV */
     private HashMap<String, AlarmTreePV> pvs = new HashMap<String, AlarmTreePV>();
 
+    /** Hash of all PVs in config_tree that maps RDB ID to PV */
+    private HashMap<Integer, AlarmTreePV> pv_ids = new HashMap<Integer, AlarmTreePV>();
+
     /** Re-used statements */
-    private PreparedStatement sel_items_by_parent_statement, sel_pv_by_id_statement;
+    private PreparedStatement sel_pv_by_id_statement;
 
 
     /** Initialize
@@ -185,6 +189,7 @@ public class AlarmConfiguration
         closeStatements();
         rdb.close();
         pvs.clear();
+        pv_ids.clear();
     }
 
     /** @return root of the alarm tree configuration */
@@ -204,6 +209,15 @@ public class AlarmConfiguration
         return pvs.get(name);
     }
 
+    /** Locate PV by RDB ID
+     *  @param id RDB ID of the PV
+     *  @return PV or <code>null</code> when not found
+     */
+    public synchronized AlarmTreePV findPV(final int id)
+    {
+        return pv_ids.get(id);
+    }
+
     /** Create the root element.
      *  <p>
      *  Per default, it's a plain AlarmTreeRoot.
@@ -246,8 +260,10 @@ public class AlarmConfiguration
             }
             final int id = result.getInt(1);
             final AlarmTreeRoot root = createAlarmTreeRoot(id, root_name);
-            config_reader.readGuidanceDisplaysCommands(root);
-            readChildren(root, monitor, monitor_update_delay);
+            final AlarmConfigurationSnapshot snapshot =
+                AlarmConfigurationSnapshot.read(rdb, sql, root_name, id, Preferences.getConfigSnapshotDirectory());
+            setGuidanceDisplaysCommands(root, snapshot);
+            addChildren(root, snapshot, monitor, monitor_update_delay);
             return root;
         }
         finally
@@ -257,60 +273,59 @@ public class AlarmConfiguration
         }
     }
 
-    /** Read configuration for child elements
+    /** Set guidance, displays, commands, automated actions
+     *  @param item Item to update
+     *  @param snapshot Configuration snapshot
+     */
+    private void setGuidanceDisplaysCommands(final AlarmTreeItem item,
+            final AlarmConfigurationSnapshot snapshot)
+    {
+        final int id = item.getID();
+        item.setGuidance(snapshot.getGuidance(id));
+        item.setDisplays(snapshot.getDisplays(id));
+        item.setCommands(snapshot.getCommands(id));
+        item.setAutomatedActions(snapshot.getAutomatedActions(id));
+    }
+
+    /** Add child elements from configuration snapshot
      *  @param parent Parent node. Children get added to it.
+     *  @param snapshot Configuration snapshot
      *  @param monitor Progress monitor
      *  @param monitor_update_delay Delay for updates to monitor
      *  @throws Exception on error
      */
-    private void readChildren(final AlarmTreeItem parent,
+    private void addChildren(final AlarmTreeItem parent, final AlarmConfigurationSnapshot snapshot,
             final IProgressMonitor monitor, final DelayCheck monitor_update_delay) throws Exception
     {
-        if (sel_items_by_parent_statement == null)
-            sel_items_by_parent_statement =
-                rdb.getConnection().prepareStatement(sql.sel_items_by_parent);
-        sel_items_by_parent_statement.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent_statement.executeQuery();
-
-        final List<AlarmTreeItem> recurse_items = new ArrayList<AlarmTreeItem>();
-        while (result.next()  &&  !monitor.isCanceled())
+        for (AlarmConfigurationSnapshot.Item info : snapshot.getChildren(parent.getID()))
         {
-            final int id = result.getInt(1);
-            final String name = result.getString(17);
-            final Timestamp config_time = result.getTimestamp(2);
+            if (monitor.isCanceled())
+                return;
             final AlarmTreeItem item;
-            // Check PV's ID. If null, this is a component, not PV
-            result.getInt(3);
-            if (result.wasNull())
+            if (info.getPV() == null)
             {   // Component (area, system), not a PV
-                item = new AlarmTreeItem(parent, name, id);
-                recurse_items.add(item);
+                item = new AlarmTreeItem(parent, info.getName(), info.getID());
             }
             else
             {
-                final AlarmTreePV pv = new AlarmTreePV(parent, name, id);
-                pvs.put(name, pv);
+                final AlarmTreePV pv = new AlarmTreePV(parent, info.getName(), info.getID());
+                pvs.put(info.getName(), pv);
+                pv_ids.put(info.getID(), pv);
                 // Periodically update progress monitor
                 if (monitor_update_delay.expired())
                 {
                     final int count = pvs.size();
                     monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, count));
                 }
-                config_reader.configurePVfromResult(pv, result, severity_mapping, message_mapping);
+                config_reader.configurePVfromSnapshot(pv, info.getPV(), severity_mapping, message_mapping);
                 item = pv;
             }
-            if (config_time != null)
-                item.setConfigTime(TimestampHelper.toEPICSTime(config_time));
-            config_reader.readGuidanceDisplaysCommands(item);
-        }
-        result.close();
-
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (AlarmTreeItem item : recurse_items)
-            readChildren(item, monitor, monitor_update_delay);
-        recurse_items.clear();
+            if (info.getConfigTime() != null)
+                item.setConfigTime(info.getConfigTime());
+            setGuidanceDisplaysCommands(item, snapshot);
+            if (info.getPV() == null)
+                addChildren(item, snapshot, monitor, monitor_update_delay);
+        }
     }
 
     /** Add a component to the model and RDB
@@ -477,6 +492,7 @@ public class AlarmConfiguration
 
         final AlarmTreePV pv = new AlarmTreePV(parent, name, id);
         pvs.put(name, pv);
+        pv_ids.put(id, pv);
         return pv;
     }
 
@@ -787,6 +803,7 @@ public class AlarmConfiguration
             rdb.getConnection().setAutoCommit(true);
         }
         pvs.remove(pv.getName());
+        pv_ids.remove(pv.getID());
         pv.detachFromParent();
     }
 
@@ -936,11 +953,6 @@ public class AlarmConfiguration
     {
         try
         {
-            if (sel_items_by_parent_statement != null)
-            {
-                sel_items_by_parent_statement.close();
-                sel_items_by_parent_statement = null;
-            }
             if (sel_pv_by_id_statement != null)
             {
                 sel_pv_by_id_statement.close();
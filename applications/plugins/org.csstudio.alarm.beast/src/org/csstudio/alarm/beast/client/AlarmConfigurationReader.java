@@ -378,4 +378,42 @@ public class AlarmConfigurationReader
             pv.setAlarmState(current_severity, current_message, severity, message, value, timestamp);
         }
     }
+
+    /** Configure a PV from bulk-read snapshot
+     *  @param pv PV to configure
+     *  @param info PV info from {@link AlarmConfigurationSnapshot}
+     *  @param severity_mapping
+     *  @param message_mapping
+     *  @throws Exception on error
+     *  @see #configurePVfromResult(AlarmTreePV, ResultSet, SeverityReader, MessageReader)
+     */
+    public void configurePVfromSnapshot(final AlarmTreePV pv,
+            final AlarmConfigurationSnapshot.PVInfo info, final SeverityReader severity_mapping,
+            final MessageReader message_mapping) throws Exception
+    {
+        // Handle NULL like ResultSet.getBoolean()
+        pv.setDescription(info.getDescription());
+        pv.setEnabled(Boolean.TRUE.equals(info.isEnabled()));
+        pv.setAnnunciating(Boolean.TRUE.equals(info.isAnnunciating()));
+        pv.setLatching(Boolean.TRUE.equals(info.isLatching()));
+        pv.setDelay(info.getDelay());
+        pv.setCount(info.getCount());
+        pv.setFilter(info.getFilter());
+
+        final SeverityLevel current_severity = info.getCurrentSeverityID() == null
+            ? SeverityLevel.OK
+            : severity_mapping.getSeverity(info.getCurrentSeverityID());
+        final String current_message = info.getCurrentStatusID() == null
+            ? ""
+            : message_mapping.getMessage(info.getCurrentStatusID());
+        final SeverityLevel severity = info.getSeverityID() == null
+            ? SeverityLevel.OK
+            : severity_mapping.getSeverity(info.getSeverityID());
+        final String message = info.getStatusID() == null
+            ? ""
+            : message_mapping.getMessage(info.getStatusID());
+        if (info.getAlarmTime() != null)
+            pv.setAlarmState(current_severity, current_message, severity, message,
+                             info.getValue(), info.getAlarmTime());
+    }
 }
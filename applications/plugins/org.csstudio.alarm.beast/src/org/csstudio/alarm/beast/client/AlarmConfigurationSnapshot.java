@@ -0,0 +1,792 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.csstudio.alarm.beast.Activator;
+import org.csstudio.alarm.beast.SQL;
+import org.csstudio.alarm.beast.TimestampHelper;
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.epics.util.time.Timestamp;
+
+/** Complete alarm configuration, read from the RDB in bulk.
+ *
+ *  <p>Instead of querying the children of each component and then
+ *  the guidance, displays, ... of each item, the snapshot reads
+ *  all items, PVs, guidance, displays, commands and automated actions
+ *  with one query per table.
+ *  The alarm tree is then assembled in memory via {@link #getChildren(int)}.
+ *
+ *  <p>Optionally, the configuration is kept in a local snapshot file.
+ *  On the next read, the snapshot file is used if the
+ *  'fingerprint' of the RDB's alarm tree table still matches,
+ *  and only the PV table is read to get the current alarm state.
+ */
+@SuppressWarnings("nls")
+public class AlarmConfigurationSnapshot
+{
+    /** Version of the snapshot file format */
+    final private static int FILE_VERSION = 1;
+
+    /** Component or PV */
+    public static class Item
+    {
+        final private int id, parent_id;
+        final private String name;
+        final private Timestamp config_time;
+
+        /** PV info. <code>null</code> for components */
+        private PVInfo pv = null;
+
+        Item(final int id, final int parent_id, final String name, final Timestamp config_time)
+        {
+            this.id = id;
+            this.parent_id = parent_id;
+            this.name = name;
+            this.config_time = config_time;
+        }
+
+        /** @return RDB ID */
+        public int getID()
+        {
+            return id;
+        }
+
+        /** @return RDB ID of parent */
+        public int getParentID()
+        {
+            return parent_id;
+        }
+
+        /** @return Name of the item */
+        public String getName()
+        {
+            return name;
+        }
+
+        /** @return Configuration time or <code>null</code> */
+        public Timestamp getConfigTime()
+        {
+            return config_time;
+        }
+
+        /** @return PV info or <code>null</code> for a component */
+        public PVInfo getPV()
+        {
+            return pv;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (pv == null ? "Component " : "PV ") + name + " (" + id + ")";
+        }
+    }
+
+    /** PV configuration and alarm state.
+     *  <p>
+     *  Values are as found in the RDB, <code>null</code> for NULL columns,
+     *  leaving it to the alarm server resp. client to pick defaults.
+     */
+    public static class PVInfo
+    {
+        String description, filter, value;
+        Boolean enabled, annunciating, latching;
+        int delay, count;
+        Integer current_severity_id, current_status_id, severity_id, status_id;
+        Timestamp alarm_time;
+
+        /** @return Description or <code>null</code> */
+        public String getDescription()
+        {
+            return description;
+        }
+
+        /** @return Enablement or <code>null</code> */
+        public Boolean isEnabled()
+        {
+            return enabled;
+        }
+
+        /** @return Annunciation or <code>null</code> */
+        public Boolean isAnnunciating()
+        {
+            return annunciating;
+        }
+
+        /** @return Latching or <code>null</code> */
+        public Boolean isLatching()
+        {
+            return latching;
+        }
+
+        /** @return Alarm delay [seconds] */
+        public int getDelay()
+        {
+            return delay;
+        }
+
+        /** @return Alarm count */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /** @return Filter expression or <code>null</code> */
+        public String getFilter()
+        {
+            return filter;
+        }
+
+        /** @return RDB ID of current severity or <code>null</code> */
+        public Integer getCurrentSeverityID()
+        {
+            return current_severity_id;
+        }
+
+        /** @return RDB ID of current status message or <code>null</code> */
+        public Integer getCurrentStatusID()
+        {
+            return current_status_id;
+        }
+
+        /** @return RDB ID of alarm severity or <code>null</code> */
+        public Integer getSeverityID()
+        {
+            return severity_id;
+        }
+
+        /** @return RDB ID of alarm status message or <code>null</code> */
+        public Integer getStatusID()
+        {
+            return status_id;
+        }
+
+        /** @return Alarm value or <code>null</code> */
+        public String getValue()
+        {
+            return value;
+        }
+
+        /** @return Alarm time or <code>null</code> */
+        public Timestamp getAlarmTime()
+        {
+            return alarm_time;
+        }
+    }
+
+    final private static GDCDataStructure[] NO_GDC = new GDCDataStructure[0];
+    final private static AADataStructure[] NO_AA = new AADataStructure[0];
+
+    final private String root_name;
+    final private int root_id;
+
+    /** Fingerprint of the alarm tree table when the snapshot was read */
+    private String fingerprint;
+
+    /** All items of the configuration, parents before their children */
+    final private List<Item> items;
+
+    /** IDs of root and all items */
+    final private Set<Integer> ids = new HashSet<Integer>();
+
+    /** Children by parent ID, in order of their ID */
+    final private Map<Integer, List<Item>> children = new HashMap<Integer, List<Item>>();
+
+    /** Guidance, displays, commands, automated actions by item ID */
+    final private Map<Integer, GDCDataStructure[]> guidance = new HashMap<Integer, GDCDataStructure[]>();
+    final private Map<Integer, GDCDataStructure[]> displays = new HashMap<Integer, GDCDataStructure[]>();
+    final private Map<Integer, GDCDataStructure[]> commands = new HashMap<Integer, GDCDataStructure[]>();
+    final private Map<Integer, AADataStructure[]> automated_actions = new HashMap<Integer, AADataStructure[]>();
+
+    /** Initialize
+     *  @param root_name Name of the root element
+     *  @param root_id RDB ID of the root element
+     *  @param all_items Items of this and possibly other configurations, in order of their ID
+     */
+    AlarmConfigurationSnapshot(final String root_name, final int root_id, final List<Item> all_items)
+    {
+        this.root_name = root_name;
+        this.root_id = root_id;
+        final Map<Integer, List<Item>> all_children = new HashMap<Integer, List<Item>>();
+        for (Item item : all_items)
+        {
+            List<Item> siblings = all_children.get(item.parent_id);
+            if (siblings == null)
+            {
+                siblings = new ArrayList<Item>();
+                all_children.put(item.parent_id, siblings);
+            }
+            siblings.add(item);
+        }
+        // Only keep the items below this root.
+        // Since items can be moved, a child might have a lower ID than its parent,
+        // so this cannot be determined while reading the items in order of ID.
+        items = new ArrayList<Item>();
+        ids.add(root_id);
+        final List<Integer> parents = new ArrayList<Integer>();
+        parents.add(root_id);
+        for (int i=0; i<parents.size(); ++i)
+        {
+            final List<Item> siblings = all_children.get(parents.get(i));
+            if (siblings == null)
+                continue;
+            children.put(parents.get(i), siblings);
+            for (Item item : siblings)
+            {
+                items.add(item);
+                ids.add(item.id);
+                parents.add(item.id);
+            }
+        }
+    }
+
+    /** Read configuration from RDB or snapshot file
+     *  @param rdb RDB connection
+     *  @param sql SQL statements
+     *  @param root_name Name of the root element
+     *  @param root_id RDB ID of the root element
+     *  @param snapshot_directory Directory for snapshot files or <code>null</code>
+     *  @return {@link AlarmConfigurationSnapshot}
+     *  @throws Exception on error
+     */
+    public static AlarmConfigurationSnapshot read(final RDBUtil rdb, final SQL sql,
+            final String root_name, final int root_id,
+            final File snapshot_directory) throws Exception
+    {
+        final Connection connection = rdb.getConnection();
+        final String fingerprint = snapshot_directory == null ? null : readFingerprint(connection, sql);
+        AlarmConfigurationSnapshot snapshot = null;
+        if (fingerprint != null)
+        {
+            final File file = getSnapshotFile(snapshot_directory, root_name);
+            try
+            {
+                snapshot = readSnapshotFile(file, root_name, root_id, fingerprint);
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot read alarm configuration snapshot " + file, ex);
+            }
+        }
+        if (snapshot == null)
+        {
+            snapshot = new AlarmConfigurationSnapshot(root_name, root_id, readItems(connection, sql));
+            snapshot.fingerprint = fingerprint;
+            snapshot.readGDC(connection, sql.sel_all_guidance, snapshot.guidance);
+            snapshot.readGDC(connection, sql.sel_all_displays, snapshot.displays);
+            snapshot.readGDC(connection, sql.sel_all_commands, snapshot.commands);
+            snapshot.readAutomatedActions(connection, sql);
+            snapshot.readPVs(connection, sql);
+            if (fingerprint != null)
+            {
+                final File file = getSnapshotFile(snapshot_directory, root_name);
+                try
+                {
+                    snapshot.writeSnapshotFile(file);
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Cannot write alarm configuration snapshot " + file, ex);
+                }
+            }
+        }
+        else
+        {   // Configuration from snapshot, but alarm state changes all the time
+            snapshot.readPVs(connection, sql);
+            Activator.getLogger().log(Level.FINE,
+                    "Alarm configuration {0} read from snapshot", root_name);
+        }
+        return snapshot;
+    }
+
+    /** @return Name of the root element */
+    public String getRootName()
+    {
+        return root_name;
+    }
+
+    /** @return RDB ID of the root element */
+    public int getRootID()
+    {
+        return root_id;
+    }
+
+    /** @return Number of items (components and PVs) below the root */
+    public int getItemCount()
+    {
+        return items.size();
+    }
+
+    /** @param parent_id RDB ID of parent item
+     *  @return Child items in order of their ID, may be empty
+     */
+    public List<Item> getChildren(final int parent_id)
+    {
+        final List<Item> result = children.get(parent_id);
+        if (result == null)
+            return Collections.emptyList();
+        return result;
+    }
+
+    /** @param id RDB ID of item
+     *  @return Guidance, may be empty
+     */
+    public GDCDataStructure[] getGuidance(final int id)
+    {
+        final GDCDataStructure[] result = guidance.get(id);
+        return result == null ? NO_GDC : result;
+    }
+
+    /** @param id RDB ID of item
+     *  @return Related displays, may be empty
+     */
+    public GDCDataStructure[] getDisplays(final int id)
+    {
+        final GDCDataStructure[] result = displays.get(id);
+        return result == null ? NO_GDC : result;
+    }
+
+    /** @param id RDB ID of item
+     *  @return Commands, may be empty
+     */
+    public GDCDataStructure[] getCommands(final int id)
+    {
+        final GDCDataStructure[] result = commands.get(id);
+        return result == null ? NO_GDC : result;
+    }
+
+    /** @param id RDB ID of item
+     *  @return Automated actions, may be empty
+     */
+    public AADataStructure[] getAutomatedActions(final int id)
+    {
+        final AADataStructure[] result = automated_actions.get(id);
+        return result == null ? NO_AA : result;
+    }
+
+    /** @param connection RDB connection
+     *  @param sql SQL statements
+     *  @return Fingerprint of the alarm tree table
+     *  @throws Exception on error
+     */
+    private static String readFingerprint(final Connection connection, final SQL sql) throws Exception
+    {
+        final Statement statement = connection.createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(sql.sel_configuration_fingerprint);
+            if (! result.next())
+                return null;
+            final java.sql.Timestamp config_time = result.getTimestamp(4);
+            return result.getLong(1) + "/" + result.getLong(2) + "/" + result.getLong(3) + "/" +
+                   (config_time == null ? "-" : Long.toString(config_time.getTime()));
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    /** @param connection RDB connection
+     *  @param sql SQL statements
+     *  @return All items of all configurations
+     *  @throws Exception on error
+     */
+    private static List<Item> readItems(final Connection connection, final SQL sql) throws Exception
+    {
+        final List<Item> items = new ArrayList<Item>();
+        final Statement statement = connection.createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(sql.sel_all_items);
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                final int parent_id = result.getInt(2);
+                final String name = result.getString(3);
+                final java.sql.Timestamp config_time = result.getTimestamp(4);
+                items.add(new Item(id, parent_id, name,
+                        config_time == null ? null : TimestampHelper.toEPICSTime(config_time)));
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+        return items;
+    }
+
+    /** Read PV configuration and alarm state, turning items into PVs
+     *  @param connection RDB connection
+     *  @param sql SQL statements
+     *  @throws Exception on error
+     */
+    private void readPVs(final Connection connection, final SQL sql) throws Exception
+    {
+        final Map<Integer, Item> items_by_id = new HashMap<Integer, Item>(items.size());
+        for (Item item : items)
+        {
+            item.pv = null;
+            items_by_id.put(item.id, item);
+        }
+        final Statement statement = connection.createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(sql.sel_all_pvs);
+            while (result.next())
+            {
+                final Item item = items_by_id.get(result.getInt(1));
+                if (item == null)
+                    continue;
+                final PVInfo pv = new PVInfo();
+                pv.description = result.getString(2);
+                pv.enabled = getBoolean(result, 3);
+                pv.annunciating = getBoolean(result, 4);
+                pv.latching = getBoolean(result, 5);
+                pv.delay = result.getInt(6);
+                pv.count = result.getInt(7);
+                pv.filter = result.getString(8);
+                pv.current_severity_id = getInteger(result, 9);
+                pv.current_status_id = getInteger(result, 10);
+                pv.severity_id = getInteger(result, 11);
+                pv.status_id = getInteger(result, 12);
+                pv.value = result.getString(13);
+                final java.sql.Timestamp time = result.getTimestamp(14);
+                pv.alarm_time = time == null ? null : TimestampHelper.toEPICSTime(time);
+                item.pv = pv;
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private static Boolean getBoolean(final ResultSet result, final int column) throws Exception
+    {
+        final boolean value = result.getBoolean(column);
+        return result.wasNull() ? null : Boolean.valueOf(value);
+    }
+
+    private static Integer getInteger(final ResultSet result, final int column) throws Exception
+    {
+        final int value = result.getInt(column);
+        return result.wasNull() ? null : Integer.valueOf(value);
+    }
+
+    /** Read guidance, displays or commands
+     *  @param connection RDB connection
+     *  @param query SQL for (ID, TITLE, DETAIL) ordered by ID
+     *  @param map Map to populate
+     *  @throws Exception on error
+     */
+    private void readGDC(final Connection connection, final String query,
+            final Map<Integer, GDCDataStructure[]> map) throws Exception
+    {
+        final Statement statement = connection.createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(query);
+            final List<GDCDataStructure> entries = new ArrayList<GDCDataStructure>();
+            int last_id = -1;
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (id != last_id)
+                {
+                    putGDC(map, last_id, entries);
+                    last_id = id;
+                }
+                entries.add(new GDCDataStructure(result.getString(2), result.getString(3)));
+            }
+            putGDC(map, last_id, entries);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    /** Add accumulated entries for item to map, but only if item is in this configuration */
+    private void putGDC(final Map<Integer, GDCDataStructure[]> map, final int id,
+            final List<GDCDataStructure> entries)
+    {
+        if (entries.isEmpty())
+            return;
+        if (ids.contains(id))
+            map.put(id, entries.toArray(new GDCDataStructure[entries.size()]));
+        entries.clear();
+    }
+
+    /** @param connection RDB connection
+     *  @param sql SQL statements
+     *  @throws Exception on error
+     */
+    private void readAutomatedActions(final Connection connection, final SQL sql) throws Exception
+    {
+        final Statement statement = connection.createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(sql.sel_all_auto_actions);
+            final List<AADataStructure> entries = new ArrayList<AADataStructure>();
+            int last_id = -1;
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (id != last_id)
+                {
+                    putAA(last_id, entries);
+                    last_id = id;
+                }
+                entries.add(new AADataStructure(result.getString(2), result.getString(3), result.getInt(4)));
+            }
+            putAA(last_id, entries);
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private void putAA(final int id, final List<AADataStructure> entries)
+    {
+        if (entries.isEmpty())
+            return;
+        if (ids.contains(id))
+            automated_actions.put(id, entries.toArray(new AADataStructure[entries.size()]));
+        entries.clear();
+    }
+
+    /** Order items by ID */
+    final private static Comparator<Item> ITEM_BY_ID = new Comparator<Item>()
+    {
+        @Override
+        public int compare(final Item a, final Item b)
+        {
+            return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+        }
+    };
+
+    /** @param directory Snapshot directory
+     *  @param root_name Name of the root element
+     *  @return Snapshot file for that configuration
+     */
+    static File getSnapshotFile(final File directory, final String root_name)
+    {
+        return new File(directory, "alarm_config_" + root_name.replaceAll("[^A-Za-z0-9_-]", "_") + ".snapshot");
+    }
+
+    /** @param file Snapshot file
+     *  @throws IOException on error
+     */
+    void writeSnapshotFile(final File file) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        // Write to temporary file, then rename, so other readers never see a partial snapshot
+        final File tmp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try
+        {
+            write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+        if (file.exists()  &&  !file.delete())
+            throw new IOException("Cannot replace " + file);
+        if (! tmp.renameTo(file))
+            throw new IOException("Cannot rename " + tmp + " to " + file);
+    }
+
+    /** @param file Snapshot file
+     *  @param root_name Expected name of the root element
+     *  @param root_id Expected ID of the root element
+     *  @param fingerprint Expected fingerprint
+     *  @return Snapshot or <code>null</code> if no file, or file does not match
+     *  @throws IOException on error
+     */
+    static AlarmConfigurationSnapshot readSnapshotFile(final File file, final String root_name,
+            final int root_id, final String fingerprint) throws IOException
+    {
+        if (! file.canRead())
+            return null;
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            final AlarmConfigurationSnapshot snapshot = read(in);
+            if (snapshot == null  ||
+                !snapshot.root_name.equals(root_name)  ||  snapshot.root_id != root_id  ||
+                !fingerprint.equals(snapshot.fingerprint))
+                return null;
+            return snapshot;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /** Write configuration, without PV info which is read from RDB each time
+     *  @param out Where to write
+     *  @throws IOException on error
+     */
+    void write(final DataOutput out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+        out.writeUTF(root_name);
+        out.writeInt(root_id);
+        writeString(out, fingerprint);
+        out.writeInt(items.size());
+        for (Item item : items)
+        {
+            out.writeInt(item.id);
+            out.writeInt(item.parent_id);
+            writeString(out, item.name);
+            if (item.config_time == null)
+                out.writeBoolean(false);
+            else
+            {
+                out.writeBoolean(true);
+                out.writeLong(item.config_time.getSec());
+                out.writeInt(item.config_time.getNanoSec());
+            }
+        }
+        writeGDC(out, guidance);
+        writeGDC(out, displays);
+        writeGDC(out, commands);
+        out.writeInt(automated_actions.size());
+        for (Map.Entry<Integer, AADataStructure[]> entry : automated_actions.entrySet())
+        {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (AADataStructure aa : entry.getValue())
+            {
+                writeString(out, aa.getTitle());
+                writeString(out, aa.getDetails());
+                out.writeInt(aa.getDelay());
+            }
+        }
+    }
+
+    /** @param in Where to read
+     *  @return Snapshot, <code>null</code> for unknown file version
+     *  @throws IOException on error
+     */
+    static AlarmConfigurationSnapshot read(final DataInput in) throws IOException
+    {
+        if (in.readInt() != FILE_VERSION)
+            return null;
+        final String root_name = in.readUTF();
+        final int root_id = in.readInt();
+        final String fingerprint = readString(in);
+        final int count = in.readInt();
+        final List<Item> items = new ArrayList<Item>(count);
+        for (int i=0; i<count; ++i)
+        {
+            final int id = in.readInt();
+            final int parent_id = in.readInt();
+            final String name = readString(in);
+            final Timestamp config_time = in.readBoolean()
+                ? Timestamp.of(in.readLong(), in.readInt())
+                : null;
+            items.add(new Item(id, parent_id, name, config_time));
+        }
+        // Items were written in tree order. Re-establish order by ID for siblings
+        Collections.sort(items, ITEM_BY_ID);
+        final AlarmConfigurationSnapshot snapshot = new AlarmConfigurationSnapshot(root_name, root_id, items);
+        snapshot.fingerprint = fingerprint;
+        readGDC(in, snapshot.guidance);
+        readGDC(in, snapshot.displays);
+        readGDC(in, snapshot.commands);
+        final int aa_count = in.readInt();
+        for (int i=0; i<aa_count; ++i)
+        {
+            final int id = in.readInt();
+            final AADataStructure[] entries = new AADataStructure[in.readInt()];
+            for (int e=0; e<entries.length; ++e)
+                entries[e] = new AADataStructure(readString(in), readString(in), in.readInt());
+            snapshot.automated_actions.put(id, entries);
+        }
+        return snapshot;
+    }
+
+    private static void writeGDC(final DataOutput out, final Map<Integer, GDCDataStructure[]> map) throws IOException
+    {
+        out.writeInt(map.size());
+        for (Map.Entry<Integer, GDCDataStructure[]> entry : map.entrySet())
+        {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (GDCDataStructure gdc : entry.getValue())
+            {
+                writeString(out, gdc.getTitle());
+                writeString(out, gdc.getDetails());
+            }
+        }
+    }
+
+    private static void readGDC(final DataInput in, final Map<Integer, GDCDataStructure[]> map) throws IOException
+    {
+        final int count = in.readInt();
+        for (int i=0; i<count; ++i)
+        {
+            final int id = in.readInt();
+            final GDCDataStructure[] entries = new GDCDataStructure[in.readInt()];
+            for (int e=0; e<entries.length; ++e)
+                entries[e] = new GDCDataStructure(readString(in), readString(in));
+            map.put(id, entries);
+        }
+    }
+
+    /** Write string that may be <code>null</code> or exceed the 64k limit of writeUTF */
+    private static void writeString(final DataOutput out, final String text) throws IOException
+    {
+        if (text == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = text.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInput in) throws IOException
+    {
+        final int length = in.readInt();
+        if (length < 0)
+            return null;
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -30,6 +30,13 @@ import org.epics.util.time.Timestamp;
  *  <li>Many {@link AlarmTreeItem} entries to build the hierarchy
  *  <li>Finally {@link AlarmTreePV} entries as leaves
  *  </ul>
+ *  <p>
+ *  Each item counts its child items per severity level.
+ *  A change in the severity of a child updates these counts
+ *  and then the counts of the parent items, so an update only
+ *  touches the path to the root.
+ *  The alarm message of an item and its list of child items
+ *  in alarm are determined from the child items when requested.
  *  @see AlarmTreeRoot
  *  @see AlarmTreeComponent
  *  @see AlarmTreePV
@@ -38,8 +45,35 @@ import org.epics.util.time.Timestamp;
  */
 public class AlarmTreeItem extends TreeItem
 {
-    /** Sub-tree elements of this item which are currently in alarm */
-    final private List<AlarmTreeItem> alarm_children = new ArrayList<AlarmTreeItem>();
+    /** All severity levels, indexed by ordinal */
+    final private static SeverityLevel[] LEVEL_VALUES = SeverityLevel.values();
+
+    /** Number of severity levels */
+    final private static int LEVELS = LEVEL_VALUES.length;
+
+    /** Sub-tree elements of this item which are currently in alarm.
+     *  Determined from the child items when <code>alarm_children_valid</code> is false.
+     */
+    private List<AlarmTreeItem> alarm_children = new ArrayList<AlarmTreeItem>();
+
+    /** Is <code>alarm_children</code> up to date? */
+    private boolean alarm_children_valid = true;
+
+    /** Number of child items with the current severity level.
+     *  Indexed by {@link SeverityLevel#ordinal()}, not counting OK.
+     */
+    final private int current_counts[] = new int[LEVELS];
+
+    /** Number of child items with the alarm severity level.
+     *  Indexed by {@link SeverityLevel#ordinal()}, not counting OK.
+     */
+    final private int severity_counts[] = new int[LEVELS];
+
+    /** Is <code>message</code> up to date? */
+    private boolean message_valid = true;
+
+    /** Incremented whenever the severity or message of a child item changes */
+    private long child_updates = 0;
 
     // Using arrays for guidance, ..., commands to be thread-safe
 
@@ -55,11 +89,24 @@ public class AlarmTreeItem extends TreeItem
     /** Automated Actions */
     private AADataStructure automated_actions[] = new AADataStructure[0];
 
-    /** Current severity of this item/subtree */
-    private SeverityLevel current_severity = SeverityLevel.OK;
+    /** Current severity of this item/subtree.
+     *  Written while holding the lock on this item,
+     *  read by the parent's recount without that lock.
+     */
+    private volatile SeverityLevel current_severity = SeverityLevel.OK;
 
     /** Highest/latched alarm severity of this item/subtree */
-    private SeverityLevel severity = SeverityLevel.OK;
+    private volatile SeverityLevel severity = SeverityLevel.OK;
+
+    /** Current severity of this item as included in the counts of the parent.
+     *  Guarded by the lock on the parent.
+     */
+    private SeverityLevel counted_current_severity = SeverityLevel.OK;
+
+    /** Alarm severity of this item as included in the counts of the parent.
+     *  Guarded by the lock on the parent.
+     */
+    private SeverityLevel counted_severity = SeverityLevel.OK;
 
     /**  Highest/latched alarm message of this item/subtree */
     private String message = SeverityLevel.OK.getDisplayName();
@@ -81,7 +128,7 @@ public class AlarmTreeItem extends TreeItem
     /** @return Text (multi-line) that can be used as a tool-tip to
      *          describe this item and its current state
      */
-    public synchronized String getToolTipText()
+    public String getToolTipText()
     {
         return NLS.bind(Messages.Alarm_TT,
             new Object[]
@@ -226,18 +273,49 @@ public class AlarmTreeItem extends TreeItem
     /** @return Number of sub-elements in configuration hierarchy
      *          which are currently in alarm
      */
-    public synchronized int getAlarmChildCount()
+    public int getAlarmChildCount()
     {
-        return alarm_children.size();
+        return getAlarmChildren().size();
     }
 
     /** Get one of the child elements which are currently in alarm.
      *  @param index Child element index 0 .. (getAlarmChildCount()-1)
      *  @return Sub-item in alarm hierarchy
      */
-    public synchronized AlarmTreeItem getAlarmChild(final int index)
+    public AlarmTreeItem getAlarmChild(final int index)
     {
-        return alarm_children.get(index);
+        return getAlarmChildren().get(index);
+    }
+
+    /** @return Child elements which are currently in alarm */
+    private List<AlarmTreeItem> getAlarmChildren()
+    {
+        final long updates;
+        synchronized (this)
+        {
+            if (alarm_children_valid)
+                return alarm_children;
+            updates = child_updates;
+        }
+        // Check children without holding the lock on this item
+        // to avoid deadlocks with updates that lock child, then parent
+        final List<AlarmTreeItem> children = new ArrayList<AlarmTreeItem>();
+        final int n = getChildCount();
+        for (int i=0; i<n; ++i)
+        {
+            final AlarmTreeItem child = getChild(i);
+            if (child.getSeverity().ordinal() > 0)
+                children.add(child);
+        }
+        synchronized (this)
+        {
+            if (updates == child_updates)
+            {
+                alarm_children = children;
+                alarm_children_valid = true;
+            }
+        }
+        return children;
     }
 
     /** @return Current severity */
@@ -252,10 +330,65 @@ public class AlarmTreeItem extends TreeItem
         return severity;
     }
 
+    /** Current severity as counted by the parent item.
+     *  <p>
+     *  Like {@link #getCurrentSeverity()}, but called by the parent
+     *  without locking this item.
+     *  @return Current severity
+     */
+    protected SeverityLevel getEffectiveCurrentSeverity()
+    {
+        return current_severity;
+    }
+
+    /** Alarm severity as counted by the parent item.
+     *  <p>
+     *  Like {@link #getSeverity()}, but called by the parent
+     *  without locking this item.
+     *  @return Highest or latched severity
+     */
+    protected SeverityLevel getEffectiveSeverity()
+    {
+        return severity;
+    }
+
     /** @return Highest or latched alarm message */
-    public synchronized String getMessage()
+    public String getMessage()
     {
-        return message;
+        final long updates;
+        final SeverityLevel level;
+        synchronized (this)
+        {
+            if (message_valid)
+                return message;
+            updates = child_updates;
+            level = severity;
+        }
+        // Use message of first child with the highest severity,
+        // checking children without holding the lock on this item
+        String new_message = SeverityLevel.OK.getDisplayName();
+        if (level != SeverityLevel.OK)
+        {
+            final int n = getChildCount();
+            for (int i=0; i<n; ++i)
+            {
+                final AlarmTreeItem child = getChild(i);
+                if (child.getSeverity() == level)
+                {
+                    new_message = child.getMessage();
+                    break;
+                }
+            }
+        }
+        synchronized (this)
+        {
+            if (updates == child_updates)
+            {
+                message = new_message;
+                message_valid = true;
+            }
+        }
+        return new_message;
     }
 
     /** Update alarm state of this item, maximize alarm tree severities.
@@ -269,16 +402,17 @@ public class AlarmTreeItem extends TreeItem
             final SeverityLevel severity, final String message,
             final AlarmTreeLeaf pv)
     {
-        if (getCurrentSeverity() == current_severity &&
-            getSeverity() == severity  &&
-            getMessage().equals(message))
+        if (this.current_severity == current_severity &&
+            this.severity == severity  &&
+            message_valid  &&  this.message.equals(message))
             return false;
         this.current_severity = current_severity;
         this.severity = severity;
         this.message = message;
+        message_valid = true;
         final AlarmTreeItem parent = getParent();
         if (parent != null)
-            parent.maximizeSeverity();
+            parent.updateChildSeverity(this, getEffectiveCurrentSeverity(), getEffectiveSeverity());
         return true;
     }
 
@@ -311,46 +445,135 @@ public class AlarmTreeItem extends TreeItem
     /** Set severity/status of this item by maximizing over its child
      *  severities.
      *  Recursively updates parent items.
+     *  <p>
+     *  Needs to check all child items.
+     *  Changes of a single child are handled by
+     *  {@link #updateChildSeverity(AlarmTreeItem, SeverityLevel, SeverityLevel)}.
      */
-    public synchronized void maximizeSeverity()
+    public void maximizeSeverity()
     {
-    	// Get maximum child severity and its status
-    	SeverityLevel new_current_severity = SeverityLevel.OK;
-    	SeverityLevel new_severity = SeverityLevel.OK;
-        String new_message = SeverityLevel.OK.getDisplayName();
-        alarm_children.clear();
-        final int n = getChildCount();
-        for (int i=0; i<n; ++i)
+        // Like PV updates, lock the root before this item
+        // because changes percolate up to the root
+        final AlarmTreeRoot root = getRoot();
+        synchronized (root)
         {
-            final AlarmTreeItem child = getChild(i);
-            // Maximize 'current' severity
-            if (child.getCurrentSeverity().ordinal() > new_current_severity.ordinal())
-            	new_current_severity = child.getCurrentSeverity();
-            // Maximize latched severity/status
-            final SeverityLevel child_sevr = child.getSeverity();
-            final int level = child_sevr.ordinal();
-            if (level > 0)
-                alarm_children.add(child);
-            if (level > new_severity.ordinal())
+            synchronized (this)
             {
-            	new_severity = child_sevr;
-            	new_message = child.getMessage();
+                for (int l=0; l<LEVELS; ++l)
+                {
+                    current_counts[l] = 0;
+                    severity_counts[l] = 0;
+                }
+                final int n = getChildCount();
+                for (int i=0; i<n; ++i)
+                {   // Read child severities without locking the child.
+                    // A change of the child that is not included will arrive
+                    // as a delta, which is then computed against what was counted here.
+                    final AlarmTreeItem child = getChild(i);
+                    child.counted_current_severity = child.getEffectiveCurrentSeverity();
+                    child.counted_severity = child.getEffectiveSeverity();
+                    ++current_counts[child.counted_current_severity.ordinal()];
+                    ++severity_counts[child.counted_severity.ordinal()];
+                }
+                current_counts[0] = severity_counts[0] = 0;
+                invalidateChildInfo();
+                updateSeverity();
             }
         }
+    }
 
-        if (new_current_severity != current_severity  ||
-            new_severity != severity  ||
-            !new_message.equals(message))
+    /** Update severity/status of this item for a change in one child item.
+     *  Recursively updates parent items.
+     *  @param child Child item that changed
+     *  @param new_current_severity New current severity of the child
+     *  @param new_severity New alarm severity of the child
+     */
+    private synchronized void updateChildSeverity(final AlarmTreeItem child,
+            final SeverityLevel new_current_severity, final SeverityLevel new_severity)
+    {
+        // Compute the change against the child severity that is in the counts,
+        // which may already include the new severity from a recount
+        final SeverityLevel old_current_severity = child.counted_current_severity;
+        final SeverityLevel old_severity = child.counted_severity;
+        child.counted_current_severity = new_current_severity;
+        child.counted_severity = new_severity;
+        if (old_current_severity != new_current_severity)
+        {
+            if (old_current_severity.ordinal() > 0)
+                --current_counts[old_current_severity.ordinal()];
+            if (new_current_severity.ordinal() > 0)
+                ++current_counts[new_current_severity.ordinal()];
+        }
+        if (old_severity != new_severity)
         {
-            current_severity = new_current_severity;
-            severity = new_severity;
-            message = new_message;
+            if (old_severity.ordinal() > 0)
+                --severity_counts[old_severity.ordinal()];
+            if (new_severity.ordinal() > 0)
+                ++severity_counts[new_severity.ordinal()];
         }
+        // Even without severity change, message might have changed
+        invalidateChildInfo();
+        updateSeverity();
+    }
+
+    /** Mark message and alarm children for update */
+    private void invalidateChildInfo()
+    {
+        ++child_updates;
+        message_valid = false;
+        alarm_children_valid = false;
+    }
+
+    /** Update severities from the counts of child severities
+     *  and percolate changes towards root
+     */
+    private void updateSeverity()
+    {
+        final SeverityLevel old_current_severity = current_severity;
+        final SeverityLevel old_severity = severity;
+        current_severity = getHighestLevel(current_counts);
+        severity = getHighestLevel(severity_counts);
+        final AlarmTreeItem parent = getParent();
+        if (parent == null)
+            return;
+        if (old_current_severity != current_severity  ||  old_severity != severity)
+            parent.updateChildSeverity(this, getEffectiveCurrentSeverity(), getEffectiveSeverity());
+        else // Severities of ancestors remain, but message of this item might have changed
+            parent.invalidateMessage();
+    }
 
-        // Percolate changes towards root
+    /** Mark message of this item and its ancestors for update
+     *  after the message of a child changed.
+     *  Stops at the first ancestor whose message is already marked.
+     */
+    private synchronized void invalidateMessage()
+    {
+        // Discard a message that is being determined right now
+        ++child_updates;
+        if (! message_valid)
+            return;
+        message_valid = false;
         final AlarmTreeItem parent = getParent();
         if (parent != null)
-            parent.maximizeSeverity();
+            parent.invalidateMessage();
+    }
+
+    /** @param counts Number of items per severity level
+     *  @return Highest severity level with a non-zero count
+     */
+    private static SeverityLevel getHighestLevel(final int counts[])
+    {
+        for (int l=LEVELS-1; l>0; --l)
+            if (counts[l] > 0)
+                return LEVEL_VALUES[l];
+        return SeverityLevel.OK;
+    }
+
+    /** Update severity after a child item was removed */
+    @Override
+    protected void childRemoved(final TreeItem child)
+    {
+        maximizeSeverity();
     }
 
     /** {@inheritDoc} */
@@ -484,12 +707,13 @@ public class AlarmTreeItem extends TreeItem
     /** @return Short string representation for debugging */
     @SuppressWarnings("nls")
     @Override
-    public synchronized String toString()
+    public String toString()
     {
+        final String message = getMessage();
         final StringBuilder buf = new StringBuilder();
         buf.append(super.toString());
-        buf.append(" (").append(current_severity.getDisplayName()).append("/");
-        buf.append(severity.getDisplayName()).append("/");
+        buf.append(" (").append(getCurrentSeverity().getDisplayName()).append("/");
+        buf.append(getSeverity().getDisplayName()).append("/");
         buf.append(message).append(")");
         final int n = getChildCount();
         if (n > 0)
@@ -23,7 +23,7 @@ import org.epics.util.time.Timestamp;
  */
 public class AlarmTreePV extends AlarmTreeLeaf
 {
-    private boolean enabled = true;
+    private volatile boolean enabled = true;
     private boolean latching = true;
     private boolean annunciating = false;
 
@@ -82,6 +82,20 @@ public class AlarmTreePV extends AlarmTreeLeaf
         return enabled ? super.getCurrentSeverity() : SeverityLevel.OK;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected SeverityLevel getEffectiveCurrentSeverity()
+    {
+        return enabled ? super.getEffectiveCurrentSeverity() : SeverityLevel.OK;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected SeverityLevel getEffectiveSeverity()
+    {
+        return enabled ? super.getEffectiveSeverity() : SeverityLevel.OK;
+    }
+
     /** @return Current message */
     public synchronized String getCurrentMessage()
     {
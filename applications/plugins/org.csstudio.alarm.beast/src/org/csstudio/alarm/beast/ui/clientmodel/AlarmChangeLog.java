@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.clientmodel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+
+/** Log of PVs that changed their alarm state.
+ *
+ *  <p>Each logged change increments the version.
+ *  Users of the model remember the version of the last
+ *  {@link AlarmChanges} they received and then ask for the changes since
+ *  that version, so they only need to handle the PVs that actually changed.
+ *
+ *  <p>The log is limited in size. When older changes have been dropped,
+ *  or after the log was reset because of a new configuration,
+ *  users receive the 'full' alarm lists.
+ *
+ *  <p>Not thread-safe, the {@link AlarmClientModel} synchronizes access.
+ */
+class AlarmChangeLog
+{
+    final private static AlarmTreePV[] NONE = new AlarmTreePV[0];
+
+    /** Maximum number of logged changes */
+    final private int limit;
+
+    /** Changed PVs, oldest first */
+    final private List<AlarmTreePV> log = new ArrayList<AlarmTreePV>();
+
+    /** Version of the first entry in the log */
+    private long first_version = 1;
+
+    /** Initialize
+     *  @param limit Maximum number of logged changes
+     */
+    public AlarmChangeLog(final int limit)
+    {
+        this.limit = limit;
+    }
+
+    /** @return Current version */
+    public long getVersion()
+    {
+        return first_version + log.size();
+    }
+
+    /** @param pv PV that changed its alarm state */
+    public void add(final AlarmTreePV pv)
+    {
+        log.add(pv);
+        if (log.size() > limit)
+        {   // Drop older half of the log
+            final int drop = log.size() / 2;
+            log.subList(0, drop).clear();
+            first_version += drop;
+        }
+    }
+
+    /** Drop all logged changes, forcing 'full' updates */
+    public void reset()
+    {
+        first_version = getVersion() + 1;
+        log.clear();
+    }
+
+    /** @param version Version of last changes that were received, 0 for none
+     *  @param active All PVs in active alarm
+     *  @param acknowledged All PVs in acknowledged alarm
+     *  @return Changes since that version
+     */
+    public AlarmChanges getChanges(final long version,
+            final Set<AlarmTreePV> active, final Set<AlarmTreePV> acknowledged)
+    {
+        if (version < first_version  ||  version > getVersion())
+            return new AlarmChanges(getVersion(), true, NONE,
+                    active.toArray(new AlarmTreePV[active.size()]),
+                    acknowledged.toArray(new AlarmTreePV[acknowledged.size()]));
+        final Set<AlarmTreePV> changed = new LinkedHashSet<AlarmTreePV>();
+        final int start = (int) (version - first_version);
+        for (int i=start; i<log.size(); ++i)
+            changed.add(log.get(i));
+        final List<AlarmTreePV> changed_active = new ArrayList<AlarmTreePV>();
+        final List<AlarmTreePV> changed_acknowledged = new ArrayList<AlarmTreePV>();
+        for (AlarmTreePV pv : changed)
+        {
+            if (active.contains(pv))
+                changed_active.add(pv);
+            else if (acknowledged.contains(pv))
+                changed_acknowledged.add(pv);
+        }
+        return new AlarmChanges(getVersion(), false,
+                changed.toArray(new AlarmTreePV[changed.size()]),
+                changed_active.toArray(new AlarmTreePV[changed_active.size()]),
+                changed_acknowledged.toArray(new AlarmTreePV[changed_acknowledged.size()]));
+    }
+}
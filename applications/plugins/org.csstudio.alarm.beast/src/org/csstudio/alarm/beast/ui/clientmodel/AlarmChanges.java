@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.clientmodel;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+
+/** Changes of the alarm client model since some version.
+ *
+ *  <p>For a 'full' change set, the active and acknowledged alarms
+ *  are the complete lists, replacing whatever the user of the model
+ *  had so far.
+ *  Otherwise, the changed PVs are those that updated their alarm state
+ *  since the requested version.
+ *  They were added to the active or acknowledged alarms,
+ *  updated while remaining in the same list,
+ *  or removed from the lists because they are no longer in alarm.
+ *
+ *  @see AlarmClientModel#getAlarmChanges(long)
+ */
+public class AlarmChanges
+{
+    final private long version;
+    final private boolean full;
+    final private AlarmTreePV[] changed, active, acknowledged;
+
+    /** Initialize
+     *  @param version Version of the model
+     *  @param full Complete lists, not just changes?
+     *  @param changed PVs that changed
+     *  @param active Changed PVs that are in active alarm
+     *  @param acknowledged Changed PVs that are in acknowledged alarm
+     */
+    AlarmChanges(final long version, final boolean full,
+            final AlarmTreePV[] changed,
+            final AlarmTreePV[] active, final AlarmTreePV[] acknowledged)
+    {
+        this.version = version;
+        this.full = full;
+        this.changed = changed;
+        this.active = active;
+        this.acknowledged = acknowledged;
+    }
+
+    /** @return Version of the model, to be used when asking for the next changes */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /** @return <code>true</code> if this is the complete alarm information, not just changes */
+    public boolean isFull()
+    {
+        return full;
+    }
+
+    /** @return PVs that changed their alarm state. Empty for 'full' change set */
+    public AlarmTreePV[] getChangedPVs()
+    {
+        return changed;
+    }
+
+    /** @return Changed PVs in active alarm, or all of them for 'full' change set */
+    public AlarmTreePV[] getActiveAlarms()
+    {
+        return active;
+    }
+
+    /** @return Changed PVs in acknowledged alarm, or all of them for 'full' change set */
+    public AlarmTreePV[] getAcknowledgedAlarms()
+    {
+        return acknowledged;
+    }
+
+    /** @return Debug representation */
+    @SuppressWarnings("nls")
+    @Override
+    public String toString()
+    {
+        if (full)
+            return "Alarms version " + version + ": " + active.length + " active, " +
+                   acknowledged.length + " acknowledged";
+        return "Alarm changes up to version " + version + ": " + changed.length + " changed, " +
+               active.length + " active, " + acknowledged.length + " acknowledged";
+    }
+}
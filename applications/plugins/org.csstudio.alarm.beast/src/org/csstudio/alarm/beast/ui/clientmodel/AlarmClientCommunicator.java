@@ -8,6 +8,8 @@
 package org.csstudio.alarm.beast.ui.clientmodel;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 import javax.jms.MapMessage;
@@ -18,14 +20,17 @@ import javax.jms.MessageProducer;
 import javax.security.auth.Subject;
 
 import org.csstudio.alarm.beast.Activator;
+import org.csstudio.alarm.beast.AlarmUpdateBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.JMSCommunicationWorkQueueThread;
 import org.csstudio.alarm.beast.Preferences;
+import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimeoutTimer;
 import org.csstudio.alarm.beast.WorkQueue;
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.csstudio.logging.JMSLogMessage;
 import org.csstudio.security.SecuritySupport;
+import org.epics.util.time.Timestamp;
 
 /** Receives alarm updates, sends acknowledgments.
  *  <p>
@@ -70,6 +75,57 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
         }
     }
 
+    /** Action to update the state of PVs received in an {@link AlarmUpdateBatch} */
+    private class BatchUpdateAction implements Runnable, AlarmUpdateBatch.Handler
+    {
+        final private List<Integer> ids = new ArrayList<Integer>();
+        final private List<AlarmUpdateInfo> infos = new ArrayList<AlarmUpdateInfo>();
+
+        @Override
+        public void handleUpdate(final int id,
+                final SeverityLevel current_severity, final String current_message,
+                final SeverityLevel severity, final String message,
+                final String value, final Timestamp timestamp)
+        {
+            ids.add(id);
+            infos.add(new AlarmUpdateInfo(null, current_severity, current_message,
+                                          severity, message, value, timestamp));
+        }
+
+        @Override
+        public void run()
+        {
+            for (int i=0; i<ids.size(); ++i)
+                model.updatePV(ids.get(i), infos.get(i));
+        }
+
+        /** Queue the update of each PV, replacing an older queued update
+         *  @param queue Queue
+         */
+        public void queue(final WorkQueue queue)
+        {
+            for (int i=0; i<ids.size(); ++i)
+            {
+                final int id = ids.get(i);
+                final AlarmUpdateInfo info = infos.get(i);
+                queue.executeReplacable(id, new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        model.updatePV(id, info);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Update " + ids.size() + " PVs";
+        }
+    }
+
     /** Action to enable/disable a PV */
     private class EnableAction implements Runnable
     {
@@ -369,6 +425,15 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
                 action = new UpdateAction(AlarmUpdateInfo.fromMapMessage(message));
                 model.updateServerState(true);
             }
+            else if (JMSAlarmMessage.TEXT_STATE_BATCH.equals(text))
+            {
+                timeout_timer.reset();
+                final BatchUpdateAction batch = new BatchUpdateAction();
+                final boolean maintenance = AlarmUpdateBatch.decode(
+                        message.getBytes(JMSAlarmMessage.UPDATES), batch);
+                action = batch;
+                model.updateServerState(maintenance);
+            }
             // Idle messages in absence of 'real' traffic?
             else if (JMSAlarmMessage.TEXT_IDLE.equals(text))
             {
@@ -409,8 +474,14 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
             synchronized (queue)
             {
                 if (use_queue)
-                {
-                    queue.execute(action);
+                {   // Only the latest state of a PV matters:
+                    // Replace a queued update for the same PV
+                    if (action instanceof UpdateAction)
+                        queue.executeReplacable(((UpdateAction) action).info.getNameOrPath(), action);
+                    else if (action instanceof BatchUpdateAction)
+                        ((BatchUpdateAction) action).queue(queue);
+                    else
+                        queue.execute(action);
                     return;
                 }
             }
@@ -115,6 +115,11 @@ public class AlarmClientModel
      */
     private Set<AlarmTreePV> acknowledged_alarms = new HashSet<AlarmTreePV>();
 
+    /** PVs that changed their alarm state, for incremental updates of listeners
+     *  <br><b>SYNC:</b> Access needs to synchronize on <code>this</code>
+     */
+    final private AlarmChangeLog change_log = new AlarmChangeLog(100000);
+
     /** Listeners who registered for notifications */
     final private CopyOnWriteArrayList<AlarmClientModelListener> listeners =
         new CopyOnWriteArrayList<AlarmClientModelListener>();
@@ -325,6 +330,7 @@ public class AlarmClientModel
                 config.close();
             active_alarms.clear();
             acknowledged_alarms.clear();
+            change_log.reset();
             config = null;
             // Note config_tree stays as it was...
         }
@@ -468,6 +474,7 @@ public class AlarmClientModel
                 config = null;
                 active_alarms.clear();
                 acknowledged_alarms.clear();
+                change_log.reset();
             }
         }
         fireNewConfig();
@@ -562,6 +569,23 @@ public class AlarmClientModel
         return acknowledged_alarms.toArray(array);
     }
 
+    /** Get changes in active and acknowledged alarms.
+     *  <p>
+     *  Users that need to track all alarms can call this with version 0
+     *  to get the complete alarm lists, then use the version
+     *  of the returned {@link AlarmChanges} to only get the PVs
+     *  that changed since then.
+     *  When changes can no longer be determined, for example
+     *  after reading a new configuration, the result is again 'full'.
+     *
+     *  @param version Version of the last changes that were received, 0 for none
+     *  @return {@link AlarmChanges} since that version
+     */
+    synchronized public AlarmChanges getAlarmChanges(final long version)
+    {
+        return change_log.getChanges(version, active_alarms, acknowledged_alarms);
+    }
+
     /** Add a component to the model and RDB
      *  @param root_or_component Root or Component under which to add the component
      *  @param name Name of the new component
@@ -903,9 +927,7 @@ public class AlarmClientModel
         final AlarmTreePV pv = findPV(name);
         if (pv != null)
         {
-            pv.setAlarmState(info.getCurrentSeverity(), info.getCurrentMessage(),
-                    info.getSeverity(), info.getMessage(),
-                    info.getValue(), info.getTimestamp());
+            updatePV(pv, info);
             return;
         }
         // Can this result in out-of-memory?!
@@ -917,6 +939,37 @@ public class AlarmClientModel
             "Received update for unknown PV {0}", name);
     }
 
+    /** Update the state of a PV in model.
+     *  <p>
+     *  Called by AlarmUpdateCommunicator for batched updates,
+     *  i.e. from JMS thread.
+     *
+     *  @param id RDB ID of the PV
+     *  @param info Alarm update info
+     */
+    void updatePV(final int id, final AlarmUpdateInfo info)
+    {
+        server_alive = true;
+        final AlarmTreePV pv = findPV(id);
+        if (pv != null)
+        {
+            updatePV(pv, info);
+            return;
+        }
+        Activator.getLogger().log(Level.WARNING,
+            "Received update for unknown PV ID {0}", id);
+    }
+
+    /** @param pv PV to update
+     *  @param info Alarm update info
+     */
+    private void updatePV(final AlarmTreePV pv, final AlarmUpdateInfo info)
+    {
+        pv.setAlarmState(info.getCurrentSeverity(), info.getCurrentMessage(),
+                info.getSeverity(), info.getMessage(),
+                info.getValue(), info.getTimestamp());
+    }
+
     /** Locate PV by name
      *  @param name Name of PV to locate. May be <code>null</code>.
      *  @return PV or <code>null</code> when not found
@@ -928,6 +981,17 @@ public class AlarmClientModel
         return config.findPV(name);
     }
 
+    /** Locate PV by RDB ID
+     *  @param id RDB ID of PV to locate
+     *  @return PV or <code>null</code> when not found
+     */
+    private synchronized AlarmTreePV findPV(final int id)
+    {
+        if (config == null)
+            return null;
+        return config.findPV(id);
+    }
+
     /** Ask alarm server to acknowledge alarm.
      *  @param pv PV to acknowledge
      *  @param acknowledge Acknowledge, or un-acknowledge?
@@ -951,6 +1015,7 @@ public class AlarmClientModel
         new AlarmTreeItem(config_tree, info, 0);
         active_alarms.clear();
         acknowledged_alarms.clear();
+        change_log.reset();
     }
 
     /** Send debug trigger to alarm server */
@@ -1050,6 +1115,7 @@ public class AlarmClientModel
                     active_alarms.remove(pv);
                     acknowledged_alarms.remove(pv);
                 }
+                change_log.add(pv);
                 if (!notify_listeners )
                     return;
             }
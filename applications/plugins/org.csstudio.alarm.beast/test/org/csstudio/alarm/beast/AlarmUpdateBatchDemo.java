@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.text.SimpleDateFormat;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.apache.activemq.broker.BrokerService;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmUpdateInfo;
+import org.csstudio.logging.JMSLogMessage;
+import org.csstudio.platform.utility.jms.JMSConnectionFactory;
+import org.epics.util.time.Timestamp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Throughput of alarm state updates through an embedded JMS broker:
+ *  One MapMessage per update as sent by the original alarm server
+ *  compared to {@link AlarmUpdateBatch} messages.
+ */
+@SuppressWarnings("nls")
+public class AlarmUpdateBatchDemo
+{
+    final private static String URL = "tcp://localhost:61699";
+
+    /** Total number of updates */
+    final private static int UPDATES = 50000;
+
+    /** Number of PVs that send updates */
+    final private static int PVS = 5000;
+
+    /** Updates per batch, i.e. per batch update period of the alarm server */
+    final private static int BATCH = 1000;
+
+    final private SimpleDateFormat date_format = new SimpleDateFormat(JMSLogMessage.DATE_FORMAT);
+
+    private BrokerService broker;
+
+    private Connection connection;
+
+    private Session send_session, receive_session;
+
+    private MessageConsumer consumer;
+
+    @Before
+    public void startBroker() throws Exception
+    {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.addConnector(URL);
+        broker.start();
+        connection = JMSConnectionFactory.connect(URL);
+        connection.start();
+        send_session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        receive_session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @After
+    public void stopBroker() throws Exception
+    {
+        connection.close();
+        broker.stop();
+    }
+
+    /** Fill message with the basic alarm info as the alarm server does */
+    private MapMessage createMessage(final String text) throws Exception
+    {
+        final MapMessage map = send_session.createMapMessage();
+        map.setString(JMSLogMessage.TYPE, JMSAlarmMessage.TYPE_ALARM);
+        map.setString(JMSAlarmMessage.CONFIG, "Demo");
+        map.setString(JMSLogMessage.TEXT, text);
+        map.setString(JMSLogMessage.APPLICATION_ID, "AlarmServer");
+        map.setString(JMSLogMessage.HOST, "localhost");
+        map.setString(JMSLogMessage.USER, "demo");
+        return map;
+    }
+
+    private static SeverityLevel getSeverity(final int i)
+    {
+        return (i % 2 == 0) ? SeverityLevel.MAJOR : SeverityLevel.MINOR;
+    }
+
+    private static String getStatus(final int i)
+    {
+        return (i % 2 == 0) ? "HIHI_ALARM" : "HIGH_ALARM";
+    }
+
+    /** @param name Topic name
+     *  @param listener Message handler
+     *  @return Producer for the topic
+     */
+    private MessageProducer connect(final String name, final MessageListener listener) throws Exception
+    {
+        final Topic topic = send_session.createTopic(name);
+        consumer = receive_session.createConsumer(topic);
+        consumer.setMessageListener(listener);
+        final MessageProducer producer = send_session.createProducer(topic);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        return producer;
+    }
+
+    private void report(final String title, final long start)
+    {
+        final double secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%-12s: %8.0f updates/sec\n", title, UPDATES / secs);
+    }
+
+    private void sendMapMessages() throws Exception
+    {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final MessageProducer producer = connect("DEMO_MAP", new MessageListener()
+        {
+            @Override
+            public void onMessage(final Message message)
+            {
+                try
+                {
+                    AlarmUpdateInfo.fromMapMessage((MapMessage) message);
+                    if (received.incrementAndGet() == UPDATES)
+                        done.countDown();
+                }
+                catch (Exception ex)
+                {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        final Timestamp now = Timestamp.now();
+        final long start = System.nanoTime();
+        for (int i=0; i<UPDATES; ++i)
+        {
+            final MapMessage map = createMessage(JMSAlarmMessage.TEXT_STATE);
+            map.setString(JMSLogMessage.NAME, "Demo:PV" + (i % PVS));
+            map.setString(JMSLogMessage.SEVERITY, getSeverity(i).name());
+            map.setString(JMSAlarmMessage.STATUS, getStatus(i));
+            map.setString(JMSAlarmMessage.VALUE, Double.toString(i));
+            map.setString(JMSAlarmMessage.EVENTTIME, date_format.format(now.toDate()));
+            map.setString(JMSAlarmMessage.CURRENT_SEVERITY, getSeverity(i).name());
+            map.setString(JMSAlarmMessage.CURRENT_STATUS, getStatus(i));
+            producer.send(map);
+        }
+        assertThat(done.await(60, TimeUnit.SECONDS), equalTo(true));
+        report("MapMessage", start);
+        producer.close();
+        consumer.close();
+    }
+
+    private void sendBatches() throws Exception
+    {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AlarmUpdateBatch.Handler handler = new AlarmUpdateBatch.Handler()
+        {
+            @Override
+            public void handleUpdate(final int id,
+                    final SeverityLevel current_severity, final String current_message,
+                    final SeverityLevel severity, final String message,
+                    final String value, final Timestamp timestamp)
+            {
+                if (received.incrementAndGet() == UPDATES)
+                    done.countDown();
+            }
+        };
+        final MessageProducer producer = connect("DEMO_BATCH", new MessageListener()
+        {
+            @Override
+            public void onMessage(final Message message)
+            {
+                try
+                {
+                    AlarmUpdateBatch.decode(((MapMessage) message).getBytes(JMSAlarmMessage.UPDATES), handler);
+                }
+                catch (Exception ex)
+                {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        final Timestamp now = Timestamp.now();
+        final long start = System.nanoTime();
+        for (int b=0; b<UPDATES; b+=BATCH)
+        {
+            final AlarmUpdateBatch batch = new AlarmUpdateBatch(false);
+            for (int i=b; i<b+BATCH; ++i)
+                batch.add(i % PVS, getSeverity(i), getStatus(i), getSeverity(i), getStatus(i),
+                          Double.toString(i), now);
+            final MapMessage map = createMessage(JMSAlarmMessage.TEXT_STATE_BATCH);
+            map.setBytes(JMSAlarmMessage.UPDATES, batch.toByteArray());
+            producer.send(map);
+        }
+        assertThat(done.await(60, TimeUnit.SECONDS), equalTo(true));
+        report("Binary batch", start);
+        producer.close();
+        consumer.close();
+    }
+
+    @Test
+    public void compareThroughput() throws Exception
+    {
+        System.out.println(UPDATES + " updates for " + PVS + " PVs, " + BATCH + " per batch");
+        // Warm up
+        sendMapMessages();
+        sendBatches();
+        for (int run=0; run<3; ++run)
+        {
+            sendMapMessages();
+            sendBatches();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmUpdateBatch} */
+@SuppressWarnings("nls")
+public class AlarmUpdateBatchUnitTest
+{
+    /** Handler that formats received updates */
+    private static class Receiver implements AlarmUpdateBatch.Handler
+    {
+        final List<String> received = new ArrayList<String>();
+        final List<Timestamp> times = new ArrayList<Timestamp>();
+
+        @Override
+        public void handleUpdate(final int id,
+                final SeverityLevel current_severity, final String current_message,
+                final SeverityLevel severity, final String message,
+                final String value, final Timestamp timestamp)
+        {
+            received.add(id + " " + current_severity.name() + "/" + current_message + " " +
+                         severity.name() + "/" + message + " " + value);
+            times.add(timestamp);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final Timestamp t1 = Timestamp.of(1380000000, 123456789);
+        final Timestamp t2 = Timestamp.of(1380000005, 0);
+        // Older time stamp
+        final Timestamp t3 = Timestamp.of(1370000000, 999999999);
+
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch(true);
+        batch.add(42, SeverityLevel.MAJOR, "HIHI_ALARM", SeverityLevel.MAJOR, "HIHI_ALARM", "12.5", t1);
+        batch.add(1000000, SeverityLevel.OK, "", SeverityLevel.MAJOR_ACK, "HIHI_ALARM", null, t2);
+        batch.add(7, SeverityLevel.INVALID, "Disconnected \u00B0C", SeverityLevel.INVALID, "Disconnected \u00B0C", "", t3);
+        assertThat(batch.size(), equalTo(3));
+        final byte[] data = batch.toByteArray();
+        System.out.println("3 updates: " + data.length + " bytes");
+
+        final Receiver receiver = new Receiver();
+        assertTrue(AlarmUpdateBatch.decode(data, receiver));
+        assertThat(receiver.received, equalTo(Arrays.asList(
+            "42 MAJOR/HIHI_ALARM MAJOR/HIHI_ALARM 12.5",
+            "1000000 OK/ MAJOR_ACK/HIHI_ALARM null",
+            "7 INVALID/Disconnected \u00B0C INVALID/Disconnected \u00B0C ")));
+        assertThat(receiver.times, equalTo(Arrays.asList(t1, t2, t3)));
+    }
+
+    @Test
+    public void testInterning() throws Exception
+    {
+        final Timestamp now = Timestamp.now();
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch(false);
+        for (int i=0; i<1000; ++i)
+            batch.add(i, SeverityLevel.MINOR, "HIGH_ALARM", SeverityLevel.MINOR, "HIGH_ALARM", "5.0", now);
+        final byte[] data = batch.toByteArray();
+        System.out.println("1000 updates: " + data.length + " bytes");
+        // Repeated strings and time stamps only take a few bytes
+        assertTrue(data.length < 10 * 1000);
+
+        final Receiver receiver = new Receiver();
+        assertThat(AlarmUpdateBatch.decode(data, receiver), equalTo(false));
+        assertThat(receiver.received.size(), equalTo(1000));
+        assertThat(receiver.received.get(999), equalTo("999 MINOR/HIGH_ALARM MINOR/HIGH_ALARM 5.0"));
+        assertThat(receiver.times.get(999), equalTo(now));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch(false);
+        batch.add(1, SeverityLevel.OK, "", SeverityLevel.OK, "", null, Timestamp.now());
+        final byte[] data = batch.toByteArray();
+        try
+        {
+            AlarmUpdateBatch.decode(Arrays.copyOf(data, data.length - 1), new Receiver());
+            fail("Did not detect truncated data");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage());
+        }
+
+        data[0] = 99;
+        try
+        {
+            AlarmUpdateBatch.decode(data, new Receiver());
+            fail("Did not detect version");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), equalTo("Unknown alarm update batch version 99"));
+        }
+
+        final Receiver receiver = new Receiver();
+        AlarmUpdateBatch.decode(new AlarmUpdateBatch(false).toByteArray(), receiver);
+        assertThat(receiver.received.size(), equalTo(0));
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.Test;
+
+/** Benchmark of the {@link WorkQueue} compared to the original
+ *  linked list implementation, for queues of different size.
+ *
+ *  Prints the time per operation for the table in the WorkQueue comments.
+ */
+@SuppressWarnings("nls")
+public class WorkQueueDemo
+{
+    /** Runnable that's 'equal' for the same key */
+    private static class ReplacableRunnable implements Runnable
+    {
+        final Object key;
+
+        ReplacableRunnable(final Object key)
+        {
+            this.key = key;
+        }
+
+        @Override
+        public void run()
+        {
+            // NOP
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            return obj instanceof ReplacableRunnable  &&  ((ReplacableRunnable) obj).key.equals(key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode();
+        }
+    }
+
+    /** Original implementation: Replace via linear lookup */
+    private static class LinkedListQueue
+    {
+        final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        synchronized void execute(final Runnable command)
+        {
+            tasks.add(command);
+        }
+
+        synchronized void executeReplacable(final Runnable command)
+        {
+            tasks.remove(command);
+            tasks.add(command);
+        }
+
+        synchronized Runnable getOldestRunnable()
+        {
+            return tasks.poll();
+        }
+    }
+
+    /** Number of operations to time, fewer for the slow large list */
+    private static int getOperations(final int entries)
+    {
+        return entries >= 100000 ? 2000 : 100000;
+    }
+
+    /** @return Keys of entries to replace, 'noisy PVs' in random order */
+    private static Integer[] getKeys(final int entries)
+    {
+        final Random random = new Random(42);
+        final Integer[] keys = new Integer[getOperations(entries)];
+        for (int i=0; i<keys.length; ++i)
+            keys[i] = Integer.valueOf(random.nextInt(entries));
+        return keys;
+    }
+
+    private static double timeList(final int entries)
+    {
+        final LinkedListQueue queue = new LinkedListQueue();
+        for (int i=0; i<entries; ++i)
+            queue.execute(new ReplacableRunnable(Integer.valueOf(i)));
+        final Integer[] keys = getKeys(entries);
+        final int ops = keys.length;
+        final long start = System.nanoTime();
+        for (int i=0; i<ops; ++i)
+            queue.executeReplacable(new ReplacableRunnable(keys[i]));
+        final double us = (System.nanoTime() - start) / 1e3 / ops;
+        while (queue.getOldestRunnable() != null)
+            ;
+        return us;
+    }
+
+    private static double timeQueue(final int entries)
+    {
+        final WorkQueue queue = new WorkQueue();
+        for (int i=0; i<entries; ++i)
+            queue.executeReplacable(Integer.valueOf(i), new ReplacableRunnable(Integer.valueOf(i)));
+        final Integer[] keys = getKeys(entries);
+        final int ops = keys.length;
+        final long start = System.nanoTime();
+        for (int i=0; i<ops; ++i)
+            queue.executeReplacable(keys[i], new ReplacableRunnable(keys[i]));
+        final double us = (System.nanoTime() - start) / 1e3 / ops;
+        queue.performQueuedCommands();
+        return us;
+    }
+
+    @Test
+    public void benchmarkReplace()
+    {
+        final int[] sizes = { 10, 1000, 100000 };
+        // Warm up
+        for (int size : sizes)
+        {
+            timeList(size);
+            timeQueue(size);
+        }
+        System.out.println("Entries  Replace: LinkedList  LinkedHashMap");
+        for (int size : sizes)
+            System.out.format("%7d  %18.2fus  %12.2fus\n", size, timeList(size), timeQueue(size));
+    }
+}
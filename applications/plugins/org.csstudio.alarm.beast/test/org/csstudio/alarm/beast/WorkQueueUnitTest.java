@@ -98,7 +98,62 @@ public class WorkQueueUnitTest
         final double seconds = (end-start)/1000.0;
         assertEquals(0.0, seconds, 0.01);
     }
-    
+
+    private Runnable append(final String text)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result += text;
+            }
+        };
+    }
+
+    @Test
+    public void testExecuteReplacable() throws Exception
+    {
+        final WorkQueue queue = new WorkQueue();
+        queue.executeReplacable("A", append("A1"));
+        queue.executeReplacable("B", append("B1"));
+        queue.executeReplacable("A", append("A2"));
+        queue.execute(append("C"));
+        queue.executeReplacable("A", append("A3"));
+        // A3 replaced A1 and A2, keeping the position of A1
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.getCoalescedCount());
+        queue.performQueuedCommands();
+        assertEquals("A3B1C", result);
+        assertEquals(3, queue.getExecutedCount());
+        assertEquals(3, queue.getMaxSize());
+        System.out.println(queue);
+
+        // Same command is only queued once
+        final Runnable command = append("D");
+        queue.executeIfNotPending(command);
+        queue.executeIfNotPending(command);
+        assertEquals(1, queue.size());
+        assertEquals(3, queue.getCoalescedCount());
+        queue.performQueuedCommands();
+        assertEquals("A3B1CD", result);
+
+        // .. also when it was added via execute
+        queue.execute(command);
+        queue.executeIfNotPending(command);
+        assertEquals(1, queue.size());
+        queue.performQueuedCommands();
+        assertEquals("A3B1CDD", result);
+        queue.executeIfNotPending(command);
+        assertEquals(1, queue.size());
+        queue.performQueuedCommands();
+        assertEquals("A3B1CDDD", result);
+
+        queue.resetStatistics();
+        assertEquals(0, queue.getExecutedCount());
+        assertEquals(0, queue.getCoalescedCount());
+    }
+
     // Meant to run in JProfiler, used to
     // determine queue performance
     // @Ignore
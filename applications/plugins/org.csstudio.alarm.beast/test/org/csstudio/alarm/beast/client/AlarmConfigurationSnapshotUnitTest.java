@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.client;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmConfigurationSnapshot} tree assembly
+ *  and snapshot file format.
+ *  Reading from the RDB is covered by the {@link AlarmConfigurationUnitTest}
+ */
+@SuppressWarnings("nls")
+public class AlarmConfigurationSnapshotUnitTest
+{
+    /** @return Items of two configurations, root IDs 1 and 100 */
+    private List<AlarmConfigurationSnapshot.Item> createItems()
+    {
+        final List<AlarmConfigurationSnapshot.Item> items = new ArrayList<AlarmConfigurationSnapshot.Item>();
+        // Item 2 was moved into area 5, so child has lower ID than parent
+        items.add(new AlarmConfigurationSnapshot.Item(2, 5, "Moved", null));
+        items.add(new AlarmConfigurationSnapshot.Item(3, 1, "Area A", Timestamp.of(100, 42)));
+        items.add(new AlarmConfigurationSnapshot.Item(4, 3, "System 1", null));
+        items.add(new AlarmConfigurationSnapshot.Item(5, 1, "Area B", null));
+        items.add(new AlarmConfigurationSnapshot.Item(6, 3, "System 2", null));
+        items.add(new AlarmConfigurationSnapshot.Item(7, 5, "System 3", null));
+        // Other configuration
+        items.add(new AlarmConfigurationSnapshot.Item(101, 100, "Other Area", null));
+        items.add(new AlarmConfigurationSnapshot.Item(102, 101, "Other System", null));
+        return items;
+    }
+
+    private String names(final List<AlarmConfigurationSnapshot.Item> items)
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (AlarmConfigurationSnapshot.Item item : items)
+        {
+            if (buf.length() > 0)
+                buf.append(", ");
+            buf.append(item.getName());
+        }
+        return buf.toString();
+    }
+
+    private void checkTree(final AlarmConfigurationSnapshot snapshot)
+    {
+        assertThat(snapshot.getRootName(), equalTo("Test"));
+        assertThat(snapshot.getRootID(), equalTo(1));
+        assertThat(snapshot.getItemCount(), equalTo(6));
+        assertThat(names(snapshot.getChildren(1)), equalTo("Area A, Area B"));
+        assertThat(names(snapshot.getChildren(3)), equalTo("System 1, System 2"));
+        assertThat(names(snapshot.getChildren(5)), equalTo("Moved, System 3"));
+        assertThat(snapshot.getChildren(4).size(), equalTo(0));
+        // Items of other configuration are not included
+        assertThat(snapshot.getChildren(100).size(), equalTo(0));
+        assertThat(snapshot.getChildren(101).size(), equalTo(0));
+
+        final AlarmConfigurationSnapshot.Item area = snapshot.getChildren(1).get(0);
+        assertThat(area.getConfigTime(), equalTo(Timestamp.of(100, 42)));
+        assertThat(area.getPV(), nullValue());
+        assertThat(snapshot.getGuidance(3).length, equalTo(0));
+    }
+
+    @Test
+    public void testTree() throws Exception
+    {
+        checkTree(new AlarmConfigurationSnapshot("Test", 1, createItems()));
+    }
+
+    @Test
+    public void testSnapshotFile() throws Exception
+    {
+        final AlarmConfigurationSnapshot snapshot = new AlarmConfigurationSnapshot("Test", 1, createItems());
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buf);
+        snapshot.write(out);
+        out.close();
+        System.out.println("Snapshot: " + buf.size() + " bytes");
+
+        final AlarmConfigurationSnapshot copy = AlarmConfigurationSnapshot.read(
+            new DataInputStream(new ByteArrayInputStream(buf.toByteArray())));
+        checkTree(copy);
+    }
+}
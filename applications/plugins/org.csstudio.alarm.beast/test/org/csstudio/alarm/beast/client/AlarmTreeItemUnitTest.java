@@ -117,4 +117,39 @@ public class AlarmTreeItemUnitTest
         System.out.println("Total tree element count: " + tree.getElementCount());
         assertEquals(11, tree.getElementCount());
     }
+
+    @Test
+    public void testDisabledPV() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final AlarmTreeItem area = new AlarmTreeItem(tree, "Area", 0);
+        final AlarmTreePV pv = new AlarmTreePV(area, "PV", 0);
+        new AlarmTreePV(area, "Other", 0);
+        pv.setAlarmState(SeverityLevel.MAJOR, "High",
+                         SeverityLevel.MAJOR, "High",
+                         "Value", Timestamp.now());
+        assertEquals(SeverityLevel.MAJOR, tree.getSeverity());
+        assertEquals(1, area.getAlarmChildCount());
+
+        // Disabling the PV clears the path to the root
+        pv.setEnabled(false);
+        area.maximizeSeverity();
+        assertEquals(SeverityLevel.OK, area.getCurrentSeverity());
+        assertEquals(SeverityLevel.OK, area.getSeverity());
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+        assertEquals(0, area.getAlarmChildCount());
+        assertEquals(SeverityLevel.OK.getDisplayName(), tree.getMessage());
+
+        // Updates of the disabled PV don't alarm the parents
+        pv.setAlarmState(SeverityLevel.INVALID, "Disconnected",
+                         SeverityLevel.INVALID, "Disconnected",
+                         "Value", Timestamp.now());
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+
+        // Enabling the PV restores its alarm
+        pv.setEnabled(true);
+        area.maximizeSeverity();
+        assertEquals(SeverityLevel.INVALID, tree.getSeverity());
+        assertEquals("Disconnected", tree.getMessage());
+    }
 }
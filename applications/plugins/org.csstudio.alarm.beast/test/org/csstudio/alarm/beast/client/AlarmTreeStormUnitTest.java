@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.alarm.beast.SeverityLevel;
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of severity propagation in a large alarm tree:
+ *  'Alarm storm' where many PVs change their alarm state.
+ */
+@SuppressWarnings("nls")
+public class AlarmTreeStormUnitTest
+{
+    final private static int AREAS = 10, SYSTEMS = 100, PVS = 100;
+
+    private void setAll(final List<AlarmTreePV> pvs, final SeverityLevel current, final SeverityLevel severity)
+    {
+        final Timestamp now = Timestamp.now();
+        for (AlarmTreePV pv : pvs)
+            pv.setAlarmState(current, current.name(), severity, pv.getName(), "value", now);
+    }
+
+    @Test
+    public void testStorm() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final List<AlarmTreePV> pvs = new ArrayList<AlarmTreePV>(AREAS * SYSTEMS * PVS);
+        for (int a=0; a<AREAS; ++a)
+        {
+            final AlarmTreeItem area = new AlarmTreeItem(tree, "Area" + a, 0);
+            for (int s=0; s<SYSTEMS; ++s)
+            {
+                final AlarmTreeItem system = new AlarmTreeItem(area, "System" + s, 0);
+                for (int p=0; p<PVS; ++p)
+                    pvs.add(new AlarmTreePV(system, "PV" + a + "_" + s + "_" + p, 0));
+            }
+        }
+
+        long start = System.nanoTime();
+        setAll(pvs, SeverityLevel.MAJOR, SeverityLevel.MAJOR);
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%d PVs to MAJOR: %.3f sec, %.0f updates/sec\n", pvs.size(), secs, pvs.size() / secs);
+        assertEquals(SeverityLevel.MAJOR, tree.getCurrentSeverity());
+        assertEquals(SeverityLevel.MAJOR, tree.getSeverity());
+        assertEquals(AREAS, tree.getAlarmChildCount());
+        // Message of first child in alarm
+        assertEquals("PV0_0_0", tree.getMessage());
+
+        // One PV with higher severity determines the message
+        final AlarmTreePV invalid = pvs.get(pvs.size() / 2);
+        invalid.setAlarmState(SeverityLevel.INVALID, "", SeverityLevel.INVALID, "Invalid!", "value", Timestamp.now());
+        assertEquals(SeverityLevel.INVALID, tree.getSeverity());
+        assertEquals("Invalid!", tree.getMessage());
+        assertEquals("Invalid!", invalid.getParent().getMessage());
+
+        start = System.nanoTime();
+        setAll(pvs, SeverityLevel.OK, SeverityLevel.MAJOR_ACK);
+        secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%d PVs to MAJOR_ACK: %.3f sec, %.0f updates/sec\n", pvs.size(), secs, pvs.size() / secs);
+        assertEquals(SeverityLevel.OK, tree.getCurrentSeverity());
+        assertEquals(SeverityLevel.MAJOR_ACK, tree.getSeverity());
+
+        // Clear all but one PV
+        final AlarmTreePV last = pvs.get(pvs.size() - 1);
+        start = System.nanoTime();
+        setAll(pvs.subList(0, pvs.size() - 1), SeverityLevel.OK, SeverityLevel.OK);
+        secs = (System.nanoTime() - start) / 1e9;
+        System.out.format("%d PVs to OK: %.3f sec, %.0f updates/sec\n", pvs.size(), secs, pvs.size() / secs);
+        assertEquals(SeverityLevel.MAJOR_ACK, tree.getSeverity());
+        assertEquals(last.getName(), tree.getMessage());
+        assertEquals(1, tree.getAlarmChildCount());
+        assertEquals(last.getParent().getParent(), tree.getAlarmChild(0));
+
+        // Removing the last PV in alarm clears the tree
+        last.detachFromParent();
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+        assertEquals(0, tree.getAlarmChildCount());
+        assertEquals(SeverityLevel.OK.getDisplayName(), tree.getMessage());
+    }
+
+    @Test
+    public void testMessageUpdate() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final AlarmTreeItem area = new AlarmTreeItem(tree, "Area", 0);
+        final AlarmTreeItem system = new AlarmTreeItem(area, "System", 0);
+        final AlarmTreePV pv = new AlarmTreePV(system, "PV", 0);
+        pv.setAlarmState(SeverityLevel.MAJOR, "", SeverityLevel.MAJOR, "First", "value", Timestamp.now());
+        assertEquals("First", tree.getMessage());
+
+        // Same severity, new message
+        pv.setAlarmState(SeverityLevel.MAJOR, "", SeverityLevel.MAJOR, "Second", "value", Timestamp.now());
+        assertEquals(SeverityLevel.MAJOR, tree.getSeverity());
+        assertEquals("Second", tree.getMessage());
+        assertEquals("Second", area.getMessage());
+    }
+
+    /** Recount of a parent while its children change must not corrupt the counts */
+    @Test(timeout=60000)
+    public void testConcurrentRecount() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final AlarmTreeItem area = new AlarmTreeItem(tree, "Area", 0);
+        final AlarmTreeItem system = new AlarmTreeItem(area, "System", 0);
+        final List<AlarmTreePV> pvs = new ArrayList<AlarmTreePV>();
+        for (int p=0; p<PVS; ++p)
+            pvs.add(new AlarmTreePV(system, "PV" + p, 0));
+
+        final Thread recount = new Thread("Recount")
+        {
+            @Override
+            public void run()
+            {
+                while (! isInterrupted())
+                {
+                    system.maximizeSeverity();
+                    area.maximizeSeverity();
+                }
+            }
+        };
+        recount.start();
+        for (int i=0; i<1000; ++i)
+        {
+            setAll(pvs, SeverityLevel.MAJOR, SeverityLevel.MAJOR);
+            setAll(pvs, SeverityLevel.OK, SeverityLevel.OK);
+        }
+        recount.interrupt();
+        recount.join();
+
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+        assertEquals(SeverityLevel.OK, system.getCurrentSeverity());
+        // Counts are correct, so the last PV in alarm determines the severity
+        final AlarmTreePV last = pvs.get(PVS - 1);
+        last.setAlarmState(SeverityLevel.MINOR, "", SeverityLevel.MINOR, "Minor", "value", Timestamp.now());
+        assertEquals(SeverityLevel.MINOR, tree.getSeverity());
+        last.setAlarmState(SeverityLevel.OK, "", SeverityLevel.OK, "OK", "value", Timestamp.now());
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+        assertEquals(0, tree.getAlarmChildCount());
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.clientmodel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmChangeLog} */
+@SuppressWarnings("nls")
+public class AlarmChangeLogUnitTest
+{
+    final private AlarmTreePV a = new AlarmTreePV(null, "a", 1);
+    final private AlarmTreePV b = new AlarmTreePV(null, "b", 2);
+    final private AlarmTreePV c = new AlarmTreePV(null, "c", 3);
+
+    final private Set<AlarmTreePV> active = new HashSet<AlarmTreePV>();
+    final private Set<AlarmTreePV> acknowledged = new HashSet<AlarmTreePV>();
+
+    @Test
+    public void testChanges()
+    {
+        final AlarmChangeLog log = new AlarmChangeLog(100);
+        // Initial request receives full information
+        active.add(a);
+        AlarmChanges changes = log.getChanges(0, active, acknowledged);
+        System.out.println(changes);
+        assertThat(changes.isFull(), equalTo(true));
+        assertThat(Arrays.asList(changes.getActiveAlarms()), equalTo(Arrays.asList(a)));
+        long version = changes.getVersion();
+
+        // No changes
+        changes = log.getChanges(version, active, acknowledged);
+        assertThat(changes.isFull(), equalTo(false));
+        assertThat(changes.getChangedPVs().length, equalTo(0));
+
+        // 'a' acknowledged, 'b' becomes active, 'c' changes several times
+        active.remove(a);
+        acknowledged.add(a);
+        log.add(a);
+        active.add(b);
+        log.add(b);
+        log.add(c);
+        log.add(c);
+        log.add(c);
+        changes = log.getChanges(version, active, acknowledged);
+        System.out.println(changes);
+        assertThat(changes.isFull(), equalTo(false));
+        assertThat(Arrays.asList(changes.getChangedPVs()), equalTo(Arrays.asList(a, b, c)));
+        assertThat(Arrays.asList(changes.getActiveAlarms()), equalTo(Arrays.asList(b)));
+        assertThat(Arrays.asList(changes.getAcknowledgedAlarms()), equalTo(Arrays.asList(a)));
+        assertThat(changes.getVersion(), equalTo(version + 5));
+        version = changes.getVersion();
+
+        // Only changes since last request
+        log.add(b);
+        changes = log.getChanges(version, active, acknowledged);
+        assertThat(Arrays.asList(changes.getChangedPVs()), equalTo(Arrays.asList(b)));
+    }
+
+    @Test
+    public void testLimit()
+    {
+        final AlarmChangeLog log = new AlarmChangeLog(10);
+        final long version = log.getVersion();
+        for (int i=0; i<8; ++i)
+            log.add(a);
+        final long recent = log.getVersion();
+        for (int i=0; i<5; ++i)
+            log.add(b);
+        // Older changes were dropped, so receive full information
+        assertThat(log.getChanges(version, active, acknowledged).isFull(), equalTo(true));
+        // Recent changes are still available
+        final AlarmChanges changes = log.getChanges(recent, active, acknowledged);
+        assertThat(changes.isFull(), equalTo(false));
+        assertThat(Arrays.asList(changes.getChangedPVs()), equalTo(Arrays.asList(b)));
+    }
+
+    @Test
+    public void testReset()
+    {
+        final AlarmChangeLog log = new AlarmChangeLog(10);
+        log.add(a);
+        final long version = log.getVersion();
+        log.add(b);
+        log.reset();
+        // New configuration: Receive full information
+        AlarmChanges changes = log.getChanges(version, active, acknowledged);
+        assertThat(changes.isFull(), equalTo(true));
+        // .. then changes since the reset
+        log.add(c);
+        changes = log.getChanges(changes.getVersion(), active, acknowledged);
+        assertThat(changes.isFull(), equalTo(false));
+        assertThat(Arrays.asList(changes.getChangedPVs()), equalTo(Arrays.asList(c)));
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.csstudio.apputil.formula.CompiledFormula;
+import org.csstudio.apputil.formula.Formula;
+import org.csstudio.apputil.formula.VariableNode;
+import org.junit.Test;
+
+/** JUnit test of the {@link CompiledFormula}:
+ *  Compare with the {@link Formula} tree
+ */
+@SuppressWarnings("nls")
+public class CompiledFormulaUnitTest
+{
+    final private static String[] FORMULAS = new String[]
+    {
+        "0",
+        "-3.14 + 2 - 1.10",
+        "-(3.14)",
+        "1 + 2 * 3 - 4",
+        "x + y * 3 - 4",
+        "(x + 2) * (y - 4) / x",
+        "x ^ 2 + y^0.5",
+        "-x",
+        "x == y",
+        "x != y",
+        "x < y",
+        "x <= y",
+        "x > y",
+        "x >= y",
+        "x & y",
+        "x | y",
+        "!x",
+        "!(x > 2 ? 0 : 1)",
+        "x > 2 ? 3 : 4",
+        "x<y ? 1 : x>y ? 2 : 3",
+        "x > 2 ? (x & y) : x | y",
+        "min(5, x, 3, y)",
+        "max(x, y, -2)",
+        "sqrt(x) ^ 2",
+        "exp(log(x))",
+        "abs(x) + acos(x/10) + asin(x/10) + atan(x) + ceil(x) + cos(x)",
+        "cosh(x) + exp(x) + expm1(x) + floor(x) + log(x) + log10(x)",
+        "round(x) + sin(x) + sinh(x) + sqrt(x) + tan(x) + tanh(x)",
+        "toDegrees(x) + toRadians(x)",
+        "atan2(x, y) + hypot(x, y) + pow(x, y)",
+        "2*PI*x + E",
+        "sin(toRadians(30)) * x",
+        "(x > 0.5 & y < 3) | (x == y ? min(x, y) : max(x, y)) > 1",
+    };
+
+    final private static double[] VALUES = new double[]
+    {
+        -2.5, -1, 0, 0.5, 1, 2, 2.4, 2.5, 3, 10, Double.NaN,
+        Double.POSITIVE_INFINITY
+    };
+
+    @Test
+    public void testCompareWithTree() throws Exception
+    {
+        final VariableNode x = new VariableNode("x");
+        final VariableNode y = new VariableNode("y");
+        final VariableNode vars[] = new VariableNode[] { x, y };
+        for (String expression : FORMULAS)
+        {
+            final Formula formula = new Formula(expression, vars);
+            final CompiledFormula compiled = new CompiledFormula(formula);
+            assertEquals(expression, compiled.getFormula());
+            assertTrue(compiled.isCompiled());
+            for (double xv : VALUES)
+                for (double yv : VALUES)
+                {
+                    x.setValue(xv);
+                    y.setValue(yv);
+                    final double expected = formula.eval();
+                    final double result = compiled.eval();
+                    // Compare bits to check NaN, -0.0
+                    assertEquals(expression + " for x=" + xv + ", y=" + yv,
+                                 0, Double.compare(expected, result));
+                }
+        }
+    }
+
+    @Test
+    public void testConstants() throws Exception
+    {
+        CompiledFormula compiled = new CompiledFormula(new Formula("2 * (3 + 4) > 10 ? sqrt(16) : 0"));
+        assertTrue(compiled.isCompiled());
+        assertEquals(4.0, compiled.eval(), 0.0);
+
+        final VariableNode x = new VariableNode("x", 2.0);
+        compiled = new CompiledFormula(new Formula("x * (1 + 2)", new VariableNode[] { x }));
+        assertEquals(6.0, compiled.eval(), 0.0);
+        assertTrue(compiled.hasSubnode(x));
+        assertTrue(compiled.hasSubnode("x"));
+        assertFalse(compiled.hasSubnode("y"));
+    }
+
+    @Test
+    public void testVariableDetermination() throws Exception
+    {
+        final CompiledFormula compiled = new CompiledFormula(new Formula("'IOC2049-102:BMIT:enabled' >= 10", true));
+        final VariableNode vars[] = compiled.getVariables();
+        assertEquals(1, vars.length);
+        vars[0].setValue(5);
+        assertEquals(0.0, compiled.eval(), 0.0);
+        vars[0].setValue(10);
+        assertEquals(1.0, compiled.eval(), 0.0);
+    }
+
+    @Test
+    public void testLargeFormula() throws Exception
+    {
+        final VariableNode x = new VariableNode("x", 1.0);
+        final StringBuilder expression = new StringBuilder("x");
+        for (int i=0; i<8000; ++i)
+            expression.append(" + x");
+        final Formula formula = new Formula(expression.toString(), new VariableNode[] { x });
+        final CompiledFormula compiled = new CompiledFormula(formula);
+        // Too large to compile, but still evaluates
+        assertFalse(compiled.isCompiled());
+        assertEquals(formula.eval(), compiled.eval(), 0.0);
+    }
+
+    @Test
+    public void testRnd() throws Exception
+    {
+        final VariableNode x = new VariableNode("x", 10.0);
+        final CompiledFormula compiled = new CompiledFormula(new Formula("rnd(x)", new VariableNode[] { x }));
+        for (int i=0; i<50; ++i)
+        {
+            final double rnd = compiled.eval();
+            assertTrue(rnd >= 0.0);
+            assertTrue(rnd < 10.0);
+            assertTrue(rnd != compiled.eval());
+        }
+        // Not folded into a constant
+        assertTrue(new CompiledFormula(new Formula("rnd(10)")).eval() !=
+                   new CompiledFormula(new Formula("rnd(10)")).eval());
+    }
+}
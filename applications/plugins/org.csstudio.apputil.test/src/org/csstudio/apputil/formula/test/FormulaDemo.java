@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula.test;
+
+import org.csstudio.apputil.formula.CompiledFormula;
+import org.csstudio.apputil.formula.Formula;
+import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
+import org.junit.Test;
+
+/** Evaluations per second of the {@link Formula} tree
+ *  and the {@link CompiledFormula}
+ *
+ *  <p>Example results, evaluations per second:
+ *  <pre>
+ *  Formula                                                         Tree   Compiled
+ *  2*x > y                                                         131M       553M
+ *  x > 2 ? (y < 5 & x != y) : max(x, y, 3) > 4                     107M       405M
+ *  sqrt(x*x + y*y) > 5                                              78M       218M
+ *  (abs(x - y) / hypot(x, y) > 0.1) | (floor(x) == round(y))        20M       143M
+ *  </pre>
+ *  Each formula is benchmarked on its own.
+ *  Evaluating 7 different formulas in turn gave
+ *  about 70M evaluations/sec for the tree, 160M when compiled.
+ */
+@SuppressWarnings("nls")
+public class FormulaDemo
+{
+    final private static int RUNS = 2000000;
+
+    final private static String[] FORMULAS = new String[]
+    {
+        "2*x > y",
+        "x > 2 ? (y < 5 & x != y) : max(x, y, 3) > 4",
+        "sqrt(x*x + y*y) > 5",
+        "(abs(x - y) / hypot(x, y) > 0.1) | (floor(x) == round(y))",
+    };
+
+    private double run(final Node formula, final VariableNode x, final VariableNode y)
+    {
+        double sum = 0.0;
+        final long start = System.nanoTime();
+        for (int i=0; i<RUNS; ++i)
+        {
+            x.setValue(i % 10);
+            y.setValue(i % 7);
+            sum += formula.eval();
+        }
+        final double secs = (System.nanoTime() - start) / 1e9;
+        // Use sum so that the loop cannot be optimized away
+        if (sum < 0)
+            System.out.println(sum);
+        return RUNS / secs;
+    }
+
+    @Test
+    public void compareEvaluations() throws Exception
+    {
+        final VariableNode x = new VariableNode("x");
+        final VariableNode y = new VariableNode("y");
+        final VariableNode vars[] = new VariableNode[] { x, y };
+        System.out.format("%-60s %12s %12s\n", "Evaluations/sec", "Tree", "Compiled");
+        for (String expression : FORMULAS)
+        {
+            final Formula formula = new Formula(expression, vars);
+            final CompiledFormula compiled = new CompiledFormula(formula);
+            // Warm up
+            run(formula, x, y);
+            run(compiled, x, y);
+            final double tree = run(formula, x, y);
+            final double program = run(compiled, x, y);
+            System.out.format("%-60s %12.0f %12.0f\n", expression, tree, program);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Compiled form of a {@link Formula}
+ *  <p>
+ *  The {@link Formula} evaluates its tree of {@link Node}s,
+ *  which requires a virtual call per node and
+ *  reflection with boxed arguments for the math functions.
+ *  The compiled formula generates byte code for the complete formula.
+ *  <p>
+ *  The compiled formula reads the same {@link VariableNode}s
+ *  as the original formula, so inputs are still set via
+ *  {@link VariableNode#setValue(double)}.
+ *  Evaluation gives the same result as the original formula,
+ *  including the short-circuit evaluation of &amp;, | and
+ *  <code>.. ? .. : ..</code>.
+ *  <p>
+ *  In case the formula cannot be compiled, for example because it is
+ *  too large, it falls back to evaluating the original formula.
+ */
+@SuppressWarnings("nls")
+public class CompiledFormula implements Node
+{
+    /** Formula that was compiled */
+    final private Formula formula;
+
+    /** Compiled code or original formula */
+    final private Node program;
+
+    /** Compile formula
+     *  @param formula Formula to compile
+     */
+    public CompiledFormula(final Formula formula)
+    {
+        this.formula = formula;
+        Node program;
+        try
+        {
+            program = FormulaCompiler.compile(formula);
+        }
+        catch (Exception ex)
+        {   // Formula too large or not supported by the compiler
+            Logger.getLogger(CompiledFormula.class.getName()).log(Level.FINE,
+                    "Cannot compile formula " + formula.getFormula(), ex);
+            program = formula;
+        }
+        catch (LinkageError ex)
+        {   // Generated byte code rejected by the VM
+            Logger.getLogger(CompiledFormula.class.getName()).log(Level.WARNING,
+                    "Cannot load compiled formula " + formula.getFormula(), ex);
+            program = formula;
+        }
+        this.program = program;
+    }
+
+    /** @return Original formula that got parsed. */
+    public String getFormula()
+    {
+        return formula.getFormula();
+    }
+
+    /** @return Array of variables or <code>null</code> if none are used. */
+    public VariableNode[] getVariables()
+    {
+        return formula.getVariables();
+    }
+
+    /** @return <code>true</code> if formula was compiled,
+     *          <code>false</code> when it uses the original formula
+     */
+    public boolean isCompiled()
+    {
+        return program != formula;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double eval()
+    {
+        return program.eval();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasSubnode(final Node node)
+    {
+        return formula.hasSubnode(node);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasSubnode(final String name)
+    {
+        return formula.hasSubnode(name);
+    }
+
+    @Override
+    public String toString()
+    {
+        return formula.toString();
+    }
+}
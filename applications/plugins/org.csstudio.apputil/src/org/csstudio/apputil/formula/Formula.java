@@ -169,6 +169,12 @@ public class Formula implements Node
     	return variables.toArray(result);
     }
 
+    /** @return Root node of the parsed formula */
+    Node getTree()
+    {
+        return tree;
+    }
+
     /** {@inheritDoc} */
     @Override
     public double eval()
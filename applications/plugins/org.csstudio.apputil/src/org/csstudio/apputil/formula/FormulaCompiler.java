@@ -0,0 +1,685 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.apputil.formula.node.AbstractBinaryNode;
+import org.csstudio.apputil.formula.node.AddNode;
+import org.csstudio.apputil.formula.node.AndNode;
+import org.csstudio.apputil.formula.node.ConstantNode;
+import org.csstudio.apputil.formula.node.DivNode;
+import org.csstudio.apputil.formula.node.EqualNode;
+import org.csstudio.apputil.formula.node.GreaterEqualNode;
+import org.csstudio.apputil.formula.node.GreaterThanNode;
+import org.csstudio.apputil.formula.node.IfNode;
+import org.csstudio.apputil.formula.node.LessEqualNode;
+import org.csstudio.apputil.formula.node.LessThanNode;
+import org.csstudio.apputil.formula.node.MathFuncNode;
+import org.csstudio.apputil.formula.node.MaxNode;
+import org.csstudio.apputil.formula.node.MinNode;
+import org.csstudio.apputil.formula.node.MulNode;
+import org.csstudio.apputil.formula.node.NotEqualNode;
+import org.csstudio.apputil.formula.node.NotNode;
+import org.csstudio.apputil.formula.node.OrNode;
+import org.csstudio.apputil.formula.node.PwrNode;
+import org.csstudio.apputil.formula.node.RndNode;
+import org.csstudio.apputil.formula.node.SubNode;
+
+/** Compiles the {@link Node} tree of a {@link Formula} into Java byte code.
+ *  <p>
+ *  Generates a class that implements {@link Node}, where
+ *  <code>eval()</code> computes the complete formula:
+ *  Variables are read via {@link VariableNode#getValue()},
+ *  math functions are called directly,
+ *  sub-expressions that only use numeric constants are computed once,
+ *  and nodes that the compiler does not know are called via their
+ *  <code>eval()</code>.
+ *  <p>
+ *  The class file uses version 49 (Java 5),
+ *  so the code with branches does not require stack map frames.
+ */
+@SuppressWarnings("nls")
+class FormulaCompiler
+{
+    final private static String CLASS_NAME = "org/csstudio/apputil/formula/GeneratedFormula";
+    final private static String NODE = "org/csstudio/apputil/formula/Node";
+    final private static String VARIABLE = "org/csstudio/apputil/formula/VariableNode";
+    final private static String VARIABLES_TYPE = "[L" + VARIABLE + ";";
+    final private static String NODES_TYPE = "[L" + NODE + ";";
+
+    /** Maximum nesting of nodes that is compiled.
+     *  The compiler recurses through the nodes,
+     *  so deeper formulas are evaluated as they are.
+     */
+    final private static int MAX_NESTING = 1000;
+
+    /** java.lang.Math functions that take one argument */
+    final private static List<String> ONE_ARG_FUNCS = Arrays.asList(
+        "abs", "acos", "asin", "atan", "ceil", "cos", "cosh", "exp", "expm1",
+        "floor", "log", "log10", "round", "sin", "sinh", "sqrt", "tan", "tanh",
+        "toDegrees", "toRadians");
+
+    /** java.lang.Math functions that take two arguments */
+    final private static List<String> TWO_ARG_FUNCS = Arrays.asList(
+        "atan2", "hypot", "pow");
+
+    // Byte code instructions
+    final private static int ICONST_0 = 0x03, DCONST_0 = 0x0E, DCONST_1 = 0x0F,
+        SIPUSH = 0x11, LDC2_W = 0x14, DLOAD_1 = 0x27, DLOAD_3 = 0x29,
+        ALOAD_0 = 0x2A, ALOAD_1 = 0x2B, ALOAD_2 = 0x2C, AALOAD = 0x32,
+        DSTORE_1 = 0x48, DSTORE_3 = 0x4A,
+        DADD = 0x63, DSUB = 0x67, DMUL = 0x6B, DDIV = 0x6F, L2D = 0x8A,
+        DCMPL = 0x97, DCMPG = 0x98,
+        IFEQ = 0x99, IFNE = 0x9A, IFLT = 0x9B, IFGE = 0x9C, IFGT = 0x9D, IFLE = 0x9E,
+        GOTO = 0xA7, IRETURN = 0xAC, DRETURN = 0xAF, RETURN = 0xB1,
+        GETFIELD = 0xB4, PUTFIELD = 0xB5, INVOKEVIRTUAL = 0xB6,
+        INVOKESPECIAL = 0xB7, INVOKESTATIC = 0xB8, INVOKEINTERFACE = 0xB9;
+
+    /** Class loader for the generated class */
+    private static class Loader extends ClassLoader
+    {
+        Loader()
+        {
+            super(FormulaCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(final byte[] code)
+        {
+            return defineClass(null, code, 0, code.length);
+        }
+    }
+
+    /** Buffer for code that supports updates of branch offsets */
+    private static class CodeBuffer extends ByteArrayOutputStream
+    {
+        void setShort(final int pos, final int value)
+        {
+            buf[pos] = (byte) (value >> 8);
+            buf[pos+1] = (byte) value;
+        }
+    }
+
+    /** Constant pool */
+    final private ByteArrayOutputStream pool_buf = new ByteArrayOutputStream();
+    final private DataOutputStream pool = new DataOutputStream(pool_buf);
+    final private Map<String, Integer> pool_index = new HashMap<String, Integer>();
+    private int pool_count = 1;
+
+    /** Code of the eval() method */
+    final private CodeBuffer code = new CodeBuffer();
+
+    /** Depth of the operand stack in doubles */
+    private int depth = 0, max_depth = 0;
+
+    /** Variables and nodes used by the code */
+    final private List<VariableNode> variables = new ArrayList<VariableNode>();
+    final private List<Node> nodes = new ArrayList<Node>();
+
+    /** Compile formula
+     *  @param formula Formula to compile
+     *  @return Node that evaluates the formula
+     *  @throws Exception on error, for example when the formula is too large
+     */
+    public static Node compile(final Formula formula) throws Exception
+    {
+        if (isNestedDeeper(formula.getTree(), MAX_NESTING))
+            throw new Exception("Formula too deeply nested to compile");
+        final FormulaCompiler compiler = new FormulaCompiler();
+        final byte[] class_file = compiler.createClass(formula.getTree());
+        final Class<?> clazz = new Loader().define(class_file);
+        return (Node) clazz.getConstructor(VariableNode[].class, Node[].class)
+            .newInstance(compiler.variables.toArray(new VariableNode[compiler.variables.size()]),
+                         compiler.nodes.toArray(new Node[compiler.nodes.size()]));
+    }
+
+    /** @return Class file for class that evaluates the node */
+    private byte[] createClass(final Node node) throws Exception
+    {
+        compile(node);
+        code.write(DRETURN);
+        if (code.size() > 65535)
+            throw new Exception("Formula too large to compile");
+
+        final int this_class = classRef(CLASS_NAME);
+        final int super_class = classRef("java/lang/Object");
+        final int node_class = classRef(NODE);
+        final int variables_field = utf8("variables");
+        final int variables_type = utf8(VARIABLES_TYPE);
+        final int nodes_field = utf8("nodes");
+        final int nodes_type = utf8(NODES_TYPE);
+        final int init = utf8("<init>");
+        final int init_type = utf8("(" + VARIABLES_TYPE + NODES_TYPE + ")V");
+        final int eval = utf8("eval");
+        final int eval_type = utf8("()D");
+        final int has_subnode = utf8("hasSubnode");
+        final int has_node_type = utf8("(L" + NODE + ";)Z");
+        final int has_name_type = utf8("(Ljava/lang/String;)Z");
+        final int code_attr = utf8("Code");
+
+        // Constructor stores variables and nodes
+        final ByteArrayOutputStream init_code = new ByteArrayOutputStream();
+        init_code.write(ALOAD_0);
+        u2(init_code, INVOKESPECIAL, methodRef("java/lang/Object", "<init>", "()V"));
+        init_code.write(ALOAD_0);
+        init_code.write(ALOAD_1);
+        u2(init_code, PUTFIELD, fieldRef(CLASS_NAME, "variables", VARIABLES_TYPE));
+        init_code.write(ALOAD_0);
+        init_code.write(ALOAD_2);
+        u2(init_code, PUTFIELD, fieldRef(CLASS_NAME, "nodes", NODES_TYPE));
+        init_code.write(RETURN);
+
+        // hasSubnode(..) returns false, CompiledFormula checks the Formula
+        final byte[] false_code = new byte[] { ICONST_0, (byte) IRETURN };
+
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        out.writeShort(pool_count);
+        pool.flush();
+        pool_buf.writeTo(out);
+        out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+        out.writeShort(this_class);
+        out.writeShort(super_class);
+        out.writeShort(1);
+        out.writeShort(node_class);
+        // Fields
+        out.writeShort(2);
+        for (int[] field : new int[][] { { variables_field, variables_type },
+                                         { nodes_field, nodes_type } })
+        {
+            out.writeShort(0x0002 | 0x0010); // private final
+            out.writeShort(field[0]);
+            out.writeShort(field[1]);
+            out.writeShort(0);
+        }
+        // Methods
+        out.writeShort(4);
+        writeMethod(out, code_attr, init, init_type, 2, 3, init_code.toByteArray());
+        writeMethod(out, code_attr, eval, eval_type, 2*max_depth + 4, 5, code.toByteArray());
+        writeMethod(out, code_attr, has_subnode, has_node_type, 1, 2, false_code);
+        writeMethod(out, code_attr, has_subnode, has_name_type, 1, 2, false_code);
+        // Attributes
+        out.writeShort(0);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static void writeMethod(final DataOutputStream out,
+            final int code_attr, final int name, final int type,
+            final int max_stack, final int max_locals, final byte[] code)
+        throws IOException
+    {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(type);
+        out.writeShort(1);
+        out.writeShort(code_attr);
+        out.writeInt(12 + code.length);
+        out.writeShort(max_stack);
+        out.writeShort(max_locals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    /** Add code for a node, leaving its value on the stack */
+    private void compile(final Node node) throws Exception
+    {
+        if (node instanceof ConstantNode)
+            constant(((ConstantNode) node).getValue());
+        else if (isConstant(node))
+            constant(node.eval());
+        else if (node instanceof AddNode)
+            binary(DADD, (AddNode) node);
+        else if (node instanceof SubNode)
+            binary(DSUB, (SubNode) node);
+        else if (node instanceof MulNode)
+            binary(DMUL, (MulNode) node);
+        else if (node instanceof DivNode)
+            binary(DDIV, (DivNode) node);
+        else if (node instanceof PwrNode)
+        {
+            binary(-1, (PwrNode) node);
+            invokeMath("pow", "(DD)D");
+        }
+        // Comparisons that must be false for NaN use
+        // DCMPG for 'less', DCMPL for 'greater'
+        else if (node instanceof EqualNode)
+            compare(DCMPL, IFEQ, (EqualNode) node);
+        else if (node instanceof NotEqualNode)
+            compare(DCMPL, IFNE, (NotEqualNode) node);
+        else if (node instanceof LessThanNode)
+            compare(DCMPG, IFLT, (LessThanNode) node);
+        else if (node instanceof LessEqualNode)
+            compare(DCMPG, IFLE, (LessEqualNode) node);
+        else if (node instanceof GreaterThanNode)
+            compare(DCMPL, IFGT, (GreaterThanNode) node);
+        else if (node instanceof GreaterEqualNode)
+            compare(DCMPL, IFGE, (GreaterEqualNode) node);
+        else if (node instanceof VariableNode)
+        {
+            code.write(ALOAD_0);
+            u2(code, GETFIELD, fieldRef(CLASS_NAME, "variables", VARIABLES_TYPE));
+            u2(code, SIPUSH, index(variables, (VariableNode) node));
+            code.write(AALOAD);
+            u2(code, INVOKEVIRTUAL, methodRef(VARIABLE, "getValue", "()D"));
+            push();
+        }
+        else if (node instanceof Formula)
+            compile(((Formula) node).getTree());
+        else if (node instanceof NotNode)
+        {   // n ? 0 : 1
+            compile(((NotNode) node).getNode());
+            final int if_false = test(IFEQ);
+            select(if_false, DCONST_1, DCONST_0);
+        }
+        else if (node instanceof RndNode)
+        {
+            compile(((RndNode) node).getNode());
+            invokeMath("random", "()D");
+            code.write(DMUL);
+        }
+        else if (node instanceof AndNode)
+        {   // (left != 0  &&  right != 0) ? 1 : 0
+            final AndNode and = (AndNode) node;
+            compile(and.getLeft());
+            final int left_false = test(IFEQ);
+            compile(and.getRight());
+            final int right_false = test(IFEQ);
+            code.write(DCONST_1);
+            final int end = branch(GOTO);
+            setTarget(left_false);
+            setTarget(right_false);
+            code.write(DCONST_0);
+            setTarget(end);
+            push();
+        }
+        else if (node instanceof OrNode)
+        {   // (left != 0  ||  right != 0) ? 1 : 0
+            final OrNode or = (OrNode) node;
+            compile(or.getLeft());
+            final int left_true = test(IFNE);
+            compile(or.getRight());
+            final int right_true = test(IFNE);
+            code.write(DCONST_0);
+            final int end = branch(GOTO);
+            setTarget(left_true);
+            setTarget(right_true);
+            code.write(DCONST_1);
+            setTarget(end);
+            push();
+        }
+        else if (node instanceof IfNode)
+        {
+            final IfNode ifnode = (IfNode) node;
+            compile(ifnode.getCondition());
+            final int if_false = test(IFEQ);
+            compile(ifnode.getYes());
+            final int end = branch(GOTO);
+            --depth;
+            setTarget(if_false);
+            compile(ifnode.getNo());
+            setTarget(end);
+        }
+        else if (node instanceof MinNode)
+            // Replace result with arg if arg < result, false for NaN
+            minMax(((MinNode) node).getArgs(), DCMPG, IFLT);
+        else if (node instanceof MaxNode)
+            minMax(((MaxNode) node).getArgs(), DCMPL, IFGT);
+        else if (node instanceof MathFuncNode  &&
+                 isFunction((MathFuncNode) node))
+        {
+            final MathFuncNode func = (MathFuncNode) node;
+            final Node[] args = func.getArgs();
+            for (Node arg : args)
+                compile(arg);
+            if ("round".equals(func.getFunction()))
+            {
+                invokeMath("round", "(D)J");
+                code.write(L2D);
+            }
+            else if (args.length == 1)
+                invokeMath(func.getFunction(), "(D)D");
+            else
+            {
+                invokeMath(func.getFunction(), "(DD)D");
+                --depth;
+            }
+        }
+        else
+        {   // Unknown node: Let it evaluate itself
+            code.write(ALOAD_0);
+            u2(code, GETFIELD, fieldRef(CLASS_NAME, "nodes", NODES_TYPE));
+            u2(code, SIPUSH, index(nodes, node));
+            code.write(AALOAD);
+            u2(code, INVOKEINTERFACE, interfaceMethodRef(NODE, "eval", "()D"));
+            code.write(1);
+            code.write(0);
+            push();
+        }
+    }
+
+    /** @return Sub-nodes of node, or <code>null</code> for variables, rnd(), unknown nodes */
+    private static Node[] getSubnodes(final Node node)
+    {
+        if (node instanceof AbstractBinaryNode)
+        {
+            final AbstractBinaryNode binary = (AbstractBinaryNode) node;
+            return new Node[] { binary.getLeft(), binary.getRight() };
+        }
+        if (node instanceof NotNode)
+            return new Node[] { ((NotNode) node).getNode() };
+        if (node instanceof IfNode)
+        {
+            final IfNode ifnode = (IfNode) node;
+            return new Node[] { ifnode.getCondition(), ifnode.getYes(), ifnode.getNo() };
+        }
+        if (node instanceof MinNode)
+            return ((MinNode) node).getArgs();
+        if (node instanceof MaxNode)
+            return ((MaxNode) node).getArgs();
+        if (node instanceof MathFuncNode)
+            return ((MathFuncNode) node).getArgs();
+        return null;
+    }
+
+    /** @param node Node to check
+     *  @param levels Number of levels
+     *  @return <code>true</code> if node has more than the given number of levels
+     */
+    private static boolean isNestedDeeper(final Node node, final int levels)
+    {
+        if (levels <= 0)
+            return true;
+        final Node[] subnodes = getSubnodes(node);
+        if (subnodes != null)
+            for (Node subnode : subnodes)
+                if (isNestedDeeper(subnode, levels-1))
+                    return true;
+        return false;
+    }
+
+    /** @return <code>true</code> if node only uses numeric constants */
+    private static boolean isConstant(final Node node)
+    {
+        if (node instanceof ConstantNode)
+            return true;
+        final Node[] args = getSubnodes(node);
+        if (args == null)
+            return false;
+        for (Node arg : args)
+            if (! isConstant(arg))
+                return false;
+        return true;
+    }
+
+    /** @return <code>true</code> if function is directly called by the code */
+    private static boolean isFunction(final MathFuncNode func)
+    {
+        final int args = func.getArgs().length;
+        return (args == 1  &&  ONE_ARG_FUNCS.contains(func.getFunction()))  ||
+               (args == 2  &&  TWO_ARG_FUNCS.contains(func.getFunction()));
+    }
+
+    /** @param op Operation for the two arguments, -1 to only place them on stack */
+    private void binary(final int op, final AbstractBinaryNode node) throws Exception
+    {
+        compile(node.getLeft());
+        compile(node.getRight());
+        if (op >= 0)
+        {
+            code.write(op);
+            --depth;
+        }
+    }
+
+    /** Compare left and right, leaving 1 or 0 on stack
+     *  @param cmp DCMPL or DCMPG
+     *  @param if_true Branch to take if comparison is true
+     */
+    private void compare(final int cmp, final int if_true, final AbstractBinaryNode node) throws Exception
+    {
+        compile(node.getLeft());
+        compile(node.getRight());
+        code.write(cmp);
+        depth -= 2;
+        final int is_true = branch(if_true);
+        select(is_true, DCONST_1, DCONST_0);
+    }
+
+    /** Add code for min() or max()
+     *  @param args Arguments
+     *  @param cmp DCMPL or DCMPG
+     *  @param if_replace Branch to take if arg should replace result
+     */
+    private void minMax(final Node[] args, final int cmp, final int if_replace) throws Exception
+    {
+        compile(args[0]);
+        for (int i=1; i<args.length; ++i)
+        {   // Stack: result, arg
+            compile(args[i]);
+            code.write(DSTORE_1);
+            code.write(DSTORE_3);
+            code.write(DLOAD_1);
+            code.write(DLOAD_3);
+            code.write(cmp);
+            final int replace = branch(if_replace);
+            code.write(DLOAD_3);
+            final int end = branch(GOTO);
+            setTarget(replace);
+            code.write(DLOAD_1);
+            setTarget(end);
+            --depth;
+        }
+    }
+
+    /** Test value on stack
+     *  @param branch IFEQ to branch if value is 0, IFNE to branch if not 0
+     *  @return Position of branch target
+     */
+    private int test(final int branch)
+    {
+        code.write(DCONST_0);
+        code.write(DCMPL);
+        --depth;
+        return branch(branch);
+    }
+
+    /** Push one of two values
+     *  @param branch Position of branch that selects the first value
+     *  @param first First value, DCONST_0 or DCONST_1
+     *  @param second Second value, DCONST_0 or DCONST_1
+     */
+    private void select(final int branch, final int first, final int second)
+    {
+        code.write(second);
+        final int end = branch(GOTO);
+        setTarget(branch);
+        code.write(first);
+        setTarget(end);
+        push();
+    }
+
+    private void constant(final double value)
+    {
+        if (Double.doubleToRawLongBits(value) == 0)
+            code.write(DCONST_0);
+        else if (value == 1.0)
+            code.write(DCONST_1);
+        else
+            u2(code, LDC2_W, doubleConst(value));
+        push();
+    }
+
+    private void invokeMath(final String name, final String type)
+    {
+        u2(code, INVOKESTATIC, methodRef("java/lang/Math", name, type));
+    }
+
+    /** Account for one more double on the stack */
+    private void push()
+    {
+        ++depth;
+        if (depth > max_depth)
+            max_depth = depth;
+    }
+
+    /** Add branch
+     *  @param op Branch instruction
+     *  @return Position of branch target
+     */
+    private int branch(final int op)
+    {
+        code.write(op);
+        code.write(0);
+        code.write(0);
+        return code.size() - 3;
+    }
+
+    /** @param branch Position of branch to set to the current end of the code */
+    private void setTarget(final int branch)
+    {
+        final int offset = code.size() - branch;
+        if (offset > Short.MAX_VALUE)
+            throw new IllegalStateException("Formula too large to compile");
+        code.setShort(branch+1, offset);
+    }
+
+    private static void u2(final ByteArrayOutputStream out, final int op, final int value)
+    {
+        if (value > 0xFFFF)
+            throw new IllegalStateException("Formula too large to compile");
+        out.write(op);
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    private static <T> int index(final List<T> items, final T item)
+    {
+        for (int i=0; i<items.size(); ++i)
+            if (items.get(i) == item)
+                return i;
+        if (items.size() > Short.MAX_VALUE)
+            throw new IllegalStateException("Formula too large to compile");
+        items.add(item);
+        return items.size() - 1;
+    }
+
+    // Constant pool entries, re-using existing entries
+    private int utf8(final String text) throws IOException
+    {
+        final String key = "U" + text;
+        final Integer index = pool_index.get(key);
+        if (index != null)
+            return index;
+        pool.writeByte(1);
+        pool.writeUTF(text);
+        return addEntry(key, 1);
+    }
+
+    private int classRef(final String name) throws IOException
+    {
+        final String key = "C" + name;
+        final Integer index = pool_index.get(key);
+        if (index != null)
+            return index;
+        final int name_index = utf8(name);
+        pool.writeByte(7);
+        pool.writeShort(name_index);
+        return addEntry(key, 1);
+    }
+
+    private int nameAndType(final String name, final String type) throws IOException
+    {
+        final String key = "N" + name + " " + type;
+        final Integer index = pool_index.get(key);
+        if (index != null)
+            return index;
+        final int name_index = utf8(name);
+        final int type_index = utf8(type);
+        pool.writeByte(12);
+        pool.writeShort(name_index);
+        pool.writeShort(type_index);
+        return addEntry(key, 1);
+    }
+
+    private int memberRef(final int tag, final String clazz, final String name, final String type)
+    {
+        final String key = tag + clazz + "." + name + " " + type;
+        final Integer index = pool_index.get(key);
+        if (index != null)
+            return index;
+        try
+        {
+            final int class_index = classRef(clazz);
+            final int nat_index = nameAndType(name, type);
+            pool.writeByte(tag);
+            pool.writeShort(class_index);
+            pool.writeShort(nat_index);
+        }
+        catch (IOException ex)
+        {   // Cannot happen for ByteArrayOutputStream
+            throw new IllegalStateException(ex);
+        }
+        return addEntry(key, 1);
+    }
+
+    private int fieldRef(final String clazz, final String name, final String type)
+    {
+        return memberRef(9, clazz, name, type);
+    }
+
+    private int methodRef(final String clazz, final String name, final String type)
+    {
+        return memberRef(10, clazz, name, type);
+    }
+
+    private int interfaceMethodRef(final String clazz, final String name, final String type)
+    {
+        return memberRef(11, clazz, name, type);
+    }
+
+    private int doubleConst(final double value)
+    {
+        final long bits = Double.doubleToRawLongBits(value);
+        final String key = "D" + bits;
+        final Integer index = pool_index.get(key);
+        if (index != null)
+            return index;
+        try
+        {
+            pool.writeByte(6);
+            pool.writeLong(bits);
+        }
+        catch (IOException ex)
+        {   // Cannot happen for ByteArrayOutputStream
+            throw new IllegalStateException(ex);
+        }
+        // Double takes two entries in the pool
+        return addEntry(key, 2);
+    }
+
+    private int addEntry(final String key, final int size)
+    {
+        final int index = pool_count;
+        pool_count += size;
+        pool_index.put(key, index);
+        return index;
+    }
+}
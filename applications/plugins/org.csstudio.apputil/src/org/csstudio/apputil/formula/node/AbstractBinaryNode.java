@@ -12,7 +12,7 @@ import org.csstudio.apputil.formula.Node;
 /** Abstract base for binary nodes.
  *  @author Kay Kasemir
  */
-abstract class AbstractBinaryNode implements Node
+abstract public class AbstractBinaryNode implements Node
 {
     protected final Node left;
     protected final Node right;
@@ -23,6 +23,18 @@ abstract class AbstractBinaryNode implements Node
         this.right = right;
     }
 
+    /** @return Left argument */
+    final public Node getLeft()
+    {
+        return left;
+    }
+
+    /** @return Right argument */
+    final public Node getRight()
+    {
+        return right;
+    }
+
     /** {@inheritDoc} */
     @Override
     final public boolean hasSubnode(final Node node)
@@ -12,7 +12,7 @@ import org.csstudio.apputil.formula.Node;
 /** Abstract base for unary nodes.
  *  @author Kay Kasemir
  */
-abstract class AbstractUnaryNode implements Node
+abstract public class AbstractUnaryNode implements Node
 {
     protected final Node n;
 
@@ -21,6 +21,12 @@ abstract class AbstractUnaryNode implements Node
         this.n = n;
     }
 
+    /** @return Argument */
+    final public Node getNode()
+    {
+        return n;
+    }
+
     /** {@inheritDoc} */
     @Override
     final public boolean hasSubnode(final Node node)
@@ -25,6 +25,24 @@ public class IfNode implements Node
         this.no = no;
     }
 
+    /** @return Condition */
+    public Node getCondition()
+    {
+        return cond;
+    }
+
+    /** @return Node evaluated when condition is true */
+    public Node getYes()
+    {
+        return yes;
+    }
+
+    /** @return Node evaluated when condition is false */
+    public Node getNo()
+    {
+        return no;
+    }
+
     @Override
     public double eval()
     {
@@ -38,6 +38,18 @@ public class MathFuncNode implements Node
         method = Math.class.getDeclaredMethod(function, argcls);
     }
 
+    /** @return Name of the java.lang.Math.* method */
+    public String getFunction()
+    {
+        return function;
+    }
+
+    /** @return Arguments */
+    public Node[] getArgs()
+    {
+        return args;
+    }
+
     @Override
     public double eval()
     {
@@ -50,8 +62,9 @@ public class MathFuncNode implements Node
         try
         {
         	Object result = method.invoke(null, arglist );
-			if (result instanceof Double)
-				return ((Double) result).doubleValue();
+			// Math.round(double) returns long
+			if (result instanceof Number)
+				return ((Number) result).doubleValue();
 		}
         catch (Exception e)
         {
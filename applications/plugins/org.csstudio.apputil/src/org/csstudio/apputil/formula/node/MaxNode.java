@@ -21,6 +21,12 @@ public class MaxNode implements Node
         this.args = args;
     }
 
+    /** @return Arguments */
+    public Node[] getArgs()
+    {
+        return args;
+    }
+
     @Override
     public double eval()
     {
@@ -45,6 +45,13 @@ public class Messages
     final public static String HTTP_QueueCapacity = "Capacity";
     final public static String HTTP_QueueOverruns = "Overruns";
     final public static String HTTP_ReceivedValues = "Received Values";
+    final public static String HTTP_ScanCount = "Scans";
+    final public static String HTTP_ScanLateness = "Scan Lateness";
+    final public static String HTTP_ScanList = "Scan List";
+    final public static String HTTP_ScanMaxLateness = "Max. Lateness";
+    final public static String HTTP_ScanThreads = "Scan Threads";
+    final public static String HTTP_ScanTime = "Avg. Scan Time";
+    final public static String HTTP_SpillJournal = "Spill Journal";
     final public static String HTTP_StartTime = "Start Time";
     final public static String HTTP_State = "State";
     final public static String HTTP_Status = "Status";
@@ -57,4 +64,6 @@ public class Messages
     final public static String HTTP_WriteError = "Write Error";
     final public static String HTTP_WritePeriod = "Write Period";
     final public static String HTTP_WriteState = "Write State";
+    final public static String HTTP_WriteThread = "Write Thread";
+    final public static String HTTP_WriteThreads = "Write Threads";
 }
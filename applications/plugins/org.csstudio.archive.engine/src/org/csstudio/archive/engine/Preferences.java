@@ -58,5 +58,68 @@ public class Preferences
         return prefs.getDouble(Activator.ID, "buffer_reserve", buffer_reserve, null);
 	}
 
+	public static int getWriteThreads()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int write_threads = 1;
+        if (prefs == null)
+        	return write_threads;
+        return prefs.getInt(Activator.ID, "write_threads", write_threads, null);
+	}
+
+	public static int getScanThreads()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int scan_threads = 0;
+        if (prefs == null)
+        	return scan_threads;
+        return prefs.getInt(Activator.ID, "scan_threads", scan_threads, null);
+	}
+
+	public static String getWriteSharding()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final String write_sharding = "channel";
+        if (prefs == null)
+        	return write_sharding;
+        return prefs.getString(Activator.ID, "write_sharding", write_sharding, null);
+	}
+
+	public static String getSpillDirectory()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final String spill_directory = "";
+        if (prefs == null)
+        	return spill_directory;
+        return prefs.getString(Activator.ID, "spill_directory", spill_directory, null).trim();
+	}
+
+	public static long getSpillMaxMB()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final long spill_max_mb = 1024;
+        if (prefs == null)
+        	return spill_max_mb;
+        return prefs.getLong(Activator.ID, "spill_max_mb", spill_max_mb, null);
+	}
+
+	public static double getSpillDrainRate()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final double spill_drain_rate = 5000.0;
+        if (prefs == null)
+        	return spill_drain_rate;
+        return prefs.getDouble(Activator.ID, "spill_drain_rate", spill_drain_rate, null);
+	}
+
+	public static boolean useColumnarBuffers()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final boolean columnar_buffers = false;
+        if (prefs == null)
+        	return columnar_buffers;
+        return prefs.getBoolean(Activator.ID, "columnar_buffers", columnar_buffers, null);
+	}
+
 	
 }
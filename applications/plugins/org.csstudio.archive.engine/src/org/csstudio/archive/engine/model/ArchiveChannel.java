@@ -356,7 +356,7 @@ abstract public class ArchiveChannel extends PVListenerAdapter
 
         // Did we recover from write errors?
         if (need_write_error_sample &&
-            SampleBuffer.isInErrorState() == false)
+            buffer.isInErrorState() == false)
         {
             need_write_error_sample = false;
             Activator.getLogger().log(Level.FINE, "Wrote error sample for {0}", getName());
@@ -456,9 +456,10 @@ abstract public class ArchiveChannel extends PVListenerAdapter
             }
             // else ...
 	        last_archived_value = value;
+	        // Sample buffer requires that only one thread adds at a time
+	        buffer.add(value);
         }
-        buffer.add(value);
-        if (SampleBuffer.isInErrorState())
+        if (buffer.isInErrorState())
             need_write_error_sample = true;
         return true;
     }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.MetaDataHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VType;
+import org.epics.vtype.ValueFactory;
+
+/** {@link SampleQueue} that stores scalar 'double' samples in primitive arrays.
+ *  <p>
+ *  Time stamp, severity and value of scalar double samples
+ *  are kept in primitive arrays.
+ *  Alarm status and display info are shared references,
+ *  so the queue doesn't hold on to the received {@link VType} objects.
+ *  Removed samples are re-created as {@link ArchiveVNumber}.
+ *  <p>
+ *  Other samples (arrays, strings, enums, integer types, info samples)
+ *  are kept as received.
+ */
+class ColumnarSampleQueue extends SampleQueue
+{
+    final private static AlarmSeverity[] severities = AlarmSeverity.values();
+
+    final private long[] secs;
+    final private int[] nanos;
+    final private byte[] severity;
+    final private double[] values;
+    final private String[] status;
+    final private Display[] display;
+
+    /** Samples that are not scalar doubles, or <code>null</code> */
+    final private VType[] others;
+
+    /** Most recently stored display info. Only accessed by producer. */
+    private Display last_display = null;
+
+    /** Initialize
+     *  @param capacity Maximum number of samples
+     */
+    ColumnarSampleQueue(final int capacity)
+    {
+        super(capacity);
+        secs = new long[capacity];
+        nanos = new int[capacity];
+        severity = new byte[capacity];
+        values = new double[capacity];
+        status = new String[capacity];
+        display = new Display[capacity];
+        others = new VType[capacity];
+    }
+
+    @Override
+    protected void store(final int slot, final VType value)
+    {
+        if (! (value instanceof VNumber))
+        {
+            others[slot] = value;
+            return;
+        }
+        final VNumber number = (VNumber) value;
+        final Number num = number.getValue();
+        final Timestamp time = number.getTimestamp();
+        // Keep integer types etc. as received to preserve their type
+        if (! (num instanceof Double)  ||  time == null)
+        {
+            others[slot] = value;
+            return;
+        }
+        secs[slot] = time.getSec();
+        nanos[slot] = time.getNanoSec();
+        severity[slot] = (byte) number.getAlarmSeverity().ordinal();
+        values[slot] = num.doubleValue();
+        status[slot] = number.getAlarmName();
+        display[slot] = getDisplay(number);
+        others[slot] = null;
+    }
+
+    /** @param number Received number
+     *  @return Shared copy of its display info
+     */
+    private Display getDisplay(final VNumber number)
+    {
+        if (last_display == null  ||  !MetaDataHelper.equals(last_display, number))
+            last_display = ValueFactory.newDisplay(number.getLowerDisplayLimit(),
+                    number.getLowerAlarmLimit(), number.getLowerWarningLimit(),
+                    number.getUnits(), number.getFormat(),
+                    number.getUpperWarningLimit(), number.getUpperAlarmLimit(),
+                    number.getUpperDisplayLimit(),
+                    number.getLowerCtrlLimit(), number.getUpperCtrlLimit());
+        return last_display;
+    }
+
+    @Override
+    protected VType load(final int slot)
+    {
+        final VType other = others[slot];
+        if (other != null)
+            return other;
+        return new ArchiveVNumber(Timestamp.of(secs[slot], nanos[slot]),
+                severities[severity[slot]], status[slot], display[slot],
+                Double.valueOf(values[slot]));
+    }
+}
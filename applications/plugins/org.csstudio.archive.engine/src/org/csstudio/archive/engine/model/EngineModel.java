@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +20,7 @@ import org.csstudio.archive.config.GroupConfig;
 import org.csstudio.archive.config.SampleMode;
 import org.csstudio.archive.engine.Activator;
 import org.csstudio.archive.engine.Preferences;
+import org.csstudio.archive.engine.scanner.ScanList;
 import org.csstudio.archive.engine.scanner.ScanThread;
 import org.csstudio.archive.engine.scanner.Scanner;
 import org.csstudio.archive.vtype.ArchiveVString;
@@ -40,8 +42,8 @@ public class EngineModel
     /** Name of this model */
     private String name = "Archive Engine";  //$NON-NLS-1$
 
-    /** Thread that writes to the <code>archive</code> */
-    final private WriteThread writer;
+    /** Threads that write to the <code>archive</code> */
+    final private WriteThread writers[];
 
     /** All the channels.
      *  <p>
@@ -62,7 +64,7 @@ public class EngineModel
     final List<ArchiveGroup> groups = new ArrayList<ArchiveGroup>();
 
     /** Scanner for scanned channels */
-    final Scanner scanner = new Scanner();
+    final Scanner scanner = new Scanner(Scanner.DEFAULT_IDLE_DELAY, Preferences.getScanThreads());
 
     /** Thread that runs the scanner */
     final ScanThread scan_thread = new ScanThread(scanner);
@@ -103,10 +105,34 @@ public class EngineModel
     /** Samples with time stamps this far ahead of the local time are ignored */
     final private static long ignored_future = Preferences.getIgnoredFutureSecs();
 
+    /** Store scalar samples in primitive arrays? */
+    final private static boolean columnar_buffers = Preferences.useColumnarBuffers();
+
+    /** How channels are assigned to write threads */
+    final private static WriteSharding write_sharding =
+        WriteSharding.fromString(Preferences.getWriteSharding());
+
     /** Construct model that writes to archive */
+    @SuppressWarnings("nls")
     public EngineModel()
     {
-        writer = new WriteThread();
+        final int count = Math.max(1, Preferences.getWriteThreads());
+        writers = new WriteThread[count];
+        if (count == 1)
+            writers[0] = new WriteThread();
+        else
+            for (int i=0; i<count; ++i)
+                writers[i] = new WriteThread("WriteThread " + (i+1));
+
+        final String spill_directory = Preferences.getSpillDirectory();
+        if (! spill_directory.isEmpty())
+        {
+            final long max_bytes = Preferences.getSpillMaxMB() * 1024L * 1024L / count;
+            final double drain_rate = Preferences.getSpillDrainRate() / count;
+            for (int i=0; i<count; ++i)
+                writers[i].configureSpill(new File(spill_directory, "writer" + (i+1)),
+                                          max_bytes, drain_rate);
+        }
     }
 
     /** @return Name (description) */
@@ -121,6 +147,12 @@ public class EngineModel
         return ignored_future;
     }
 
+    /** @return <code>true</code> if sample buffers store scalar samples in primitive arrays */
+    public static boolean useColumnarBuffers()
+    {
+        return columnar_buffers;
+    }
+
     /** @return Write period in seconds */
     public int getWritePeriod()
     {
@@ -133,6 +165,26 @@ public class EngineModel
         return batch_size;
     }
 
+    /** @return How channels are assigned to write threads */
+    public WriteSharding getWriteSharding()
+    {
+        return write_sharding;
+    }
+
+    /** @return Number of write threads */
+    public int getWriteThreadCount()
+    {
+        return writers.length;
+    }
+
+    /** @param index Write thread index, 0 ... <code>getWriteThreadCount()-1</code>
+     *  @return {@link WriteThread}
+     */
+    public WriteThread getWriteThread(final int index)
+    {
+        return writers[index];
+    }
+
     /** @return Current model state */
     public State getState()
     {
@@ -272,12 +324,14 @@ public class EngineModel
                                     max_repeats);
             scanner.add((ScannedArchiveChannel)channel, sample_mode.getPeriod());
         }
+        final int group_index;
         synchronized (this)
         {
             channels.add(channel);
             channel_by_name.put(channel.getName(), channel);
+            group_index = groups.indexOf(group);
         }
-        writer.addChannel(channel);
+        writers[write_sharding.getShard(writers.length, name, group_index)].addChannel(channel);
 
         // Connect new or old channel to group
         channel.addGroup(group);
@@ -291,7 +345,8 @@ public class EngineModel
     {
         start_time = Timestamp.now();
         state = State.RUNNING;
-        writer.start(write_period, batch_size);
+        for (WriteThread writer : writers)
+            writer.start(write_period, batch_size);
         for (ArchiveGroup group : groups)
         {
             group.start();
@@ -304,22 +359,119 @@ public class EngineModel
         scan_thread.start();
     }
 
-    /** @return Timestamp of end of last write run */
+    /** @return Timestamp of end of last write run of the write thread
+     *          that has been waiting longest, or <code>null</code>
+     *          if a write thread never wrote
+     */
     public Timestamp getLastWriteTime()
     {
-        return writer.getLastWriteTime();
+        Timestamp oldest = null;
+        for (WriteThread writer : writers)
+        {
+            final Timestamp time = writer.getLastWriteTime();
+            if (time == null)
+                return null;
+            if (oldest == null  ||  time.compareTo(oldest) < 0)
+                oldest = time;
+        }
+        return oldest;
     }
 
-    /** @return Average number of values per write run */
+    /** @return Average number of values per write run, summed over all write threads */
     public double getWriteCount()
     {
-        return writer.getWriteCount();
+        double count = 0;
+        for (WriteThread writer : writers)
+            count += writer.getWriteCount();
+        return count;
     }
 
-    /** @return  Average duration of write run in seconds */
+    /** @return Average duration of write run in seconds of the slowest write thread */
     public double getWriteDuration()
     {
-        return writer.getWriteDuration();
+        double duration = 0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getWriteDuration());
+        return duration;
+    }
+
+    /** @return <code>true</code> if write threads use spill journals */
+    public boolean isSpillEnabled()
+    {
+        for (WriteThread writer : writers)
+            if (writer.getSpillJournal() != null)
+                return true;
+        return false;
+    }
+
+    /** @return Number of samples in spill journals */
+    public long getSpillSampleCount()
+    {
+        long count = 0;
+        for (WriteThread writer : writers)
+        {
+            final SpillJournal spill = writer.getSpillJournal();
+            if (spill != null)
+                count += spill.getSampleCount();
+        }
+        return count;
+    }
+
+    /** @return Size of spill journals in bytes */
+    public long getSpillSize()
+    {
+        long size = 0;
+        for (WriteThread writer : writers)
+        {
+            final SpillJournal spill = writer.getSpillJournal();
+            if (spill != null)
+                size += spill.getSize();
+        }
+        return size;
+    }
+
+    /** @return Number of samples dropped because spill journals were full */
+    public long getSpillDroppedCount()
+    {
+        long count = 0;
+        for (WriteThread writer : writers)
+        {
+            final SpillJournal spill = writer.getSpillJournal();
+            if (spill != null)
+                count += spill.getDroppedCount();
+        }
+        return count;
+    }
+
+    /** @return Age of oldest sample in spill journals in seconds */
+    public double getSpillBacklogAge()
+    {
+        double age = 0;
+        for (WriteThread writer : writers)
+        {
+            final SpillJournal spill = writer.getSpillJournal();
+            if (spill != null)
+                age = Math.max(age, spill.getBacklogAge());
+        }
+        return age;
+    }
+
+    /** @return Average samples per second written from spill journals */
+    public double getSpillDrainRate()
+    {
+        double rate = 0;
+        for (WriteThread writer : writers)
+            rate += writer.getDrainRate();
+        return rate;
+    }
+
+    /** @return <code>true</code> if any write thread experiences write errors */
+    public boolean isInWriteErrorState()
+    {
+        for (WriteThread writer : writers)
+            if (writer.isInErrorState())
+                return true;
+        return false;
     }
 
     /** @see Scanner#getIdlePercentage() */
@@ -328,6 +480,26 @@ public class EngineModel
         return scanner.getIdlePercentage();
     }
 
+    /** @return Number of threads for parallel scans, 0 if scanning on one thread */
+    public int getScanThreadCount()
+    {
+        return scanner.getThreadCount();
+    }
+
+    /** @return Number of scan lists */
+    public int getScanListCount()
+    {
+        return (int) scanner.size();
+    }
+
+    /** @param i Index of scan list, 0 ... getScanListCount()-1
+     *  @return Scan list
+     */
+    public ScanList getScanList(final int i)
+    {
+        return scanner.get(i);
+    }
+
     /** Ask the model to stop.
      *  Merely updates the model state.
      *  @see #getState()
@@ -352,7 +524,8 @@ public class EngineModel
     /** Reset engine statistics */
     public void reset()
     {
-        writer.reset();
+        for (WriteThread writer : writers)
+            writer.reset();
         scanner.reset();
         synchronized (this)
         {
@@ -371,13 +544,28 @@ public class EngineModel
         scan_thread.stop();
         // Assert that scanning has stopped before we add 'off' events
         scan_thread.join();
+        scanner.shutdown();
         // Disconnect from network
         Activator.getLogger().info("Stopping archive groups");
         for (ArchiveGroup group : groups)
             group.stop();
         // Flush all values out
         Activator.getLogger().info("Stopping writer");
-        writer.shutdown();
+        Exception error = null;
+        for (WriteThread writer : writers)
+        {
+            try
+            {
+                writer.shutdown();
+            }
+            catch (Exception ex)
+            {   // Keep stopping the remaining writers, then report the first error
+                if (error == null)
+                    error = ex;
+            }
+        }
+        if (error != null)
+            throw error;
         // Update state
         state = State.IDLE;
         start_time = null;
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import org.epics.vtype.VType;
+
+/** {@link SampleQueue} that keeps the received {@link VType} objects */
+class ObjectSampleQueue extends SampleQueue
+{
+    final private VType[] samples;
+
+    /** Initialize
+     *  @param capacity Maximum number of samples
+     */
+    ObjectSampleQueue(final int capacity)
+    {
+        super(capacity);
+        samples = new VType[capacity];
+    }
+
+    @Override
+    protected void store(final int slot, final VType value)
+    {
+        samples[slot] = value;
+    }
+
+    @Override
+    protected VType load(final int slot)
+    {
+        return samples[slot];
+    }
+}
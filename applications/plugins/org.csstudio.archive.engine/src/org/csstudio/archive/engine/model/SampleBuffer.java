@@ -9,7 +9,6 @@ package org.csstudio.archive.engine.model;
 
 import java.util.logging.Level;
 
-import org.csstudio.apputil.ringbuffer.RingBuffer;
 import org.csstudio.archive.engine.ThrottledLogger;
 import org.epics.vtype.VType;
 
@@ -18,6 +17,10 @@ import org.epics.vtype.VType;
  *  Assumes that one thread adds samples, while a different
  *  thread removes them.
  *  When the queue size is reached, older samples get dropped.
+ *  <p>
+ *  Uses a lock-free queue, so adding samples never waits
+ *  for the thread that removes them and vice versa.
+ *  Callers must assert that only one thread at a time adds samples.
  *
  *  @author Kay Kasemir
  */
@@ -29,8 +32,8 @@ public class SampleBuffer
      */
     final private String channel_name;
 
-    /** The actual samples in a thread-save queue. */
-    final private RingBuffer<VType> samples;
+    /** The actual samples in a lock-free queue. */
+    final private SampleQueue samples;
 
     /** Statistics */
     final private BufferStats stats = new BufferStats();
@@ -43,15 +46,33 @@ public class SampleBuffer
         new ThrottledLogger(Level.WARNING, "log_overrun"); //$NON-NLS-1$
 
     /** Is the buffer in an error state because of RDB write errors?
-     *  Note that this is global for all buffers, not per instance!
+     *  Set by the {@link WriteThread} that handles this buffer.
+     */
+    private volatile boolean error = false;
+
+    /** Journal for samples that don't fit into the buffer
+     *  while in error state, or <code>null</code>
      */
-    private static volatile boolean error = false;
+    private volatile SpillJournal spill = null;
 
     /** Create sample buffer of given capacity */
     SampleBuffer(final String channel_name, final int capacity)
+    {
+        this(channel_name, capacity, EngineModel.useColumnarBuffers());
+    }
+
+    /** Create sample buffer of given capacity
+     *  @param channel_name Channel name
+     *  @param capacity Queue capacity
+     *  @param columnar Store scalar samples in primitive arrays?
+     */
+    SampleBuffer(final String channel_name, final int capacity, final boolean columnar)
     {
         this.channel_name = channel_name;
-        samples = new RingBuffer<VType>(capacity);
+        if (columnar)
+            samples = new ColumnarSampleQueue(capacity);
+        else
+            samples = new ObjectSampleQueue(capacity);
     }
 
     /** @return channel name of this buffer */
@@ -63,62 +84,71 @@ public class SampleBuffer
     /** @return Queue capacity, i.e. maximum queue size. */
     public int getCapacity()
     {
-    	synchronized (samples)
-        {
-    		return samples.getCapacity();
-        }
+        return samples.getCapacity();
     }
 
     /** @return Current queue size, i.e. number of samples in the queue. */
     public int getQueueSize()
     {
-    	synchronized (samples)
-        {
-    		return samples.size();
-        }
+        return samples.size();
     }
 
     /** @return <code>true</code> if currently experiencing write errors */
-    public static boolean isInErrorState()
+    public boolean isInErrorState()
     {
         return error;
     }
 
     /** Set the error state. */
-    static void setErrorState(final boolean error)
+    void setErrorState(final boolean error)
+    {
+        this.error = error;
+    }
+
+    /** @param spill Journal for samples that don't fit into the buffer
+     *               while in error state, or <code>null</code>
+     */
+    void setSpillJournal(final SpillJournal spill)
     {
-        SampleBuffer.error = error;
+        this.spill = spill;
     }
 
-    /** Add a sample to the queue, maybe dropping older samples */
+    /** Add a sample to the queue, maybe dropping older samples.
+     *  <p>
+     *  May only be called by one thread at a time.
+     *  <p>
+     *  While in error state, the oldest sample of a full buffer
+     *  is moved to the spill journal, if there is one.
+     */
     @SuppressWarnings("nls")
     void add(final VType value)
     {
-    	synchronized (samples)
+        boolean dropped = false;
+        final SpillJournal spill = this.spill;
+        if (error  &&  spill != null  &&  samples.size() >= samples.getCapacity())
         {
-            if (samples.isFull())
-            {   // Note start of overruns, then drop older sample
-                if (start_of_overruns == null)
-                    start_of_overruns = Integer.valueOf(stats.getOverruns());
-                stats.addOverrun();
-            }
-            else if (start_of_overruns != null)
-            {   // Ending a string of overruns. Maybe log it.
-                final int overruns = stats.getOverruns() - start_of_overruns;
-                overrun_msg.log(channel_name + ": " + overruns + " overruns");
-                start_of_overruns = null;
-            }
-            samples.add(value);
+            final VType oldest = samples.remove();
+            if (oldest != null  &&  !spill.append(channel_name, oldest))
+                dropped = true;
+        }
+        if (samples.add(value) || dropped)
+        {   // Note start of overruns, older sample was dropped
+            if (start_of_overruns == null)
+                start_of_overruns = Integer.valueOf(stats.getOverruns());
+            stats.addOverrun();
+        }
+        else if (start_of_overruns != null)
+        {   // Ending a string of overruns. Maybe log it.
+            final int overruns = stats.getOverruns() - start_of_overruns;
+            overrun_msg.log(channel_name + ": " + overruns + " overruns");
+            start_of_overruns = null;
         }
     }
 
     /** @return latest sample in queue or <code>null</code> if empty */
     VType remove()
     {
-    	synchronized (samples)
-        {
-            return samples.remove();
-        }
+        return samples.remove();
     }
 
     /** Update stats with current values */
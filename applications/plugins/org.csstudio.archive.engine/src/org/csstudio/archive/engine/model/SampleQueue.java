@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epics.vtype.VType;
+
+/** Lock-free ring of samples for one producer and one consumer thread.
+ *  <p>
+ *  When the ring is full, the producer drops the oldest sample
+ *  to make room for the new one.
+ *  <p>
+ *  Both threads only ever move the 'head' forward via compare-and-set,
+ *  while the 'tail' is only advanced by the producer.
+ *  The consumer reads a slot before it tries to claim it,
+ *  so if the producer overwrote that slot in the meantime
+ *  the claim fails and the consumer simply tries the next oldest sample.
+ *  Derived classes decide how a sample is stored in a slot.
+ */
+abstract class SampleQueue
+{
+    /** Maximum number of samples */
+    final protected int capacity;
+
+    /** Index of the oldest sample.
+     *  Advanced by the consumer when removing a sample,
+     *  or by the producer when dropping the oldest sample.
+     */
+    final private AtomicLong head = new AtomicLong();
+
+    /** Index for the next sample to add. Only advanced by the producer. */
+    final private AtomicLong tail = new AtomicLong();
+
+    /** Initialize
+     *  @param capacity Maximum number of samples
+     */
+    SampleQueue(final int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive"); //$NON-NLS-1$
+        this.capacity = capacity;
+    }
+
+    /** @return Maximum number of samples */
+    final int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** @return Current number of samples */
+    final int size()
+    {
+        // Read head first: Its later value can only be larger,
+        // so this errs on the side of a larger size
+        final long start = head.get();
+        final long size = tail.get() - start;
+        if (size < 0)
+            return 0;
+        if (size > capacity)
+            return capacity;
+        return (int) size;
+    }
+
+    /** Add a sample.
+     *  <p>
+     *  May only be called by the producer thread.
+     *  @param value Sample to add
+     *  @return <code>true</code> if the oldest sample was dropped to make room
+     */
+    final boolean add(final VType value)
+    {
+        final long end = tail.get();
+        boolean overrun = false;
+        while (true)
+        {
+            final long start = head.get();
+            if (end - start < capacity)
+                break;
+            // Full: Drop oldest sample unless consumer just removed it
+            if (head.compareAndSet(start, start + 1))
+            {
+                overrun = true;
+                break;
+            }
+        }
+        store((int) (end % capacity), value);
+        // Publish the stored slot to the consumer
+        tail.lazySet(end + 1);
+        return overrun;
+    }
+
+    /** Remove the oldest sample.
+     *  <p>
+     *  Usually called by the consumer thread.
+     *  The producer may also remove the oldest sample
+     *  to move it elsewhere.
+     *  @return Oldest sample or <code>null</code> if empty
+     */
+    final VType remove()
+    {
+        while (true)
+        {
+            final long start = head.get();
+            if (start >= tail.get())
+                return null;
+            final VType value = load((int) (start % capacity));
+            // Producer might have dropped that sample meanwhile
+            if (head.compareAndSet(start, start + 1))
+                return value;
+        }
+    }
+
+    /** @param slot Slot 0 .. capacity-1 where to store the sample
+     *  @param value Sample to store
+     */
+    abstract protected void store(int slot, VType value);
+
+    /** @param slot Slot 0 .. capacity-1 from where to read
+     *  @return Sample in that slot
+     */
+    abstract protected VType load(int slot);
+}
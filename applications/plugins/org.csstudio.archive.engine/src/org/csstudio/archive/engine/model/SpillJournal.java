@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.logging.Level;
+
+import org.csstudio.archive.engine.Activator;
+import org.csstudio.archive.vtype.VTypeCodec;
+import org.epics.vtype.VType;
+
+/** Disk-backed, append-only journal for samples that don't fit
+ *  into the {@link SampleBuffer} while the {@link WriteThread}
+ *  cannot write to the archive.
+ *  <p>
+ *  Samples are appended to memory-mapped segment files.
+ *  Each segment file starts with a header that holds
+ *  the position of the next record to read
+ *  and the end of the written records,
+ *  followed by records of the form
+ *  <pre>
+ *  int   length of the following data
+ *  long  time when the sample was added to the journal, millisecs since epoch
+ *  ...   channel name, encoded sample
+ *  </pre>
+ *  <p>
+ *  Samples that have been read are only removed from the journal
+ *  when they are committed, i.e. after they have been written
+ *  to the archive.
+ *  Since the read position is kept in the segment files,
+ *  samples that have not been written survive a restart of the engine.
+ *  <p>
+ *  Channels add samples while the write thread reads,
+ *  so all access is synchronized.
+ */
+@SuppressWarnings("nls")
+public class SpillJournal
+{
+    /** Default size of a segment file */
+    final private static int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /** Segment header: long read position, long write position */
+    final private static int HEADER_SIZE = 16;
+
+    /** Size of record header: int length, long time */
+    final private static int RECORD_HEADER_SIZE = 12;
+
+    /** File name extension for segment files */
+    final private static String EXTENSION = ".spill";
+
+    /** One segment file */
+    private static class Segment
+    {
+        final File file;
+        final RandomAccessFile raf;
+        final MappedByteBuffer buffer;
+        /** Committed read position */
+        int read;
+        /** Read position of samples that have been read, but not committed */
+        int pending;
+        /** End of written records */
+        int write;
+
+        Segment(final File file, final int size, final boolean create) throws Exception
+        {
+            this.file = file;
+            raf = new RandomAccessFile(file, "rw");
+            final int capacity = create ? size : (int) raf.length();
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            if (create)
+            {
+                read = pending = write = HEADER_SIZE;
+                updateHeader();
+            }
+            else
+            {
+                read = pending = (int) buffer.getLong(0);
+                write = (int) buffer.getLong(8);
+                if (read < HEADER_SIZE  ||  write < read  ||  write > capacity)
+                    throw new Exception("Corrupted spill segment " + file);
+            }
+        }
+
+        void updateHeader()
+        {
+            buffer.putLong(0, read);
+            buffer.putLong(8, write);
+        }
+
+        int getCapacity()
+        {
+            return buffer.capacity();
+        }
+
+        void close()
+        {
+            try
+            {
+                buffer.force();
+                raf.close();
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot close " + file, ex);
+            }
+        }
+    }
+
+    /** A sample read from the journal */
+    public static class Sample
+    {
+        final public String channel;
+        final public VType value;
+
+        Sample(final String channel, final VType value)
+        {
+            this.channel = channel;
+            this.value = value;
+        }
+    }
+
+    /** Directory for the segment files */
+    final private File directory;
+
+    /** Maximum size of all segment files in bytes */
+    final private long max_bytes;
+
+    /** Size of new segment files, at most <code>max_bytes</code> */
+    final private int segment_size;
+
+    /** Segments, oldest first. The last segment is appended to. */
+    final private LinkedList<Segment> segments = new LinkedList<Segment>();
+
+    /** Number of the next segment file to create */
+    private long next_segment = 0;
+
+    /** Total size of all segment files in bytes */
+    private long total_bytes = 0;
+
+    /** Number of samples in the journal that have not been committed */
+    private long count = 0;
+
+    /** Number of samples that have been read, but not committed */
+    private long pending_count = 0;
+
+    /** Number of samples that could not be added because the journal was full */
+    private long dropped = 0;
+
+    /** Has a full journal been logged since segments were last removed? */
+    private boolean logged_full = false;
+
+    /** Buffer used to encode samples */
+    final private ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+    /** Open journal, reading existing segment files
+     *  @param directory Directory for the segment files
+     *  @param max_bytes Maximum size of the journal in bytes
+     *  @throws Exception on error
+     */
+    public SpillJournal(final File directory, final long max_bytes) throws Exception
+    {
+        this.directory = directory;
+        this.max_bytes = max_bytes;
+        // A journal smaller than the default segment size uses one smaller segment
+        segment_size = (int) Math.min(SEGMENT_SIZE, max_bytes);
+        if (!directory.isDirectory()  &&  !directory.mkdirs())
+            throw new Exception("Cannot create spill directory " + directory);
+        final File[] files = directory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(final File dir, final String name)
+            {
+                return name.endsWith(EXTENSION);
+            }
+        });
+        // Names use zero-padded numbers, so this sorts oldest first
+        Arrays.sort(files);
+        for (File file : files)
+        {
+            final Segment segment = new Segment(file, 0, false);
+            segments.add(segment);
+            total_bytes += segment.getCapacity();
+            count += countRecords(segment);
+            final String name = file.getName();
+            final long number = Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+            next_segment = Math.max(next_segment, number + 1);
+        }
+        if (count > 0)
+            Activator.getLogger().log(Level.INFO, "Spill journal {0} holds {1} samples",
+                    new Object[] { directory, count });
+    }
+
+    /** @return Number of unread records in segment */
+    private static long countRecords(final Segment segment)
+    {
+        long records = 0;
+        int pos = segment.read;
+        while (pos < segment.write)
+        {
+            pos += RECORD_HEADER_SIZE + segment.buffer.getInt(pos);
+            ++records;
+        }
+        return records;
+    }
+
+    /** @return Directory of the segment files */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /** @return <code>true</code> if there are no samples to read */
+    public synchronized boolean isEmpty()
+    {
+        return count - pending_count <= 0;
+    }
+
+    /** @return Number of samples in the journal */
+    public synchronized long getSampleCount()
+    {
+        return count;
+    }
+
+    /** @return Size of the journal files in bytes */
+    public synchronized long getSize()
+    {
+        return total_bytes;
+    }
+
+    /** @return Number of samples dropped because journal was full */
+    public synchronized long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    /** @return Age of oldest sample in journal in seconds, 0 when empty */
+    public synchronized double getBacklogAge()
+    {
+        for (Segment segment : segments)
+        {
+            if (segment.read < segment.write)
+            {
+                final long added = segment.buffer.getLong(segment.read + 4);
+                return Math.max(0, System.currentTimeMillis() - added) / 1000.0;
+            }
+        }
+        return 0.0;
+    }
+
+    /** Add sample to journal
+     *  @param channel Name of the channel
+     *  @param value Sample
+     *  @return <code>true</code> if added, <code>false</code> if journal is full or on error
+     */
+    public synchronized boolean append(final String channel, final VType value)
+    {
+        try
+        {
+            encoded.reset();
+            final DataOutputStream out = new DataOutputStream(encoded);
+            out.writeUTF(channel);
+            VTypeCodec.encode(out, value);
+            out.flush();
+            final int length = encoded.size();
+            final int needed = RECORD_HEADER_SIZE + length;
+
+            Segment segment = segments.isEmpty() ? null : segments.getLast();
+            if (segment == null  ||  segment.write + needed > segment.getCapacity())
+            {
+                final int size = Math.max(segment_size, HEADER_SIZE + needed);
+                if (total_bytes + size > max_bytes)
+                {
+                    if (! logged_full)
+                    {
+                        Activator.getLogger().log(Level.WARNING,
+                            "Spill journal {0} is full at {1} bytes, dropping samples",
+                            new Object[] { directory, total_bytes });
+                        logged_full = true;
+                    }
+                    ++dropped;
+                    return false;
+                }
+                segment = createSegment(size);
+            }
+            final MappedByteBuffer buffer = segment.buffer;
+            buffer.position(segment.write);
+            buffer.putInt(length);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.put(encoded.toByteArray(), 0, length);
+            // Update header once the record is complete
+            segment.write += needed;
+            segment.updateHeader();
+            ++count;
+            return true;
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot add sample to spill journal " + directory, ex);
+            ++dropped;
+            return false;
+        }
+    }
+
+    /** @param size Size of new segment
+     *  @return New segment, added to the list of segments
+     *  @throws Exception on error
+     */
+    private Segment createSegment(final int size) throws Exception
+    {
+        final File file = new File(directory, String.format("%012d%s", next_segment++, EXTENSION));
+        final Segment segment = new Segment(file, size, true);
+        segments.add(segment);
+        total_bytes += size;
+        return segment;
+    }
+
+    /** Read the next sample.
+     *  <p>
+     *  The sample remains in the journal until {@link #commit()} is called.
+     *  @return Next sample or <code>null</code>
+     *  @throws Exception on error
+     */
+    public synchronized Sample read() throws Exception
+    {
+        for (Segment segment : segments)
+        {
+            if (segment.pending >= segment.write)
+                continue;
+            final int length = segment.buffer.getInt(segment.pending);
+            final byte[] data = new byte[length];
+            final MappedByteBuffer buffer = segment.buffer;
+            buffer.position(segment.pending + RECORD_HEADER_SIZE);
+            buffer.get(data);
+            segment.pending += RECORD_HEADER_SIZE + length;
+            ++pending_count;
+
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            final String channel = in.readUTF();
+            return new Sample(channel, VTypeCodec.decode(in));
+        }
+        return null;
+    }
+
+    /** Remove all samples that have been read from the journal */
+    public synchronized void commit()
+    {
+        final Segment last = segments.isEmpty() ? null : segments.getLast();
+        for (Segment segment : segments)
+        {
+            segment.read = segment.pending;
+            segment.updateHeader();
+        }
+        count -= pending_count;
+        pending_count = 0;
+        // Delete segments that have been read, except the one that's appended to
+        while (! segments.isEmpty())
+        {
+            final Segment segment = segments.getFirst();
+            if (segment == last  ||  segment.read < segment.write)
+                break;
+            segments.removeFirst();
+            total_bytes -= segment.getCapacity();
+            logged_full = false;
+            segment.close();
+            if (! segment.file.delete())
+                Activator.getLogger().log(Level.WARNING, "Cannot delete {0}", segment.file);
+        }
+        // Once the segment that's appended to has been read, start over
+        if (last != null  &&  last.read >= last.write  &&  last.write > HEADER_SIZE)
+        {
+            last.read = last.pending = last.write = HEADER_SIZE;
+            last.updateHeader();
+            logged_full = false;
+        }
+    }
+
+    /** Return samples that have been read but not committed to the journal,
+     *  so that they will be read again
+     */
+    public synchronized void rollback()
+    {
+        for (Segment segment : segments)
+            segment.pending = segment.read;
+        pending_count = 0;
+    }
+
+    /** Close the journal, keeping samples that have not been committed */
+    public synchronized void close()
+    {
+        rollback();
+        for (Segment segment : segments)
+            segment.close();
+        segments.clear();
+    }
+}
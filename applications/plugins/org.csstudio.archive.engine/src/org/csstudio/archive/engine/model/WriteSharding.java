@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.logging.Level;
+
+import org.csstudio.archive.engine.Activator;
+
+/** How channels are assigned to {@link WriteThread}s */
+public enum WriteSharding
+{
+    /** All channels of a group are written by the same thread */
+    GROUP,
+
+    /** Channels are distributed based on the hash of their name */
+    CHANNEL;
+
+    /** @param text Text from preferences, "group" or "channel"
+     *  @return {@link WriteSharding}, defaulting to CHANNEL for unknown text
+     */
+    public static WriteSharding fromString(final String text)
+    {
+        try
+        {
+            return valueOf(text.trim().toUpperCase());
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Unknown write sharding '{0}', using {1}", //$NON-NLS-1$
+                    new Object[] { text, CHANNEL });
+            return CHANNEL;
+        }
+    }
+
+    /** @param shards Number of shards
+     *  @param channel Channel name
+     *  @param group_index Index of the channel's group
+     *  @return Shard 0 .. shards-1 for the channel
+     */
+    int getShard(final int shards, final String channel, final int group_index)
+    {
+        if (this == GROUP)
+            return group_index % shards;
+        return (channel.hashCode() & Integer.MAX_VALUE) % shards;
+    }
+}
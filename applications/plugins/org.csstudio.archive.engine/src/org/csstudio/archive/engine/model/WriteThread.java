@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.logging.Level;
 
@@ -29,6 +30,22 @@ import org.epics.vtype.VType;
  *  be lost.
  *  The channels that add samples to the sample buffer supposedly notice
  *  the error condition and add a special indicator once we recover.
+ *  <p>
+ *  The engine may use several write threads, each with its own
+ *  {@link ArchiveWriter} and its own subset of the sample buffers,
+ *  so that a slow or failing write only affects that subset.
+ *  <p>
+ *  Optionally, samples that don't fit into the sample buffers
+ *  while in error state are kept in a {@link SpillJournal}.
+ *  Once writes succeed again, the journal is drained
+ *  at a limited rate in addition to the regular writes.
+ *  Each write run first writes samples from the journal,
+ *  then those in the sample buffers, so spilled samples
+ *  reach the archive before the newer samples of the same run.
+ *  A backlog that takes several runs to drain is still interleaved
+ *  with the newer samples written in those runs.
+ *  This is acceptable because the archive readers order
+ *  samples by time, not by the order in which they were written.
  *
  *  @author Kay Kasemir
  */
@@ -37,6 +54,9 @@ public class WriteThread implements Runnable
     /** Minimum write period [seconds] */
     private static final double MIN_WRITE_PERIOD = 5.0;
 
+    /** Name of this thread */
+    final private String name;
+
     /** Server to which this thread writes. */
     private ArchiveWriter writer;
 
@@ -67,9 +87,53 @@ public class WriteThread implements Runnable
     /** Average duration of write run */
     private Average write_time = new Average();
 
+    /** Directory for spill journal or <code>null</code> */
+    private File spill_directory = null;
+
+    /** Maximum size of spill journal in bytes */
+    private long spill_max_bytes;
+
+    /** Maximum number of samples per second to write from spill journal */
+    private double spill_drain_rate;
+
+    /** Spill journal or <code>null</code> */
+    private volatile SpillJournal spill = null;
+
+    /** Average number of samples per second drained from spill journal */
+    private Average drain_rate = new Average();
+
+    /** Currently experiencing write errors? */
+    private volatile boolean in_error = false;
+
     /** Thread the executes this.run() */
     private Thread thread;
 
+    /** Create write thread */
+    public WriteThread()
+    {
+        this("WriteThread"); //$NON-NLS-1$
+    }
+
+    /** Create write thread
+     *  @param name Name of the thread
+     */
+    public WriteThread(final String name)
+    {
+        this.name = name;
+    }
+
+    /** @return Name of this thread */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** @return Number of sample buffers handled by this thread */
+    public int getBufferCount()
+    {
+        return buffers.size();
+    }
+
     /** Add a channel's buffer that this thread reads */
     public void addChannel(final ArchiveChannel channel)
     {
@@ -82,6 +146,18 @@ public class WriteThread implements Runnable
         buffers.add(buffer);
     }
 
+    /** Configure the spill journal. Must be called before <code>start</code>.
+     *  @param directory Directory for the journal files
+     *  @param max_bytes Maximum size of the journal in bytes
+     *  @param drain_rate Maximum samples per second written from the journal
+     */
+    public void configureSpill(final File directory, final long max_bytes, final double drain_rate)
+    {
+        spill_directory = directory;
+        spill_max_bytes = max_bytes;
+        spill_drain_rate = drain_rate;
+    }
+
     /** Start the write thread.
      *  @param write_period Period between writes in seconds
      *  @param batch_size Number of values to batch
@@ -89,6 +165,7 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void start(double write_period, int batch_size)
     {
+        openSpillJournal();
         if (write_period < MIN_WRITE_PERIOD)
         {
             Activator.getLogger().log(Level.INFO, "Adjusting write period from {0} to {1}",
@@ -97,15 +174,41 @@ public class WriteThread implements Runnable
         }
         millisec_delay = (int)(1000.0 * write_period);
         this.batch_size = batch_size;
-        thread = new Thread(this, "WriteThread");
+        thread = new Thread(this, name);
         thread.start();
     }
 
+    /** Open the spill journal, if configured, and attach it to the sample buffers */
+    @SuppressWarnings("nls")
+    void openSpillJournal()
+    {
+        if (spill_directory == null)
+            return;
+        try
+        {
+            spill = new SpillJournal(spill_directory, spill_max_bytes);
+            for (SampleBuffer buffer : buffers)
+                buffer.setSpillJournal(spill);
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.SEVERE,
+                name + " cannot open spill journal in " + spill_directory, ex);
+        }
+    }
+
+    /** @param writer Writer to use instead of one from the {@link ArchiveWriterFactory} */
+    void setWriter(final ArchiveWriter writer)
+    {
+        this.writer = writer;
+    }
+
     /** Reset statistics */
     public void reset()
     {
         write_count.reset();
         write_time.reset();
+        drain_rate.reset();
     }
 
     /** Ask the write thread to stop ASAP. */
@@ -118,6 +221,12 @@ public class WriteThread implements Runnable
         }
     }
 
+    /** @return <code>true</code> if currently experiencing write errors */
+    public boolean isInErrorState()
+    {
+        return in_error;
+    }
+
     /** @return Timestamp of end of last write run */
     public Timestamp getLastWriteTime()
     {
@@ -136,6 +245,18 @@ public class WriteThread implements Runnable
         return write_time.get();
     }
 
+    /** @return Spill journal or <code>null</code> */
+    public SpillJournal getSpillJournal()
+    {
+        return spill;
+    }
+
+    /** @return Average number of samples per second written from the spill journal */
+    public double getDrainRate()
+    {
+        return drain_rate.get();
+    }
+
     /** 'Main loop' of the write thread.
      *  <p>
      *  Writes all values out, then waits.
@@ -153,7 +274,7 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void run()
     {
-        Activator.getLogger().info("WriteThread starts");
+        Activator.getLogger().log(Level.INFO, "{0} starts", name);
         final BenchmarkTimer timer = new BenchmarkTimer();
         boolean write_error = false;
         do_run = true;
@@ -194,7 +315,7 @@ public class WriteThread implements Runnable
                 delay = millisec_delay;
                 write_error = true;
             }
-            SampleBuffer.setErrorState(write_error);
+            setErrorState(write_error);
             // See if there's any time left to wait,
             // or if we already used all that time in the last 'write'
             if (delay > 0)
@@ -212,7 +333,19 @@ public class WriteThread implements Runnable
                 }
             }
         }
-        Activator.getLogger().info("WriteThread exists");
+        Activator.getLogger().log(Level.INFO, "{0} exits", name);
+    }
+
+    /** Update error state of this thread and its sample buffers
+     *  @param error Are we experiencing write errors?
+     */
+    private void setErrorState(final boolean error)
+    {
+        if (in_error == error)
+            return;
+        in_error = error;
+        for (SampleBuffer buffer : buffers)
+            buffer.setErrorState(error);
     }
 
     /** Stop the write thread, performing a final write. */
@@ -235,15 +368,27 @@ public class WriteThread implements Runnable
         		writer.close();
         		writer = null;
         	}
+        	if (spill != null)
+        	{
+        	    for (SampleBuffer buffer : buffers)
+        	        buffer.setSpillJournal(null);
+        	    spill.close();
+        	    spill = null;
+        	}
         }
     }
 
     /** Write right now until all sample buffers are empty
+     *  <p>Samples from the spill journal are written first
+     *  since they are older than those in the sample buffers.
      *  @return number of samples written
      */
-    private long write() throws Exception
+    long write() throws Exception
     {
-        int total_count = 0;
+        long total_count = 0;
+        if (spill != null  &&  !spill.isEmpty())
+            total_count += drainSpill();
+
         int count = 0;
         for (SampleBuffer buffer : buffers)
         {
@@ -273,4 +418,44 @@ public class WriteThread implements Runnable
         total_count += count;
         return total_count;
     }
+
+    /** Write samples from the spill journal, limited to the drain rate
+     *  @return number of samples written
+     */
+    private long drainSpill() throws Exception
+    {
+        final long start = System.currentTimeMillis();
+        final long limit = Math.max(1, (long) (spill_drain_rate * millisec_delay / 1000.0));
+        long total_count = 0;
+        int count = 0;
+        try
+        {
+            SpillJournal.Sample sample;
+            while (total_count + count < limit  &&
+                   (sample = spill.read()) != null)
+            {
+                writer.addSample(writer.getChannel(sample.channel), sample.value);
+                ++count;
+                if (count > batch_size)
+                {
+                    writer.flush();
+                    spill.commit();
+                    total_count += count;
+                    count = 0;
+                }
+            }
+            writer.flush();
+            spill.commit();
+            total_count += count;
+        }
+        catch (Exception ex)
+        {   // Samples that were not committed will be read again
+            spill.rollback();
+            throw ex;
+        }
+        final double secs = (System.currentTimeMillis() - start) / 1000.0;
+        if (secs > 0)
+            drain_rate.update(total_count / secs);
+        return total_count;
+    }
 }
@@ -8,6 +8,10 @@
 package org.csstudio.archive.engine.scanner;
 
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 
 import org.csstudio.archive.engine.Activator;
@@ -16,6 +20,9 @@ import org.csstudio.archive.engine.Activator;
  *  <p>
  *  Only the {@link Scanner} is supposed to modify and scan
  *  the scan list, so many methods are package-scoped.
+ *  <p>
+ *  Keeps a histogram of how late each scan started
+ *  relative to its due time.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -27,7 +34,27 @@ public class ScanList implements Scheduleable
     /** Items to scan */
     final private ArrayList<Runnable> items = new ArrayList<Runnable>();
 
-    private long next_due_time = System.currentTimeMillis();
+    private volatile long next_due_time = System.currentTimeMillis();
+
+    /** Upper limits of the lateness histogram bins in millisecs.
+     *  The last bin counts all scans beyond the last limit.
+     */
+    final private static long[] LATENESS_LIMITS = { 10, 100, 1000, 10000 };
+
+    /** Lateness histogram */
+    final private AtomicLongArray lateness = new AtomicLongArray(LATENESS_LIMITS.length + 1);
+
+    /** Maximum lateness in millisecs */
+    final private AtomicLong max_lateness = new AtomicLong();
+
+    /** Number of scans */
+    final private AtomicLong scans = new AtomicLong();
+
+    /** Total time spent scanning items in nanosecs */
+    final private AtomicLong scan_nanos = new AtomicLong();
+
+    /** Number of chunks of a parallel scan that are still running */
+    final private AtomicInteger pending_chunks = new AtomicInteger();
 
     /** Construct scan list.
      *  @param scan_period Scan period in seconds
@@ -94,23 +121,154 @@ public class ScanList implements Scheduleable
     void scanItems()
     {
         final long start = System.currentTimeMillis();
+        updateLateness(start);
+        final long nanos = System.nanoTime();
         // Scan all items
         for (Runnable item : items)
-        {
-            try
-            {
-                item.run();
-            }
-            catch (Throwable ex)
-            {
-                Activator.getLogger().log(Level.SEVERE, toString() + " scan error", ex);
-            }
-        }
+            scanItem(item);
+        scan_nanos.addAndGet(System.nanoTime() - nanos);
         // Determine next due time relative to start,
         // swallowing the time used to scan the items.
         next_due_time = start + scan_period_millis;
     }
 
+    /** Scan all items on this scan list in parallel.
+     *  <p>
+     *  The items are split into chunks that are
+     *  executed concurrently.
+     *  The list is busy until all chunks have been scanned.
+     *  @param executor Executor for the chunks
+     *  @param chunk_size Maximum number of items per chunk
+     *  @see #isBusy()
+     */
+    void scanItems(final Executor executor, final int chunk_size)
+    {
+        final long start = System.currentTimeMillis();
+        updateLateness(start);
+        next_due_time = start + scan_period_millis;
+        final Runnable[] snapshot = items.toArray(new Runnable[items.size()]);
+        final int chunks = (snapshot.length + chunk_size - 1) / chunk_size;
+        pending_chunks.set(chunks);
+        for (int c=0; c<chunks; ++c)
+        {
+            final int first = c * chunk_size;
+            final int last = Math.min(first + chunk_size, snapshot.length);
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    final long nanos = System.nanoTime();
+                    for (int i=first; i<last; ++i)
+                        scanItem(snapshot[i]);
+                    scan_nanos.addAndGet(System.nanoTime() - nanos);
+                    pending_chunks.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /** @param item Item to scan, logging errors */
+    private void scanItem(final Runnable item)
+    {
+        try
+        {
+            item.run();
+        }
+        catch (Throwable ex)
+        {
+            Activator.getLogger().log(Level.SEVERE, toString() + " scan error", ex);
+        }
+    }
+
+    /** @return <code>true</code> while a parallel scan is still running */
+    boolean isBusy()
+    {
+        return pending_chunks.get() > 0;
+    }
+
+    /** @param start Start time of a scan */
+    private void updateLateness(final long start)
+    {
+        final long late = Math.max(0, start - next_due_time);
+        int bin = 0;
+        while (bin < LATENESS_LIMITS.length  &&  late >= LATENESS_LIMITS[bin])
+            ++bin;
+        lateness.incrementAndGet(bin);
+        scans.incrementAndGet();
+        long max = max_lateness.get();
+        while (late > max  &&  !max_lateness.compareAndSet(max, late))
+            max = max_lateness.get();
+    }
+
+    /** @return Number of bins in the lateness histogram */
+    public static int getLatenessBinCount()
+    {
+        return LATENESS_LIMITS.length + 1;
+    }
+
+    /** @param bin Bin of the lateness histogram
+     *  @return Description of the bin, for example "&lt; 10 ms"
+     */
+    public static String getLatenessBinLabel(final int bin)
+    {
+        if (bin < LATENESS_LIMITS.length)
+            return "< " + formatMillis(LATENESS_LIMITS[bin]);
+        return ">= " + formatMillis(LATENESS_LIMITS[LATENESS_LIMITS.length-1]);
+    }
+
+    private static String formatMillis(final long millis)
+    {
+        if (millis >= 1000)
+            return (millis / 1000) + " s";
+        return millis + " ms";
+    }
+
+    /** @param bin Bin of the lateness histogram
+     *  @return Number of scans that started with a lateness in that bin
+     */
+    public long getLatenessCount(final int bin)
+    {
+        return lateness.get(bin);
+    }
+
+    /** @return Maximum lateness of a scan in seconds */
+    public double getMaxLateness()
+    {
+        return max_lateness.get() / 1000.0;
+    }
+
+    /** @return Number of scans */
+    public long getScanCount()
+    {
+        return scans.get();
+    }
+
+    /** @return Total time spent scanning the items in nanoseconds */
+    public long getScanNanos()
+    {
+        return scan_nanos.get();
+    }
+
+    /** @return Average time for scanning all items in seconds */
+    public double getAverageScanTime()
+    {
+        final long count = scans.get();
+        if (count <= 0)
+            return 0.0;
+        return scan_nanos.get() / 1e9 / count;
+    }
+
+    /** Reset statistics */
+    public void reset()
+    {
+        for (int bin=0; bin<lateness.length(); ++bin)
+            lateness.set(bin, 0);
+        max_lateness.set(0);
+        scans.set(0);
+        scan_nanos.set(0);
+    }
+
     @Override
     public String toString()
     {
@@ -8,6 +8,12 @@
 package org.csstudio.archive.engine.scanner;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.archive.engine.Activator;
@@ -17,6 +23,13 @@ import org.csstudio.util.stats.Average;
  *  <p>
  *  Places runnable items on scan lists,
  *  determines how long to wait to the scan next.
+ *  <p>
+ *  By default, all scan lists are scanned on the thread
+ *  that calls {@link #scanOnce()}.
+ *  When configured with scan threads, that thread only
+ *  dispatches the due scan lists, earliest due time first,
+ *  to a work-stealing pool, splitting each list into chunks
+ *  of items that are scanned concurrently.
  *  @author Kay Kasemir
  */
 public class Scanner implements Scheduleable
@@ -25,11 +38,37 @@ public class Scanner implements Scheduleable
     final private static double GRANULARITY = 0.1;
 
     /** Default idle delay */
-    final private static long DEFAULT_IDLE_DELAY = 500;
+    final public static long DEFAULT_IDLE_DELAY = 500;
+
+    /** Maximum number of items scanned as one task of a parallel scan */
+    final private static int CHUNK_SIZE = 100;
+
+    /** Delay in millis before checking again on a scan list that's still busy */
+    final private static long BUSY_DELAY = 10;
 
     /** Time to wait in system millis when nothing to do */
     final private long idle_delay;
 
+    /** Number of threads for parallel scans, 0 to scan on the calling thread */
+    final private int threads;
+
+    /** Pool for parallel scans, created when needed */
+    private ForkJoinPool pool = null;
+
+    /** Time and total scan time of the last idle percentage update for parallel scans */
+    private long last_idle_millis = 0, last_scan_nanos = 0;
+
+    /** Orders scan lists by due time */
+    final private static Comparator<ScanList> DUE_ORDER = new Comparator<ScanList>()
+    {
+        @Override
+        public int compare(final ScanList a, final ScanList b)
+        {
+            final long diff = a.getNextDueTime() - b.getNextDueTime();
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    };
+
     /** All the single-period scan lists.
      *  <p>
      *  Note that we don't keep empty lists around,
@@ -47,8 +86,18 @@ public class Scanner implements Scheduleable
      *  @param idle_delay Time to wait in system millis when nothing to do
      */
     public Scanner(final long idle_delay)
+    {
+        this(idle_delay, 0);
+    }
+
+    /** Construct scanner
+     *  @param idle_delay Time to wait in system millis when nothing to do
+     *  @param threads Number of threads for parallel scans, 0 to scan on the calling thread
+     */
+    public Scanner(final long idle_delay, final int threads)
     {
         this.idle_delay = idle_delay;
+        this.threads = Math.max(0, threads);
     }
 
     /** Construct scanner with default idle delay */
@@ -136,9 +185,20 @@ public class Scanner implements Scheduleable
         return next_due_time;
     }
 
+    /** @return Number of threads for parallel scans, 0 if not scanning in parallel */
+    public int getThreadCount()
+    {
+        return threads;
+    }
+
     /** Scan all the scan lists which are currently due */
     void scanDueScanLists()
     {
+        if (threads > 0)
+        {
+            dispatchDueScanLists();
+            return;
+        }
         final long now = System.currentTimeMillis();
         next_due_time = Long.MAX_VALUE;
         for (ScanList list : lists)
@@ -151,6 +211,59 @@ public class Scanner implements Scheduleable
         }
     }
 
+    /** Submit all the scan lists which are currently due to the pool */
+    private void dispatchDueScanLists()
+    {
+        if (pool == null)
+            pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+            {
+                @Override
+                public ForkJoinWorkerThread newThread(final ForkJoinPool pool)
+                {
+                    final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("ScanThread-" + thread.getPoolIndex()); //$NON-NLS-1$
+                    return thread;
+                }
+            }, null, true);
+        final long now = System.currentTimeMillis();
+        // Submit due lists in order of their due time.
+        // Lists that are still busy with the previous scan are skipped.
+        final List<ScanList> due = new ArrayList<ScanList>();
+        for (ScanList list : lists)
+            if (list.getNextDueTime() <= now  &&  !list.isBusy())
+                due.add(list);
+        Collections.sort(due, DUE_ORDER);
+        for (ScanList list : due)
+            list.scanItems(pool, CHUNK_SIZE);
+        next_due_time = Long.MAX_VALUE;
+        for (ScanList list : lists)
+        {
+            long due_time = list.getNextDueTime();
+            if (list.isBusy())
+                due_time = Math.max(due_time, now + BUSY_DELAY);
+            if (due_time < next_due_time)
+                next_due_time = due_time;
+        }
+    }
+
+    /** Stop the threads used for parallel scans, waiting for ongoing scans to complete */
+    public void shutdown()
+    {
+        if (pool == null)
+            return;
+        pool.shutdown();
+        try
+        {
+            if (! pool.awaitTermination(10, TimeUnit.SECONDS))
+                Activator.getLogger().log(Level.WARNING, "Parallel scans did not complete"); //$NON-NLS-1$
+        }
+        catch (InterruptedException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Scanner shutdown interrupted", ex); //$NON-NLS-1$
+        }
+        pool = null;
+    }
+
     /** Compute the next due time */
     private void computeDueTime()
     {
@@ -174,6 +287,38 @@ public class Scanner implements Scheduleable
     public void reset()
     {
         idle_percentage.reset();
+        for (ScanList list : lists)
+            list.reset();
+        last_idle_millis = 0;
+    }
+
+    /** Update idle percentage
+     *  <p>
+     *  For parallel scans, the idle time of the scan threads
+     *  is computed from the time spent scanning the items.
+     *  @param idle Idle percentage of the thread that calls {@link #scanOnce()}
+     */
+    private void updateIdlePercentage(final double idle)
+    {
+        if (threads <= 0)
+        {
+            idle_percentage.update(idle);
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        long scan_nanos = 0;
+        for (ScanList list : lists)
+            scan_nanos += list.getScanNanos();
+        if (last_idle_millis > 0)
+        {
+            final long elapsed = now - last_idle_millis;
+            if (elapsed < 1000)
+                return;
+            final double busy = (scan_nanos - last_scan_nanos) / 1e6 / (elapsed * threads);
+            idle_percentage.update(Math.max(0.0, 100.0 * (1.0 - busy)));
+        }
+        last_idle_millis = now;
+        last_scan_nanos = scan_nanos;
     }
 
     /** Perform one scan: Wait for the next scan, perform it. */
@@ -186,24 +331,24 @@ public class Scanner implements Scheduleable
                 final long delay = getNextDueTime() - System.currentTimeMillis();
                 if (delay > idle_delay)
                 {   // Nothing due within idle time
-                    idle_percentage.update(100.0);
+                    updateIdlePercentage(100.0);
                     Thread.sleep(idle_delay);
                     return;
                 }
                 if (delay > 0)
                 {   // Need to wait a little, then run scan
-                    idle_percentage.update(delay*100.0/idle_delay);
+                    updateIdlePercentage(delay*100.0/idle_delay);
                     Thread.sleep(delay);
                     scanDueScanLists();
                     return;
                 }
                 // High noon
-                idle_percentage.update(0.0);
+                updateIdlePercentage(0.0);
                 scanDueScanLists();
                 return;
             }
             // Nothing to do, ever. Just wait.
-            idle_percentage.update(100.0);
+            updateIdlePercentage(100.0);
             Thread.sleep(idle_delay);
         }
         catch (InterruptedException ex)
@@ -11,6 +11,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.csstudio.apputil.time.BenchmarkTimer;
 import org.junit.Test;
 
@@ -198,4 +200,50 @@ public class ScannerUnitTest
 
         System.out.format("Idle: %.2f %%\n", scanner.getIdlePercentage());
     }
+
+    /** Scannable item that counts invocations from several threads */
+    static class ParallelScanItem implements Runnable
+    {
+        final AtomicInteger scans = new AtomicInteger();
+
+        @Override
+        public void run()
+        {
+            scans.incrementAndGet();
+        }
+    }
+
+    /** Scanner with several scan threads */
+    @Test
+    public void testParallelScans() throws InterruptedException
+    {
+        final Scanner scanner = new Scanner(Scanner.DEFAULT_IDLE_DELAY, 4);
+        final ParallelScanItem[] items = new ParallelScanItem[1000];
+        for (int i=0; i<items.length; ++i)
+        {
+            items[i] = new ParallelScanItem();
+            scanner.add(items[i], fast_period);
+        }
+        assertEquals(1, scanner.size());
+
+        while (items[items.length-1].scans.get() < 3)
+            scanner.scanOnce();
+        scanner.shutdown();
+
+        // Every item scanned once per scan of the list
+        final ScanList list = scanner.get(0);
+        final long scans = list.getScanCount();
+        assertTrue(scans >= 3);
+        for (ParallelScanItem item : items)
+            assertEquals(scans, item.scans.get());
+
+        long histogram = 0;
+        for (int bin=0; bin<ScanList.getLatenessBinCount(); ++bin)
+        {
+            System.out.println(ScanList.getLatenessBinLabel(bin) + ": " + list.getLatenessCount(bin));
+            histogram += list.getLatenessCount(bin);
+        }
+        assertEquals(scans, histogram);
+        System.out.format("Idle: %.2f %%\n", scanner.getIdlePercentage());
+    }
 }
@@ -60,6 +60,8 @@ public class HTMLWriter
         text("<a href=\"/main\">-Main-</a> ");
         text("<a href=\"/groups\">-Groups-</a> ");
         text("<a href=\"/disconnected\">-Disconnected-</a> ");
+        text("<a href=\"/writers\">-Writers-</a> ");
+        text("<a href=\"/scans\">-Scans-</a> ");
         text("<a href=\"/version.html\">-Version-</a> ");
 
         text("<address>");
@@ -16,7 +16,6 @@ import org.csstudio.apputil.time.PeriodFormat;
 import org.csstudio.archive.engine.Messages;
 import org.csstudio.archive.engine.model.ArchiveGroup;
 import org.csstudio.archive.engine.model.EngineModel;
-import org.csstudio.archive.engine.model.SampleBuffer;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.eclipse.core.runtime.Platform;
 import org.epics.util.time.Timestamp;
@@ -128,16 +127,36 @@ class MainResponse extends AbstractResponse
             Messages.HTTP_WritePeriod,
             model.getWritePeriod() + " sec"
         });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_WriteThreads,
+            HTMLWriter.makeLink("writers", model.getWriteThreadCount() +
+                    " (by " + model.getWriteSharding().name().toLowerCase() + ")")
+        });
 
         // Currently in 'Write Error' state?
         html.tableLine(new String[]
         {
             Messages.HTTP_WriteState,
-            (SampleBuffer.isInErrorState()
+            (model.isInWriteErrorState()
              ? HTMLWriter.makeRedText(Messages.HTTP_WriteError)
              : "OK")
         });
 
+        if (model.isSpillEnabled())
+        {
+            final long spilled = model.getSpillSampleCount();
+            final long dropped = model.getSpillDroppedCount();
+            String info = String.format("%d samples, %.1f MB", spilled, model.getSpillSize() / MB);
+            if (spilled > 0)
+                info += String.format(", oldest %s ago, draining %.1f samples/sec",
+                        PeriodFormat.formatSeconds(model.getSpillBacklogAge()),
+                        model.getSpillDrainRate());
+            if (dropped > 0)
+                info += ", " + HTMLWriter.makeRedText(dropped + " dropped");
+            html.tableLine(new String[] { Messages.HTTP_SpillJournal, info });
+        }
+
         final Timestamp last_write_time = model.getLastWriteTime();
         html.tableLine(new String[]
         {
@@ -161,6 +180,13 @@ class MainResponse extends AbstractResponse
             Messages.HTTP_Idletime,
             String.format("%.1f %%", model.getIdlePercentage())
         });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_ScanThreads,
+            HTMLWriter.makeLink("scans", model.getScanThreadCount() > 0
+                    ? Integer.toString(model.getScanThreadCount())
+                    : "single scan thread")
+        });
 
         final Runtime runtime = Runtime.getRuntime();
         final double used_mem = runtime.totalMemory() / MB;
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.server;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.csstudio.archive.engine.Messages;
+import org.csstudio.archive.engine.model.EngineModel;
+import org.csstudio.archive.engine.scanner.ScanList;
+
+/** Provide web page with info for all the scan lists,
+ *  including a histogram of the scan lateness.
+ */
+@SuppressWarnings("nls")
+class ScansResponse extends AbstractResponse
+{
+    /** Avoid serialization errors */
+    private static final long serialVersionUID = 1L;
+
+    ScansResponse(final EngineModel model)
+    {
+        super(model);
+    }
+
+    @Override
+    protected void fillResponse(final HttpServletRequest req,
+                    final HttpServletResponse resp) throws Exception
+    {
+        final HTMLWriter html =
+            new HTMLWriter(resp, "Archive Engine Scan Lists");
+
+        final int bins = ScanList.getLatenessBinCount();
+        final String[] header = new String[5 + bins];
+        header[0] = Messages.HTTP_ScanList;
+        header[1] = Messages.HTTP_ChannelCount;
+        header[2] = Messages.HTTP_ScanTime;
+        header[3] = Messages.HTTP_ScanMaxLateness;
+        header[4] = Messages.HTTP_ScanCount;
+        for (int bin=0; bin<bins; ++bin)
+            header[5+bin] = Messages.HTTP_ScanLateness + " " + ScanList.getLatenessBinLabel(bin);
+        html.openTable(1, header);
+
+        final int count = model.getScanListCount();
+        for (int i=0; i<count; ++i)
+        {
+            final ScanList list = model.getScanList(i);
+            final String[] line = new String[5 + bins];
+            line[0] = String.format("%.1f sec", list.getPeriod());
+            line[1] = Integer.toString(list.size());
+            line[2] = String.format("%.3f sec", list.getAverageScanTime());
+            line[3] = String.format("%.3f sec", list.getMaxLateness());
+            line[4] = Long.toString(list.getScanCount());
+            for (int bin=0; bin<bins; ++bin)
+            {
+                final long late = list.getLatenessCount(bin);
+                // Highlight scans that were delayed by more than 1 second
+                line[5+bin] = (bin >= 3  &&  late > 0)
+                            ? HTMLWriter.makeRedText(Long.toString(late))
+                            : Long.toString(late);
+            }
+            html.tableLine(line);
+        }
+        html.closeTable();
+
+        html.close();
+    }
+}
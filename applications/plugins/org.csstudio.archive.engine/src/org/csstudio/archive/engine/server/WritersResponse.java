@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.server;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.csstudio.archive.engine.Messages;
+import org.csstudio.archive.engine.model.EngineModel;
+import org.csstudio.archive.engine.model.WriteThread;
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.epics.util.time.Timestamp;
+
+/** Provide web page with info for all the write threads. */
+@SuppressWarnings("nls")
+class WritersResponse extends AbstractResponse
+{
+    /** Avoid serialization errors */
+    private static final long serialVersionUID = 1L;
+
+    WritersResponse(final EngineModel model)
+    {
+        super(model);
+    }
+
+    @Override
+    protected void fillResponse(final HttpServletRequest req,
+                    final HttpServletResponse resp) throws Exception
+    {
+        final HTMLWriter html =
+            new HTMLWriter(resp, "Archive Engine Write Threads");
+
+        html.openTable(1, new String[]
+        {
+            Messages.HTTP_WriteThread,
+            Messages.HTTP_ChannelCount,
+            Messages.HTTP_WriteState,
+            Messages.HTTP_LastWriteTime,
+            Messages.HTTP_WriteCount,
+            Messages.HTTP_WriteDuration,
+        });
+        final int count = model.getWriteThreadCount();
+        int total_channels = 0;
+        double total_write_count = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final WriteThread writer = model.getWriteThread(i);
+            final Timestamp last_write_time = writer.getLastWriteTime();
+            total_channels += writer.getBufferCount();
+            total_write_count += writer.getWriteCount();
+            html.tableLine(new String[]
+            {
+                writer.getName(),
+                Integer.toString(writer.getBufferCount()),
+                writer.isInErrorState()
+                  ? HTMLWriter.makeRedText(Messages.HTTP_WriteError) : "OK",
+                last_write_time == null
+                  ? Messages.HTTP_Never : TimestampHelper.format(last_write_time),
+                (int)writer.getWriteCount() + " samples",
+                String.format("%.1f sec", writer.getWriteDuration()),
+            });
+        }
+        // 'Total' line
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_Total,
+            Integer.toString(total_channels),
+            "",
+            "",
+            (int)total_write_count + " samples",
+            "",
+        });
+        html.closeTable();
+
+        html.close();
+    }
+}
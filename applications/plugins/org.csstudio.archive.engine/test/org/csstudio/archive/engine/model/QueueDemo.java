@@ -14,6 +14,7 @@ import java.util.LinkedList;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import org.csstudio.apputil.ringbuffer.RingBuffer;
+import org.epics.vtype.VType;
 import org.junit.Test;
 
 /** Simple benchmark of queues for the SampleBuffer.
@@ -149,4 +150,122 @@ public class QueueDemo
                 i, secs, i / secs);
     }
 
+    /** Queue access for the threaded tests */
+    private interface TestQueue
+    {
+        void add(VType value);
+        VType remove();
+    }
+
+    /** Add samples in one thread while removing them in another,
+     *  like the channels and the WriteThread use the SampleBuffer.
+     *  <p>
+     *  Only meaningful when run on a multi-core host.
+     *  @param name Name of queue
+     *  @param queue Queue to test
+     */
+    private void runThreaded(final String name, final TestQueue queue) throws Exception
+    {
+        final VType value = TestHelper.newValue(3.14);
+        final long run = System.currentTimeMillis() + RUNTIME;
+        final long[] added = new long[1];
+        final Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long count = 0;
+                while (run > System.currentTimeMillis())
+                {
+                    for (int i=0; i<1000; ++i)
+                        queue.add(value);
+                    count += 1000;
+                }
+                added[0] = count;
+            }
+        }, "Producer");
+        final long start = System.currentTimeMillis();
+        producer.start();
+        long removed = 0;
+        while (producer.isAlive())
+        {
+            if (queue.remove() != null)
+                ++removed;
+        }
+        producer.join();
+        final long end = System.currentTimeMillis();
+        final double secs = (end - start) / 1000.0;
+        System.out.format(
+                "%-20s: %12d added, %12d removed in %.2f sec = %12.1f adds/sec\n",
+                name, added[0], removed, secs, added[0] / secs);
+    }
+
+    /** Ring buffer with locks, the original SampleBuffer implementation */
+    @Test
+    public void testThreadedRingBuffer() throws Exception
+    {
+        final RingBuffer<VType> ring = new RingBuffer<VType>(100);
+        runThreaded("Locked RingBuffer", new TestQueue()
+        {
+            @Override
+            public void add(final VType value)
+            {
+                synchronized (ring)
+                {
+                    ring.add(value);
+                }
+            }
+
+            @Override
+            public VType remove()
+            {
+                synchronized (ring)
+                {
+                    return ring.remove();
+                }
+            }
+        });
+    }
+
+    /** Lock-free queue of objects */
+    @Test
+    public void testThreadedObjectQueue() throws Exception
+    {
+        final SampleQueue queue = new ObjectSampleQueue(100);
+        runThreaded("ObjectSampleQueue", new TestQueue()
+        {
+            @Override
+            public void add(final VType value)
+            {
+                queue.add(value);
+            }
+
+            @Override
+            public VType remove()
+            {
+                return queue.remove();
+            }
+        });
+    }
+
+    /** Lock-free queue of primitives */
+    @Test
+    public void testThreadedColumnarQueue() throws Exception
+    {
+        final SampleQueue queue = new ColumnarSampleQueue(100);
+        runThreaded("ColumnarSampleQueue", new TestQueue()
+        {
+            @Override
+            public void add(final VType value)
+            {
+                queue.add(value);
+            }
+
+            @Override
+            public VType remove()
+            {
+                return queue.remove();
+            }
+        });
+    }
 }
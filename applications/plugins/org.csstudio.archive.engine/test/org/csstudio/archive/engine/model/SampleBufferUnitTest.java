@@ -8,8 +8,15 @@
 package org.csstudio.archive.engine.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VNumber;
 import org.epics.vtype.VType;
 import org.junit.Test;
 
@@ -53,6 +60,46 @@ public class SampleBufferUnitTest
 		assertEquals(1.0, VTypeHelper.toDouble(value), 0.01);
 	}
 
+	/** Columnar buffer keeps scalar doubles in primitives, other samples as is */
+	@Test
+	public void testColumnar()
+	{
+		final SampleBuffer columnar = new SampleBuffer("Demo", 3, true);
+		final Timestamp time = Timestamp.of(1000, 42);
+		columnar.add(new ArchiveVNumber(time, AlarmSeverity.MINOR, "LOW", TestHelper.display, Double.valueOf(3.14)));
+		final VType info = ValueButcher.createOff();
+		columnar.add(info);
+		final VType integer = new ArchiveVNumber(time, AlarmSeverity.NONE, "OK", TestHelper.display, Integer.valueOf(42));
+		columnar.add(integer);
+		assertEquals(3, columnar.getQueueSize());
+
+		final VType value = columnar.remove();
+		assertTrue(value instanceof VNumber);
+		assertEquals(3.14, VTypeHelper.toDouble(value), 0.001);
+		assertEquals(time, VTypeHelper.getTimestamp(value));
+		assertEquals(AlarmSeverity.MINOR, VTypeHelper.getSeverity(value));
+		assertEquals("LOW", VTypeHelper.getMessage(value));
+		assertEquals(TestHelper.display.getUnits(), ((VNumber) value).getUnits());
+		assertSame(info, columnar.remove());
+		assertSame(integer, columnar.remove());
+		assertNull(columnar.remove());
+	}
+
+	/** Check Overrun of columnar buffer */
+	@Test
+	public void testColumnarOverrun()
+	{
+		final SampleBuffer columnar = new SampleBuffer("Demo", 10, true);
+		for (int i=0; i<columnar.getCapacity(); ++i)
+			columnar.add(TestHelper.newValue(i));
+		assertEquals(0, columnar.getBufferStats().getOverruns());
+
+		columnar.add(TestHelper.newValue(-1.0));
+		assertEquals(columnar.getCapacity(), columnar.getQueueSize());
+		assertEquals(1, columnar.getBufferStats().getOverruns());
+		assertEquals(1.0, VTypeHelper.toDouble(columnar.remove()), 0.01);
+	}
+
 	final private static long TEST_RUNS = 1000L;
 
 	class FillThread extends Thread
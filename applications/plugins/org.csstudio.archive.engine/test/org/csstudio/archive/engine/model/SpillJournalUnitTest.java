@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVNumberArray;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.archive.writer.ArchiveWriter;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit test of the {@link SpillJournal} */
+@SuppressWarnings("nls")
+public class SpillJournalUnitTest
+{
+    private File directory;
+
+    @Before
+    public void setup() throws Exception
+    {
+        directory = File.createTempFile("spill", "");
+        directory.delete();
+    }
+
+    @After
+    public void cleanup()
+    {
+        final File[] files = directory.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        directory.delete();
+    }
+
+    /** Encode and decode the various sample types */
+    @Test
+    public void testTypes() throws Exception
+    {
+        final Timestamp time = Timestamp.of(1000, 42);
+        final SpillJournal spill = new SpillJournal(directory, 100*1024*1024);
+        assertTrue(spill.isEmpty());
+        spill.append("a", new ArchiveVNumber(time, AlarmSeverity.MINOR, "LOW", TestHelper.display, 3.14));
+        spill.append("b", new ArchiveVNumber(time, AlarmSeverity.NONE, "OK", TestHelper.display, 42));
+        spill.append("c", new ArchiveVNumberArray(time, AlarmSeverity.NONE, "OK", TestHelper.display, 1.0, 2.0, 3.0));
+        spill.append("d", new ArchiveVEnum(time, AlarmSeverity.NONE, "OK", Arrays.asList("Off", "On"), 1));
+        spill.append("e", ValueButcher.createOff());
+        assertEquals(5, spill.getSampleCount());
+
+        SpillJournal.Sample sample = spill.read();
+        assertEquals("a", sample.channel);
+        assertEquals(time, VTypeHelper.getTimestamp(sample.value));
+        assertEquals(AlarmSeverity.MINOR, VTypeHelper.getSeverity(sample.value));
+        assertEquals("LOW", VTypeHelper.getMessage(sample.value));
+        assertEquals(3.14, VTypeHelper.toDouble(sample.value), 0.001);
+        assertEquals(TestHelper.display.getUnits(), ((VNumber) sample.value).getUnits());
+        assertTrue(((VNumber) sample.value).getValue() instanceof Double);
+
+        sample = spill.read();
+        assertEquals(42, ((VNumber) sample.value).getValue().intValue());
+        assertFalse(((VNumber) sample.value).getValue() instanceof Double);
+
+        sample = spill.read();
+        assertEquals(3, ((VNumberArray) sample.value).getData().size());
+        assertEquals(3.0, ((VNumberArray) sample.value).getData().getDouble(2), 0.001);
+
+        sample = spill.read();
+        assertEquals("On", ((VEnum) sample.value).getValue());
+
+        sample = spill.read();
+        assertTrue(sample.value instanceof VString);
+        assertNull(spill.read());
+        spill.close();
+    }
+
+    /** Commit, rollback and re-open */
+    @Test
+    public void testCommit() throws Exception
+    {
+        SpillJournal spill = new SpillJournal(directory, 100*1024*1024);
+        for (int i=0; i<10; ++i)
+            assertTrue(spill.append("x", TestHelper.newValue(i)));
+
+        // Read some, commit
+        assertEquals(0.0, VTypeHelper.toDouble(spill.read().value), 0.01);
+        assertEquals(1.0, VTypeHelper.toDouble(spill.read().value), 0.01);
+        spill.commit();
+        assertEquals(8, spill.getSampleCount());
+
+        // Read some, but roll back
+        assertEquals(2.0, VTypeHelper.toDouble(spill.read().value), 0.01);
+        spill.rollback();
+        assertEquals(8, spill.getSampleCount());
+
+        // Samples survive re-open
+        spill.close();
+        spill = new SpillJournal(directory, 100*1024*1024);
+        assertEquals(8, spill.getSampleCount());
+        int expected = 2;
+        SpillJournal.Sample sample;
+        while ((sample = spill.read()) != null)
+            assertEquals(expected++, VTypeHelper.toDouble(sample.value), 0.01);
+        assertEquals(10, expected);
+        spill.commit();
+        assertTrue(spill.isEmpty());
+        spill.close();
+    }
+
+    /** Journal smaller than one default segment */
+    @Test
+    public void testSmallJournal() throws Exception
+    {
+        final SpillJournal spill = new SpillJournal(directory, 64*1024);
+        int added = 0;
+        while (spill.append("x", TestHelper.newValue(added)))
+            ++added;
+        assertTrue(added > 100);
+        assertEquals(added, spill.getSampleCount());
+        assertEquals(1, spill.getDroppedCount());
+        assertTrue(spill.getSize() <= 64*1024);
+
+        // Once read, the space is available again
+        while (spill.read() != null)
+            ;
+        spill.commit();
+        assertTrue(spill.isEmpty());
+        assertTrue(spill.append("x", TestHelper.newValue(-1)));
+        assertEquals(-1.0, VTypeHelper.toDouble(spill.read().value), 0.01);
+        spill.close();
+    }
+
+    /** Buffer in error state moves samples into journal */
+    @Test
+    public void testBufferSpill() throws Exception
+    {
+        final SpillJournal spill = new SpillJournal(directory, 100*1024*1024);
+        final SampleBuffer buffer = new SampleBuffer("x", 5, false);
+        buffer.setSpillJournal(spill);
+        buffer.setErrorState(true);
+        for (int i=0; i<20; ++i)
+            buffer.add(TestHelper.newValue(i));
+        assertEquals(0, buffer.getBufferStats().getOverruns());
+        assertEquals(5, buffer.getQueueSize());
+        assertEquals(15, spill.getSampleCount());
+        assertEquals(0.0, VTypeHelper.toDouble(spill.read().value), 0.01);
+        spill.close();
+    }
+
+    /** Writer that remembers the values it was asked to write */
+    private static class RecordingWriter implements ArchiveWriter
+    {
+        final List<Double> values = new ArrayList<Double>();
+
+        @Override
+        public WriteChannel getChannel(final String name) throws Exception
+        {
+            return new WriteChannel()
+            {
+                @Override
+                public String getName()
+                {
+                    return name;
+                }
+            };
+        }
+
+        @Override
+        public void addSample(final WriteChannel channel, final VType sample) throws Exception
+        {
+            values.add(VTypeHelper.toDouble(sample));
+        }
+
+        @Override
+        public void flush() throws Exception
+        {
+            // NOP
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    /** Write thread writes spilled samples before the newer buffered samples */
+    @Test
+    public void testWriteOrder() throws Exception
+    {
+        final SampleBuffer buffer = new SampleBuffer("x", 5, false);
+        final WriteThread writer = new WriteThread();
+        writer.addSampleBuffer(buffer);
+        writer.configureSpill(directory, 100*1024*1024, 1000.0);
+        writer.openSpillJournal();
+        final RecordingWriter archive = new RecordingWriter();
+        writer.setWriter(archive);
+
+        buffer.setErrorState(true);
+        for (int i=0; i<20; ++i)
+            buffer.add(TestHelper.newValue(i));
+        assertEquals(15, writer.getSpillJournal().getSampleCount());
+        buffer.setErrorState(false);
+
+        assertEquals(20, writer.write());
+        for (int i=0; i<20; ++i)
+            assertEquals(i, archive.values.get(i), 0.01);
+        assertTrue(writer.getSpillJournal().isEmpty());
+        writer.getSpillJournal().close();
+    }
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link WriteSharding} */
+@SuppressWarnings("nls")
+public class WriteShardingUnitTest
+{
+    @Test
+    public void testParse()
+    {
+        assertEquals(WriteSharding.GROUP, WriteSharding.fromString("group"));
+        assertEquals(WriteSharding.CHANNEL, WriteSharding.fromString(" Channel "));
+        assertEquals(WriteSharding.CHANNEL, WriteSharding.fromString("bogus"));
+    }
+
+    @Test
+    public void testShards()
+    {
+        // Group sharding ignores the channel name
+        assertEquals(1, WriteSharding.GROUP.getShard(4, "a", 5));
+        assertEquals(1, WriteSharding.GROUP.getShard(4, "b", 5));
+
+        // Channel sharding ignores the group, stays within range
+        final int shard = WriteSharding.CHANNEL.getShard(4, "some:channel", 0);
+        assertEquals(shard, WriteSharding.CHANNEL.getShard(4, "some:channel", 3));
+        final int[] counts = new int[4];
+        for (int i=0; i<1000; ++i)
+        {
+            final int s = WriteSharding.CHANNEL.getShard(4, "channel" + i, 0);
+            assertTrue(s >= 0  &&  s < 4);
+            ++counts[s];
+        }
+        for (int count : counts)
+            assertTrue(count > 100);
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link PrefetchingValueIterator}, no RDB required */
+@SuppressWarnings("nls")
+public class PrefetchingValueIteratorUnitTest
+{
+    /** Iterator for samples 0, 1, 2, ..., optionally failing at the end */
+    private static class DemoIterator implements ValueIterator
+    {
+        final private int count;
+        final private boolean fail;
+        private int index = 0;
+        volatile boolean closed = false;
+
+        DemoIterator(final int count, final boolean fail)
+        {
+            this.count = count;
+            this.fail = fail;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return !closed  &&  (index < count  ||  fail);
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            if (index >= count)
+                throw new Exception("Demo error");
+            return new ArchiveVNumber(Timestamp.of(index, 0), AlarmSeverity.NONE, "OK", null, index++);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testOrder() throws Exception
+    {
+        final DemoIterator base = new DemoIterator(10007, false);
+        final ValueIterator values = new PrefetchingValueIterator(base, 100, 4);
+        int count = 0;
+        while (values.hasNext())
+        {
+            final VNumber value = (VNumber) values.next();
+            assertEquals(count, value.getValue().intValue());
+            ++count;
+        }
+        values.close();
+        assertEquals(10007, count);
+        assertFalse(values.hasNext());
+        assertTrue(base.closed);
+    }
+
+    @Test(timeout=10000)
+    public void testEmpty() throws Exception
+    {
+        final DemoIterator base = new DemoIterator(0, false);
+        final ValueIterator values = new PrefetchingValueIterator(base, 100, 4);
+        assertFalse(values.hasNext());
+        values.close();
+    }
+
+    @Test(timeout=10000)
+    public void testError() throws Exception
+    {
+        final ValueIterator values = new PrefetchingValueIterator(new DemoIterator(250, true), 100, 4);
+        int count = 0;
+        try
+        {
+            while (values.hasNext())
+            {
+                values.next();
+                ++count;
+            }
+            fail("Error not reported");
+        }
+        catch (Exception ex)
+        {
+            assertEquals("Demo error", ex.getMessage());
+        }
+        // Samples before the error are delivered
+        assertEquals(250, count);
+        assertFalse(values.hasNext());
+        values.close();
+    }
+
+    @Test(timeout=10000)
+    public void testEarlyClose() throws Exception
+    {
+        final DemoIterator base = new DemoIterator(Integer.MAX_VALUE, false);
+        final ValueIterator values = new PrefetchingValueIterator(base, 10, 2);
+        assertTrue(values.hasNext());
+        values.next();
+        values.close();
+        assertFalse(values.hasNext());
+        // Prefetch thread needs to notice and close the base iterator
+        while (! base.closed)
+            Thread.sleep(10);
+    }
+
+    @Test(timeout=10000)
+    public void testSharedThread() throws Exception
+    {
+        // Iterators share one thread. Reading the second one first
+        // must not wait for the first one, which has a full queue.
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ValueIterator first = new PrefetchingValueIterator(executor, new DemoIterator(1000, false), 10, 2);
+        final ValueIterator second = new PrefetchingValueIterator(executor, new DemoIterator(1000, false), 10, 2);
+        for (ValueIterator values : new ValueIterator[] { second, first })
+        {
+            int count = 0;
+            while (values.hasNext())
+            {
+                values.next();
+                ++count;
+            }
+            values.close();
+            assertEquals(1000, count);
+        }
+        executor.shutdown();
+    }
+}
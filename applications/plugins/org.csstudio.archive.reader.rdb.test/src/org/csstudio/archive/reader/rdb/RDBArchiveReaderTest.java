@@ -40,6 +40,7 @@ public class RDBArchiveReaderTest
 {
     final private static TimeDuration TIMERANGE = TimeDuration.ofHours(10.0);
     final private static TimeDuration WAVEFORM_TIMERANGE = TimeDuration.ofMinutes(20.0);
+    final private static TimeDuration THROUGHPUT_TIMERANGE = TimeDuration.ofHours(24.0 * 30);
     
     final private static int BUCKETS = 50;
 
@@ -211,6 +212,48 @@ public class RDBArchiveReaderTest
         }
     }
 
+    /** Compare raw data read in the caller's thread with the {@link PrefetchingValueIterator}.
+     *  <p>
+     *  Meant for a local database with millions of samples for the channel
+     *  within {@link #THROUGHPUT_TIMERANGE}.
+     */
+    @Test
+    public void testPrefetchThroughput() throws Exception
+    {
+    	if (reader == null)
+    		return;
+    	final int channel_id = reader.getChannelID(name);
+        final Timestamp end = Timestamp.now();
+        final Timestamp start = end.minus(THROUGHPUT_TIMERANGE);
+
+        System.out.println("Raw samples for " + name + ", read in caller's thread:");
+        readAll(new RawSampleIterator(reader, channel_id, start, end));
+
+        for (int chunk_size : new int[] { 100, 1000, 10000 })
+        {
+        	System.out.println("Raw samples for " + name + ", prefetched in chunks of " + chunk_size + ":");
+        	readAll(new PrefetchingValueIterator(new RawSampleIterator(reader, channel_id, start, end), chunk_size, 4));
+        }
+    }
+
+    /** Read all samples, display throughput
+     *  @param values Samples to read, will be closed
+     */
+    private void readAll(final ValueIterator values) throws Exception
+    {
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        long count = 0;
+        while (values.hasNext())
+        {
+            assertNotNull(values.next());
+            ++count;
+        }
+        values.close();
+        timer.stop();
+        System.out.println(count + " samples in " + timer);
+        System.out.println(count/timer.getSeconds() + " samples/sec");
+    }
+
     /** Get raw data for waveform */
     @Test
     public void testRawWaveformData() throws Exception
@@ -265,6 +308,32 @@ public class RDBArchiveReaderTest
         values.close();
     }
 
+    /** Get optimized data for scalar, using the SQL {@link SQLBinnedValueIterator} */
+    @Test
+    public void testSQLBinnedScalarData() throws Exception
+    {
+    	if (reader == null)
+    		return;
+    	final int channel_id = reader.getChannelID(name);
+        System.out.println("Optimized samples for " + name + " (" + channel_id + "):");
+        System.out.println("-- SQL binning --");
+
+        final Timestamp end = Timestamp.now();
+        final Timestamp start = end.minus(TIMERANGE);
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        final ValueIterator values = new SQLBinnedValueIterator(reader, channel_id, start, end, BUCKETS);
+        int count = 0;
+        while (values.hasNext())
+        {
+        	final VType value = values.next();
+            System.out.println(value);
+            ++count;
+        }
+        values.close();
+        timer.stop();
+        System.out.println(count + " values in " + timer);
+    }
+
     /** Get optimized data for scalar, using the server-side {@link StoredProcedureValueIterator} */
     @Test
     public void testStoredProcedure() throws Exception
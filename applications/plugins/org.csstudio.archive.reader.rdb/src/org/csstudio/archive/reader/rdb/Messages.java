@@ -19,6 +19,7 @@ public class Messages extends NLS
     public static String FetchSize;
     public static String Password;
     public static String PreferenceTitle;
+    public static String PrefetchChunkSize;
     public static String Schema;
     public static String StoredProcedure;
     public static String UseBLOB;
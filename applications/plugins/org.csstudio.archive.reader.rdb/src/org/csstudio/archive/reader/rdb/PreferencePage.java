@@ -94,6 +94,15 @@ public class PreferencePage extends FieldEditorPreferencePage
             }
         };
         addField(fetch_size);
+        final IntegerFieldEditor chunk_size = new IntegerFieldEditor(Preferences.PREFETCH_CHUNK_SIZE, Messages.PrefetchChunkSize, parent)
+        {
+            @Override
+            public void setPreferenceStore(final IPreferenceStore ignored)
+            {
+                super.setPreferenceStore(reader_prefs);
+            }
+        };
+        addField(chunk_size);
         final StringFieldEditor editor =
                 new StringFieldEditor(Preferences.STORED_PROCEDURE, Messages.StoredProcedure, parent)
         {
@@ -24,6 +24,10 @@ public class Preferences
 {
     final public static String FETCH_SIZE = "fetch_size";
     final public static String STORED_PROCEDURE = "use_stored_procedure";
+    final public static String PREFETCH_CHUNK_SIZE = "prefetch_chunk_size";
+    final public static String PREFETCH_CHUNKS = "prefetch_chunks";
+    final public static String PREFETCH_THREADS = "prefetch_threads";
+    final public static String SQL_BINNING = "use_sql_binning";
 
     public static int getFetchSize()
     {
@@ -34,6 +38,42 @@ public class Preferences
         return prefs.getInt(Activator.ID, FETCH_SIZE, fetch_size, null);
     }
     
+    /** @return Number of samples per chunk read by prefetch thread, 0 to disable prefetch */
+    public static int getPrefetchChunkSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 0;
+        return prefs.getInt(Activator.ID, PREFETCH_CHUNK_SIZE, 0, null);
+    }
+
+    /** @return Number of chunks that prefetch thread may read ahead */
+    public static int getPrefetchChunks()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 4;
+        return Math.max(1, prefs.getInt(Activator.ID, PREFETCH_CHUNKS, 4, null));
+    }
+
+    /** @return Number of threads shared by all prefetching iterators */
+    public static int getPrefetchThreads()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 4;
+        return Math.max(1, prefs.getInt(Activator.ID, PREFETCH_THREADS, 4, null));
+    }
+
+    /** @return <code>true</code> to compute 'optimized' data in SQL when there is no stored procedure */
+    public static boolean useSQLBinning()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return false;
+        return prefs.getBoolean(Activator.ID, SQL_BINNING, false, null);
+    }
+
     public static String getStoredProcedure()
     {
         return getString(STORED_PROCEDURE, "");
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.epics.vtype.VType;
+
+/** Value Iterator that reads samples from another iterator
+ *  in a background thread.
+ *  <p>
+ *  The background thread fetches and decodes chunks of samples
+ *  into a bounded queue, so that the network round-trips and
+ *  decoding of the base iterator overlap with the consumption
+ *  of samples by the caller.
+ *  <p>
+ *  The background threads are shared by all prefetching iterators.
+ *  When the queue stays full, the prefetch task re-submits itself
+ *  instead of blocking the thread, so a caller that reads several
+ *  iterators in any order does not starve the prefetching of the others.
+ *  <p>
+ *  The base iterator is only accessed by the prefetch task,
+ *  which also closes it.
+ */
+@SuppressWarnings("nls")
+public class PrefetchingValueIterator implements ValueIterator
+{
+    /** Chunk that marks the end of the samples */
+    final private static List<VType> END = Collections.emptyList();
+
+    /** Time [ms] that the prefetch task waits for room in the queue
+     *  before it yields the thread
+     */
+    final private static long OFFER_TIMEOUT_MS = 100;
+
+    /** Time [s] after which idle prefetch threads are stopped */
+    final private static long IDLE_SECONDS = 10;
+
+    /** Thread pool shared by all prefetching iterators, created on first use */
+    private static Executor shared_executor = null;
+
+    /** Executor for the prefetch task */
+    final private Executor executor;
+
+    /** Iterator used by the prefetch task */
+    final private ValueIterator base;
+
+    /** Number of samples per chunk */
+    final private int chunk_size;
+
+    /** Chunks of samples, {@link #END} after the last chunk */
+    final private BlockingQueue<List<VType>> queue;
+
+    /** Set when the iterator is closed to stop the prefetch task */
+    private volatile boolean closed = false;
+
+    /** Error in prefetch task, to be reported by <code>next()</code> */
+    private volatile Exception error = null;
+
+    /** Chunk read by the prefetch task that did not fit into the queue.
+     *  Like {@link #ended} only accessed by the prefetch task,
+     *  which runs on one thread at a time.
+     */
+    private List<VType> pending = null;
+
+    /** Set when the prefetch task has read and closed the base iterator */
+    private boolean ended = false;
+
+    /** Prefetch task */
+    final private Runnable prefetch = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            prefetch();
+        }
+    };
+
+    /** Current chunk */
+    private List<VType> chunk = null;
+
+    /** Index of next sample in current chunk */
+    private int index = 0;
+
+    /** Initialize
+     *  @param base Iterator to read in background thread
+     *  @param chunk_size Number of samples to read per chunk
+     *  @param chunks Maximum number of chunks to read ahead
+     */
+    public PrefetchingValueIterator(final ValueIterator base,
+            final int chunk_size, final int chunks)
+    {
+        this(getSharedExecutor(), base, chunk_size, chunks);
+    }
+
+    /** Initialize
+     *  @param executor Executor for the prefetch task
+     *  @param base Iterator to read in background thread
+     *  @param chunk_size Number of samples to read per chunk
+     *  @param chunks Maximum number of chunks to read ahead
+     */
+    PrefetchingValueIterator(final Executor executor, final ValueIterator base,
+            final int chunk_size, final int chunks)
+    {
+        if (chunk_size <= 0  ||  chunks <= 0)
+            throw new IllegalArgumentException("Chunk size and count must be positive");
+        this.executor = executor;
+        this.base = base;
+        this.chunk_size = chunk_size;
+        queue = new ArrayBlockingQueue<List<VType>>(chunks);
+        executor.execute(prefetch);
+    }
+
+    /** @return Thread pool shared by all prefetching iterators */
+    private static synchronized Executor getSharedExecutor()
+    {
+        if (shared_executor == null)
+        {
+            final int threads = Preferences.getPrefetchThreads();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger instance = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "RDB Prefetch" + instance.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            shared_executor = pool;
+        }
+        return shared_executor;
+    }
+
+    /** Prefetch task: Read chunks from base iterator into queue */
+    private void prefetch()
+    {
+        if (! ended)
+        {
+            try
+            {
+                while (! closed)
+                {
+                    if (pending == null)
+                    {
+                        if (! base.hasNext())
+                            break;
+                        pending = new ArrayList<VType>(chunk_size);
+                        while (! closed  &&  pending.size() < chunk_size  &&  base.hasNext())
+                            pending.add(base.next());
+                    }
+                    if (! enqueue(pending))
+                        return;
+                    pending = null;
+                }
+            }
+            catch (Exception ex)
+            {
+                if (! closed)
+                    error = ex;
+            }
+            base.close();
+            ended = true;
+        }
+        // Deliver samples read before an error, then the END
+        if (pending != null  &&  !pending.isEmpty())
+        {
+            if (! enqueue(pending))
+                return;
+        }
+        pending = null;
+        enqueue(END);
+    }
+
+    /** Add chunk to queue.
+     *  If the queue stays full, the prefetch task is re-submitted
+     *  to let other prefetch tasks use the thread.
+     *  @param samples Chunk to add to queue
+     *  @return <code>true</code> if added or iterator has been closed,
+     *          <code>false</code> if the prefetch task yielded its thread
+     */
+    private boolean enqueue(final List<VType> samples)
+    {
+        try
+        {
+            if (closed  ||  queue.offer(samples, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                return true;
+        }
+        catch (InterruptedException ex)
+        {
+            Activator.getLogger().log(Level.FINE, "Prefetch interrupted", ex);
+        }
+        executor.execute(prefetch);
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        if (chunk != null  &&  index < chunk.size())
+            return true;
+        if (chunk == END)
+            return error != null;
+        // Wait for next chunk
+        try
+        {
+            do
+                chunk = queue.take();
+            while (chunk.isEmpty()  &&  chunk != END);
+        }
+        catch (InterruptedException ex)
+        {
+            close();
+            return false;
+        }
+        index = 0;
+        if (chunk == END)
+            return error != null;
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (! hasNext())
+            throw new Exception("PrefetchingValueIterator.next() called after end");
+        if (chunk == END)
+        {   // Report error from prefetch task, once
+            final Exception ex = error;
+            error = null;
+            throw ex;
+        }
+        return chunk.get(index++);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        closed = true;
+        chunk = END;
+        error = null;
+        queue.clear();
+    }
+}
@@ -12,6 +12,8 @@ import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,6 +53,9 @@ public class RDBArchiveReader implements ArchiveReader
     /** Name of stored procedure or "" */
     final private String stored_procedure;
 
+    /** Compute 'optimized' data in SQL when there is no stored procedure? */
+    final private boolean use_sql_binning;
+
     final private RDBUtil rdb;
     final private SQL sql;
     final private boolean is_oracle;
@@ -58,8 +63,10 @@ public class RDBArchiveReader implements ArchiveReader
     /** Map of status IDs to Status strings */
     final private HashMap<Integer, String> stati;
 
-    /** Map of severity IDs to Severities */
-    final private HashMap<Integer, AlarmSeverity> severities;
+    /** Map of severity IDs to Severities.
+     *  Concurrent because prefetch threads may add unknown IDs
+     */
+    final private Map<Integer, AlarmSeverity> severities;
 
     /** List of statements to cancel in cancel() */
     private ArrayList<Statement> cancellable_statements =
@@ -95,8 +102,29 @@ public class RDBArchiveReader implements ArchiveReader
             final String stored_procedure,
             final boolean use_array_blob)
         throws Exception
+    {
+        this(url, user, password, schema, stored_procedure, use_array_blob, Preferences.useSQLBinning());
+    }
+
+    /** Initialize
+     *  @param url Database URL
+     *  @param user .. user
+     *  @param password .. password
+     *  @param schema .. schema (including ".") or ""
+     *  @param stored_procedure Stored procedure or "" for client-side optimization
+     *  @param use_array_blob Use BLOB for array elements?
+     *  @param use_sql_binning Compute 'optimized' data in SQL when there is no stored procedure?
+     *  @throws Exception on error
+     */
+    public RDBArchiveReader(final String url, final String user,
+            final String password, final String schema,
+            final String stored_procedure,
+            final boolean use_array_blob,
+            final boolean use_sql_binning)
+        throws Exception
     {
         this.url = url;
+        this.use_sql_binning = use_sql_binning;
         this.user = user;
         this.password = (password == null) ? 0 : password.length();
         this.use_array_blob = use_array_blob;
@@ -125,7 +153,7 @@ public class RDBArchiveReader implements ArchiveReader
         }
         sql = new SQL(dialect, schema);
         stati = getStatusValues();
-        severities = getSeverityValues();
+        severities = new ConcurrentHashMap<Integer, AlarmSeverity>(getSeverityValues());
     }
     
     /** @return <code>true</code> when using Oracle, i.e. no 'nanosec'
@@ -350,6 +378,8 @@ public class RDBArchiveReader implements ArchiveReader
     }
 
     /** Fetch raw samples
+     *  <p>When the <code>prefetch_chunk_size</code> preference is set,
+     *  samples are read and decoded in a background thread.
      *  @param channel_id Channel ID in RDB
      *  @param start Start time
      *  @param end End time
@@ -359,7 +389,11 @@ public class RDBArchiveReader implements ArchiveReader
     public ValueIterator getRawValues(final int channel_id,
             final Timestamp start, final Timestamp end) throws Exception
     {
-        return new RawSampleIterator(this, channel_id, start, end);
+        final ValueIterator raw = new RawSampleIterator(this, channel_id, start, end);
+        final int chunk_size = Preferences.getPrefetchChunkSize();
+        if (chunk_size <= 0)
+            return raw;
+        return new PrefetchingValueIterator(raw, chunk_size, Preferences.getPrefetchChunks());
     }
     
     /** {@inheritDoc} */
@@ -376,6 +410,10 @@ public class RDBArchiveReader implements ArchiveReader
         if (stored_procedure.length() > 0)
             return new StoredProcedureValueIterator(this, stored_procedure, channel_id, start, end, count);
 
+        // Compute min/max/average bins in plain SQL?
+        if (use_sql_binning)
+            return new SQLBinnedValueIterator(this, channel_id, start, end, count);
+
         // Else: Determine how many samples there are
         final int counted;
         try
@@ -38,6 +38,8 @@ public class SQL
     final public String sample_sel_by_id_start_end_with_blob;
     final public String sample_sel_array_vals;
 	final public String sample_count_by_id_start_end;
+	final public String sample_sel_bins_by_id_start_end;
+	final public String sample_sel_text_by_id_start_end;
     
     /** Initialize SQL statements
      *  @param dialect RDB dialect
@@ -102,6 +104,12 @@ public class SQL
     	            "   WHERE channel_id=?" +
     	            "     AND smpl_time>=? AND smpl_time<=?" +
     	            "   ORDER BY smpl_time";
+            sample_sel_text_by_id_start_end =
+                "SELECT smpl_time, severity_id, status_id, num_val, float_val, str_val FROM " + prefix + "sample"+
+                "   WHERE channel_id=?" +
+                "     AND smpl_time BETWEEN ? AND ?" +
+                "     AND float_val IS NULL AND num_val IS NULL" +
+                "   ORDER BY smpl_time";
             sample_sel_array_vals = "SELECT float_val FROM " + prefix + "array_val" +
                 " WHERE channel_id=? AND smpl_time=? ORDER BY seq_nbr";
         }
@@ -122,11 +130,53 @@ public class SQL
 	            "   WHERE channel_id=?" +
 	            "     AND smpl_time>=? AND smpl_time<=?" +
 	            "   ORDER BY smpl_time, nanosecs";
+            sample_sel_text_by_id_start_end =
+                "SELECT smpl_time, severity_id, status_id, num_val, float_val, str_val, nanosecs FROM " + prefix + "sample" +
+                "   WHERE channel_id=?" +
+                "     AND smpl_time>=? AND smpl_time<=?" +
+                "     AND float_val IS NULL AND num_val IS NULL" +
+                "   ORDER BY smpl_time, nanosecs";
             sample_sel_array_vals = "SELECT float_val FROM " + prefix + "array_val" +
                 " WHERE channel_id=? AND smpl_time=? AND nanosecs=? ORDER BY seq_nbr";
         }
         // Rough count, ignoring nanosecs for the non-Oracle dialects
         sample_count_by_id_start_end = "SELECT COUNT(*) FROM " + prefix + "sample" +
           "   WHERE channel_id=? AND smpl_time BETWEEN ? AND ?";
+
+        // Count/min/max/sum/sum of squares of numeric samples in time bins,
+        // separately for each severity and status so that the reader can
+        // determine the most severe one.
+        // Bin number = seconds since start / bin size in seconds.
+        // The MIN(smpl_time) and MIN(nanosecs) of a group may come from
+        // different rows, so they only describe a sample for groups with
+        // COUNT 1. The reader derives the time of other bins from the bin number.
+        // Parameters: start, bin size, channel_id, start, end
+        final String bin, nanosecs;
+        if (dialect == RDBUtil.Dialect.Oracle)
+        {   // Oracle has nanoseconds in TIMESTAMP.
+            // DATE arithmetic only has whole seconds, so bins shorter
+            // than 1 second are not resolved.
+            bin = "FLOOR((CAST(smpl_time AS DATE) - CAST(? AS DATE)) * 86400 / ?)";
+            nanosecs = "0";
+        }
+        else
+        {
+            if (dialect == RDBUtil.Dialect.PostgreSQL)
+                bin = "FLOOR(EXTRACT(EPOCH FROM (smpl_time - CAST(? AS TIMESTAMP))) / ?)";
+            else // MySQL TIMESTAMP has whole seconds, the fraction is in nanosecs
+                bin = "FLOOR((TIMESTAMPDIFF(MICROSECOND, ?, smpl_time) / 1000000 + nanosecs / 1000000000) / ?)";
+            nanosecs = "MIN(nanosecs)";
+        }
+        sample_sel_bins_by_id_start_end =
+            "SELECT bin, severity_id, status_id, COUNT(val), MIN(val), MAX(val), SUM(val), SUM(val*val)," +
+            "       MIN(smpl_time), " + nanosecs + " FROM" +
+            " (SELECT " + bin + " AS bin, severity_id, status_id," +
+            "         COALESCE(float_val, num_val) AS val, smpl_time" +
+            (dialect == RDBUtil.Dialect.Oracle ? "" : ", nanosecs") +
+            "   FROM " + prefix + "sample" +
+            "   WHERE channel_id=?" +
+            "     AND smpl_time>=? AND smpl_time<=?" +
+            "     AND (float_val IS NOT NULL OR num_val IS NOT NULL)) bins" +
+            " GROUP BY bin, severity_id, status_id ORDER BY bin";
     }
 }
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.TimeDuration;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VType;
+
+/** Value Iterator that provides 'optimized' data by
+ *  computing the min/max/average of time bins in plain SQL.
+ *  <p>
+ *  Unlike the {@link AveragedValueIterator}, only one row per bin
+ *  is transferred from the RDB.
+ *  Unlike the {@link StoredProcedureValueIterator}, this does not
+ *  require a stored procedure in the RDB.
+ *  <p>
+ *  Non-numeric samples like 'Disconnected' are passed through.
+ *  Since the severity IDs of the RDB are not ordered,
+ *  the RDB computes the bins separately for each severity and status.
+ *  A bin then has the highest severity of its samples.
+ *  A bin with a single sample returns that sample as is.
+ *  Enumerated channels are read as raw samples.
+ */
+@SuppressWarnings("nls")
+public class SQLBinnedValueIterator extends AbstractRDBValueIterator
+{
+    /** Values received from the RDB */
+    private List<VType> values = null;
+
+    /** Iteration index into <code>values</code>, points to what
+     *  <code>next()</code> will return or -1
+     */
+    private int index = -1;
+
+    /** Raw samples used for enumerated channels, or <code>null</code> */
+    private ValueIterator raw = null;
+
+    /** Numeric samples of one time bin */
+    private static class Bin
+    {
+        final long bin;
+        AlarmSeverity severity = null;
+        String status;
+        int count = 0;
+        double min, max, sum = 0.0, sum_of_squares = 0.0;
+        /** Time of the sample, only known for a bin with one sample */
+        Timestamp single = null;
+
+        Bin(final long bin)
+        {
+            this.bin = bin;
+        }
+
+        /** Add samples of one severity and status to the bin */
+        void add(final AlarmSeverity severity, final String status, final int count,
+                 final double min, final double max, final double sum, final double sum_of_squares,
+                 final Timestamp single)
+        {
+            if (this.count == 0  ||  min < this.min)
+                this.min = min;
+            if (this.count == 0  ||  max > this.max)
+                this.max = max;
+            if (count == 1)
+                this.single = single;
+            if (this.severity == null  ||  severity.compareTo(this.severity) > 0)
+            {
+                this.severity = severity;
+                this.status = status;
+            }
+            this.count += count;
+            this.sum += sum;
+            this.sum_of_squares += sum_of_squares;
+        }
+    }
+
+    /** Initialize
+     *  @param reader RDBArchiveReader
+     *  @param channel_id ID of channel
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Desired value count
+     *  @throws Exception on error
+     */
+    public SQLBinnedValueIterator(final RDBArchiveReader reader,
+            final int channel_id, final Timestamp start, final Timestamp end,
+            final int count) throws Exception
+    {
+        super(reader, channel_id);
+        if (count <= 0)
+            throw new IllegalArgumentException("Invalid value count " + count);
+        if (labels != null)
+        {   // Averaging enumerated values makes no sense
+            raw = reader.getRawValues(channel_id, start, end);
+            return;
+        }
+        final double seconds = end.durationFrom(start).toSeconds() / count;
+        try
+        {
+            values = merge(readBins(start, end, seconds), readText(start, end));
+            if (values.size() > 0)
+                index = 0;
+        }
+        catch (Exception ex)
+        {
+            if (! RDBArchiveReader.isCancellation(ex))
+                throw ex;
+            // Else: Not a real error; return empty iterator
+            Activator.getLogger().log(Level.FINE, "Binned readout cancelled", ex);
+        }
+    }
+
+    /** @param start Start time
+     *  @param end End time
+     *  @param seconds Bin size
+     *  @return Min/max/average for each bin that has numeric samples
+     *  @throws Exception on error
+     */
+    private List<VType> readBins(final Timestamp start, final Timestamp end,
+            final double seconds) throws Exception
+    {
+        final List<VType> bins = new ArrayList<VType>();
+        final java.sql.Timestamp start_stamp = TimestampHelper.toSQLTimestamp(start);
+        final PreparedStatement statement = reader.getRDB().getConnection().prepareStatement(
+                reader.getSQL().sample_sel_bins_by_id_start_end);
+        reader.addForCancellation(statement);
+        try
+        {
+            statement.setTimestamp(1, start_stamp);
+            statement.setDouble(2, seconds);
+            statement.setInt(3, channel_id);
+            statement.setTimestamp(4, start_stamp);
+            statement.setTimestamp(5, TimestampHelper.toSQLTimestamp(end));
+            statement.setFetchSize(Preferences.getFetchSize());
+            final ResultSet result = statement.executeQuery();
+            // Columns: bin, severity, status, count, min, max, sum, sum of squares,
+            //          time and nanoseconds of a single sample,
+            // one row per severity and status in bin
+            Bin current = null;
+            while (result.next())
+            {
+                final long bin = result.getLong(1);
+                if (current != null  &&  current.bin != bin)
+                {
+                    bins.add(createValue(start, seconds, current));
+                    current = null;
+                }
+                if (current == null)
+                    current = new Bin(bin);
+                final String status = reader.getStatus(result.getInt(3));
+                final AlarmSeverity severity = filterSeverity(reader.getSeverity(result.getInt(2)), status);
+                final int count = result.getInt(4);
+                // MIN(smpl_time) and MIN(nanosecs) are only from the same row
+                // when the group has a single sample
+                Timestamp single = null;
+                if (count == 1)
+                {
+                    final java.sql.Timestamp stamp = result.getTimestamp(9);
+                    // Oracle has nanoseconds in TIMESTAMP, other RDBs in separate column
+                    if (!reader.isOracle())
+                        stamp.setNanos(result.getInt(10));
+                    single = TimestampHelper.fromSQLTimestamp(stamp);
+                }
+                current.add(severity, status, count,
+                        result.getDouble(5), result.getDouble(6),
+                        result.getDouble(7), result.getDouble(8),
+                        single);
+            }
+            if (current != null)
+                bins.add(createValue(start, seconds, current));
+            result.close();
+        }
+        finally
+        {
+            reader.removeFromCancellation(statement);
+            statement.close();
+        }
+        return bins;
+    }
+
+    /** @param start Start time
+     *  @param seconds Bin size
+     *  @param bin Samples of a bin
+     *  @return Value for the bin
+     */
+    private VType createValue(final Timestamp start, final double seconds, final Bin bin)
+    {
+        final double average = bin.sum / bin.count;
+        if (bin.count == 1)  // Single sample in bin: Return as is
+            return new ArchiveVNumber(bin.single, bin.severity, bin.status, display, average);
+        // Time stamp in center of bin
+        final Timestamp time = start.plus(TimeDuration.ofSeconds((bin.bin + 0.5) * seconds));
+        final double variance = bin.sum_of_squares / bin.count - average * average;
+        return new ArchiveVStatistics(time, bin.severity, bin.status, display,
+                average, bin.min, bin.max, Math.sqrt(Math.max(0.0, variance)), bin.count);
+    }
+
+    /** @param start Start time
+     *  @param end End time
+     *  @return Non-numeric samples
+     *  @throws Exception on error
+     */
+    private List<VType> readText(final Timestamp start, final Timestamp end) throws Exception
+    {
+        final List<VType> samples = new ArrayList<VType>();
+        final PreparedStatement statement = reader.getRDB().getConnection().prepareStatement(
+                reader.getSQL().sample_sel_text_by_id_start_end);
+        reader.addForCancellation(statement);
+        try
+        {
+            statement.setInt(1, channel_id);
+            statement.setTimestamp(2, TimestampHelper.toSQLTimestamp(start));
+            statement.setTimestamp(3, TimestampHelper.toSQLTimestamp(end));
+            statement.setFetchSize(Preferences.getFetchSize());
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+                samples.add(decodeSampleTableValue(result, false));
+            result.close();
+        }
+        finally
+        {
+            reader.removeFromCancellation(statement);
+            statement.close();
+        }
+        return samples;
+    }
+
+    /** @param a Samples in time order
+     *  @param b Samples in time order
+     *  @return Combined samples in time order
+     */
+    private static List<VType> merge(final List<VType> a, final List<VType> b)
+    {
+        if (b.isEmpty())
+            return a;
+        final List<VType> result = new ArrayList<VType>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size()  &&  j < b.size())
+        {
+            if (VTypeHelper.getTimestamp(b.get(j)).compareTo(VTypeHelper.getTimestamp(a.get(i))) < 0)
+                result.add(b.get(j++));
+            else
+                result.add(a.get(i++));
+        }
+        while (i < a.size())
+            result.add(a.get(i++));
+        while (j < b.size())
+            result.add(b.get(j++));
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        if (raw != null)
+            return raw.hasNext();
+        return index >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (raw != null)
+            return raw.next();
+        final VType result = values.get(index);
+        ++index;
+        if (index >= values.size())
+            index = -1;
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        super.close();
+        if (raw != null)
+            raw.close();
+        index = -1;
+        values = null;
+    }
+}
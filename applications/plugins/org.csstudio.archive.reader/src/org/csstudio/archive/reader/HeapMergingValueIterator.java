@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+
+/** Merge values from several <code>ValueIterator</code> based on time stamps.
+ *  <p>
+ *  Like the {@link MergingValueIterator}, but keeps the 'current'
+ *  sample of each base iterator in a heap, so each sample costs
+ *  O(log k) instead of O(k) for k base iterators.
+ *  Base iterators are read lazily, one sample ahead,
+ *  so they can stream their samples while the merged
+ *  result is consumed.
+ *  <p>
+ *  For samples with the same time stamp, the one from the base
+ *  iterator with the lower index is returned first.
+ */
+public class HeapMergingValueIterator implements ValueIterator
+{
+    /** 'Current' sample of one base iterator */
+    private static class Head
+    {
+        final int index;
+        final VType value;
+        final Timestamp time;
+
+        Head(final int index, final VType value)
+        {
+            this.index = index;
+            this.value = value;
+            this.time = VTypeHelper.getTimestamp(value);
+        }
+    }
+
+    /** Order by time stamp, then iterator index */
+    final private static Comparator<Head> ORDER = new Comparator<Head>()
+    {
+        @Override
+        public int compare(final Head a, final Head b)
+        {
+            final int cmp = a.time.compareTo(b.time);
+            if (cmp != 0)
+                return cmp;
+            return a.index - b.index;
+        }
+    };
+
+    /** The base iterators */
+    final private ValueIterator iters[];
+
+    /** Heads of base iterators that still have samples */
+    final private PriorityQueue<Head> heads;
+
+    /** Index of the base iterator for the last sample returned by <code>next()</code> */
+    private int source = -1;
+
+    /** Constructor.
+     *  @param iters The 'base' iterators.
+     *  @throws Exception on error in archive access
+     */
+    public HeapMergingValueIterator(final ValueIterator... iters) throws Exception
+    {
+        this.iters = iters;
+        heads = new PriorityQueue<Head>(Math.max(1, iters.length), ORDER);
+        for (int i=0; i<iters.length; ++i)
+            advance(i);
+    }
+
+    /** Add next sample of a base iterator to the heap
+     *  @param index Index of base iterator
+     *  @throws Exception on error
+     */
+    private void advance(final int index) throws Exception
+    {
+        if (iters[index].hasNext())
+            heads.add(new Head(index, iters[index].next()));
+    }
+
+    /** @return Index of the base iterator that provided the sample
+     *          last returned by <code>next()</code>, or -1
+     */
+    public int getSourceIndex()
+    {
+        return source;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return ! heads.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        final Head head = heads.poll();
+        if (head == null)
+            throw new IllegalStateException();
+        source = head.index;
+        advance(head.index);
+        return head.value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        heads.clear();
+        for (ValueIterator iter : iters)
+            iter.close();
+    }
+}
@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Cache for samples read from archives.
+ *  <p>
+ *  Segments of samples are kept in memory, with the least
+ *  recently used entries removed when the total number of
+ *  samples exceeds a limit.
+ *  Optionally, entries are also written to files in a local
+ *  directory, where they remain available after they have been
+ *  removed from memory, and after a restart.
+ *  The least recently used files are deleted when the total size
+ *  of the directory exceeds a limit.
+ *  <p>
+ *  File access only locks the key, so requests for different keys
+ *  read and write their files concurrently.
+ *  A cache file starts with the key, followed by the segments in the
+ *  order they were added. Adding a segment appends it to the file,
+ *  reading the file combines the segments.
+ */
+@SuppressWarnings("nls")
+public class ArchiveCache
+{
+    /** File name suffix of cache files */
+    final private static String SUFFIX = ".seg";
+
+    /** Marker at start of cache file */
+    final private static int MAGIC = 0x43534332; // "CSC2"
+
+    /** Locks for file access, selected by key */
+    final private Object[] key_locks = new Object[64];
+
+    /** Maximum number of samples to keep in memory */
+    final private int max_samples;
+
+    /** Directory for cache files or <code>null</code> */
+    final private File directory;
+
+    /** Maximum size of cache files in bytes */
+    final private long max_disk_bytes;
+
+    /** Segments in memory by key, in access order.
+     *  Synchronize on <code>this</code>.
+     */
+    final private LinkedHashMap<String, List<CacheSegment>> entries =
+        new LinkedHashMap<String, List<CacheSegment>>(16, 0.75f, true);
+
+    /** Number of samples in <code>entries</code> */
+    private int sample_count = 0;
+
+    /** Statistics */
+    private long memory_hits = 0, disk_hits = 0, misses = 0;
+
+    /** Initialize
+     *  @param max_samples Maximum number of samples to keep in memory
+     *  @param directory Directory for cache files, <code>null</code> for memory-only cache
+     *  @param max_disk_mb Maximum size of cache files in MB
+     */
+    public ArchiveCache(final int max_samples, final File directory, final int max_disk_mb)
+    {
+        this.max_samples = max_samples;
+        this.max_disk_bytes = max_disk_mb * 1024L * 1024L;
+        if (directory != null  &&  !directory.isDirectory()  &&  !directory.mkdirs())
+        {
+            getLogger().log(Level.WARNING, "Cannot create archive cache directory {0}", directory);
+            this.directory = null;
+        }
+        else
+            this.directory = directory;
+        for (int i=0; i<key_locks.length; ++i)
+            key_locks[i] = new Object();
+    }
+
+    /** @param key Key
+     *  @return Lock for reading and writing the entry of that key
+     */
+    private Object getLock(final String key)
+    {
+        return key_locks[(key.hashCode() & 0x7fffffff) % key_locks.length];
+    }
+
+    private static Logger getLogger()
+    {
+        return Logger.getLogger(ArchiveCache.class.getName());
+    }
+
+    /** Get cached segments
+     *  @param key Key
+     *  @return Segments in time order, may be empty
+     */
+    public List<CacheSegment> get(final String key)
+    {
+        synchronized (this)
+        {
+            final List<CacheSegment> segments = entries.get(key);
+            if (segments != null)
+            {
+                ++memory_hits;
+                return segments;
+            }
+        }
+        synchronized (getLock(key))
+        {
+            List<CacheSegment> segments = getFromMemory(key);
+            if (segments != null)
+                return segments;
+            segments = read(key);
+            synchronized (this)
+            {
+                if (segments == null)
+                {
+                    ++misses;
+                    return Collections.emptyList();
+                }
+                ++disk_hits;
+                addToMemory(key, segments);
+                return segments;
+            }
+        }
+    }
+
+    /** @param key Key
+     *  @return Segments in memory or <code>null</code>
+     */
+    private synchronized List<CacheSegment> getFromMemory(final String key)
+    {
+        return entries.get(key);
+    }
+
+    /** Add segment to the cache
+     *  <p>Combines the segment with existing segments for the same key
+     *  where their time ranges overlap or touch.
+     *  @param key Key
+     *  @param segment Segment to add
+     *  @return Updated segments for the key, in time order
+     */
+    public List<CacheSegment> add(final String key, final CacheSegment segment)
+    {
+        synchronized (getLock(key))
+        {
+            List<CacheSegment> segments = getFromMemory(key);
+            if (segments == null)
+            {
+                segments = read(key);
+                if (segments == null)
+                    segments = Collections.emptyList();
+            }
+            final List<CacheSegment> result = Collections.unmodifiableList(combine(segments, segment));
+            synchronized (this)
+            {
+                addToMemory(key, result);
+            }
+            append(key, segment);
+            return result;
+        }
+    }
+
+    /** @param segments Segments in time order
+     *  @param segment Segment to add
+     *  @return Segments in time order, with the new segment combined
+     *          with those that it touches
+     */
+    private static List<CacheSegment> combine(final List<CacheSegment> segments, CacheSegment segment)
+    {
+        final List<CacheSegment> update = new ArrayList<CacheSegment>(segments.size() + 1);
+        for (CacheSegment existing : segments)
+        {
+            if (existing.touches(segment))
+                segment = segment.merge(existing);
+            else
+                update.add(existing);
+        }
+        int i = 0;
+        while (i < update.size()  &&  update.get(i).getStart().compareTo(segment.getStart()) < 0)
+            ++i;
+        update.add(i, segment);
+        return update;
+    }
+
+    /** Replace the in-memory segments for a key, removing
+     *  least recently used entries as needed.
+     *  <p>Segments that alone exceed the limit are not kept in memory.
+     *  Caller must synchronize on <code>this</code>.
+     */
+    private void addToMemory(final String key, final List<CacheSegment> segments)
+    {
+        final List<CacheSegment> previous = entries.remove(key);
+        if (previous != null)
+            sample_count -= count(previous);
+        final int count = count(segments);
+        if (count > max_samples)
+            return;
+        final Iterator<Map.Entry<String, List<CacheSegment>>> iter = entries.entrySet().iterator();
+        while (sample_count + count > max_samples  &&  iter.hasNext())
+        {
+            sample_count -= count(iter.next().getValue());
+            iter.remove();
+        }
+        entries.put(key, segments);
+        sample_count += count;
+    }
+
+    private static int count(final List<CacheSegment> segments)
+    {
+        int count = 0;
+        for (CacheSegment segment : segments)
+            count += segment.size();
+        return count;
+    }
+
+    /** @return Number of samples in memory */
+    public synchronized int getSampleCount()
+    {
+        return sample_count;
+    }
+
+    /** @return Number of <code>get</code> calls answered from memory */
+    public synchronized long getMemoryHits()
+    {
+        return memory_hits;
+    }
+
+    /** @return Number of <code>get</code> calls answered from disk */
+    public synchronized long getDiskHits()
+    {
+        return disk_hits;
+    }
+
+    /** @return Number of <code>get</code> calls without any cached data */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /** Remove all entries from memory, leaving files on disk */
+    public synchronized void clearMemory()
+    {
+        entries.clear();
+        sample_count = 0;
+    }
+
+    /** @param key Key
+     *  @return Cache file for the key
+     */
+    private File getFile(final String key) throws Exception
+    {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        final byte[] hash = digest.digest(key.getBytes("UTF-8"));
+        final StringBuilder name = new StringBuilder();
+        for (byte b : hash)
+            name.append(String.format("%02x", b & 0xFF));
+        name.append(SUFFIX);
+        return new File(directory, name.toString());
+    }
+
+    /** Caller must hold the lock for the key
+     *  @param key Key
+     *  @return Segments from disk or <code>null</code>
+     */
+    private List<CacheSegment> read(final String key)
+    {
+        if (directory == null)
+            return null;
+        try
+        {
+            final File file = getFile(key);
+            if (! file.exists())
+                return null;
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                if (in.readInt() != MAGIC  ||  !key.equals(in.readUTF()))
+                    return null;
+                List<CacheSegment> segments = Collections.emptyList();
+                try
+                {
+                    while (true)
+                        segments = combine(segments, CacheSegment.read(in));
+                }
+                catch (EOFException ex)
+                {
+                    // End of file, or segment that was only partially written
+                }
+                file.setLastModified(System.currentTimeMillis());
+                return Collections.unmodifiableList(segments);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (Exception ex)
+        {
+            getLogger().log(Level.WARNING, "Cannot read archive cache for " + key, ex);
+            return null;
+        }
+    }
+
+    /** Caller must hold the lock for the key
+     *  @param key Key
+     *  @param segment Segment to append to the file of the key
+     */
+    private void append(final String key, final CacheSegment segment)
+    {
+        if (directory == null)
+            return;
+        try
+        {
+            final File file = getFile(key);
+            final boolean exists = file.exists();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, exists)));
+            try
+            {
+                if (! exists)
+                {
+                    out.writeInt(MAGIC);
+                    out.writeUTF(key);
+                }
+                segment.write(out);
+            }
+            finally
+            {
+                out.close();
+            }
+            limitDiskUsage(file);
+        }
+        catch (Exception ex)
+        {
+            getLogger().log(Level.WARNING, "Cannot write archive cache for " + key, ex);
+        }
+    }
+
+    /** Delete least recently used cache files
+     *  @param keep File to keep
+     */
+    private void limitDiskUsage(final File keep)
+    {
+        final File[] files = directory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(final File dir, final String name)
+            {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null)
+            return;
+        long total = 0;
+        for (File file : files)
+            total += file.length();
+        if (total <= max_disk_bytes)
+            return;
+        Arrays.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(final File a, final File b)
+            {
+                final long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i=0; i<files.length  &&  total > max_disk_bytes; ++i)
+        {
+            if (files[i].equals(keep))
+                continue;
+            final long size = files[i].length();
+            if (files[i].delete())
+                total -= size;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.csstudio.archive.vtype.VTypeCodec;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+
+/** Samples for a time range that has been read from an archive.
+ *  <p>
+ *  Holds all samples within the time range.
+ *  Like the result of a raw archive request, the first sample
+ *  may be the last one before the start of the range.
+ *  <p>
+ *  Immutable.
+ */
+public class CacheSegment
+{
+    final private Timestamp start, end;
+    final private List<VType> samples;
+
+    /** Initialize
+     *  @param start Start of time range
+     *  @param end End of time range
+     *  @param samples Samples in time order. Samples after <code>end</code> are ignored.
+     */
+    public CacheSegment(final Timestamp start, final Timestamp end, final List<VType> samples)
+    {
+        this.start = start;
+        this.end = end;
+        int count = samples.size();
+        while (count > 0  &&  VTypeHelper.getTimestamp(samples.get(count-1)).compareTo(end) > 0)
+            --count;
+        this.samples = Collections.unmodifiableList(new ArrayList<VType>(samples.subList(0, count)));
+    }
+
+    /** @return Start of time range */
+    public Timestamp getStart()
+    {
+        return start;
+    }
+
+    /** @return End of time range */
+    public Timestamp getEnd()
+    {
+        return end;
+    }
+
+    /** @return All samples of the segment */
+    public List<VType> getSamples()
+    {
+        return samples;
+    }
+
+    /** @return Number of samples */
+    public int size()
+    {
+        return samples.size();
+    }
+
+    /** @param other Other segment
+     *  @return <code>true</code> if time ranges overlap or touch
+     */
+    public boolean touches(final CacheSegment other)
+    {
+        return start.compareTo(other.end) <= 0  &&  other.start.compareTo(end) <= 0;
+    }
+
+    /** Get samples for a time range
+     *  @param from Start time
+     *  @param to End time
+     *  @return Last sample before <code>from</code>, if known and needed,
+     *          followed by the samples from <code>from</code> to <code>to</code>
+     */
+    public List<VType> getSamples(final Timestamp from, final Timestamp to)
+    {
+        int first = 0;
+        while (first < samples.size()  &&
+               VTypeHelper.getTimestamp(samples.get(first)).compareTo(from) < 0)
+            ++first;
+        // Include the last sample before 'from' unless there is one at 'from'
+        if (first > 0  &&  (first >= samples.size()  ||
+            VTypeHelper.getTimestamp(samples.get(first)).compareTo(from) > 0))
+            --first;
+        int last = first;
+        while (last < samples.size()  &&
+               VTypeHelper.getTimestamp(samples.get(last)).compareTo(to) <= 0)
+            ++last;
+        return samples.subList(first, last);
+    }
+
+    /** Combine segments
+     *  @param other Segment that touches this one
+     *  @return Segment for the combined time range
+     */
+    public CacheSegment merge(final CacheSegment other)
+    {
+        final CacheSegment early, late;
+        if (other.start.compareTo(start) < 0)
+        {
+            early = other;
+            late = this;
+        }
+        else
+        {
+            early = this;
+            late = other;
+        }
+        final List<VType> combined = new ArrayList<VType>(early.size() + late.size());
+        // Samples of the early segment up to the start of the late segment
+        for (VType sample : early.samples)
+            if (VTypeHelper.getTimestamp(sample).compareTo(late.start) < 0)
+                combined.add(sample);
+        appendNewer(combined, late.samples);
+        // Early segment might extend beyond the late one
+        appendNewer(combined, early.samples);
+        final Timestamp new_end = early.end.compareTo(late.end) > 0 ? early.end : late.end;
+        return new CacheSegment(early.start, new_end, combined);
+    }
+
+    /** Append samples, skipping those that are not newer than the
+     *  last sample in the list
+     *  @param list List of samples in time order
+     *  @param samples Samples to append
+     */
+    static void appendNewer(final List<VType> list, final List<VType> samples)
+    {
+        for (VType sample : samples)
+        {
+            if (! list.isEmpty()  &&
+                VTypeHelper.getTimestamp(sample).compareTo(VTypeHelper.getTimestamp(list.get(list.size()-1))) <= 0)
+                continue;
+            list.add(sample);
+        }
+    }
+
+    /** @param out Where to write the segment
+     *  @throws IOException on error
+     */
+    public void write(final DataOutput out) throws IOException
+    {
+        out.writeLong(start.getSec());
+        out.writeInt(start.getNanoSec());
+        out.writeLong(end.getSec());
+        out.writeInt(end.getNanoSec());
+        out.writeInt(samples.size());
+        for (VType sample : samples)
+            VTypeCodec.encode(out, sample);
+    }
+
+    /** @param in Where to read
+     *  @return Segment
+     *  @throws IOException on error
+     */
+    public static CacheSegment read(final DataInput in) throws IOException
+    {
+        final Timestamp start = Timestamp.of(in.readLong(), in.readInt());
+        final Timestamp end = Timestamp.of(in.readLong(), in.readInt());
+        final int count = in.readInt();
+        final List<VType> samples = new ArrayList<VType>(count);
+        for (int i=0; i<count; ++i)
+            samples.add(VTypeCodec.decode(in));
+        return new CacheSegment(start, end, samples);
+    }
+
+    @SuppressWarnings("nls")
+    @Override
+    public String toString()
+    {
+        return "Segment " + start + " - " + end + ", " + samples.size() + " samples";
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.ArchiveInfo;
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.UnknownChannelException;
+import org.csstudio.archive.reader.ValueIterator;
+import org.epics.util.time.TimeDuration;
+import org.epics.util.time.Timestamp;
+
+/** {@link ArchiveReader} that caches the samples read from another reader.
+ *  <p>
+ *  Raw samples are cached per channel as time segments.
+ *  A request only reads the time ranges that are not already
+ *  covered by cached segments from the archive.
+ *  Those are read while the caller iterates over the samples.
+ *  <p>
+ *  Optimized samples are not cached.
+ *  Their bins depend on the exact time range and count of the request,
+ *  so a cache would hardly ever be hit when panning or zooming.
+ *  <p>
+ *  Samples of the most recent {@link #RECENT_SECONDS} are
+ *  not cached because the archive might still receive data for them.
+ *  <p>
+ *  Once the reader has been cancelled, samples that it reads
+ *  are no longer added to the cache, because the base reader
+ *  may have ended its iterators before reaching the end of the requested range.
+ */
+@SuppressWarnings("nls")
+public class CachingArchiveReader implements ArchiveReader
+{
+    /** Data newer than this is not cached */
+    final public static double RECENT_SECONDS = 5*60.0;
+
+    final private ArchiveReader base;
+    final private ArchiveCache cache;
+
+    /** Set when the reader has been cancelled */
+    private volatile boolean cancelled = false;
+
+    /** Initialize
+     *  @param base Reader for the actual archive access
+     *  @param cache Cache to use
+     */
+    public CachingArchiveReader(final ArchiveReader base, final ArchiveCache cache)
+    {
+        this.base = base;
+        this.cache = cache;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getServerName()
+    {
+        return base.getServerName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getURL()
+    {
+        return base.getURL();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDescription()
+    {
+        return base.getDescription();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getVersion()
+    {
+        return base.getVersion();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveInfo[] getArchiveInfos()
+    {
+        return base.getArchiveInfos();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByPattern(final int key, final String glob_pattern) throws Exception
+    {
+        return base.getNamesByPattern(key, glob_pattern);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByRegExp(final int key, final String reg_exp) throws Exception
+    {
+        return base.getNamesByRegExp(key, reg_exp);
+    }
+
+    /** @return End of the time range that may be cached */
+    private Timestamp getCacheHorizon()
+    {
+        return Timestamp.now().minus(TimeDuration.ofSeconds(RECENT_SECONDS));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getRawValues(final int key, final String name,
+            final Timestamp start, final Timestamp end) throws UnknownChannelException, Exception
+    {
+        final String cache_key = "raw|" + base.getURL() + "|" + key + "|" + name;
+        final Timestamp horizon = getCacheHorizon();
+
+        // Split request into cached time ranges and gaps
+        final List<CacheSegment> segments = cache.get(cache_key);
+        final List<CachingValueIterator.Part> parts = new ArrayList<CachingValueIterator.Part>();
+        Timestamp time = start;
+        for (CacheSegment segment : segments)
+        {
+            if (segment.getEnd().compareTo(time) < 0)
+                continue;
+            if (segment.getStart().compareTo(end) > 0)
+                break;
+            if (segment.getStart().compareTo(time) > 0)
+                parts.add(new CachingValueIterator.Part(time, segment.getStart(), null));
+            parts.add(new CachingValueIterator.Part(segment.getStart(), segment.getEnd(),
+                                                    segment.getSamples(start, end)));
+            time = segment.getEnd();
+        }
+        if (time.compareTo(end) < 0  ||  segments.isEmpty())
+            parts.add(new CachingValueIterator.Part(time, end, null));
+
+        // Gaps are read from the archive while iterating
+        return new CachingValueIterator(this, base, cache, cache_key, key, name, end, horizon, parts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getOptimizedValues(final int key, final String name,
+            final Timestamp start, final Timestamp end, final int count)
+            throws UnknownChannelException, Exception
+    {
+        return base.getOptimizedValues(key, name, start, end, count);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancel()
+    {
+        cancelled = true;
+        base.cancel();
+    }
+
+    /** @return <code>true</code> if the reader has been cancelled */
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        base.close();
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+
+/** {@link ValueIterator} for raw samples that are partly cached.
+ *  <p>
+ *  Returns the samples of cached time ranges from memory,
+ *  and reads the remaining time ranges from the archive
+ *  one at a time while iterating.
+ *  Samples read from the archive for time ranges before the cache horizon
+ *  are added to the cache once the time range has been read completely,
+ *  unless the reader has been cancelled.
+ */
+class CachingValueIterator implements ValueIterator
+{
+    /** Time range of a request, either cached or to be read from the archive */
+    static class Part
+    {
+        final Timestamp start, end;
+
+        /** Cached samples, or <code>null</code> to read from archive */
+        final List<VType> samples;
+
+        Part(final Timestamp start, final Timestamp end, final List<VType> samples)
+        {
+            this.start = start;
+            this.end = end;
+            this.samples = samples;
+        }
+    }
+
+    final private CachingArchiveReader reader;
+    final private ArchiveReader base;
+    final private ArchiveCache cache;
+    final private String cache_key;
+    final private int key;
+    final private String name;
+    final private Timestamp end, horizon;
+    final private Iterator<Part> parts;
+
+    /** Current part */
+    private Part part = null;
+
+    /** Samples of current cached part */
+    private Iterator<VType> cached = null;
+
+    /** Samples of current part read from archive */
+    private ValueIterator values = null;
+
+    /** Samples of current part to add to cache, or <code>null</code> */
+    private List<VType> collected = null;
+
+    /** Time stamp of last returned sample */
+    private Timestamp last = null;
+
+    /** Next sample to return */
+    private VType value;
+
+    /** Initialize
+     *  @param reader Caching reader that created this iterator
+     *  @param base Reader for the actual archive access
+     *  @param cache Cache
+     *  @param cache_key Key of the raw samples in the cache
+     *  @param key Archive key
+     *  @param name Channel name
+     *  @param end End of the request
+     *  @param horizon End of the time range that may be cached
+     *  @param parts Cached and uncached parts of the request, in time order
+     *  @throws Exception on error in archive access
+     */
+    CachingValueIterator(final CachingArchiveReader reader,
+            final ArchiveReader base, final ArchiveCache cache, final String cache_key,
+            final int key, final String name, final Timestamp end, final Timestamp horizon,
+            final List<Part> parts) throws Exception
+    {
+        this.reader = reader;
+        this.base = base;
+        this.cache = cache;
+        this.cache_key = cache_key;
+        this.key = key;
+        this.name = name;
+        this.end = end;
+        this.horizon = horizon;
+        this.parts = parts.iterator();
+        value = fetchNext();
+    }
+
+    /** @return Next sample that is newer than the last one, or <code>null</code>
+     *  @throws Exception on error in archive access
+     */
+    private VType fetchNext() throws Exception
+    {
+        while (true)
+        {
+            final VType sample;
+            if (cached != null  &&  cached.hasNext())
+                sample = cached.next();
+            else if (values != null  &&  values.hasNext())
+            {
+                sample = values.next();
+                if (collected != null)
+                    collected.add(sample);
+            }
+            else
+            {
+                endPart();
+                if (! parts.hasNext())
+                    return null;
+                startPart(parts.next());
+                continue;
+            }
+            final Timestamp time = VTypeHelper.getTimestamp(sample);
+            if (time.compareTo(end) > 0)
+                continue;
+            // Skip samples that overlap with the previous part
+            if (last != null  &&  time.compareTo(last) <= 0)
+                continue;
+            last = time;
+            return sample;
+        }
+    }
+
+    /** @param next Part to start
+     *  @throws Exception on error in archive access
+     */
+    private void startPart(final Part next) throws Exception
+    {
+        part = next;
+        if (part.samples != null)
+            cached = part.samples.iterator();
+        else
+        {
+            values = base.getRawValues(key, name, part.start, part.end);
+            if (part.start.compareTo(horizon) < 0)
+                collected = new ArrayList<VType>();
+        }
+    }
+
+    /** Close current part, adding samples read from archive to cache
+     *  unless the base reader might have ended early because it was cancelled
+     */
+    private void endPart()
+    {
+        if (values != null)
+        {
+            values.close();
+            values = null;
+        }
+        if (collected != null  &&  !reader.isCancelled())
+        {
+            final Timestamp cache_end = part.end.compareTo(horizon) < 0 ? part.end : horizon;
+            cache.add(cache_key, new CacheSegment(part.start, cache_end, collected));
+        }
+        collected = null;
+        cached = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return value != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (! hasNext())
+            throw new IllegalStateException();
+        final VType result = value;
+        value = fetchNext();
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        // Partially read samples are not cached
+        collected = null;
+        if (values != null)
+        {
+            values.close();
+            values = null;
+        }
+        cached = null;
+        value = null;
+        while (parts.hasNext())
+            parts.next();
+    }
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.ArchiveInfo;
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.cache.ArchiveCache;
+import org.csstudio.archive.reader.cache.CachingArchiveReader;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link CachingArchiveReader} */
+@SuppressWarnings("nls")
+public class CachingArchiveReaderUnitTest
+{
+    /** Archive with one sample per second, logs the requested time ranges */
+    private static class DemoArchive implements ArchiveReader
+    {
+        final List<String> requests = new ArrayList<String>();
+
+        /** Set by cancel(), ends all iterators */
+        volatile boolean cancelled = false;
+
+        @Override
+        public String getServerName()
+        {
+            return "Demo";
+        }
+
+        @Override
+        public String getURL()
+        {
+            return "demo://";
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "Demo";
+        }
+
+        @Override
+        public int getVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public ArchiveInfo[] getArchiveInfos()
+        {
+            return new ArchiveInfo[0];
+        }
+
+        @Override
+        public String[] getNamesByPattern(int key, String glob_pattern) throws Exception
+        {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getNamesByRegExp(int key, String reg_exp) throws Exception
+        {
+            return new String[0];
+        }
+
+        @Override
+        public ValueIterator getRawValues(final int key, final String name,
+                final Timestamp start, final Timestamp end) throws Exception
+        {
+            requests.add(start.getSec() + "-" + end.getSec());
+            return getSamples(start, end);
+        }
+
+        private ValueIterator getSamples(final Timestamp start, final Timestamp end)
+        {
+            final List<VType> samples = new ArrayList<VType>();
+            for (long sec = start.getSec(); sec <= end.getSec(); ++sec)
+                samples.add(new ArchiveVNumber(Timestamp.of(sec, 0), AlarmSeverity.NONE, "", null, sec));
+            final ValueIterator values = new DemoDataIterator(samples.toArray(new VType[samples.size()]));
+            return new ValueIterator()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return !cancelled  &&  values.hasNext();
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    return values.next();
+                }
+
+                @Override
+                public void close()
+                {
+                    values.close();
+                }
+            };
+        }
+
+        @Override
+        public ValueIterator getOptimizedValues(final int key, final String name,
+                final Timestamp start, final Timestamp end, final int count) throws Exception
+        {
+            requests.add("optimized");
+            return getSamples(start, end);
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    private List<Long> read(final ArchiveReader reader, final long start, final long end) throws Exception
+    {
+        final List<Long> seconds = new ArrayList<Long>();
+        final ValueIterator values = reader.getRawValues(1, "test", Timestamp.of(start, 0), Timestamp.of(end, 0));
+        while (values.hasNext())
+            seconds.add(VTypeHelper.getTimestamp(values.next()).getSec());
+        values.close();
+        return seconds;
+    }
+
+    private List<Long> range(final long start, final long end)
+    {
+        final List<Long> seconds = new ArrayList<Long>();
+        for (long sec = start; sec <= end; ++sec)
+            seconds.add(sec);
+        return seconds;
+    }
+
+    @Test
+    public void testPartialReuse() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(10000, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+
+        assertThat(read(reader, 100, 200), equalTo(range(100, 200)));
+        assertThat(archive.requests.toString(), equalTo("[100-200]"));
+
+        // Fully cached
+        assertThat(read(reader, 120, 180), equalTo(range(120, 180)));
+        assertThat(archive.requests.size(), equalTo(1));
+
+        // Only fetch what's not cached
+        assertThat(read(reader, 150, 250), equalTo(range(150, 250)));
+        assertThat(archive.requests.toString(), equalTo("[100-200, 200-250]"));
+
+        assertThat(read(reader, 300, 400), equalTo(range(300, 400)));
+        assertThat(read(reader, 50, 450), equalTo(range(50, 450)));
+        assertThat(archive.requests.toString(), equalTo("[100-200, 200-250, 300-400, 50-100, 250-300, 400-450]"));
+        assertThat(cache.getSampleCount(), equalTo(401));
+    }
+
+    @Test
+    public void testIncompleteRead() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(10000, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+
+        // Samples are read from the archive while iterating
+        final ValueIterator values = reader.getRawValues(1, "test", Timestamp.of(100, 0), Timestamp.of(200, 0));
+        assertThat(VTypeHelper.getTimestamp(values.next()).getSec(), equalTo(100L));
+        values.close();
+        // Time range that was not read completely is not cached
+        assertThat(cache.getSampleCount(), equalTo(0));
+        assertThat(read(reader, 100, 200), equalTo(range(100, 200)));
+        assertThat(archive.requests.toString(), equalTo("[100-200, 100-200]"));
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(10000, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+
+        // Cancel while reading a part: Iterator ends early
+        final ValueIterator values = reader.getRawValues(1, "test", Timestamp.of(100, 0), Timestamp.of(200, 0));
+        assertThat(VTypeHelper.getTimestamp(values.next()).getSec(), equalTo(100L));
+        reader.cancel();
+        while (values.hasNext())
+            values.next();
+        values.close();
+        // Truncated part is not cached, range is fetched again
+        assertThat(cache.getSampleCount(), equalTo(0));
+        archive.cancelled = false;
+        assertThat(read(new CachingArchiveReader(archive, cache), 100, 200), equalTo(range(100, 200)));
+        assertThat(archive.requests.toString(), equalTo("[100-200, 100-200]"));
+        assertThat(cache.getSampleCount(), equalTo(101));
+    }
+
+    @Test
+    public void testLRU() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(150, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+        read(reader, 100, 199);
+        assertThat(cache.getSampleCount(), equalTo(100));
+        // Another channel pushes the first one out of memory
+        final ValueIterator values = reader.getRawValues(1, "other", Timestamp.of(200, 0), Timestamp.of(299, 0));
+        while (values.hasNext())
+            values.next();
+        values.close();
+        assertThat(cache.getSampleCount(), equalTo(100));
+        assertThat(archive.requests.size(), equalTo(2));
+        // Raw data was removed from memory, needs to be read again
+        read(reader, 100, 199);
+        assertThat(archive.requests.get(archive.requests.size()-1), equalTo("100-199"));
+    }
+
+    @Test
+    public void testOversizedEntry() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(150, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+        read(reader, 100, 199);
+        assertThat(cache.getSampleCount(), equalTo(100));
+        // Entry that alone exceeds the limit is not kept in memory
+        read(reader, 200, 399);
+        assertThat(cache.getSampleCount(), equalTo(0));
+    }
+
+    @Test
+    public void testOptimizedNotCached() throws Exception
+    {
+        final DemoArchive archive = new DemoArchive();
+        final ArchiveCache cache = new ArchiveCache(10000, null, 0);
+        final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+        reader.getOptimizedValues(1, "test", Timestamp.of(100, 0), Timestamp.of(199, 0), 10).close();
+        reader.getOptimizedValues(1, "test", Timestamp.of(100, 0), Timestamp.of(199, 0), 10).close();
+        assertThat(cache.getSampleCount(), equalTo(0));
+        assertThat(archive.requests.toString(), equalTo("[optimized, optimized]"));
+    }
+
+    @Test
+    public void testDisk() throws Exception
+    {
+        final File directory = new File(System.getProperty("java.io.tmpdir"), "archive_cache_test");
+        final ArchiveCache cache = new ArchiveCache(10000, directory, 10);
+        try
+        {
+            final DemoArchive archive = new DemoArchive();
+            final ArchiveReader reader = new CachingArchiveReader(archive, cache);
+            assertThat(read(reader, 100, 200), equalTo(range(100, 200)));
+            cache.clearMemory();
+            // Read from disk, including a 'restart' with new cache
+            assertThat(read(new CachingArchiveReader(archive, new ArchiveCache(10000, directory, 10)), 100, 200),
+                       equalTo(range(100, 200)));
+            assertThat(read(reader, 100, 200), equalTo(range(100, 200)));
+            assertThat(cache.getDiskHits(), equalTo(1L));
+            assertThat(archive.requests.size(), equalTo(1));
+
+            // Segments are appended to the file, then combined when read
+            final long size = directory.listFiles()[0].length();
+            assertThat(read(reader, 300, 400), equalTo(range(300, 400)));
+            assertThat(directory.listFiles()[0].length() > size, equalTo(true));
+            assertThat(read(new CachingArchiveReader(archive, new ArchiveCache(10000, directory, 10)), 100, 400),
+                       equalTo(range(100, 400)));
+            assertThat(archive.requests.toString(), equalTo("[100-200, 300-400, 200-300]"));
+        }
+        finally
+        {
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.csstudio.archive.reader.HeapMergingValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.DefaultVTypeFormat;
+import org.csstudio.archive.vtype.VTypeFormat;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link HeapMergingValueIterator} */
+@SuppressWarnings("nls")
+public class HeapMergingValueIteratorUnitTest
+{
+    /** Merge two DemoDataIterators, same result as {@link MergingValueIteratorUnitTest} */
+    @Test
+    public void testHeapMergingValueIterator() throws Exception
+    {
+        final DemoDataIterator iter1 = DemoDataIterator.forStrings("A");
+        final DemoDataIterator iter2 = DemoDataIterator.forStrings("B");
+        final HeapMergingValueIterator merge = new HeapMergingValueIterator(iter1, iter2);
+        int count = 0;
+        final StringBuilder result = new StringBuilder();
+        final VTypeFormat format = new DefaultVTypeFormat();
+        while (merge.hasNext())
+        {
+            final VType value = merge.next();
+            // Equal time stamps: 'A' before 'B'
+            assertThat(merge.getSourceIndex(), equalTo(count % 2));
+            if (result.length() > 0)
+                result.append(", ");
+            format.format(value, result);
+            ++count;
+        }
+        assertThat(count, equalTo(20));
+        assertThat(result.toString(), equalTo("A 1, B 1, A 2, B 2, A 3, B 3, A 4, B 4, A 5, B 5, A 6, B 6, A 7, B 7, A 8, B 8, A 9, B 9, A 10, B 10"));
+        assertThat(iter1.isOpen(), equalTo(true));
+        assertThat(iter2.isOpen(), equalTo(true));
+        merge.close();
+        assertThat(iter1.isOpen(), equalTo(false));
+        assertThat(iter2.isOpen(), equalTo(false));
+    }
+
+    /** Merge iterators with staggered time ranges, one of them empty */
+    @Test
+    public void testStaggered() throws Exception
+    {
+        final ValueIterator merge = new HeapMergingValueIterator(
+                DemoDataIterator.forStrings("A", 20),
+                new DemoDataIterator(new VType[0]),
+                DemoDataIterator.forStrings("B", 5),
+                DemoDataIterator.forStrings("C", 0));
+        int count = 0;
+        Timestamp last = null;
+        while (merge.hasNext())
+        {
+            final Timestamp time = VTypeHelper.getTimestamp(merge.next());
+            if (last != null)
+                assertThat(time.compareTo(last) >= 0, equalTo(true));
+            last = time;
+            ++count;
+        }
+        assertThat(count, equalTo(30));
+        assertThat(last, equalTo(Timestamp.of(30, 0)));
+        merge.close();
+    }
+}
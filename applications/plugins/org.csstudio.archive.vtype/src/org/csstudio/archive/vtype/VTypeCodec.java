@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.vtype;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ListNumber;
+import org.epics.util.text.NumberFormats;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.epics.vtype.ValueFactory;
+
+/** Binary encoding of samples, used to persist them in local files.
+ *  <p>
+ *  Preserves what the archive stores:
+ *  Time stamp, severity, status, the value as double, long, enum, text,
+ *  double array or min/max/average statistics,
+ *  numeric display info resp. enum labels.
+ */
+public class VTypeCodec
+{
+    final private static Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    final private static AlarmSeverity[] severities = AlarmSeverity.values();
+
+    final private static byte DOUBLE = 1;
+    final private static byte LONG = 2;
+    final private static byte ENUM = 3;
+    final private static byte STRING = 4;
+    final private static byte ARRAY = 5;
+    final private static byte STATISTICS = 6;
+
+    /** @param out Where to write
+     *  @param sample Sample to encode
+     *  @throws IOException on error
+     */
+    public static void encode(final DataOutput out, final VType sample) throws IOException
+    {
+        final Timestamp time = VTypeHelper.getTimestamp(sample);
+        if (sample instanceof VStatistics)
+        {
+            writeHeader(out, STATISTICS, time, sample);
+            writeDisplay(out, (Display) sample);
+            final VStatistics stats = (VStatistics) sample;
+            out.writeDouble(stats.getAverage());
+            out.writeDouble(stats.getMin());
+            out.writeDouble(stats.getMax());
+            out.writeDouble(stats.getStdDev());
+            out.writeInt(stats.getNSamples());
+        }
+        else if (sample instanceof VNumber)
+        {
+            final Number number = ((VNumber) sample).getValue();
+            if (number instanceof Double  ||  number instanceof Float)
+            {
+                writeHeader(out, DOUBLE, time, sample);
+                writeDisplay(out, (Display) sample);
+                out.writeDouble(number.doubleValue());
+            }
+            else
+            {
+                writeHeader(out, LONG, time, sample);
+                writeDisplay(out, (Display) sample);
+                out.writeLong(number.longValue());
+            }
+        }
+        else if (sample instanceof VNumberArray)
+        {
+            writeHeader(out, ARRAY, time, sample);
+            writeDisplay(out, (Display) sample);
+            final ListNumber data = ((VNumberArray) sample).getData();
+            final int size = data.size();
+            out.writeInt(size);
+            for (int i=0; i<size; ++i)
+                out.writeDouble(data.getDouble(i));
+        }
+        else if (sample instanceof VEnum)
+        {
+            writeHeader(out, ENUM, time, sample);
+            final VEnum value = (VEnum) sample;
+            final List<String> labels = value.getLabels();
+            out.writeInt(labels.size());
+            for (String label : labels)
+                writeString(out, label);
+            out.writeInt(value.getIndex());
+        }
+        else
+        {
+            writeHeader(out, STRING, time, sample);
+            if (sample instanceof VString)
+                writeString(out, ((VString) sample).getValue());
+            else
+                writeString(out, sample.toString());
+        }
+    }
+
+    /** @param in Where to read
+     *  @return Decoded sample
+     *  @throws IOException on error
+     */
+    @SuppressWarnings("nls")
+    public static VType decode(final DataInput in) throws IOException
+    {
+        final byte type = in.readByte();
+        final Timestamp time = Timestamp.of(in.readLong(), in.readInt());
+        final AlarmSeverity severity = severities[in.readByte()];
+        final String status = readString(in);
+        switch (type)
+        {
+        case DOUBLE:
+        {
+            final Display display = readDisplay(in);
+            return new ArchiveVNumber(time, severity, status, display, Double.valueOf(in.readDouble()));
+        }
+        case LONG:
+        {
+            final Display display = readDisplay(in);
+            return new ArchiveVNumber(time, severity, status, display, Long.valueOf(in.readLong()));
+        }
+        case ARRAY:
+        {
+            final Display display = readDisplay(in);
+            final double[] data = new double[in.readInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = in.readDouble();
+            return new ArchiveVNumberArray(time, severity, status, display, data);
+        }
+        case STATISTICS:
+        {
+            final Display display = readDisplay(in);
+            final double average = in.readDouble();
+            final double min = in.readDouble();
+            final double max = in.readDouble();
+            final double stddev = in.readDouble();
+            return new ArchiveVStatistics(time, severity, status, display,
+                    average, min, max, stddev, in.readInt());
+        }
+        case ENUM:
+        {
+            final int count = in.readInt();
+            final List<String> labels = new ArrayList<String>(count);
+            for (int i=0; i<count; ++i)
+                labels.add(readString(in));
+            return new ArchiveVEnum(time, severity, status, labels, in.readInt());
+        }
+        case STRING:
+            return new ArchiveVString(time, severity, status, readString(in));
+        default:
+            throw new IOException("Unknown sample type " + type);
+        }
+    }
+
+    private static void writeHeader(final DataOutput out, final byte type,
+            final Timestamp time, final VType sample) throws IOException
+    {
+        out.writeByte(type);
+        out.writeLong(time.getSec());
+        out.writeInt(time.getNanoSec());
+        out.writeByte(VTypeHelper.getSeverity(sample).ordinal());
+        writeString(out, VTypeHelper.getMessage(sample));
+    }
+
+    private static void writeDisplay(final DataOutput out, final Display display) throws IOException
+    {
+        writeDouble(out, display.getLowerDisplayLimit());
+        writeDouble(out, display.getUpperDisplayLimit());
+        writeDouble(out, display.getLowerWarningLimit());
+        writeDouble(out, display.getUpperWarningLimit());
+        writeDouble(out, display.getLowerAlarmLimit());
+        writeDouble(out, display.getUpperAlarmLimit());
+        writeDouble(out, display.getLowerCtrlLimit());
+        writeDouble(out, display.getUpperCtrlLimit());
+        writeString(out, display.getUnits());
+        final NumberFormat format = display.getFormat();
+        out.writeInt(format == null ? -1 : format.getMinimumFractionDigits());
+    }
+
+    private static Display readDisplay(final DataInput in) throws IOException
+    {
+        final Double lower_disp = readDouble(in);
+        final Double upper_disp = readDouble(in);
+        final Double lower_warn = readDouble(in);
+        final Double upper_warn = readDouble(in);
+        final Double lower_alarm = readDouble(in);
+        final Double upper_alarm = readDouble(in);
+        final Double lower_ctrl = readDouble(in);
+        final Double upper_ctrl = readDouble(in);
+        final String units = readString(in);
+        final int precision = in.readInt();
+        final NumberFormat format = precision < 0 ? null : NumberFormats.format(precision);
+        return ValueFactory.newDisplay(lower_disp, lower_alarm, lower_warn, units, format,
+                upper_warn, upper_alarm, upper_disp, lower_ctrl, upper_ctrl);
+    }
+
+    /** Write Double that may be <code>null</code> */
+    private static void writeDouble(final DataOutput out, final Double value) throws IOException
+    {
+        out.writeDouble(value == null ? Double.NaN : value.doubleValue());
+    }
+
+    private static Double readDouble(final DataInput in) throws IOException
+    {
+        return Double.valueOf(in.readDouble());
+    }
+
+    /** Write text that may be <code>null</code> or exceed the 64k limit of writeUTF */
+    private static void writeString(final DataOutput out, final String text) throws IOException
+    {
+        if (text == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = text.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInput in) throws IOException
+    {
+        final int length = in.readInt();
+        if (length < 0)
+            return null;
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.vtype;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+import org.epics.util.text.NumberFormats;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+import org.epics.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link VTypeCodec} */
+@SuppressWarnings("nls")
+public class VTypeCodecTest
+{
+    private VType roundtrip(final VType value) throws Exception
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buf);
+        VTypeCodec.encode(out, value);
+        out.close();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.toByteArray()));
+        final VType result = VTypeCodec.decode(in);
+        assertThat(in.available(), equalTo(0));
+        return result;
+    }
+
+    @Test
+    public void testCodec() throws Exception
+    {
+        final Timestamp now = Timestamp.now();
+        final Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+
+        VType value = new ArchiveVNumber(now, AlarmSeverity.MINOR, "Troubling", display, 3.14);
+        assertThat(roundtrip(value), equalTo(value));
+
+        value = new ArchiveVNumber(now, AlarmSeverity.NONE, "OK", display, 42L);
+        assertThat(roundtrip(value), equalTo(value));
+
+        value = new ArchiveVEnum(now, AlarmSeverity.MAJOR, "Bad", Arrays.asList("zero", "one"), 1);
+        assertThat(roundtrip(value), equalTo(value));
+
+        value = new ArchiveVString(now, AlarmSeverity.INVALID, "Disconnected", "Text");
+        assertThat(roundtrip(value), equalTo(value));
+
+        value = new ArchiveVNumberArray(now, AlarmSeverity.NONE, "OK", display, 1.0, 2.0, 3.0);
+        assertThat(roundtrip(value), equalTo(value));
+
+        value = new ArchiveVStatistics(now, AlarmSeverity.NONE, "", display, 2.0, 1.0, 3.0, 0.5, 7);
+        final VStatistics stats = (VStatistics) roundtrip(value);
+        assertThat(stats.getTimestamp(), equalTo(now));
+        assertThat(stats.getAverage(), equalTo(2.0));
+        assertThat(stats.getMin(), equalTo(1.0));
+        assertThat(stats.getMax(), equalTo(3.0));
+        assertThat(stats.getStdDev(), equalTo(0.5));
+        assertThat(stats.getNSamples(), equalTo(7));
+        assertThat(stats.getUnits(), equalTo("a.u."));
+    }
+}
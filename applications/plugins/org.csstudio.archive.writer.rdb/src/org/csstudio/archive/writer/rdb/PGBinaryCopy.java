@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/** Streaming PostgreSQL COPY of samples in the binary COPY format.
+ *  <p>
+ *  Rows are encoded directly into the binary COPY stream
+ *  instead of binding <code>PreparedStatement</code> parameters
+ *  or formatting CSV text, and then sent in one
+ *  <code>COPY .. FROM STDIN WITH (FORMAT binary)</code> per flush.
+ *  <p>
+ *  The binary format requires that each value exactly matches
+ *  the column type, so the integer column sizes are read from
+ *  the database meta data.
+ */
+@SuppressWarnings("nls")
+public class PGBinaryCopy
+{
+    final private static Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Signature at start of binary COPY data */
+    final private static byte[] SIGNATURE = new byte[]
+    {  'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    /** Milliseconds from 1970-01-01 to the PostgreSQL epoch 2000-01-01 */
+    final private static long PG_EPOCH_MILLI = 946684800000L;
+
+    /** Size in bytes of the integer columns */
+    final private int channel_id_size, nanosecs_size, severity_id_size, status_id_size, num_val_size;
+
+    /** Write datatype and array_val columns? */
+    final private boolean use_array_blob;
+
+    /** Number of columns per row */
+    final private short column_count;
+
+    /** COPY command */
+    final private String copy_command;
+
+    /** Time zone used for 'TIMESTAMP' columns, i.e. without time zone */
+    final private TimeZone timezone = TimeZone.getDefault();
+
+    /** Encoded rows */
+    final private ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    final private DataOutputStream out = new DataOutputStream(buffer);
+
+    /** Number of encoded rows */
+    private int rows = 0;
+
+    /** Initialize for the sample table of a database
+     *  @param connection PostgreSQL connection
+     *  @param schema Schema prefix (May be ""), not including "."
+     *  @param table Name of sample table
+     *  @param use_array_blob Write datatype and array_val columns?
+     *  @throws Exception on error
+     */
+    public PGBinaryCopy(final Connection connection, final String schema, final String table,
+                        final boolean use_array_blob) throws Exception
+    {
+        this(getColumnSizes(connection, schema, table), schema, table, use_array_blob);
+    }
+
+    /** Initialize
+     *  @param column_sizes Size in bytes of the integer columns,
+     *                      indexed by column name
+     *  @param schema Schema prefix (May be ""), not including "."
+     *  @param table Name of sample table
+     *  @param use_array_blob Write datatype and array_val columns?
+     *  @throws Exception on error
+     */
+    public PGBinaryCopy(final Map<String, Integer> column_sizes, final String schema, final String table,
+                        final boolean use_array_blob) throws Exception
+    {
+        channel_id_size = getSize(column_sizes, "channel_id");
+        nanosecs_size = getSize(column_sizes, "nanosecs");
+        severity_id_size = getSize(column_sizes, "severity_id");
+        status_id_size = getSize(column_sizes, "status_id");
+        num_val_size = getSize(column_sizes, "num_val");
+        this.use_array_blob = use_array_blob;
+        final String prefix = (schema == null  ||  schema.isEmpty()) ? "" : schema + ".";
+        if (use_array_blob)
+        {
+            column_count = 10;
+            copy_command = "COPY " + prefix + table +
+                " (channel_id, smpl_time, nanosecs, severity_id, status_id, float_val, num_val, str_val, datatype, array_val)" +
+                " FROM STDIN WITH (FORMAT binary)";
+        }
+        else
+        {
+            column_count = 8;
+            copy_command = "COPY " + prefix + table +
+                " (channel_id, smpl_time, nanosecs, severity_id, status_id, float_val, num_val, str_val)" +
+                " FROM STDIN WITH (FORMAT binary)";
+        }
+    }
+
+    /** @param connection Connection
+     *  @param schema Schema, may be empty
+     *  @param table Table
+     *  @return Size in bytes of the integer columns
+     *  @throws Exception on error
+     */
+    private static Map<String, Integer> getColumnSizes(final Connection connection, final String schema,
+                                                       final String table) throws Exception
+    {
+        final Map<String, Integer> sizes = new HashMap<String, Integer>();
+        final ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(),
+                (schema == null  ||  schema.isEmpty()) ? null : schema, table, null);
+        try
+        {
+            while (columns.next())
+            {
+                final String type = columns.getString("TYPE_NAME").toLowerCase();
+                final int size;
+                if (type.equals("int8")  ||  type.equals("bigint")  ||  type.equals("bigserial"))
+                    size = 8;
+                else if (type.equals("int4")  ||  type.equals("integer")  ||  type.equals("serial"))
+                    size = 4;
+                else if (type.equals("int2")  ||  type.equals("smallint"))
+                    size = 2;
+                else
+                    continue;
+                sizes.put(columns.getString("COLUMN_NAME").toLowerCase(), size);
+            }
+        }
+        finally
+        {
+            columns.close();
+        }
+        return sizes;
+    }
+
+    private static int getSize(final Map<String, Integer> column_sizes, final String column) throws Exception
+    {
+        final Integer size = column_sizes.get(column);
+        if (size == null)
+            throw new Exception("Cannot determine integer type of column '" + column + "' for binary COPY");
+        return size;
+    }
+
+    /** @return Command used to COPY the rows */
+    public String getCommand()
+    {
+        return copy_command;
+    }
+
+    /** @return Number of rows that have not been flushed */
+    public int size()
+    {
+        return rows;
+    }
+
+    /** Add 'double' sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity Severity ID
+     *  @param status Status ID
+     *  @param value Value
+     *  @param array_val Array elements as BLOB, or <code>null</code>
+     *  @throws IOException on error
+     */
+    public void addDouble(final int channel_id, final Timestamp stamp, final int severity, final int status,
+                          final double value, final byte[] array_val) throws IOException
+    {
+        startRow(channel_id, stamp, severity, status);
+        out.writeInt(8);
+        out.writeDouble(value);
+        writeNull();            // num_val
+        writeNull();            // str_val
+        if (use_array_blob)
+        {
+            if (array_val == null)
+            {
+                writeText(" ");
+                writeNull();
+            }
+            else
+            {
+                writeText("d");
+                out.writeInt(array_val.length);
+                out.write(array_val);
+            }
+        }
+        ++rows;
+    }
+
+    /** Add 'long' sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity Severity ID
+     *  @param status Status ID
+     *  @param value Value
+     *  @throws IOException on error
+     */
+    public void addLong(final int channel_id, final Timestamp stamp, final int severity, final int status,
+                        final long value) throws IOException
+    {
+        startRow(channel_id, stamp, severity, status);
+        writeNull();            // float_val
+        writeInteger(num_val_size, value);
+        writeNull();            // str_val
+        if (use_array_blob)
+        {
+            writeText(" ");
+            writeNull();
+        }
+        ++rows;
+    }
+
+    /** Add text sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity Severity ID
+     *  @param status Status ID
+     *  @param value Value
+     *  @throws IOException on error
+     */
+    public void addText(final int channel_id, final Timestamp stamp, final int severity, final int status,
+                        final String value) throws IOException
+    {
+        startRow(channel_id, stamp, severity, status);
+        writeNull();            // float_val
+        writeNull();            // num_val
+        writeText(value);
+        if (use_array_blob)
+        {
+            writeText(" ");
+            writeNull();
+        }
+        ++rows;
+    }
+
+    /** Encode the columns common to all rows */
+    private void startRow(final int channel_id, final Timestamp stamp, final int severity, final int status) throws IOException
+    {
+        if (rows == 0)
+        {   // Header: Signature, flags, header extension length
+            out.write(SIGNATURE);
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+        out.writeShort(column_count);
+        writeInteger(channel_id_size, channel_id);
+        // 'TIMESTAMP' holds the local wall clock time,
+        // microseconds since the PostgreSQL epoch
+        final long millis = stamp.getTime();
+        final long local_millis = millis + timezone.getOffset(millis) - PG_EPOCH_MILLI;
+        long local_secs = local_millis / 1000;
+        if (local_millis % 1000 < 0)
+            --local_secs;
+        out.writeInt(8);
+        out.writeLong(local_secs * 1000000L + stamp.getNanos() / 1000);
+        writeInteger(nanosecs_size, stamp.getNanos());
+        writeInteger(severity_id_size, severity);
+        writeInteger(status_id_size, status);
+    }
+
+    private void writeInteger(final int size, final long value) throws IOException
+    {
+        out.writeInt(size);
+        if (size == 8)
+            out.writeLong(value);
+        else if (size == 4)
+            out.writeInt((int) value);
+        else
+            out.writeShort((short) value);
+    }
+
+    private void writeText(final String text) throws IOException
+    {
+        final byte[] bytes = text.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeNull() throws IOException
+    {
+        out.writeInt(-1);
+    }
+
+    /** @return Binary COPY data for the rows added so far, including trailer */
+    public byte[] getData() throws IOException
+    {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream(buffer.size() + 2);
+        buffer.writeTo(data);
+        data.write(0xFF);
+        data.write(0xFF);
+        return data.toByteArray();
+    }
+
+    /** Send rows to the database
+     *  <p>Caller needs to commit
+     *  @param connection PostgreSQL connection
+     *  @return Number of rows copied
+     *  @throws Exception on error
+     */
+    public long flush(final Connection connection) throws Exception
+    {
+        if (rows <= 0)
+            return 0;
+        try
+        {
+            final CopyManager copy = ((PGConnection) connection).getCopyAPI();
+            return copy.copyIn(copy_command, new ByteArrayInputStream(getData()));
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    /** Discard rows that have not been flushed */
+    public void clear()
+    {
+        buffer.reset();
+        rows = 0;
+    }
+}
@@ -72,6 +72,9 @@ public class RDBArchiveWriter implements ArchiveWriter
     /** Status (ID, name) cache */
     private StatusCache stati;
 
+    /** Binary COPY of samples for PostgreSQL, or <code>null</code> to use INSERT */
+    private PGBinaryCopy binary_copy = null;
+
     /** Prepared statement for inserting 'double' samples */
     private PreparedStatement insert_double_sample = null;
 
@@ -109,7 +112,7 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         this(RDBArchivePreferences.getURL(), RDBArchivePreferences.getUser(),
                 RDBArchivePreferences.getPassword(), RDBArchivePreferences.getSchema(),
-                RDBArchivePreferences.useArrayBlob());
+                RDBArchivePreferences.useArrayBlob(), Preferences.isUsePostgresBinaryCopy());
     }
 
     /** Initialize
@@ -122,6 +125,21 @@ public class RDBArchiveWriter implements ArchiveWriter
      */
     public RDBArchiveWriter(final String url, final String user, final String password,
             final String schema, boolean use_array_blob) throws Exception
+    {
+        this(url, user, password, schema, use_array_blob, Preferences.isUsePostgresBinaryCopy());
+    }
+
+    /** Initialize
+     *  @param url RDB URL
+     *  @param user .. user name
+     *  @param password .. password
+     *  @param schema Schema/table prefix, not including ".". May be empty
+     *  @param use_array_blob Use BLOB for array elements?
+     *  @param use_binary_copy Use binary COPY instead of INSERT for PostgreSQL?
+     *  @throws Exception on error, for example RDB connection error
+     */
+    public RDBArchiveWriter(final String url, final String user, final String password,
+            final String schema, boolean use_array_blob, final boolean use_binary_copy) throws Exception
     {
         this.use_array_blob = use_array_blob;
         rdb = RDBUtil.connect(url, user, password, false);
@@ -136,6 +154,16 @@ public class RDBArchiveWriter implements ArchiveWriter
         // auto-commit is off, then enables it briefly as needed,
         // and otherwise commits/rolls back.
         rdb.getConnection().setAutoCommit(false);
+
+        if (use_binary_copy)
+        {
+            if (rdb.getDialect() == Dialect.PostgreSQL)
+                binary_copy = new PGBinaryCopy(rdb.getConnection(), schema,
+                                               Preferences.getWriteSampleTable(), use_array_blob);
+            else
+                Activator.getLogger().log(Level.WARNING,
+                    "Binary COPY is only supported for PostgreSQL, using INSERT");
+        }
     }
 
     @Override
@@ -261,6 +289,12 @@ public class RDBArchiveWriter implements ArchiveWriter
         if (rdb.getConnection().getAutoCommit() == true)
         	rdb.getConnection().setAutoCommit(false);
 
+        if (binary_copy != null)
+        {
+            copySample(channel, stamp, severity, status, sample);
+            return;
+        }
+
         // Start with most likely cases and highest precision: Double, ...
         // Then going down in precision to integers, finally strings...
         if (sample instanceof VDouble)
@@ -286,6 +320,59 @@ public class RDBArchiveWriter implements ArchiveWriter
             batchTextSamples(channel, stamp, severity, status, sample.toString());
     }
 
+    /** Helper for batchSample: Encode sample for binary COPY. */
+    private void copySample(final RDBWriteChannel channel,
+            final Timestamp stamp, int severity,
+            Status status, final VType sample) throws Exception
+    {
+        if (sample instanceof VNumber  &&  !(((VNumber)sample).getValue() instanceof Double))
+        {
+            binary_copy.addLong(channel.getId(), stamp, severity, status.getId(),
+                                ((VNumber)sample).getValue().longValue());
+            return;
+        }
+        if (sample instanceof VEnum)
+        {
+            binary_copy.addLong(channel.getId(), stamp, severity, status.getId(), ((VEnum)sample).getIndex());
+            return;
+        }
+        if (! (sample instanceof VNumber  ||  sample instanceof VNumberArray))
+        {
+            final String txt = sample instanceof VString
+                ? ((VString)sample).getValue() : sample.toString();
+            binary_copy.addText(channel.getId(), stamp, severity, status.getId(), limitText(channel, txt));
+            return;
+        }
+
+        final double dbl;
+        final ListNumber additional;
+        if (sample instanceof VNumber)
+        {
+            dbl = ((VNumber)sample).getValue().doubleValue();
+            additional = null;
+        }
+        else
+        {
+            additional = ((VNumberArray)sample).getData();
+            dbl = additional.getDouble(0);
+        }
+        if (Double.isNaN(dbl))
+        {
+            severity = severities.findOrCreate(AlarmSeverity.UNDEFINED);
+            status = stati.findOrCreate(NOT_A_NUMBER_STATUS);
+        }
+        final double value = Double.isNaN(dbl) ? 0.0 : dbl;
+        if (use_array_blob)
+            binary_copy.addDouble(channel.getId(), stamp, severity, status.getId(), value,
+                                  additional == null ? null : encodeArrayBlob(additional));
+        else
+        {
+            binary_copy.addDouble(channel.getId(), stamp, severity, status.getId(), value, null);
+            if (additional != null)
+                batchArrayElements(channel, stamp, additional);
+        }
+    }
+
     /** Helper for batchSample: Add double sample(s) to batch. */
     private void batchDoubleSamples(final RDBWriteChannel channel,
             final Timestamp stamp, final int severity,
@@ -339,16 +426,7 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
         else
         {   // More array elements
-            final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            final DataOutputStream dout = new DataOutputStream(bout);
-            // Indicate 'Double' as data type
-            final int N = additional.size();
-            dout.writeInt(N);
-            // Write binary data for array elements
-            for (int i=0; i<N; ++i)
-                dout.writeDouble(additional.getDouble(i));
-            dout.close();
-            final byte[] asBytes = bout.toByteArray();
+            final byte[] asBytes = encodeArrayBlob(additional);
             if (rdb.getDialect() == Dialect.Oracle)
             {
                 insert_double_sample.setString(6, "d");
@@ -365,6 +443,24 @@ public class RDBArchiveWriter implements ArchiveWriter
         ++batched_double_inserts;
     }
 
+    /** @param additional Array elements
+     *  @return Array elements encoded for the array_val BLOB
+     *  @throws Exception on error
+     */
+    private byte[] encodeArrayBlob(final ListNumber additional) throws Exception
+    {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        final DataOutputStream dout = new DataOutputStream(bout);
+        // Indicate 'Double' as data type
+        final int N = additional.size();
+        dout.writeInt(N);
+        // Write binary data for array elements
+        for (int i=0; i<N; ++i)
+            dout.writeDouble(additional.getDouble(i));
+        dout.close();
+        return bout.toByteArray();
+    }
+
     /** Add 'insert' for double samples to batch, handling arrays
      *  via the original array_val table
      */
@@ -393,35 +489,40 @@ public class RDBArchiveWriter implements ArchiveWriter
         ++batched_double_inserts;
         // More array elements?
         if (additional != null)
+            batchArrayElements(channel, stamp, additional);
+    }
+
+    /** Add 'insert' for array elements 1, 2, ... to the original array_val table */
+    private void batchArrayElements(final RDBWriteChannel channel,
+            final Timestamp stamp, final ListNumber additional) throws Exception
+    {
+        if (insert_array_sample == null)
+            insert_array_sample =
+                rdb.getConnection().prepareStatement(
+                    sql.sample_insert_double_array_element);
+        final int N = additional.size();
+        for (int i = 1; i < N; i++)
         {
-            if (insert_array_sample == null)
-                insert_array_sample =
-                    rdb.getConnection().prepareStatement(
-                        sql.sample_insert_double_array_element);
-            final int N = additional.size();
-            for (int i = 1; i < N; i++)
-            {
-                insert_array_sample.setInt(1, channel.getId());
-                insert_array_sample.setTimestamp(2, stamp);
-                insert_array_sample.setInt(3, i);
-                // Patch NaN.
-                // Conundrum: Should we set the status/severity to indicate NaN?
-                // Would be easy if we wrote the main sample with overall
-                // stat/sevr at the end.
-                // But we have to write it first to avoid index (key) errors
-                // with the array sample time stamp....
-                // Go back and update the main sample after the fact??
-                if (Double.isNaN(additional.getDouble(i)))
-                    insert_array_sample.setDouble(4, 0.0);
-                else
-                    insert_array_sample.setDouble(4, additional.getDouble(i));
-                // MySQL nanosecs
-                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-                    insert_array_sample.setInt(5, stamp.getNanos());
-                // Batch
-                insert_array_sample.addBatch();
-                ++batched_double_array_inserts;
-            }
+            insert_array_sample.setInt(1, channel.getId());
+            insert_array_sample.setTimestamp(2, stamp);
+            insert_array_sample.setInt(3, i);
+            // Patch NaN.
+            // Conundrum: Should we set the status/severity to indicate NaN?
+            // Would be easy if we wrote the main sample with overall
+            // stat/sevr at the end.
+            // But we have to write it first to avoid index (key) errors
+            // with the array sample time stamp....
+            // Go back and update the main sample after the fact??
+            if (Double.isNaN(additional.getDouble(i)))
+                insert_array_sample.setDouble(4, 0.0);
+            else
+                insert_array_sample.setDouble(4, additional.getDouble(i));
+            // MySQL nanosecs
+            if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
+                insert_array_sample.setInt(5, stamp.getNanos());
+            // Batch
+            insert_array_sample.addBatch();
+            ++batched_double_array_inserts;
         }
     }
 
@@ -442,24 +543,31 @@ public class RDBArchiveWriter implements ArchiveWriter
     /** Helper for batchSample: Add text sample to batch. */
     private void batchTextSamples(final RDBWriteChannel channel,
             final Timestamp stamp, final int severity,
-            final Status status, String txt) throws Exception
+            final Status status, final String txt) throws Exception
     {
         if (insert_txt_sample == null)
         {
         	insert_txt_sample = createInsertPrepareStatement(sql.sample_insert_string);
         }
-        if (txt.length() > MAX_TEXT_SAMPLE_LENGTH)
-        {
-            Activator.getLogger().log(Level.INFO,
-                "Value of {0} exceeds {1} chars: {2}",
-                new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
-            txt = txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
-        }
-        insert_txt_sample.setString(5, txt);
+        insert_txt_sample.setString(5, limitText(channel, txt));
         completeAndBatchInsert(insert_txt_sample, channel, stamp, severity, status);
         ++batched_txt_inserts;
     }
 
+    /** @param channel Channel
+     *  @param txt Text sample
+     *  @return Text, truncated to the maximum text sample length
+     */
+    private String limitText(final RDBWriteChannel channel, final String txt)
+    {
+        if (txt.length() <= MAX_TEXT_SAMPLE_LENGTH)
+            return txt;
+        Activator.getLogger().log(Level.INFO,
+            "Value of {0} exceeds {1} chars: {2}",
+            new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
+        return txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
+    }
+
     /** Helper for batchSample:
      *  Set the parameters common to all insert statements, add to batch.
      */
@@ -488,6 +596,8 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         try
         {
+            if (binary_copy != null  &&  binary_copy.size() > 0)
+                checkCopyExecution();
             if (batched_double_inserts > 0)
             {
                 try
@@ -553,6 +663,30 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
     }
 
+    /** Submit and clear the binary COPY, or roll back on error */
+    private void checkCopyExecution() throws Exception
+    {
+        try
+        {
+            binary_copy.flush(rdb.getConnection());
+            rdb.getConnection().commit();
+        }
+        catch (final Exception ex)
+        {
+            // COPY is all-or-nothing, the failed transaction must be rolled back
+            try
+            {
+                rdb.getConnection().rollback();
+            }
+            catch (Exception nested)
+            {
+                Activator.getLogger().log(Level.WARNING,
+                        "rollback() error after COPY issue", nested);
+            }
+            throw ex;
+        }
+    }
+
     /** Submit and clear the batch, or roll back on error */
     private void checkBatchExecution(final PreparedStatement insert) throws Exception
     {
@@ -687,6 +821,8 @@ public class RDBArchiveWriter implements ArchiveWriter
             stati.dispose();
             stati = null;
         }
+        if (binary_copy != null)
+            binary_copy.clear();
 
 		if (insert_double_sample != null) {
 			try {
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/** JUnit test of the PostgreSQL binary COPY encoding, no database required */
+@SuppressWarnings("nls")
+public class PGBinaryCopyUnitTest
+{
+    private Map<String, Integer> getColumnSizes()
+    {
+        final Map<String, Integer> sizes = new HashMap<String, Integer>();
+        sizes.put("channel_id", 8);
+        sizes.put("nanosecs", 8);
+        sizes.put("severity_id", 8);
+        sizes.put("status_id", 8);
+        sizes.put("num_val", 4);
+        return sizes;
+    }
+
+    private String readText(final DataInputStream in) throws Exception
+    {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final PGBinaryCopy copy = new PGBinaryCopy(getColumnSizes(), "archive", "sample", false);
+        assertThat(copy.getCommand(),
+            equalTo("COPY archive.sample (channel_id, smpl_time, nanosecs, severity_id, status_id, float_val, num_val, str_val) FROM STDIN WITH (FORMAT binary)"));
+
+        // 2000-01-01 00:00:01.5 local time
+        final long millis = 946684801000L - TimeZone.getDefault().getOffset(946684801000L);
+        final Timestamp stamp = new Timestamp(millis);
+        stamp.setNanos(500000123);
+        copy.addDouble(42, stamp, 1, 2, 3.14, null);
+        copy.addLong(42, stamp, 1, 2, 7);
+        copy.addText(42, stamp, 1, 2, "Hello");
+        assertThat(copy.size(), equalTo(3));
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(copy.getData()));
+        final byte[] signature = new byte[11];
+        in.readFully(signature);
+        assertThat(new String(signature, 0, 6, "US-ASCII"), equalTo("PGCOPY"));
+        assertThat(signature[7], equalTo((byte) 0xFF));
+        assertThat(in.readInt(), equalTo(0));
+        assertThat(in.readInt(), equalTo(0));
+
+        for (int row=0; row<3; ++row)
+        {
+            assertThat(in.readShort(), equalTo((short) 8));
+            // channel_id
+            assertThat(in.readInt(), equalTo(8));
+            assertThat(in.readLong(), equalTo(42L));
+            // smpl_time: Microseconds since 2000-01-01
+            assertThat(in.readInt(), equalTo(8));
+            assertThat(in.readLong(), equalTo(1500000L));
+            // nanosecs
+            assertThat(in.readInt(), equalTo(8));
+            assertThat(in.readLong(), equalTo(500000123L));
+            // severity_id, status_id
+            assertThat(in.readInt(), equalTo(8));
+            assertThat(in.readLong(), equalTo(1L));
+            assertThat(in.readInt(), equalTo(8));
+            assertThat(in.readLong(), equalTo(2L));
+            switch (row)
+            {
+            case 0:
+                assertThat(in.readInt(), equalTo(8));
+                assertThat(in.readDouble(), equalTo(3.14));
+                assertThat(in.readInt(), equalTo(-1));
+                assertThat(in.readInt(), equalTo(-1));
+                break;
+            case 1:
+                assertThat(in.readInt(), equalTo(-1));
+                assertThat(in.readInt(), equalTo(4));
+                assertThat(in.readInt(), equalTo(7));
+                assertThat(in.readInt(), equalTo(-1));
+                break;
+            default:
+                assertThat(in.readInt(), equalTo(-1));
+                assertThat(in.readInt(), equalTo(-1));
+                assertThat(readText(in), equalTo("Hello"));
+            }
+        }
+        // Trailer
+        assertThat(in.readShort(), equalTo((short) -1));
+        assertThat(in.available(), equalTo(0));
+
+        copy.clear();
+        assertThat(copy.size(), equalTo(0));
+    }
+
+    @Test
+    public void testBlob() throws Exception
+    {
+        final PGBinaryCopy copy = new PGBinaryCopy(getColumnSizes(), "", "sample", true);
+        assertThat(copy.getCommand().startsWith("COPY sample (channel_id"), equalTo(true));
+
+        final Timestamp stamp = new Timestamp(System.currentTimeMillis());
+        copy.addDouble(1, stamp, 1, 2, 1.0, new byte[] { 1, 2, 3 });
+        copy.addDouble(1, stamp, 1, 2, 2.0, null);
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(copy.getData()));
+        in.skipBytes(11 + 4 + 4);
+        for (int row=0; row<2; ++row)
+        {
+            assertThat(in.readShort(), equalTo((short) 10));
+            // Skip the 5 common columns, float_val, num_val, str_val
+            in.skipBytes(5 * (4 + 8));
+            in.skipBytes(4 + 8);
+            assertThat(in.readInt(), equalTo(-1));
+            assertThat(in.readInt(), equalTo(-1));
+            if (row == 0)
+            {
+                assertThat(readText(in), equalTo("d"));
+                assertThat(in.readInt(), equalTo(3));
+                in.skipBytes(3);
+            }
+            else
+            {
+                assertThat(readText(in), equalTo(" "));
+                assertThat(in.readInt(), equalTo(-1));
+            }
+        }
+        assertThat(in.readShort(), equalTo((short) -1));
+    }
+}
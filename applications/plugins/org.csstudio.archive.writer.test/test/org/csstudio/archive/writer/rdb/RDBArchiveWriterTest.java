@@ -44,15 +44,17 @@ public class RDBArchiveWriterTest
 	final Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(2), 8.0, 9.0, 10.0, 0.0, 10.0);
 	private RDBArchiveWriter writer = null;
 	private String name, array_name;
+	private String url, user, password, schema;
+	private boolean use_blob;
 
     @Before
 	public void connect() throws Exception
 	{
 		final TestProperties settings = new TestProperties();
-		final String url = settings.getString("archive_rdb_url");
-		final String user = settings.getString("archive_rdb_user");
-		final String password = settings.getString("archive_rdb_password");
-		final String schema = settings.getString("archive_rdb_schema");
+		url = settings.getString("archive_rdb_url");
+		user = settings.getString("archive_rdb_user");
+		password = settings.getString("archive_rdb_password");
+		schema = settings.getString("archive_rdb_schema");
 		name = settings.getString("archive_channel");
 		array_name = settings.getString("archive_array_channel");
 		if (url == null  ||  user == null  ||  password == null  ||  name == null)
@@ -60,7 +62,7 @@ public class RDBArchiveWriterTest
 			System.out.println("Skipping test, no archive_rdb_url, user, password");
 			return;
 		}
-		final boolean use_blob = Boolean.parseBoolean(settings.getString("archive_use_blob"));
+		use_blob = Boolean.parseBoolean(settings.getString("archive_use_blob"));
 		if (use_blob)
 			System.out.println("Running write test with BLOB");
 		else
@@ -171,7 +173,39 @@ public class RDBArchiveWriterTest
 	{
 		if (writer == null)
 			return;
+		writeSpeed(writer);
+	}
+
+	/** Compare batched INSERT with binary COPY.
+	 *  Requires archive_rdb_url for a PostgreSQL database.
+	 */
+ 	// @Ignore
+	@Test
+	public void testWriteSpeedBinaryCopy() throws Exception
+	{
+		if (writer == null  ||  !url.startsWith("jdbc:postgresql"))
+			return;
+		System.out.println("Batched INSERT:");
+		final double insert_rate = writeSpeed(writer);
 
+		final RDBArchiveWriter copy_writer = new RDBArchiveWriter(url, user, password, schema, use_blob, true);
+		try
+		{
+			System.out.println("Binary COPY:");
+			final double copy_rate = writeSpeed(copy_writer);
+			System.out.format("Binary COPY: %.1f times the INSERT rate\n", copy_rate / insert_rate);
+		}
+		finally
+		{
+			copy_writer.close();
+		}
+	}
+
+	/** @param writer Writer to use
+	 *  @return Samples per second
+	 */
+	private double writeSpeed(final RDBArchiveWriter writer) throws Exception
+	{
 		System.out.println("Write test: Adding samples to " + name + " for " + TEST_DURATION_SECS + " secs");
 		final WriteChannel channel = writer.getChannel(name);
 
@@ -188,7 +222,9 @@ public class RDBArchiveWriterTest
 		while (System.currentTimeMillis() < end);
 		writer.flush();
 
+		final double rate = (double)count / TEST_DURATION_SECS;
 		System.out.println("Wrote " + count + " samples, i.e. "
-				         + ((double)count / TEST_DURATION_SECS) + " samples/sec.");
+				         + rate + " samples/sec.");
+		return rate;
 	}
 }
@@ -69,6 +69,9 @@ CREATE TABLE IF NOT EXISTS message
    severity VARCHAR(20) NULL  
 );
 
+-- Message history reads pages of messages ordered by datum and id
+CREATE INDEX message_datum_id ON message (datum, id);
+
 -- Elements of a Message
 -- ID column isn't really used...
 DROP TABLE IF EXISTS message_content;
@@ -80,6 +83,8 @@ CREATE TABLE IF NOT EXISTS message_content
   value VARCHAR(100)
 );
 
+CREATE INDEX message_content_message_id ON message_content (message_id);
+
 
 # NOTE:
 # MyISAM ignores forgeign keys, and the software will work fine
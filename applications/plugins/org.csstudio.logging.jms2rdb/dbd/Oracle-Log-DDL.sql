@@ -26,6 +26,13 @@ ALTER TABLE message
 ADD CHECK ("ID" IS NOT NULL)
 DISABLE NOVALIDATE;
 
+-- Message history reads pages of messages ordered by datum and id
+CREATE INDEX message_datum_id_indx ON message
+  (
+    datum                           ASC,
+    id                              ASC
+  );
+
 
 -- MESSAGE_CONTENT Table: Additional message content, arbitrary type/value pairs
 -- ID column isn't really used...
@@ -44,7 +44,7 @@ public class Application implements IApplication
     /** Filters for suppressed JMS messages
      *  @see Filter
      */
-    private String jms_filters = "ALARM;TEXT=IDLE";
+    private String jms_filters = "ALARM;TEXT=IDLE, ALARM;TEXT=STATE_BATCH";
 
     /** RDB Server URL */
     private String rdb_url = "jdbc:mysql://[host]/[database]?user=[user]&password=[password]";
@@ -52,6 +52,21 @@ public class Application implements IApplication
     /** RDB Schema */
     private String rdb_schema = "";
 
+    /** Number of RDB writer threads */
+    private int rdb_writers = 2;
+
+    /** Maximum number of messages queued for the RDB writers */
+    private int queue_size = 10000;
+
+    /** Maximum number of messages written in one RDB transaction */
+    private int batch_size = 100;
+
+    /** Maximum age of oldest message in batch before batch is written */
+    private long batch_age_ms = 500;
+
+    /** Writers for the RDB */
+    private LogWriterPool writers;
+
     /** Thread that handles the JMS messages */
     private LogClientThread log_client_thread;
 
@@ -113,21 +128,33 @@ public class Application implements IApplication
             service.getString(Activator.ID, "rdb_url", rdb_url, null);
         rdb_schema =
             service.getString(Activator.ID, "rdb_schema", rdb_schema, null);
+        rdb_writers =
+            service.getInt(Activator.ID, "rdb_writers", rdb_writers, null);
+        queue_size =
+            service.getInt(Activator.ID, "queue_size", queue_size, null);
+        batch_size =
+            service.getInt(Activator.ID, "batch_size", batch_size, null);
+        batch_age_ms =
+            service.getLong(Activator.ID, "batch_age_ms", batch_age_ms, null);
 
         LogConfigurator.configureFromPreferences();
 
         Activator.getLogger().log(Level.CONFIG, "Started JMS Log Tool {0}", version);
 
-        // Start log handler and web interface
+        // Start RDB writers, log handler and web interface
+        writers = new LogWriterPool(rdb_url, rdb_schema, rdb_writers,
+                                    queue_size, batch_size, batch_age_ms);
         log_client_thread =
-            new LogClientThread(jms_url, jms_topic, rdb_url, rdb_schema,
+            new LogClientThread(jms_url, jms_topic, writers,
                                 Filter.parse(jms_filters));
         startHttpd();
+        writers.start();
         log_client_thread.start();
         // .. Wait while thread is running ..
         log_client_thread.join();
 
-        // Shutdown
+        // Shutdown: Write what's still queued
+        writers.stop();
         stopHttpd();
 
         return IApplication.EXIT_OK;
@@ -140,7 +167,7 @@ public class Application implements IApplication
                 Activator.getInstance().getBundle().getBundleContext(), httpd_port);
         final HttpContext context = httpd.createDefaultHttpContext();
         httpd.registerResources("/", "/webroot", context);
-        httpd.registerServlet("/main", new MainServlet(log_client_thread), null, context);
+        httpd.registerServlet("/main", new MainServlet(log_client_thread, writers), null, context);
         httpd.registerServlet("/stop", new StopServlet(this), null, context);
 
         // Format port as string because otherwise it'll show up as "4,913" in US locale
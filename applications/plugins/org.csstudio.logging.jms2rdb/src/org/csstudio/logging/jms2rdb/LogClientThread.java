@@ -19,19 +19,10 @@ import javax.jms.MessageListener;
 import javax.jms.Session;
 import javax.jms.Topic;
 
-import org.csstudio.logging.jms2rdb.rdb.RDBWriter;
 import org.csstudio.platform.utility.jms.JMSConnectionFactory;
 
-/** Thread that receives log messages and sends them to the RDB.
- *  <p>
- *  There is no further queuing in here.
- *  All messages are directly written to the RDB.
- *  <p>
- *  If messages arrive quicker than they can be written to RDB,
- *  simple test showed that ActiveMQ JMS server will queue them up
- *  for this "consumer" as long as the consumer stays connected.
- *  TODO: Limits and config. of JMS server queue unclear.
- *        Queue in here?
+/** Thread that receives log messages and passes them to the
+ *  {@link LogWriterPool} which writes them to the RDB.
  *
  *  @author Kay Kasemir
  *  reviewed by Katia Danilova 08/20/08
@@ -51,11 +42,8 @@ public class LogClientThread extends Thread
     /** JMS topic */
     final private String jms_topic;
 
-    /** RDB Server URL */
-    final private String rdb_url;
-
-    /** RDB Schema */
-    final private String rdb_schema;
+    /** Writers for the RDB */
+    final private LogWriterPool writers;
 
     /** Message filters */
     final private Filter filters[];
@@ -66,9 +54,6 @@ public class LogClientThread extends Thread
     /** Flag that tells thread main loop to wait. */
     private boolean do_wait;
 
-    /** RDB Writer for log messages */
-    private RDBWriter rdb_writer;
-
     /** Counter for received JMS messages */
     private int message_count = 0;
 
@@ -81,18 +66,16 @@ public class LogClientThread extends Thread
     /** Constructor
      *  @param jms_url JMS server URL
      *  @param jms_topic JMS topic (or list of topics, separated by ',')
-     *  @param rdb_url RDB server URL
-     *  @param rdb_schema RDB schema or ""
+     *  @param writers Writers for the RDB
+     *  @param filters Message filters
      */
     public LogClientThread(final String jms_url, final String jms_topic,
-            final String rdb_url, final String rdb_schema,
-            final Filter filters[])
+            final LogWriterPool writers, final Filter filters[])
     {
         super("LogClientThread");
         this.jms_url = jms_url;
         this.jms_topic = jms_topic;
-        this.rdb_url = rdb_url;
-        this.rdb_schema = rdb_schema;
+        this.writers = writers;
         this.filters = filters;
 
         for (Filter filter : filters)
@@ -124,16 +107,8 @@ public class LogClientThread extends Thread
         while (run)
         {
             Connection jms_connection = null;
-            rdb_writer = null;
             try
             {
-                // First open RDB, then the JMS client that writes to RDB
-                rdb_writer = new RDBWriter(rdb_url, rdb_schema);
-                Activator.getLogger().log(Level.INFO, "Connected to RDB {0}", rdb_url);
-
-                // Add start message
-                rdb_writer.write("JMS Log Tool started");
-
                 jms_connection = connectJMS();
 
                 // Incoming JMS messages are handled in onMessage,
@@ -156,7 +131,6 @@ public class LogClientThread extends Thread
             }
             finally
             {
-                // Stop JMS...
                 if (jms_connection != null)
                 {
                     try
@@ -168,12 +142,6 @@ public class LogClientThread extends Thread
                         Activator.getLogger().log(Level.WARNING, "JMS disconnect error", e);
                     }
                 }
-                // .. then the RDB used by the JMS client.
-                if (rdb_writer != null)
-                {
-                    rdb_writer.close();
-                    rdb_writer = null;
-                }
             }
             // Did we wake up & close connections because of error
             // or because of requested shutdown?
@@ -256,7 +224,7 @@ public class LogClientThread extends Thread
                     ++message_count;
                     last_message  = map;
                 }
-                rdb_writer.write(map);
+                writers.add(map);
             }
             else
                 Activator.getLogger().log(Level.WARNING, "Received unhandled message type {0}", message.getClass().getName());
@@ -0,0 +1,490 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.logging.jms2rdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.jms.MapMessage;
+
+import org.csstudio.logging.jms2rdb.rdb.RDBWriter;
+import org.csstudio.logging.jms2rdb.rdb.ReceivedMessage;
+
+/** Pool of threads that write received messages to the RDB.
+ *  <p>
+ *  Messages are placed in a bounded queue.
+ *  Each writer thread has its own RDB connection.
+ *  It takes messages from the queue and writes them in batches,
+ *  one transaction per batch.
+ *  A batch is written when it reaches the batch size,
+ *  or when its oldest message reaches the batch age.
+ *  <p>
+ *  Since several writers run in parallel, messages received at about
+ *  the same time might be written in a different order.
+ *  Their time stamps reflect the time when they were received.
+ *  <p>
+ *  On RDB errors, a writer disconnects, waits, then re-connects
+ *  to try the same batch again.
+ *  If that fails as well, the messages of the batch are written
+ *  one at a time, and only those that still fail are dropped.
+ *  When the queue is full because writers cannot keep up,
+ *  newly received messages are dropped right away,
+ *  without blocking the thread that receives them.
+ */
+@SuppressWarnings("nls")
+public class LogWriterPool
+{
+    /** On RDB errors, writer will disconnect, wait, then re-connect
+     *  using this delay.
+     */
+    private static final int RETRY_DELAY_MS = 20000;
+
+    /** Writer of messages, implemented by {@link RDBWriter} */
+    interface BatchWriter
+    {
+        /** @param message Plain text message to write */
+        public void write(String message) throws Exception;
+
+        /** @param messages Messages to write in one transaction */
+        public void write(List<ReceivedMessage> messages) throws Exception;
+
+        /** Close the writer */
+        public void close();
+    }
+
+    /** Period for checking if writer should stop */
+    private static final long POLL_MS = 1000;
+
+    /** Period for computing the ingest rate */
+    private static final long RATE_PERIOD_MS = 5000;
+
+    /** RDB Server URL */
+    final private String rdb_url;
+
+    /** RDB Schema */
+    final private String rdb_schema;
+
+    /** Delay before re-connecting after an error */
+    final private long retry_delay_ms;
+
+    /** Maximum number of messages per batch */
+    final private int batch_size;
+
+    /** Maximum age of oldest message in batch before batch is written */
+    final private long batch_age_ms;
+
+    /** Received messages that need to be written */
+    final private BlockingQueue<ReceivedMessage> queue;
+
+    /** Property IDs, shared by all writers */
+    final private Map<String, Integer> properties = new ConcurrentHashMap<String, Integer>();
+
+    /** Writer threads */
+    final private WriterThread writers[];
+
+    /** Flag that tells writers to run or stop. */
+    private volatile boolean run = true;
+
+    /** Number of written messages */
+    final private AtomicLong written = new AtomicLong();
+
+    /** Number of dropped messages */
+    final private AtomicLong dropped = new AtomicLong();
+
+    // Statistics, synchronized on this
+    private long batches = 0;
+    private double avg_batch_size = 0.0, avg_latency_ms = 0.0;
+    private long max_latency_ms = 0;
+    private long rate_time = System.currentTimeMillis(), rate_count = 0;
+    private double rate = 0.0;
+
+    /** Last error message */
+    private String last_error = "";
+
+    /** Thread that writes batches of messages */
+    private class WriterThread extends Thread
+    {
+        final private int index;
+
+        WriterThread(final int index)
+        {
+            super("RDBWriter" + index);
+            this.index = index;
+        }
+
+        @Override
+        public void run()
+        {
+            final List<ReceivedMessage> batch = new ArrayList<ReceivedMessage>(batch_size);
+            boolean retry = false;
+            while (run  ||  ! queue.isEmpty())
+            {
+                BatchWriter rdb_writer = null;
+                boolean writing = false;
+                try
+                {
+                    rdb_writer = createWriter();
+                    Activator.getLogger().log(Level.INFO, "Writer {0} connected to RDB {1}",
+                            new Object[] { index, rdb_url });
+                    if (index == 0)
+                        rdb_writer.write("JMS Log Tool started");
+                    // Write batches until stopped and queue is empty
+                    while (! batch.isEmpty()  ||  fillBatch(batch)  ||  run)
+                    {
+                        if (batch.isEmpty())
+                            continue;
+                        writing = true;
+                        if (retry)
+                            writeRetry(rdb_writer, batch);
+                        else
+                        {
+                            rdb_writer.write(batch);
+                            updateStatistics(batch);
+                        }
+                        writing = false;
+                        batch.clear();
+                        retry = false;
+                    }
+                }
+                catch (Exception ex)
+                {
+                    setLastError(ex.getMessage());
+                    Activator.getLogger().log(Level.WARNING, "RDB writer " + index + " error", ex);
+                    // Batch failed: Retry after re-connecting.
+                    // Connection errors keep the batch for the next attempt.
+                    if (writing)
+                        retry = true;
+                }
+                finally
+                {
+                    if (rdb_writer != null)
+                        rdb_writer.close();
+                }
+                // Wait a little before trying again
+                if (run)
+                {
+                    synchronized (LogWriterPool.this)
+                    {
+                        try
+                        {
+                            LogWriterPool.this.wait(retry_delay_ms);
+                        }
+                        catch (InterruptedException ex)
+                        {
+                            // Ignore
+                        }
+                    }
+                }
+                else
+                {   // Stopped, possibly while unable to write
+                    dropped.addAndGet(batch.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Retry a batch that failed before
+     *
+     *  <p>Writes the batch once more.
+     *  If that fails again, writes the messages one at a time
+     *  so that only the messages which cause the error are dropped.
+     *
+     *  @param rdb_writer Writer
+     *  @param batch Batch to retry
+     */
+    private void writeRetry(final BatchWriter rdb_writer, final List<ReceivedMessage> batch)
+    {
+        try
+        {
+            rdb_writer.write(batch);
+            updateStatistics(batch);
+            return;
+        }
+        catch (Exception ex)
+        {
+            setLastError(ex.getMessage());
+            Activator.getLogger().log(Level.WARNING,
+                "Batch of {0} messages failed again, writing them one at a time",
+                batch.size());
+        }
+        for (ReceivedMessage message : batch)
+        {
+            final List<ReceivedMessage> single = Collections.singletonList(message);
+            try
+            {
+                rdb_writer.write(single);
+                updateStatistics(single);
+            }
+            catch (Exception ex)
+            {
+                dropped.incrementAndGet();
+                setLastError(ex.getMessage());
+                Activator.getLogger().log(Level.WARNING, "Dropped message " + message.getMap(), ex);
+            }
+        }
+    }
+
+    /** Initialize
+     *  @param rdb_url RDB server URL
+     *  @param rdb_schema RDB schema or ""
+     *  @param writers Number of writer threads
+     *  @param queue_size Maximum number of queued messages
+     *  @param batch_size Maximum number of messages per batch
+     *  @param batch_age_ms Maximum age of oldest message before batch is written
+     */
+    public LogWriterPool(final String rdb_url, final String rdb_schema,
+            final int writers, final int queue_size,
+            final int batch_size, final long batch_age_ms)
+    {
+        this(rdb_url, rdb_schema, writers, queue_size, batch_size, batch_age_ms, RETRY_DELAY_MS);
+    }
+
+    /** Initialize
+     *  @param rdb_url RDB server URL
+     *  @param rdb_schema RDB schema or ""
+     *  @param writers Number of writer threads
+     *  @param queue_size Maximum number of queued messages
+     *  @param batch_size Maximum number of messages per batch
+     *  @param batch_age_ms Maximum age of oldest message before batch is written
+     *  @param retry_delay_ms Delay before re-connecting after an error
+     */
+    LogWriterPool(final String rdb_url, final String rdb_schema,
+            final int writers, final int queue_size,
+            final int batch_size, final long batch_age_ms,
+            final long retry_delay_ms)
+    {
+        this.rdb_url = rdb_url;
+        this.retry_delay_ms = retry_delay_ms;
+        this.rdb_schema = rdb_schema;
+        this.batch_size = Math.max(1, batch_size);
+        this.batch_age_ms = batch_age_ms;
+        queue = new ArrayBlockingQueue<ReceivedMessage>(Math.max(1, queue_size));
+        this.writers = new WriterThread[Math.max(1, writers)];
+        for (int i=0; i<this.writers.length; ++i)
+            this.writers[i] = new WriterThread(i);
+        Activator.getLogger().log(Level.CONFIG,
+            "{0} RDB writers, queue size {1}, batches of up to {2} messages or {3} ms",
+            new Object[] { this.writers.length, queue_size, this.batch_size, batch_age_ms });
+    }
+
+    /** Connect a writer, called by each writer thread
+     *  @return {@link BatchWriter}
+     *  @throws Exception on error
+     */
+    BatchWriter createWriter() throws Exception
+    {
+        final RDBWriter rdb_writer = new RDBWriter(rdb_url, rdb_schema, properties);
+        return new BatchWriter()
+        {
+            @Override
+            public void write(final String message) throws Exception
+            {
+                rdb_writer.write(message);
+            }
+
+            @Override
+            public void write(final List<ReceivedMessage> messages) throws Exception
+            {
+                rdb_writer.write(messages);
+            }
+
+            @Override
+            public void close()
+            {
+                rdb_writer.close();
+            }
+        };
+    }
+
+    /** Start writer threads */
+    public void start()
+    {
+        for (WriterThread writer : writers)
+            writer.start();
+    }
+
+    /** Queue message for writing
+     *  @param map Received message
+     *  @return <code>true</code> if queued,
+     *          <code>false</code> if dropped because queue is full
+     */
+    public boolean add(final MapMessage map)
+    {
+        if (queue.offer(new ReceivedMessage(map)))
+            return true;
+        if (dropped.incrementAndGet() % 1000 == 1)
+            Activator.getLogger().log(Level.WARNING, "Queue full, dropped {0} messages", dropped.get());
+        return false;
+    }
+
+    /** Fill batch from queue
+     *  @param batch Empty batch to fill
+     *  @return <code>true</code> if batch has messages
+     *  @throws InterruptedException on interruption
+     */
+    private boolean fillBatch(final List<ReceivedMessage> batch) throws InterruptedException
+    {
+        final ReceivedMessage first = run
+            ? queue.poll(POLL_MS, TimeUnit.MILLISECONDS)
+            : queue.poll();
+        if (first == null)
+            return false;
+        batch.add(first);
+        final long end = first.getTime().getTime() + batch_age_ms;
+        while (batch.size() < batch_size)
+        {
+            queue.drainTo(batch, batch_size - batch.size());
+            if (batch.size() >= batch_size  ||  ! run)
+                break;
+            final long wait = end - System.currentTimeMillis();
+            if (wait <= 0)
+                break;
+            final ReceivedMessage next = queue.poll(wait, TimeUnit.MILLISECONDS);
+            if (next == null)
+                break;
+            batch.add(next);
+        }
+        return true;
+    }
+
+    /** @param batch Batch that was written */
+    private synchronized void updateStatistics(final List<ReceivedMessage> batch)
+    {
+        written.addAndGet(batch.size());
+        final long latency = System.currentTimeMillis() - batch.get(0).getTime().getTime();
+        if (batches == 0)
+        {
+            avg_batch_size = batch.size();
+            avg_latency_ms = latency;
+        }
+        else
+        {   // Exponential average
+            avg_batch_size = 0.9*avg_batch_size + 0.1*batch.size();
+            avg_latency_ms = 0.9*avg_latency_ms + 0.1*latency;
+        }
+        ++batches;
+        if (latency > max_latency_ms)
+            max_latency_ms = latency;
+    }
+
+    /** @param error Error message */
+    private synchronized void setLastError(final String error)
+    {
+        last_error = error;
+    }
+
+    /** @return Last error or empty string */
+    public synchronized String getLastError()
+    {
+        return last_error;
+    }
+
+    /** @return Number of writer threads */
+    public int getWriterCount()
+    {
+        return writers.length;
+    }
+
+    /** @return Number of queued messages */
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    /** @return Maximum number of queued messages */
+    public int getQueueCapacity()
+    {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    /** @return Number of written messages */
+    public long getWrittenCount()
+    {
+        return written.get();
+    }
+
+    /** @return Number of dropped messages */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /** @return Messages per second written, updated every few seconds */
+    public synchronized double getIngestRate()
+    {
+        final long now = System.currentTimeMillis();
+        if (now - rate_time >= RATE_PERIOD_MS)
+        {
+            final long count = written.get();
+            rate = (count - rate_count) * 1000.0 / (now - rate_time);
+            rate_count = count;
+            rate_time = now;
+        }
+        return rate;
+    }
+
+    /** @return Number of written batches */
+    public synchronized long getBatchCount()
+    {
+        return batches;
+    }
+
+    /** @return Average number of messages per batch */
+    public synchronized double getAverageBatchSize()
+    {
+        return avg_batch_size;
+    }
+
+    /** @return Average time from receiving the first message in a batch
+     *          until the batch has been written
+     */
+    public synchronized double getAverageLatency()
+    {
+        return avg_latency_ms;
+    }
+
+    /** @return Maximum time from receiving the first message in a batch
+     *          until the batch has been written
+     */
+    public synchronized long getMaxLatency()
+    {
+        return max_latency_ms;
+    }
+
+    /** Stop writers after they wrote the queued messages.
+     *  Blocks until writers exit.
+     */
+    public void stop()
+    {
+        run = false;
+        synchronized (this)
+        {
+            notifyAll();
+        }
+        for (WriterThread writer : writers)
+        {
+            try
+            {
+                writer.join();
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        }
+    }
+}
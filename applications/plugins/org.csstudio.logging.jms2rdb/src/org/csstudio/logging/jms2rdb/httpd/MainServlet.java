@@ -14,6 +14,7 @@ import javax.jms.MapMessage;
 
 import org.csstudio.logging.jms2rdb.Activator;
 import org.csstudio.logging.jms2rdb.LogClientThread;
+import org.csstudio.logging.jms2rdb.LogWriterPool;
 import org.osgi.framework.Constants;
 
 /** Servlet to display overall status of JMS Log Tool.
@@ -28,11 +29,15 @@ public class MainServlet extends AbstractServlet
 
     final private transient LogClientThread log_client_thread;
 
+    final private transient LogWriterPool writers;
+
     private final String app_name;
 
-    public MainServlet(final LogClientThread log_client_thread)
+    public MainServlet(final LogClientThread log_client_thread,
+            final LogWriterPool writers)
     {
         this.log_client_thread = log_client_thread;
+        this.writers = writers;
 
         final Dictionary<String, String> headers =
             Activator.getInstance().getBundle().getHeaders();
@@ -56,6 +61,21 @@ public class MainServlet extends AbstractServlet
 			html.tableLine(last_error);
 	        html.closeTable();
         }
+
+        html.openTable(2, "RDB Writers");
+        html.tableLine("Writer Threads", Integer.toString(writers.getWriterCount()));
+        html.tableLine("Queued Messages", writers.getQueueDepth() + " of " + writers.getQueueCapacity());
+        html.tableLine("Written Messages", Long.toString(writers.getWrittenCount()));
+        html.tableLine("Dropped Messages", Long.toString(writers.getDroppedCount()));
+        html.tableLine("Ingest Rate", String.format("%.1f messages/sec", writers.getIngestRate()));
+        html.tableLine("Batches", Long.toString(writers.getBatchCount()));
+        html.tableLine("Average Batch Size", String.format("%.1f messages", writers.getAverageBatchSize()));
+        html.tableLine("Average Latency", String.format("%.0f ms", writers.getAverageLatency()));
+        html.tableLine("Maximum Latency", writers.getMaxLatency() + " ms");
+        final String rdb_error = writers.getLastError();
+        if (rdb_error.length() > 0)
+            html.tableLine("Last RDB Error", rdb_error);
+        html.closeTable();
         final MapMessage map = log_client_thread.getLastMessage();
         if (map == null)
             return;
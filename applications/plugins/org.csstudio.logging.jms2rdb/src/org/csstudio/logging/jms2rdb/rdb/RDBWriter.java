@@ -12,9 +12,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +29,10 @@ import org.csstudio.platform.utility.rdb.RDBUtil;
 import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
 
 /** Class that writes JMSLogMessages to the RDB
+ *  <p>
+ *  Messages can be written one by one, or as a batch that is
+ *  written in one transaction.
+ *  Several writers can share the cache of property IDs.
  *  @author Kay Kasemir
  *  @author Lana Abadie - PostgreSQL additions. Disable autocommit as needed.
  *  reviewed by Katia Danilova 08/20/08
@@ -46,9 +53,11 @@ public class RDBWriter
     /** SQL statements */
     final private SQL sql;
 
-    /** Map of Property IDs, mapping property name to numeric ID */
-    final private HashMap<String, Integer> properties =
-    	new HashMap<String, Integer>();
+    /** Map of Property IDs, mapping property name to numeric ID.
+     *  May be shared by several writers, adding new properties
+     *  synchronizes on the map.
+     */
+    final private Map<String, Integer> properties;
 
     /** Lazily initialized statement */
     private PreparedStatement next_message_id_statement;
@@ -66,6 +75,19 @@ public class RDBWriter
      */
     public RDBWriter(final String url, final String schema) throws Exception
     {
+        this(url, schema, new HashMap<String, Integer>());
+    }
+
+    /** Constructor
+     *  @param url RDB URL
+     *  @param schema Schema name or ""
+     *  @param properties Thread-safe map of property IDs shared with other writers
+     *  @throws Exception on error
+     */
+    public RDBWriter(final String url, final String schema,
+            final Map<String, Integer> properties) throws Exception
+    {
+        this.properties = properties;
         try
         {
             rdb_util = RDBUtil.connect(url, false);
@@ -99,6 +121,25 @@ public class RDBWriter
         					Statement.RETURN_GENERATED_KEYS);
         insert_property_statement =
             connection.prepareStatement(sql.insert_message_property_value);
+
+        readPropertyTypes();
+    }
+
+    /** Read all known property IDs into cache */
+    private void readPropertyTypes() throws Exception
+    {
+        final Statement statement = rdb_util.getConnection().createStatement();
+        try
+        {
+            final ResultSet result = statement.executeQuery(sql.select_property_ids);
+            while (result.next())
+                properties.put(result.getString(2), Integer.valueOf(result.getInt(1)));
+            result.close();
+        }
+        finally
+        {
+            statement.close();
+        }
     }
 
     /** Get numeric ID of a property, using either the local cache
@@ -113,6 +154,24 @@ public class RDBWriter
     	final Integer int_id = properties.get(property_name);
     	if (int_id != null)
     		return int_id.intValue();
+    	// Prevent writers that share the cache from adding the same property
+    	synchronized (properties)
+    	{
+    	    final Integer added = properties.get(property_name);
+    	    if (added != null)
+    	        return added.intValue();
+    	    return addPropertyType(property_name);
+    	}
+    }
+
+    /** Get numeric ID of a property that is not in the cache,
+     *  querying the RDB or adding it.
+     *  @param property_name
+     *  @return Numeric property ID
+     *  @throws Exception on error
+     */
+    private int addPropertyType(final String property_name) throws Exception
+    {
     	// Perform RDB query
         final Connection connection = rdb_util.getConnection();
         PreparedStatement statement =
@@ -244,7 +303,7 @@ public class RDBWriter
         connection.setAutoCommit(false);
         try
         {
-            final long message_id = insertMessage(JMSLogMessage.TYPE, null, "INFO");
+            final long message_id = insertMessage(JMSLogMessage.TYPE, null, "INFO", new Date(), false);
             batchProperty(message_id, JMSLogMessage.TEXT, message);
             insert_property_statement.executeBatch();
             connection.commit();
@@ -264,29 +323,61 @@ public class RDBWriter
      *  @param message MapMessage to write
      *  @throws Exception on error
      */
-    @SuppressWarnings("unchecked")
 	public void write(final MapMessage map) throws Exception
     {
-		final String type = map.getString(JMSLogMessage.TYPE);
-		final String name = map.getString(JMSLogMessage.NAME);
-		final String severity = map.getString(JMSLogMessage.SEVERITY);
+	    write(Collections.singletonList(new ReceivedMessage(map)));
+    }
+
+    /** Write log messages to RDB in one transaction
+     *  @param messages Messages to write
+     *  @throws Exception on error, in which case none of the messages were written
+     */
+    @SuppressWarnings("unchecked")
+    public void write(final List<ReceivedMessage> messages) throws Exception
+    {
+        // Determine all property IDs before starting the transaction
+        // because adding a new property type commits
+        for (ReceivedMessage message : messages)
+        {
+            final MapMessage map = message.getMap();
+            final Enumeration<String> props = map.getMapNames();
+            while (props.hasMoreElements())
+            {
+                final String prop = props.nextElement();
+                if (! isMessageColumn(prop)  &&  ! isBinary(map, prop))
+                    getPropertyType(prop);
+            }
+        }
 
         final Connection connection = rdb_util.getConnection();
         connection.setAutoCommit(false);
         try
         {
-    		final long message_id = insertMessage(type, name, severity);
+            // Oracle: Message IDs are known before the insert,
+            // so messages are also inserted as a batch
+            final boolean batch = rdb_util.getDialect() == Dialect.Oracle;
+            final long message_ids[] = new long[messages.size()];
+            for (int i=0; i<message_ids.length; ++i)
+            {
+                final MapMessage map = messages.get(i).getMap();
+                message_ids[i] = insertMessage(map.getString(JMSLogMessage.TYPE),
+                                               map.getString(JMSLogMessage.NAME),
+                                               map.getString(JMSLogMessage.SEVERITY),
+                                               messages.get(i).getTime(), batch);
+            }
+            if (batch)
+                insert_message_statement.executeBatch();
 
-            final Enumeration<String> props = map.getMapNames();
-            while (props.hasMoreElements())
+            for (int i=0; i<message_ids.length; ++i)
             {
-            	final String prop = props.nextElement();
-            	// Skip properties which are already in message table columns
-            	if (JMSLogMessage.TYPE.equals(prop) ||
-            	    JMSLogMessage.NAME.equals(prop) ||
-            	    JMSLogMessage.SEVERITY.equals(prop))
-            		continue;
-            	batchProperty(message_id, prop, map.getString(prop));
+                final MapMessage map = messages.get(i).getMap();
+                final Enumeration<String> props = map.getMapNames();
+                while (props.hasMoreElements())
+                {
+                	final String prop = props.nextElement();
+                	if (! isMessageColumn(prop)  &&  ! isBinary(map, prop))
+                	    batchProperty(message_ids[i], prop, map.getString(prop));
+                }
             }
             insert_property_statement.executeBatch();
             connection.commit();
@@ -302,16 +393,40 @@ public class RDBWriter
         }
     }
 
+    /** @param prop Property name
+     *  @return <code>true</code> for properties which are in message table columns
+     */
+    private static boolean isMessageColumn(final String prop)
+    {
+        return JMSLogMessage.TYPE.equals(prop) ||
+               JMSLogMessage.NAME.equals(prop) ||
+               JMSLogMessage.SEVERITY.equals(prop);
+    }
+
+    /** @param map Message
+     *  @param prop Property name
+     *  @return <code>true</code> for binary properties, for example the updates
+     *          of an alarm STATE_BATCH message, which are not logged
+     *  @throws Exception on error
+     */
+    private static boolean isBinary(final MapMessage map, final String prop) throws Exception
+    {
+        return map.getObject(prop) instanceof byte[];
+    }
+
     /** Insert a new message
      *  @param type  Message type
      *  @param name Primary name (PV name, ...) to which the msg refers. May be <code>null</code>
      *  @param severity Message severity
+     *  @param now Time stamp of the message
+     *  @param batch Add Oracle message to batch instead of inserting it?
      *  @return ID of the new message row
      *  @throws Exception on error
      */
     private long insertMessage(
     		final String type, String name,
-    		final String severity) throws Exception
+    		final String severity, final Date now,
+    		final boolean batch) throws Exception
     {
         long message_id = -1;
         if (rdb_util.getDialect() == Dialect.Oracle)
@@ -331,7 +446,6 @@ public class RDBWriter
         // else: Depend on AUTO_INCREMENT resp. SERIAL for new ID, then read it after insert
 
         // Insert the main message
-        final Date now = new Date();
         insert_message_statement.setTimestamp(1, new Timestamp(now.getTime()));
         insert_message_statement.setString(2, type);
         // Overcome RDB limitations
@@ -378,6 +492,8 @@ public class RDBWriter
             }
             result.close();
         }
+        else if (batch) // Oracle, executeBatch() later
+            insert_message_statement.addBatch();
         else // Oracle
         {
             final int rows = insert_message_statement.executeUpdate();
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.logging.jms2rdb.rdb;
+
+import java.util.Date;
+
+import javax.jms.MapMessage;
+
+/** JMS message with the time when it was received */
+public class ReceivedMessage
+{
+    final private MapMessage map;
+    final private Date time;
+
+    /** Initialize with current time
+     *  @param map Received message
+     */
+    public ReceivedMessage(final MapMessage map)
+    {
+        this.map = map;
+        this.time = new Date();
+    }
+
+    /** @return Received message */
+    public MapMessage getMap()
+    {
+        return map;
+    }
+
+    /** @return Time when message was received */
+    public Date getTime()
+    {
+        return time;
+    }
+}
@@ -18,6 +18,8 @@ import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
 @SuppressWarnings("nls")
 public class SQL
 {
+    final public String select_property_ids;
+
     final public String select_property_id_by_name;
 
     final public String select_next_property_id;
@@ -38,6 +40,9 @@ public class SQL
     {
         final String prefix = (schema != null  &&  schema.length() > 0) ? schema + "."  :  "";
 
+        select_property_ids =
+            "SELECT id, name FROM " + prefix + "msg_property_type";
+
 		select_property_id_by_name =
             "SELECT id FROM " + prefix + "msg_property_type WHERE name=?";
 
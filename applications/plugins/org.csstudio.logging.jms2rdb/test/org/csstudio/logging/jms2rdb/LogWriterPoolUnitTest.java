@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.logging.jms2rdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.MapMessage;
+
+import org.csstudio.logging.jms2rdb.LogWriterPool.BatchWriter;
+import org.csstudio.logging.jms2rdb.rdb.ReceivedMessage;
+import org.junit.Test;
+
+/** JUnit test of the {@link LogWriterPool} with a fake writer, no RDB required */
+@SuppressWarnings("nls")
+public class LogWriterPoolUnitTest
+{
+    /** Messages that the fake writer refuses to write */
+    final private List<MapMessage> bad = Collections.synchronizedList(new ArrayList<MapMessage>());
+
+    /** Messages written by the fake writer */
+    final private List<MapMessage> written = Collections.synchronizedList(new ArrayList<MapMessage>());
+
+    /** Number of batches that the fake writer fails before it writes */
+    final private AtomicInteger failures = new AtomicInteger();
+
+    /** Number of fake writers that were created */
+    final private AtomicInteger connections = new AtomicInteger();
+
+    /** Pool that uses a fake writer */
+    private class TestPool extends LogWriterPool
+    {
+        TestPool(final int queue_size)
+        {
+            super("test://rdb", "", 1, queue_size, 10, 100, 10);
+        }
+
+        @Override
+        BatchWriter createWriter() throws Exception
+        {
+            connections.incrementAndGet();
+            return new BatchWriter()
+            {
+                @Override
+                public void write(final String message) throws Exception
+                {
+                    // Ignore
+                }
+
+                @Override
+                public void write(final List<ReceivedMessage> messages) throws Exception
+                {
+                    if (failures.getAndDecrement() > 0)
+                        throw new Exception("Test failure");
+                    for (ReceivedMessage message : messages)
+                        if (bad.contains(message.getMap()))
+                            throw new Exception("Bad message");
+                    for (ReceivedMessage message : messages)
+                        written.add(message.getMap());
+                }
+
+                @Override
+                public void close()
+                {
+                    // Ignore
+                }
+            };
+        }
+    }
+
+    /** @return Message that only supports equals(), hashCode() and toString() */
+    private static MapMessage createMessage()
+    {
+        return (MapMessage) Proxy.newProxyInstance(MapMessage.class.getClassLoader(),
+            new Class<?>[] { MapMessage.class },
+            new InvocationHandler()
+            {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args)
+                {
+                    if (method.getName().equals("equals"))
+                        return proxy == args[0];
+                    if (method.getName().equals("hashCode"))
+                        return System.identityHashCode(proxy);
+                    if (method.getName().equals("toString"))
+                        return "Test message";
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /** Wait until all messages have been written or dropped
+     *  @param pool Pool
+     *  @param count Number of messages
+     */
+    private static void waitFor(final LogWriterPool pool, final int count) throws Exception
+    {
+        while (pool.getWrittenCount() + pool.getDroppedCount() < count)
+            Thread.sleep(10);
+    }
+
+    @Test(timeout=10000)
+    public void testDropWhenFull() throws Exception
+    {
+        final LogWriterPool pool = new TestPool(3);
+        for (int i=0; i<3; ++i)
+            assertTrue(pool.add(createMessage()));
+        assertFalse(pool.add(createMessage()));
+        assertFalse(pool.add(createMessage()));
+        assertEquals(3, pool.getQueueDepth());
+        assertEquals(2, pool.getDroppedCount());
+
+        // Queued messages are written, dropped ones are not
+        pool.start();
+        waitFor(pool, 5);
+        pool.stop();
+        assertEquals(3, pool.getWrittenCount());
+        assertEquals(3, written.size());
+        assertEquals(2, pool.getDroppedCount());
+    }
+
+    @Test(timeout=10000)
+    public void testRetry() throws Exception
+    {
+        failures.set(1);
+        final LogWriterPool pool = new TestPool(100);
+        for (int i=0; i<5; ++i)
+            pool.add(createMessage());
+        pool.start();
+        waitFor(pool, 5);
+        pool.stop();
+        // Failed batch is written after re-connecting
+        assertEquals(2, connections.get());
+        assertEquals(5, pool.getWrittenCount());
+        assertEquals(0, pool.getDroppedCount());
+        assertEquals(5, written.size());
+        assertEquals("Test failure", pool.getLastError());
+    }
+
+    @Test(timeout=10000)
+    public void testBadMessage() throws Exception
+    {
+        final LogWriterPool pool = new TestPool(100);
+        final List<MapMessage> messages = new ArrayList<MapMessage>();
+        for (int i=0; i<5; ++i)
+            messages.add(createMessage());
+        bad.add(messages.get(2));
+        for (MapMessage message : messages)
+            pool.add(message);
+        pool.start();
+        waitFor(pool, 5);
+        pool.stop();
+        // Only the bad message is dropped
+        assertEquals(4, pool.getWrittenCount());
+        assertEquals(1, pool.getDroppedCount());
+        messages.remove(2);
+        assertEquals(messages, written);
+        assertEquals("Bad message", pool.getLastError());
+    }
+}
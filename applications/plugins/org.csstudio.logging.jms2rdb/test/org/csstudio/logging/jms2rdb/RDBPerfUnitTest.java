@@ -9,8 +9,16 @@ package org.csstudio.logging.jms2rdb;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.MapMessage;
+
+import org.apache.activemq.command.ActiveMQMapMessage;
 import org.csstudio.apputil.test.TestProperties;
+import org.csstudio.logging.JMSLogMessage;
 import org.csstudio.logging.jms2rdb.rdb.RDBWriter;
+import org.csstudio.logging.jms2rdb.rdb.ReceivedMessage;
 import org.junit.Test;
 
 /** JUnit test of simple RDB 'write' performance.
@@ -26,6 +34,9 @@ import org.junit.Test;
  *
  *  Local or networked MySQL: about 300 msg/sec after update to 'auto increment'.
  *  SNS Oracle 'devl': about 90 msg/sec.
+ *  <p>
+ *  The batch test writes batches of messages, one transaction per batch,
+ *  as done by the {@link LogWriterPool}.
  *
  *  For a similar 'read' test, see org.csstudio.sns.msghist
  *
@@ -40,6 +51,9 @@ public class RDBPerfUnitTest
     /** Test runtime */
     final private static int SECONDS = 30;
 
+    /** Batch size for batch test */
+    final private static int BATCH_SIZE = 100;
+
     @Test
     public void perfTest() throws Exception
     {
@@ -72,4 +86,47 @@ public class RDBPerfUnitTest
                 count, ((double) count)/SECONDS);
         assertTrue(count > 1000);
     }
+
+    @Test
+    public void batchPerfTest() throws Exception
+    {
+        final TestProperties settings = new TestProperties();
+        final String url = settings.getString(MSG_LOG_URL);
+        final String schema = settings.getString("msg_log_schema");
+        if (url == null)
+        {
+            System.out.println("Skipping test, need " + MSG_LOG_URL);
+            return;
+        }
+
+        final RDBWriter rdb_writer = new RDBWriter(url, schema);
+
+        System.out.println("URL    : " + url);
+        System.out.println("Batch  : " + BATCH_SIZE + " messages");
+        System.out.println("Runtime: " + SECONDS + " seconds");
+
+        final List<ReceivedMessage> batch = new ArrayList<ReceivedMessage>(BATCH_SIZE);
+        final long end = System.currentTimeMillis() + SECONDS*1000;
+        int count = 0;
+        while (System.currentTimeMillis() < end)
+        {
+            batch.clear();
+            for (int i=0; i<BATCH_SIZE; ++i)
+            {
+                final MapMessage map = new ActiveMQMapMessage();
+                map.setString(JMSLogMessage.TYPE, JMSLogMessage.TYPE_LOG);
+                map.setString(JMSLogMessage.SEVERITY, "INFO");
+                map.setString(JMSLogMessage.TEXT, Integer.toString(++count));
+                map.setString(JMSLogMessage.HOST, "localhost");
+                map.setString(JMSLogMessage.USER, "test");
+                batch.add(new ReceivedMessage(map));
+            }
+            rdb_writer.write(batch);
+        }
+        rdb_writer.close();
+
+        System.out.format("Wrote %d messages = %.1f msg/sec\n",
+                count, ((double) count)/SECONDS);
+        assertTrue(count > 1000);
+    }
 }
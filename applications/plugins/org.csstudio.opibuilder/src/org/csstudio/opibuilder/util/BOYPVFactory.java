@@ -74,7 +74,8 @@ public class BOYPVFactory{
 			if(pvFactory == null)
 				throw new Exception("No such PVFactory extension available: " + pvConnectionLayer);			
 			return pvFactory.createPV(
-					name, false, updateDuration, bufferAllValues,  BOY_PV_THREAD, exceptionHandler);	
+					name, false, updateDuration, bufferAllValues,  BOY_PV_THREAD, exceptionHandler,
+					AbstractPVFactory.getDefaultListenerNotificationPool());	
 	}
 
 }
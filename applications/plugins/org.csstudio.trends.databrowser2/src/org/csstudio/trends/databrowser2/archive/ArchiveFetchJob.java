@@ -7,20 +7,29 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.archive;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
-import org.csstudio.archive.reader.ArchiveReader;
-import org.csstudio.archive.reader.ArchiveRepository;
-import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.HeapMergingValueIterator;
+import org.csstudio.archive.reader.cache.ArchiveCache;
 import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
 import org.csstudio.trends.databrowser2.model.PVItem;
-import org.csstudio.trends.databrowser2.model.RequestType;
+import org.csstudio.trends.databrowser2.model.PlotSample;
 import org.csstudio.trends.databrowser2.preferences.Preferences;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -31,6 +40,9 @@ import org.epics.vtype.VType;
 import org.epics.util.time.Timestamp;
 
 /** Eclipse Job for fetching archived data.
+ *  <p>
+ *  The archive data sources of the item are read concurrently
+ *  on thread pools that are shared by all jobs, one pool per data source.
  *  <p>
  *  Actually spawns another thread so that the 'main' job can
  *  poll the progress monitor for cancellation and ask the secondary
@@ -53,6 +65,66 @@ public class ArchiveFetchJob extends Job
 
     private static volatile int worker_instance = 0;
 
+    /** Seconds after which idle threads of a pool exit */
+    private static final long IDLE_SECONDS = 60;
+
+    /** Thread pools shared by all jobs for reading the archive data sources,
+     *  one per archive URL so that a slow archive doesn't hold up the others.
+     */
+    final private static Map<String, ExecutorService> executors = new HashMap<String, ExecutorService>();
+
+    /** Cache shared by all jobs, <code>null</code> if not configured */
+    private static ArchiveCache cache = null;
+
+    private static boolean cache_initialized = false;
+
+    /** @return Cache for archived samples or <code>null</code> */
+    static synchronized ArchiveCache getCache()
+    {
+        if (! cache_initialized)
+        {
+            cache_initialized = true;
+            final int samples = Preferences.getArchiveCacheSamples();
+            if (samples > 0)
+            {
+                final String directory = Preferences.getArchiveCacheDirectory();
+                cache = new ArchiveCache(samples,
+                        directory.isEmpty() ? null : new File(directory),
+                        Preferences.getArchiveCacheDiskMB());
+            }
+        }
+        return cache;
+    }
+
+    /** @param url Archive data source URL
+     *  @return Thread pool for {@link ArchiveFetchTask}s of that data source
+     */
+    private static synchronized ExecutorService getExecutor(final String url)
+    {
+        ExecutorService executor = executors.get(url);
+        if (executor == null)
+        {
+            final int threads = Math.max(1, Preferences.getArchiveFetchThreads());
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger instance = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "ArchiveFetchTask" + instance.incrementAndGet()); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+            executors.put(url, executor);
+        }
+        return executor;
+    }
+
     /** Thread that performs the actual background work.
      *
      *  Instead of directly accessing the archive, ArchiveFetchJob launches
@@ -60,6 +132,11 @@ public class ArchiveFetchJob extends Job
      *  can then poll the progress monitor for cancellation and if
      *  necessary interrupt the WorkerThread which might be 'stuck'
      *  in a long running operation.
+     *
+     *  The archive data sources are read concurrently by
+     *  {@link ArchiveFetchTask}s. Their samples are merged by time stamp,
+     *  and handed to the item in time-ordered chunks
+     *  while the archives are still being read.
      */
     class WorkerThread extends Thread
     {
@@ -67,10 +144,10 @@ public class ArchiveFetchJob extends Job
         private volatile boolean cancelled = false;
         private volatile boolean done = false;
 
-        /** Archive reader that's currently queried.
+        /** Tasks that read the archive data sources.
          *  Synchronize 'this' on access.
          */
-        private ArchiveReader reader = null;
+        private ArchiveFetchTask tasks[] = null;
 
         /** Construct */
         public WorkerThread()
@@ -88,11 +165,9 @@ public class ArchiveFetchJob extends Job
         public synchronized void cancel()
         {
             cancelled = true;
-            synchronized (this)
-            {
-                if (reader != null)
-                    reader.cancel();
-            }
+            if (tasks != null)
+                for (ArchiveFetchTask task : tasks)
+                    task.cancel();
         }
 
         /** @return <code>true</code> when done (success, error, canceled) */
@@ -101,6 +176,28 @@ public class ArchiveFetchJob extends Job
             return done;
         }
 
+        /** Update progress message
+         *  @param archive Archive that provided the most recent samples
+         */
+        private void updateMessage(final ArchiveDataSource archive)
+        {
+            int finished = 0;
+            for (ArchiveFetchTask task : tasks)
+                if (task.isDone())
+                    ++finished;
+            // Display "N/total" for the number of archives that have been read
+            synchronized  (this)
+            {
+                message = NLS.bind(Messages.ArchiveFetchDetailFmt,
+                        new Object[]
+                        {
+                            archive.getName(),
+                            finished,
+                            tasks.length
+                        });
+            }
+        }
+
         /** {@inheritDoc} */
         @Override
         public void run()
@@ -108,57 +205,67 @@ public class ArchiveFetchJob extends Job
             Activator.getLogger().log(Level.FINE, "Starting {0}", ArchiveFetchJob.this); //$NON-NLS-1$
             final int bins = Preferences.getPlotBins();
             final ArchiveDataSource archives[] = item.getArchiveDataSources();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            synchronized (this)
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
-                // Display "N/total", using '1' for the first sub-archive.
-                synchronized  (this)
-                {
-                    message = NLS.bind(Messages.ArchiveFetchDetailFmt,
-                            new Object[]
-                            {
-                                archive.getName(),
-                                (i+1),
-                                archives.length
-                            });
-                }
-                try
-                {
-                    final ArchiveReader the_reader;
-                    synchronized (this)
-                    {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
-                    }
-                    final ValueIterator value_iter;
-                    if (item.getRequestType() == RequestType.RAW)
-                        value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(), start, end);
-                    else
-                        value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(), start, end, bins);
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
-                }
-                catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
-                }
-                finally
+                tasks = new ArchiveFetchTask[archives.length];
+                for (int i=0; i<archives.length; ++i)
+                    tasks[i] = new ArchiveFetchTask(getExecutor(archives[i].getUrl()),
+                            archives[i], item.getResolvedName(),
+                            item.getRequestType(), start, end, bins);
+                if (cancelled)
+                    for (ArchiveFetchTask task : tasks)
+                        task.cancel();
+            }
+            for (ArchiveFetchTask task : tasks)
+                task.start();
+            if (archives.length > 0)
+                updateMessage(archives[0]);
+            try
+            {
+                final HeapMergingValueIterator merge = new HeapMergingValueIterator(tasks);
+                List<PlotSample> chunk = new ArrayList<PlotSample>();
+                PlotSample last = null;
+                int last_source = -1;
+                boolean delivered = false;
+                long next_delivery = System.currentTimeMillis() + POLL_PERIOD_MS;
+                while (!cancelled  &&  merge.hasNext())
                 {
-                    synchronized (this)
+                    final VType value = merge.next();
+                    final int source = merge.getSourceIndex();
+                    // Several archives may hold the same sample: Use the first one
+                    if (last != null  &&  source != last_source  &&
+                        VTypeHelper.getTimestamp(value).equals(last.getTime()))
+                        continue;
+                    last = new PlotSample(tasks[source].getServerName(), value);
+                    last_source = source;
+                    chunk.add(last);
+                    final long now = System.currentTimeMillis();
+                    if (now >= next_delivery)
                     {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
+                        item.mergeArchivedSamples(chunk.toArray(new PlotSample[chunk.size()]));
+                        updateMessage(archives[source]);
+                        // Start next chunk with the last sample, so that the chunks
+                        // overlap and replace all previous samples in their time range
+                        chunk = new ArrayList<PlotSample>();
+                        chunk.add(last);
+                        delivered = true;
+                        next_delivery = now + POLL_PERIOD_MS;
                     }
                 }
+                if (!cancelled  &&  chunk.size() > (delivered ? 1 : 0))
+                    item.mergeArchivedSamples(chunk.toArray(new PlotSample[chunk.size()]));
+                merge.close();
+            }
+            catch (Exception ex)
+            {   // Tasks don't throw, so this is unexpected
+                Activator.getLogger().log(Level.WARNING, "Error merging archived data for " + item.getName(), ex); //$NON-NLS-1$
+            }
+            for (ArchiveFetchTask task : tasks)
+            {   // Tell listener unless it's the result of a 'cancel'
+                task.close();
+                final Exception error = task.getError();
+                if (error != null  &&  !cancelled)
+                    listener.archiveFetchFailed(ArchiveFetchJob.this, task.getArchive(), error);
             }
             if (!cancelled)
                 listener.fetchCompleted(ArchiveFetchJob.this);
@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.ArchiveRepository;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.cache.ArchiveCache;
+import org.csstudio.archive.reader.cache.CachingArchiveReader;
+import org.csstudio.trends.databrowser2.Activator;
+import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
+import org.csstudio.trends.databrowser2.model.RequestType;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+
+/** Reads the samples of one archive data source.
+ *  <p>
+ *  Executed on a thread pool so that several archive data sources
+ *  can be read concurrently.
+ *  The received samples are handed to the consumer in chunks,
+ *  via the {@link ValueIterator} API of this task.
+ *  <p>
+ *  Only a limited number of chunks is queued.
+ *  When the consumer doesn't keep up, the task stops reading the archive
+ *  and re-submits itself to the thread pool instead of blocking the thread,
+ *  because the consumer may be waiting for a task that is queued
+ *  behind this one on the same pool.
+ *  <p>
+ *  Errors are not thrown by the iterator, which simply ends.
+ *  They are available via {@link #getError()}.
+ */
+@SuppressWarnings("nls")
+class ArchiveFetchTask implements Runnable, ValueIterator
+{
+    /** Chunk that marks the end of the samples */
+    final private static List<VType> END = Collections.emptyList();
+
+    /** Number of samples per chunk */
+    final private static int CHUNK_SIZE = 1000;
+
+    /** Number of chunks queued for the consumer */
+    final private static int QUEUE_SIZE = 10;
+
+    /** Time to wait for room in the queue before yielding the thread */
+    final private static long YIELD_MS = 100;
+
+    final private Executor executor;
+    final private ArchiveDataSource archive;
+    final private String name;
+    final private RequestType request;
+    final private Timestamp start, end;
+    final private int bins;
+
+    /** Chunks of samples, {@link #END} after the last chunk */
+    final private BlockingQueue<List<VType>> queue = new ArrayBlockingQueue<List<VType>>(QUEUE_SIZE);
+
+    private volatile boolean cancelled = false;
+
+    /** Set when the archive has been read (success, error, cancelled) */
+    private volatile boolean done = false;
+
+    /** Archive reader that's currently queried.
+     *  Synchronize 'this' on access.
+     */
+    private ArchiveReader reader = null;
+
+    /** Name of archive server, set once reader is connected */
+    private volatile String server_name;
+
+    /** Error while reading the archive */
+    private volatile Exception error = null;
+
+    /** Iterator for the samples, set while reading the archive.
+     *  Like {@link #pending} and {@link #read_all} only accessed by the
+     *  task, which runs on one thread at a time.
+     */
+    private ValueIterator value_iter = null;
+
+    /** Chunk that didn't fit into the queue */
+    private List<VType> pending = null;
+
+    /** Set when the archive has been read, with only {@link #END} left to queue */
+    private boolean read_all = false;
+
+    /** Current chunk */
+    private List<VType> chunk = null;
+
+    /** Index of next sample in current chunk */
+    private int index = 0;
+
+    /** Initialize
+     *  @param executor Executor for reading the archive
+     *  @param archive Archive data source
+     *  @param name Channel name
+     *  @param request Request type
+     *  @param start Start time
+     *  @param end End time
+     *  @param bins Number of bins for optimized request
+     */
+    public ArchiveFetchTask(final Executor executor,
+            final ArchiveDataSource archive, final String name,
+            final RequestType request, final Timestamp start, final Timestamp end,
+            final int bins)
+    {
+        this.executor = executor;
+        this.archive = archive;
+        this.name = name;
+        this.request = request;
+        this.start = start;
+        this.end = end;
+        this.bins = bins;
+        server_name = archive.getName();
+    }
+
+    /** Start reading the archive on the executor */
+    public void start()
+    {
+        executor.execute(this);
+    }
+
+    /** @return Archive data source */
+    public ArchiveDataSource getArchive()
+    {
+        return archive;
+    }
+
+    /** @return Name of the archive server, to be used as the source of samples */
+    public String getServerName()
+    {
+        return server_name;
+    }
+
+    /** @return Error while reading the archive or <code>null</code> */
+    public Exception getError()
+    {
+        return error;
+    }
+
+    /** @return <code>true</code> when the archive has been read */
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /** Read the archive data source */
+    @Override
+    public void run()
+    {
+        if (! read_all)
+        {
+            try
+            {
+                if (! readSamples())
+                    return;
+            }
+            catch (Exception ex)
+            {
+                if (! cancelled)
+                    error = ex;
+                Activator.getLogger().log(Level.FINE, "Error reading " + archive.getName(), ex);
+            }
+            closeReader();
+            read_all = true;
+        }
+        // Consumer no longer reads the samples, only waits for the END
+        if (cancelled)
+            queue.clear();
+        if (! queueChunk(END))
+            return;
+        done = true;
+    }
+
+    /** Read samples into the queue
+     *  @return <code>true</code> when done, <code>false</code> when the task yielded its thread
+     *  @throws Exception on error
+     */
+    private boolean readSamples() throws Exception
+    {
+        if (value_iter == null)
+        {
+            final ArchiveReader the_reader;
+            synchronized (this)
+            {
+                if (cancelled)
+                    return true;
+                final ArchiveReader archive_reader = ArchiveRepository.getInstance().getArchiveReader(archive.getUrl());
+                final ArchiveCache cache = ArchiveFetchJob.getCache();
+                if (cache == null)
+                    the_reader = reader = archive_reader;
+                else
+                    the_reader = reader = new CachingArchiveReader(archive_reader, cache);
+            }
+            server_name = the_reader.getServerName();
+            if (request == RequestType.RAW)
+                value_iter = the_reader.getRawValues(archive.getKey(), name, start, end);
+            else
+                value_iter = the_reader.getOptimizedValues(archive.getKey(), name, start, end, bins);
+        }
+        while (!cancelled)
+        {
+            if (pending == null)
+            {
+                if (! value_iter.hasNext())
+                    break;
+                pending = new ArrayList<VType>(CHUNK_SIZE);
+                while (pending.size() < CHUNK_SIZE  &&  value_iter.hasNext())
+                    pending.add(value_iter.next());
+            }
+            if (! queueChunk(pending))
+                return false;
+            pending = null;
+        }
+        return true;
+    }
+
+    /** Add chunk to the queue.
+     *  If the queue stays full, re-submit the task to the executor
+     *  to let other tasks use the thread.
+     *  @param samples Chunk of samples
+     *  @return <code>true</code> when queued, <code>false</code> when the task yielded its thread
+     */
+    private boolean queueChunk(final List<VType> samples)
+    {
+        try
+        {
+            if (queue.offer(samples, YIELD_MS, TimeUnit.MILLISECONDS))
+                return true;
+        }
+        catch (InterruptedException ex)
+        {
+            cancel();
+            queue.clear();
+            return queue.offer(samples);
+        }
+        executor.execute(this);
+        return false;
+    }
+
+    /** Close the value iterator and reader */
+    private void closeReader()
+    {
+        if (value_iter != null)
+            value_iter.close();
+        value_iter = null;
+        pending = null;
+        synchronized (this)
+        {
+            if (reader != null)
+                reader.close();
+            reader = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        if (chunk != null  &&  index < chunk.size())
+            return true;
+        if (chunk == END)
+            return false;
+        // Wait for next chunk
+        try
+        {
+            do
+                chunk = queue.take();
+            while (chunk.isEmpty()  &&  chunk != END);
+        }
+        catch (InterruptedException ex)
+        {
+            close();
+            return false;
+        }
+        index = 0;
+        return chunk != END;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (! hasNext())
+            throw new IllegalStateException();
+        return chunk.get(index++);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        cancel();
+        chunk = END;
+        queue.clear();
+    }
+
+    /** Request task to cancel its operation */
+    public void cancel()
+    {
+        cancelled = true;
+        synchronized (this)
+        {
+            if (reader != null)
+                reader.cancel();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ArchiveFetchTask for " + name + " from " + archive.getName();
+    }
+}
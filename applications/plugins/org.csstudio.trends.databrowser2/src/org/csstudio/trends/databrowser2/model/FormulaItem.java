@@ -11,6 +11,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.csstudio.apputil.formula.CompiledFormula;
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
 import org.csstudio.apputil.xml.DOMHelper;
@@ -49,7 +50,7 @@ public class FormulaItem extends ModelItem
      *  All access to <code>formula</code>, <code>inputs</code>,
      *  <code>variables</code> must therefore synchronize on <code>this</code>.
      */
-    private Formula formula;
+    private CompiledFormula formula;
 
     /** Input elements to the formula
      *  @see #formula for synchronization
@@ -120,7 +121,7 @@ public class FormulaItem extends ModelItem
             variables = new VariableNode[inputs.length];
             for (int i=0; i<variables.length; ++i)
                 variables[i] = new VariableNode(inputs[i].getVariableName());
-            this.formula = new Formula(expression, variables);
+            this.formula = new CompiledFormula(new Formula(expression, variables));
         }
         fireItemLookChanged();
     }
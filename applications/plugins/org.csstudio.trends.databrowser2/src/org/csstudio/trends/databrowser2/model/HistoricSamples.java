@@ -9,6 +9,7 @@ package org.csstudio.trends.databrowser2.model;
 
 import java.util.List;
 
+import org.csstudio.swt.xygraph.linearscale.Range;
 import org.epics.util.time.Timestamp;
 import org.epics.vtype.VType;
 
@@ -25,6 +26,8 @@ import org.epics.vtype.VType;
  *  the live data ring buffer rolls around, the 'border' time adjustments
  *  might then uncover historic samples that were previously
  *  hidden below the 'live' time range.
+ *  <p>
+ *  Samples are kept in {@link SampleColumns}.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed HistoricSamples to handle waveform index.
@@ -32,7 +35,7 @@ import org.epics.vtype.VType;
 public class HistoricSamples extends PlotSamples
 {
     /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    private SampleColumns samples = new SampleColumns(0);
 
     /** If non-null, samples beyond this time are hidden from access */
     private Timestamp border_time = null;
@@ -49,9 +52,6 @@ public class HistoricSamples extends PlotSamples
     public synchronized void setWaveformIndex(int index)
     {
     	waveform_index = index;
-    	// change the index of all samples in this instance
-    	for (PlotSample sample: samples)
-    		sample.setWaveformIndex(waveform_index);
     }
 
     /** Define a new 'border' time beyond which no samples
@@ -80,11 +80,10 @@ public class HistoricSamples extends PlotSamples
     synchronized private void computeVisibleSize()
     {
         if (border_time == null)
-            visible_size = samples.length;
+            visible_size = samples.size();
         else
         {
-            final int last_index = PlotSampleSearch.findSampleLessThan(
-                                        samples, border_time);
+            final int last_index = samples.findSampleLessThan(border_time);
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
     }
@@ -96,7 +95,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i, waveform_index);
     }
 
     /** {@inheritDoc} */
@@ -110,7 +109,7 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public synchronized int getRawSize() {
-    	return samples.length;
+    	return samples.size();
     }
     
     /**
@@ -120,7 +119,7 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public synchronized PlotSample getRawSample(int i) {
-    	return samples[i];
+    	return samples.get(i, waveform_index);
     }
 
     /** Merge newly received archive data into historic samples
@@ -134,12 +133,24 @@ public class HistoricSamples extends PlotSamples
             return;
         // Turn IValues into PlotSamples
         final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i) {
+        for (int i=0; i<new_samples.length; ++i)
             new_samples[i] = new PlotSample(source, result.get(i));
-            new_samples[i].setWaveformIndex(waveform_index);
-        }
+        mergeArchivedData(new_samples);
+    }
+
+    /** Merge newly received archive data into historic samples
+     *  @param new_samples Samples to add/merge, time-ordered
+     */
+    synchronized public void mergeArchivedData(final PlotSample new_samples[])
+    {
+        // Anything new at all?
+        if (new_samples.length <= 0)
+            return;
+        final SampleColumns add = new SampleColumns(new_samples.length);
+        for (PlotSample sample : new_samples)
+            add.add(sample);
         // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
+        final SampleColumns merged = samples.merge(add);
         if (merged == samples)
             return;
         samples = merged;
@@ -151,7 +162,23 @@ public class HistoricSamples extends PlotSamples
     synchronized public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples = new SampleColumns(0);
         have_new_samples = true;
     }
+
+    /** @return Time range of visible samples */
+    @Override
+    synchronized public Range getXDataMinMax()
+    {
+        if (visible_size <= 0)
+            return null;
+        return new Range(samples.getXValue(0), samples.getXValue(visible_size-1));
+    }
+
+    /** @return Value range of visible samples */
+    @Override
+    synchronized public Range getYDataMinMax()
+    {
+        return samples.getYRange(visible_size, waveform_index);
+    }
 }
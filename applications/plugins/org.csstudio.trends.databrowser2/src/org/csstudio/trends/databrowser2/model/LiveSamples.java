@@ -7,20 +7,21 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.model;
 
-import org.csstudio.apputil.ringbuffer.RingBuffer;
+import org.csstudio.swt.xygraph.linearscale.Range;
 import org.csstudio.trends.databrowser2.preferences.Preferences;
 
 /** Ring buffer for 'live' samples.
  *  <p>
- *  New samples are always added to the end of a ring buffer.
+ *  New samples are always added to the end of a ring buffer,
+ *  using {@link SampleColumns}.
  * 
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
  */
 public class LiveSamples extends PlotSamples
 {
-    private RingBuffer<PlotSample> samples =
-        new RingBuffer<PlotSample>(Preferences.getLiveSampleBufferSize());
+    private SampleColumns samples =
+        new SampleColumns(Preferences.getLiveSampleBufferSize());
     
     /** Waveform index */
     private int waveform_index = 0;
@@ -29,11 +30,6 @@ public class LiveSamples extends PlotSamples
     synchronized public void setWaveformIndex(int index)
     {
     	waveform_index = index;
-
-    	// Change the index of all samples in this instance
-    	for (int i=0; i<samples.size(); i++) {
-    		samples.get(i).setWaveformIndex(waveform_index);
-    	}
     }
     
     /** @return Maximum number of samples in ring buffer */
@@ -58,8 +54,7 @@ public class LiveSamples extends PlotSamples
     /** @param sample Sample to add to ring buffer */
     synchronized void add(final PlotSample sample)
     {
-    	sample.setWaveformIndex(waveform_index);
-        samples.add(sample);
+        samples.addToRing(sample);
         have_new_samples = true;
     }
 
@@ -72,7 +67,24 @@ public class LiveSamples extends PlotSamples
     @Override
     synchronized public PlotSample getSample(final int i)
     {
-        return samples.get(i);
+        return samples.get(i, waveform_index);
+    }
+
+    /** @return Time range */
+    @Override
+    synchronized public Range getXDataMinMax()
+    {
+        final int n = samples.size();
+        if (n <= 0)
+            return null;
+        return new Range(samples.getXValue(0), samples.getXValue(n-1));
+    }
+
+    /** @return Value range */
+    @Override
+    synchronized public Range getYDataMinMax()
+    {
+        return samples.getYRange(samples.size(), waveform_index);
     }
 
     /** Delete all samples */
@@ -428,6 +428,17 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>,
         }
     }
 
+    /** Add data retrieved from archives to the 'historic' section
+     *  @param new_samples Historic data, time-ordered, may combine several archives
+     */
+    synchronized public void mergeArchivedSamples(final PlotSample new_samples[])
+    {
+        samples.mergeArchivedData(new_samples);
+        if (automaticRefresh && samples.isHistoryRefreshNeeded(model.getStartTime(), model.getEndTime())) {
+        	model.fireItemRefreshRequested(this);
+        }
+    }
+
     /** Write XML formatted PV configuration
      *  @param writer PrintWriter
      */
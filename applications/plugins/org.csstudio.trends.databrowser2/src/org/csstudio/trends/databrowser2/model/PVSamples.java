@@ -220,6 +220,18 @@ public class PVSamples extends PlotSamples
         history.mergeArchivedData(source, result);
     }
 
+    /** Add data retrieved from archives to the 'historic' section
+     *  @param result Historic data, time-ordered
+     */
+    synchronized public void mergeArchivedData(final PlotSample result[])
+    {
+    	if (emptyHistoryOnAdd) {
+    		emptyHistoryOnAdd = false;
+    		history.clear();
+    	}
+        history.mergeArchivedData(result);
+    }
+
     /** Add another 'live' sample
      *  @param value 'Live' sample
      */
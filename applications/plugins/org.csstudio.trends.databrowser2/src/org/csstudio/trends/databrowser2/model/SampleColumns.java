@@ -0,0 +1,579 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.swt.xygraph.linearscale.Range;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+
+/** Column-oriented storage of {@link PlotSample}s.
+ *  <p>
+ *  Scalar numbers, enums and min/max/average statistics
+ *  are kept in primitive arrays for time, value and severity.
+ *  Status, source, display info and enum labels are
+ *  shared by all samples that have the same meta data.
+ *  Columns for statistics are only allocated when needed.
+ *  Other samples like arrays or text are kept as {@link PlotSample}.
+ *  <p>
+ *  {@link #get(int, int)} creates a {@link PlotSample} view of a
+ *  sample when requested.
+ *  Numbers are stored as double, so integer values beyond 2^53
+ *  lose precision.
+ *  <p>
+ *  The columns may be used as a ring buffer,
+ *  see {@link #addToRing(PlotSample)}.
+ *  <p>
+ *  Not thread-safe, callers need to synchronize.
+ */
+class SampleColumns
+{
+    /** Kinds of samples */
+    final private static byte DOUBLE = 0, INTEGER = 1, LONG = 2, ENUM = 3, STATISTICS = 4, OTHER = 5;
+
+    final private static AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    /** Meta data shared by samples */
+    private static class Meta
+    {
+        final byte kind;
+        final String source;
+        final String status;
+        final Display display;
+        final List<String> labels;
+        final int hash;
+
+        Meta(final byte kind, final String source, final String status,
+             final Display display, final List<String> labels)
+        {
+            this.kind = kind;
+            this.source = source;
+            this.status = status;
+            this.display = display;
+            this.labels = labels;
+            int h = kind;
+            h = 31*h + (source == null ? 0 : source.hashCode());
+            h = 31*h + (status == null ? 0 : status.hashCode());
+            h = 31*h + (display == null  ||  display.getUnits() == null ? 0 : display.getUnits().hashCode());
+            h = 31*h + (labels == null ? 0 : labels.hashCode());
+            hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (obj == this)
+                return true;
+            if (! (obj instanceof Meta))
+                return false;
+            final Meta other = (Meta) obj;
+            return kind == other.kind  &&
+                   equal(source, other.source)  &&
+                   equal(status, other.status)  &&
+                   equal(labels, other.labels)  &&
+                   equalDisplay(display, other.display);
+        }
+
+        private static boolean equal(final Object a, final Object b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private static boolean equalDisplay(final Display a, final Display b)
+        {
+            if (a == b)
+                return true;
+            if (a == null  ||  b == null)
+                return false;
+            return equal(a.getUnits(), b.getUnits())  &&
+                   equal(a.getFormat(), b.getFormat())  &&
+                   equal(a.getLowerDisplayLimit(), b.getLowerDisplayLimit())  &&
+                   equal(a.getUpperDisplayLimit(), b.getUpperDisplayLimit())  &&
+                   equal(a.getLowerAlarmLimit(), b.getLowerAlarmLimit())  &&
+                   equal(a.getUpperAlarmLimit(), b.getUpperAlarmLimit())  &&
+                   equal(a.getLowerWarningLimit(), b.getLowerWarningLimit())  &&
+                   equal(a.getUpperWarningLimit(), b.getUpperWarningLimit())  &&
+                   equal(a.getLowerCtrlLimit(), b.getLowerCtrlLimit())  &&
+                   equal(a.getUpperCtrlLimit(), b.getUpperCtrlLimit());
+        }
+    }
+
+    /** Meta data, indexed by the <code>metas</code> column */
+    final private List<Meta> meta_table = new ArrayList<Meta>();
+
+    /** Index of meta data in <code>meta_table</code> */
+    final private Map<Meta, Integer> meta_index = new HashMap<Meta, Integer>();
+
+    /** Time stamps in nanoseconds since 1970 */
+    private long[] times;
+
+    /** Numeric value, enum index or statistics average */
+    private double[] values;
+
+    /** Ordinal of the AlarmSeverity */
+    private byte[] severities;
+
+    /** Index into <code>meta_table</code> */
+    private int[] metas;
+
+    /** Statistics columns, <code>null</code> until needed */
+    private double[] mins = null, maxs = null, stddevs = null;
+    private int[] counts = null;
+
+    /** Samples of kind OTHER, <code>null</code> until needed */
+    private PlotSample[] objects = null;
+
+    /** Index of first sample in arrays. Only non-zero when used as ring buffer */
+    private int start = 0;
+
+    /** Number of samples */
+    private int size = 0;
+
+    /** Initialize
+     *  @param capacity Initial capacity
+     */
+    public SampleColumns(final int capacity)
+    {
+        allocate(Math.max(1, capacity));
+    }
+
+    /** Allocate empty columns
+     *  @param capacity Capacity
+     */
+    private void allocate(final int capacity)
+    {
+        times = new long[capacity];
+        values = new double[capacity];
+        severities = new byte[capacity];
+        metas = new int[capacity];
+        if (mins != null)
+            allocateStatistics();
+        if (objects != null)
+            objects = new PlotSample[capacity];
+        start = 0;
+        size = 0;
+    }
+
+    private void allocateStatistics()
+    {
+        final int capacity = times.length;
+        mins = new double[capacity];
+        maxs = new double[capacity];
+        stddevs = new double[capacity];
+        counts = new int[capacity];
+    }
+
+    /** @return Number of samples */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return Number of samples that can be held before growing resp. overwriting */
+    public int getCapacity()
+    {
+        return times.length;
+    }
+
+    /** @param i Logical sample index
+     *  @return Index in arrays
+     */
+    private int index(final int i)
+    {
+        final int p = start + i;
+        return p >= times.length ? p - times.length : p;
+    }
+
+    /** @param sample Sample to add, growing the columns as needed */
+    public void add(final PlotSample sample)
+    {
+        if (size >= times.length)
+            setCapacity(Math.max(16, 2*times.length));
+        set(index(size), sample);
+        ++size;
+    }
+
+    /** @param sample Sample to add. When the capacity has been reached,
+     *                the oldest sample is replaced.
+     */
+    public void addToRing(final PlotSample sample)
+    {
+        if (size < times.length)
+        {
+            set(index(size), sample);
+            ++size;
+        }
+        else
+        {
+            set(start, sample);
+            start = index(1);
+        }
+    }
+
+    /** Change capacity, keeping the newest samples
+     *  @param capacity New capacity
+     */
+    public void setCapacity(final int capacity)
+    {
+        final SampleColumns copy = new SampleColumns(capacity);
+        final int keep = Math.min(size, capacity);
+        copy.append(this, size - keep, keep);
+        replaceWith(copy);
+    }
+
+    /** @param other Columns whose content replaces this one */
+    private void replaceWith(final SampleColumns other)
+    {
+        meta_table.clear();
+        meta_table.addAll(other.meta_table);
+        meta_index.clear();
+        meta_index.putAll(other.meta_index);
+        times = other.times;
+        values = other.values;
+        severities = other.severities;
+        metas = other.metas;
+        mins = other.mins;
+        maxs = other.maxs;
+        stddevs = other.stddevs;
+        counts = other.counts;
+        objects = other.objects;
+        start = other.start;
+        size = other.size;
+    }
+
+    /** Delete all samples, keeping the capacity */
+    public void clear()
+    {
+        meta_table.clear();
+        meta_index.clear();
+        mins = maxs = stddevs = null;
+        counts = null;
+        objects = null;
+        allocate(times.length);
+    }
+
+    /** @param meta Meta data
+     *  @return Index in <code>meta_table</code>
+     */
+    private int intern(final Meta meta)
+    {
+        final Integer index = meta_index.get(meta);
+        if (index != null)
+            return index;
+        final int new_index = meta_table.size();
+        meta_table.add(meta);
+        meta_index.put(meta, new_index);
+        return new_index;
+    }
+
+    /** Store sample in arrays
+     *  @param p Index in arrays
+     *  @param sample Sample
+     */
+    private void set(final int p, final PlotSample sample)
+    {
+        final VType value = sample.getValue();
+        byte kind = OTHER;
+        if (value instanceof Time)
+        {
+            if (value instanceof VStatistics)
+                kind = STATISTICS;
+            else if (value instanceof VNumber)
+            {
+                final Number number = ((VNumber) value).getValue();
+                if (number instanceof Double)
+                    kind = DOUBLE;
+                else if (number instanceof Integer)
+                    kind = INTEGER;
+                else if (number instanceof Long)
+                    kind = LONG;
+            }
+            else if (value instanceof VEnum)
+                kind = ENUM;
+        }
+        if (kind == OTHER)
+        {
+            if (objects == null)
+                objects = new PlotSample[times.length];
+            objects[p] = sample;
+            times[p] = toNanos(sample.getTime());
+            values[p] = Double.NaN;
+            severities[p] = (byte) VTypeHelper.getSeverity(value).ordinal();
+            metas[p] = -1;
+            return;
+        }
+        if (objects != null)
+            objects[p] = null;
+        times[p] = toNanos(((Time) value).getTimestamp());
+        severities[p] = (byte) VTypeHelper.getSeverity(value).ordinal();
+        final Display display = (value instanceof Display) ? (Display) value : null;
+        final List<String> labels = (kind == ENUM) ? ((VEnum) value).getLabels() : null;
+        metas[p] = intern(new Meta(kind, sample.getSource(), VTypeHelper.getMessage(value), display, labels));
+        if (kind == STATISTICS)
+        {
+            if (mins == null)
+                allocateStatistics();
+            final VStatistics stats = (VStatistics) value;
+            values[p] = stats.getAverage();
+            mins[p] = stats.getMin();
+            maxs[p] = stats.getMax();
+            stddevs[p] = stats.getStdDev();
+            counts[p] = stats.getNSamples();
+        }
+        else
+            values[p] = VTypeHelper.toDouble(value);
+    }
+
+    /** @param time Time stamp
+     *  @return Nanoseconds since 1970
+     */
+    private static long toNanos(final Timestamp time)
+    {
+        return time.getSec() * 1000000000L + time.getNanoSec();
+    }
+
+    /** @param nanos Nanoseconds since 1970
+     *  @return Time stamp
+     */
+    private static Timestamp toTimestamp(final long nanos)
+    {
+        long secs = nanos / 1000000000L;
+        int nano = (int) (nanos % 1000000000L);
+        if (nano < 0)
+        {
+            --secs;
+            nano += 1000000000;
+        }
+        return Timestamp.of(secs, nano);
+    }
+
+    /** @param i Sample index
+     *  @return Time stamp of sample
+     */
+    public Timestamp getTime(final int i)
+    {
+        return toTimestamp(times[index(i)]);
+    }
+
+    /** @param i Sample index
+     *  @return Time of sample in milliseconds since 1970, as used for the XYGraph
+     */
+    public double getXValue(final int i)
+    {
+        return times[index(i)] / 1e6;
+    }
+
+    /** Get sample
+     *  @param i Sample index
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return {@link PlotSample} for the sample
+     */
+    public PlotSample get(final int i, final int waveform_index)
+    {
+        if (i < 0  ||  i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size); //$NON-NLS-1$ //$NON-NLS-2$
+        final int p = index(i);
+        final PlotSample sample;
+        if (metas[p] < 0)
+            sample = objects[p];
+        else
+            sample = new PlotSample(meta_table.get(metas[p]).source, getValue(p));
+        sample.setWaveformIndex(waveform_index);
+        return sample;
+    }
+
+    /** @param p Index in arrays of a sample that's not OTHER
+     *  @return Value of the sample
+     */
+    private VType getValue(final int p)
+    {
+        final Meta meta = meta_table.get(metas[p]);
+        final Timestamp time = toTimestamp(times[p]);
+        final AlarmSeverity severity = SEVERITIES[severities[p]];
+        switch (meta.kind)
+        {
+        case INTEGER:
+            return new ArchiveVNumber(time, severity, meta.status, meta.display, Integer.valueOf((int) values[p]));
+        case LONG:
+            return new ArchiveVNumber(time, severity, meta.status, meta.display, Long.valueOf((long) values[p]));
+        case ENUM:
+            return new ArchiveVEnum(time, severity, meta.status, meta.labels, (int) values[p]);
+        case STATISTICS:
+            return new ArchiveVStatistics(time, severity, meta.status, meta.display,
+                    values[p], mins[p], maxs[p], stddevs[p], counts[p]);
+        default:
+            return new ArchiveVNumber(time, severity, meta.status, meta.display, Double.valueOf(values[p]));
+        }
+    }
+
+    /** Append samples from other columns
+     *  @param other Source of samples
+     *  @param first Index of first sample to copy
+     *  @param count Number of samples to copy
+     */
+    private void append(final SampleColumns other, final int first, final int count)
+    {
+        if (count <= 0)
+            return;
+        if (size + count > times.length)
+            setCapacity(Math.max(size + count, 2*times.length));
+        // Translate meta data indices
+        final int[] meta_map = new int[other.meta_table.size()];
+        for (int m=0; m<meta_map.length; ++m)
+            meta_map[m] = intern(other.meta_table.get(m));
+        if (other.mins != null  &&  mins == null)
+            allocateStatistics();
+        if (other.objects != null  &&  objects == null)
+            objects = new PlotSample[times.length];
+        for (int i=0; i<count; ++i)
+        {
+            final int s = other.index(first + i);
+            final int p = index(size);
+            times[p] = other.times[s];
+            values[p] = other.values[s];
+            severities[p] = other.severities[s];
+            final int meta = other.metas[s];
+            if (meta < 0)
+            {
+                metas[p] = -1;
+                objects[p] = other.objects[s];
+            }
+            else
+            {
+                metas[p] = meta_map[meta];
+                if (objects != null)
+                    objects[p] = null;
+                if (other.mins != null)
+                {
+                    mins[p] = other.mins[s];
+                    maxs[p] = other.maxs[s];
+                    stddevs[p] = other.stddevs[s];
+                    counts[p] = other.counts[s];
+                }
+            }
+            ++size;
+        }
+    }
+
+    /** Combine with newly received samples.
+     *  Where the time ranges overlap, the new samples replace the existing ones.
+     *  @param add Newly received samples
+     *  @return Columns that combine existing and new samples
+     *  @see PlotSampleMerger
+     */
+    public SampleColumns merge(final SampleColumns add)
+    {
+        if (add.size <= 0)
+            return this;
+        if (size <= 0)
+            return add;
+        final long add_start = add.times[add.index(0)];
+        final long add_end = add.times[add.index(add.size-1)];
+        // Existing samples before and after the new ones
+        final int before = findIndex(add_start, false);
+        final int after = findIndex(add_end, true);
+        final SampleColumns result = new SampleColumns(before + add.size + (size - after));
+        result.append(this, 0, before);
+        result.append(add, 0, add.size);
+        result.append(this, after, size - after);
+        return result;
+    }
+
+    /** @param nanos Time
+     *  @param inclusive Include samples at the given time?
+     *  @return Index of first sample at-or-after resp. after the time, or size
+     */
+    private int findIndex(final long nanos, final boolean inclusive)
+    {
+        int low = 0, high = size;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            final long time = times[index(mid)];
+            if (time < nanos  ||  (inclusive  &&  time == nanos))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** Find the last sample that's before the given time.
+     *  @param goal The time to look for.
+     *  @return Index of sample before given goal, or -1.
+     */
+    public int findSampleLessThan(final Timestamp goal)
+    {
+        return findIndex(toNanos(goal), false) - 1;
+    }
+
+    /** Determine value range
+     *  @param count Number of samples to check, starting at 0
+     *  @param waveform_index Waveform index
+     *  @return Value range or <code>null</code>
+     */
+    public Range getYRange(final int count, final int waveform_index)
+    {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i=0; i<count; ++i)
+        {
+            final int p = index(i);
+            double low, high;
+            if (metas[p] < 0)
+            {
+                final PlotSample sample = objects[p];
+                sample.setWaveformIndex(waveform_index);
+                final double val = sample.getYValue();
+                low = val - sample.getYMinusError();
+                high = val + sample.getYPlusError();
+            }
+            else if (waveform_index != 0)
+                continue;
+            else
+            {
+                low = high = values[p];
+                if (mins != null  &&  meta_table.get(metas[p]).kind == STATISTICS)
+                {
+                    low = mins[p];
+                    high = maxs[p];
+                }
+            }
+            if (Double.isNaN(low)  ||  Double.isInfinite(low)  ||
+                Double.isNaN(high)  ||  Double.isInfinite(high))
+                continue;
+            if (low < min)
+                min = low;
+            if (high > max)
+                max = high;
+        }
+        if (min == Double.MAX_VALUE  ||  max == -Double.MAX_VALUE)
+            return null;
+        return new Range(min, max);
+    }
+}
@@ -49,6 +49,10 @@ public class Preferences
 			UPDATE_PERIOD = "update_period", LINE_WIDTH = "line_width",
 			TRACE_TYPE = "trace_type",
 			ARCHIVE_FETCH_DELAY = "archive_fetch_delay",
+			ARCHIVE_FETCH_THREADS = "archive_fetch_threads",
+			ARCHIVE_CACHE_SAMPLES = "archive_cache_samples",
+			ARCHIVE_CACHE_DIRECTORY = "archive_cache_directory",
+			ARCHIVE_CACHE_DISK_MB = "archive_cache_disk_mb",
 			PLOT_BINS = "plot_bins", URLS = "urls", ARCHIVES = "archives",
 			USE_DEFAULT_ARCHIVES = "use_default_archives",
 			PROMPT_FOR_ERRORS = "prompt_for_errors",
@@ -138,6 +142,38 @@ public class Preferences
         return prefs.getLong(Activator.PLUGIN_ID, ARCHIVE_FETCH_DELAY, 1000, null);
     }
 
+    public static int getArchiveFetchThreads()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return 16;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_FETCH_THREADS, 16, null);
+    }
+
+    public static int getArchiveCacheSamples()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return 0;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_CACHE_SAMPLES, 0, null);
+    }
+
+    public static String getArchiveCacheDirectory()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return "";
+        return prefs.getString(Activator.PLUGIN_ID, ARCHIVE_CACHE_DIRECTORY, "", null).trim();
+    }
+
+    public static int getArchiveCacheDiskMB()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return 100;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_CACHE_DISK_MB, 100, null);
+    }
+
     public static int getPlotBins()
     {
         final IPreferencesService prefs = Platform.getPreferencesService();
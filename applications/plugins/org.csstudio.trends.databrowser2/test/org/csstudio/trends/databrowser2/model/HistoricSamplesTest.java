@@ -12,6 +12,7 @@ import static org.junit.Assert.assertEquals;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.swt.xygraph.linearscale.Range;
 import org.epics.util.time.Timestamp;
 import org.epics.vtype.VType;
@@ -25,6 +26,13 @@ import org.junit.Test;
 @SuppressWarnings("nls")
 public class HistoricSamplesTest
 {
+    /** Samples are re-created from columns, so compare time and value */
+    private void assertSameSample(final VType expected, final VType actual)
+    {
+        assertEquals(VTypeHelper.getTimestamp(expected), VTypeHelper.getTimestamp(actual));
+        assertEquals(VTypeHelper.toDouble(expected), VTypeHelper.toDouble(actual), 0.0);
+    }
+
     @Test
     public void addArchivedData()
     {
@@ -41,8 +49,8 @@ public class HistoricSamplesTest
         //System.out.println(history);
 
         assertEquals(N, history.getSize());
-        assertEquals(samples.get(0), history.getSample(0).getValue());
-        assertEquals(samples.get(N-1), history.getSample(N-1).getValue());
+        assertSameSample(samples.get(0), history.getSample(0).getValue());
+        assertSameSample(samples.get(N-1), history.getSample(N-1).getValue());
 
         Range range = history.getYDataMinMax();
         //System.out.println(range);
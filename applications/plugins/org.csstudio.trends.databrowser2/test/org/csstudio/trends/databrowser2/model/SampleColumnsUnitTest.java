@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.swt.xygraph.linearscale.Range;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link SampleColumns} */
+@SuppressWarnings("nls")
+public class SampleColumnsUnitTest
+{
+    private PlotSample makeSample(final int i)
+    {
+        return new PlotSample("Test", new ArchiveVNumber(Timestamp.of(i, i), AlarmSeverity.MINOR, "LOW", null, Double.valueOf(i)));
+    }
+
+    private void checkSample(final PlotSample sample, final int i)
+    {
+        assertThat(sample.getSource(), equalTo("Test"));
+        assertThat(sample.getTime(), equalTo(Timestamp.of(i, i)));
+        assertThat(VTypeHelper.toDouble(sample.getValue()), equalTo((double) i));
+        assertThat(VTypeHelper.getSeverity(sample.getValue()), equalTo(AlarmSeverity.MINOR));
+        assertThat(VTypeHelper.getMessage(sample.getValue()), equalTo("LOW"));
+    }
+
+    @Test
+    public void testKinds()
+    {
+        final SampleColumns columns = new SampleColumns(1);
+        columns.add(makeSample(1));
+        columns.add(new PlotSample("Test", new ArchiveVStatistics(Timestamp.of(2, 0), AlarmSeverity.NONE, "", null, 2.0, 1.0, 3.0, 0.5, 10)));
+        columns.add(new PlotSample("Test", new ArchiveVEnum(Timestamp.of(3, 0), AlarmSeverity.NONE, "", Arrays.asList("Off", "On"), 1)));
+        columns.add(new PlotSample("Test", TestHelper.makeWaveform(4, new double[] { 4.0, 5.0 })));
+        columns.add(new PlotSample("Test", new ArchiveVNumber(Timestamp.of(5, 0), AlarmSeverity.NONE, "", null, Integer.valueOf(5))));
+        assertThat(columns.size(), equalTo(5));
+
+        checkSample(columns.get(0, 0), 1);
+
+        final VType stats = columns.get(1, 0).getValue();
+        assertThat(stats, instanceOf(VStatistics.class));
+        assertThat(((VStatistics) stats).getMin(), equalTo(1.0));
+        assertThat(((VStatistics) stats).getMax(), equalTo(3.0));
+        assertThat(((VStatistics) stats).getNSamples(), equalTo(10));
+
+        final VType enumerated = columns.get(2, 0).getValue();
+        assertThat(enumerated, instanceOf(VEnum.class));
+        assertThat(((VEnum) enumerated).getValue(), equalTo("On"));
+
+        // Arrays are kept as PlotSample, with waveform index applied
+        assertThat(columns.get(3, 1).getYValue(), equalTo(5.0));
+
+        assertThat(((ArchiveVNumber) columns.get(4, 0).getValue()).getValue(), equalTo((Number) Integer.valueOf(5)));
+
+        // Statistics add error bars, waveform element 1 is only available in array
+        assertThat(columns.getYRange(5, 0), equalTo(new Range(1.0, 5.0)));
+        assertThat(columns.getYRange(5, 1), equalTo(new Range(5.0, 5.0)));
+    }
+
+    @Test
+    public void testRing()
+    {
+        final SampleColumns columns = new SampleColumns(10);
+        for (int i=0; i<25; ++i)
+            columns.addToRing(makeSample(i));
+        assertThat(columns.size(), equalTo(10));
+        for (int i=0; i<10; ++i)
+            checkSample(columns.get(i, 0), 15+i);
+        assertThat(columns.findSampleLessThan(Timestamp.of(20, 0)), equalTo(4));
+        assertThat(columns.findSampleLessThan(Timestamp.of(20, 21)), equalTo(5));
+        assertThat(columns.findSampleLessThan(Timestamp.of(10, 0)), equalTo(-1));
+
+        // Keep newest samples
+        columns.setCapacity(5);
+        assertThat(columns.size(), equalTo(5));
+        checkSample(columns.get(0, 0), 20);
+        checkSample(columns.get(4, 0), 24);
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final SampleColumns old = new SampleColumns(0);
+        for (int i=0; i<10; ++i)
+            old.add(makeSample(2*i));
+        // Replace samples from 5 to 9
+        final SampleColumns add = new SampleColumns(0);
+        for (int i=5; i<=9; ++i)
+            add.add(makeSample(i));
+        final SampleColumns merged = old.merge(add);
+        // 0, 2, 4, 5, 6, 7, 8, 9, 10, ... 18
+        assertThat(merged.size(), equalTo(3 + 5 + 5));
+        checkSample(merged.get(2, 0), 4);
+        checkSample(merged.get(3, 0), 5);
+        checkSample(merged.get(7, 0), 9);
+        checkSample(merged.get(8, 0), 10);
+    }
+
+    private static long getUsedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Compare memory used by PlotSample[] and SampleColumns */
+    @Test
+    public void testMemory()
+    {
+        final int N = 200000;
+        long before = getUsedMemory();
+        final PlotSample[] array = new PlotSample[N];
+        for (int i=0; i<N; ++i)
+            array[i] = makeSample(i);
+        final long array_bytes = getUsedMemory() - before;
+
+        before = getUsedMemory();
+        final SampleColumns columns = new SampleColumns(N);
+        for (int i=0; i<N; ++i)
+            columns.add(makeSample(i));
+        final long column_bytes = getUsedMemory() - before;
+
+        System.out.format("PlotSample[]: %.1f bytes/sample, SampleColumns: %.1f bytes/sample\n",
+                          array_bytes / (double) N, column_bytes / (double) N);
+        // Keep both alive until measured
+        assertThat(array.length, equalTo(columns.size()));
+    }
+}
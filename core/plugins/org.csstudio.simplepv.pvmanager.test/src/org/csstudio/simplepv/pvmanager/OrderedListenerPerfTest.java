@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv.pvmanager;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.csstudio.simplepv.AbstractPVFactory;
+import org.csstudio.simplepv.IPV;
+import org.csstudio.simplepv.IPVListener;
+import org.epics.vtype.VNumber;
+import org.junit.Test;
+
+/** Benchmark of the listener notification with one slow listener
+ *
+ *  <p>Models a display with many widgets on one PV,
+ *  where a script of one widget takes long to handle each update.
+ *  Measures the latency from writing a value until the other listeners
+ *  are notified when all listeners share the notification thread of the PV
+ *  and when each listener is notified on its own ordered executor.
+ */
+@SuppressWarnings("nls")
+public class OrderedListenerPerfTest extends TestHelper
+{
+    final private static int LISTENERS = 50000;
+    final private static int UPDATES = 20;
+    final private static long UPDATE_MS = 100;
+    final private static long SLOW_MS = 500;
+
+    /** Time when each value was written */
+    final private long[] write_nanos = new long[UPDATES + 1];
+
+    final private AtomicLong notifications = new AtomicLong();
+    final private AtomicLong latency_sum_ns = new AtomicLong();
+    final private AtomicLong latency_max_ns = new AtomicLong();
+
+    private class LatencyListener extends IPVListener.Stub
+    {
+        final private CountDownLatch done;
+        private int last = 0;
+
+        public LatencyListener(final CountDownLatch done)
+        {
+            this.done = done;
+        }
+
+        @Override
+        public void valueChanged(final IPV pv)
+        {
+            final VNumber value = (VNumber) pv.getValue();
+            final int index = value == null ? 0 : value.getValue().intValue();
+            if (index <= last)
+                return;
+            last = index;
+            final long ns = System.nanoTime() - write_nanos[index];
+            notifications.incrementAndGet();
+            latency_sum_ns.addAndGet(ns);
+            long max = latency_max_ns.get();
+            while (ns > max  &&  !latency_max_ns.compareAndSet(max, ns))
+                max = latency_max_ns.get();
+            if (index == UPDATES)
+                done.countDown();
+        }
+    }
+
+    final private IPVListener slow_listener = new IPVListener.Stub()
+    {
+        @Override
+        public void valueChanged(final IPV pv)
+        {
+            try
+            {
+                TimeUnit.MILLISECONDS.sleep(SLOW_MS);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        }
+    };
+
+    private void runBenchmark(final String pv_name, final Executor listener_pool) throws Exception
+    {
+        final ExecutorService notification_thread = Executors.newSingleThreadExecutor();
+        final IPV pv = new PVManagerPV(pv_name, false, 10, false, notification_thread, null, listener_pool);
+        final CountDownLatch done = new CountDownLatch(LISTENERS);
+        pv.addListener(slow_listener);
+        for (int i=0; i<LISTENERS; ++i)
+            pv.addListener(new LatencyListener(done));
+        pv.start();
+        waitForConnection(pv);
+        for (int i=0; i<TIMEOUT_SECONDS*10  &&  !pv.isWriteAllowed(); ++i)
+            TimeUnit.MILLISECONDS.sleep(100);
+
+        notifications.set(0);
+        latency_sum_ns.set(0);
+        latency_max_ns.set(0);
+        for (int i=1; i<=UPDATES; ++i)
+        {
+            write_nanos[i] = System.nanoTime();
+            pv.setValue(i);
+            TimeUnit.MILLISECONDS.sleep(UPDATE_MS);
+        }
+        assertTrue(done.await(120, TimeUnit.SECONDS));
+
+        System.out.format("%-12s: %d listeners, %d updates: %d notifications, latency average %.1f ms, max %.1f ms\n",
+                          listener_pool == null ? "Shared" : "Per listener",
+                          LISTENERS, UPDATES, notifications.get(),
+                          latency_sum_ns.get() / 1e6 / notifications.get(), latency_max_ns.get() / 1e6);
+        pv.stop();
+        notification_thread.shutdown();
+    }
+
+    @Test(timeout=600000)
+    public void testSlowListener() throws Exception
+    {
+        runBenchmark("loc://perf_shared(0)", null);
+        runBenchmark("loc://perf_ordered(0)", AbstractPVFactory.getListenerNotificationPool());
+    }
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv.pvmanager;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.simplepv.AbstractPVFactory;
+import org.csstudio.simplepv.IPV;
+import org.csstudio.simplepv.IPVListener;
+import org.csstudio.simplepv.OrderedExecutor;
+import org.epics.vtype.VNumber;
+import org.junit.Test;
+
+/** Test of the per-listener notification */
+@SuppressWarnings("nls")
+public class OrderedListenerTest extends TestHelper
+{
+    /** Executors share a small pool, every executor must still run its tasks in order, one at a time */
+    @Test(timeout=60000)
+    public void testOrder() throws Exception
+    {
+        final int executors = 100, tasks = 1000;
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        final List<List<Integer>> results = new ArrayList<>();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(executors);
+        final List<OrderedExecutor> ordered = new ArrayList<>();
+        final List<AtomicBoolean> busy_flags = new ArrayList<>();
+        for (int e=0; e<executors; ++e)
+        {
+            ordered.add(new OrderedExecutor(pool));
+            results.add(new ArrayList<Integer>());
+            busy_flags.add(new AtomicBoolean());
+        }
+        // Interleave the submissions to all executors
+        for (int t=0; t<tasks; ++t)
+            for (int e=0; e<executors; ++e)
+            {
+                final List<Integer> result = results.get(e);
+                final AtomicBoolean busy = busy_flags.get(e);
+                final int task = t;
+                ordered.get(e).execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (busy.getAndSet(true))
+                            overlaps.incrementAndGet();
+                        result.add(task);
+                        busy.set(false);
+                        if (task == tasks-1)
+                            done.countDown();
+                    }
+                });
+            }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertThat(overlaps.get(), equalTo(0));
+        for (List<Integer> result : results)
+        {
+            assertThat(result.size(), equalTo(tasks));
+            for (int t=0; t<tasks; ++t)
+                assertThat(result.get(t), equalTo(t));
+        }
+    }
+
+    /** Slow listener of a PV must not delay another listener */
+    @Test(timeout=60000)
+    public void testSlowListener() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        final IPV pv = new PVManagerPV("loc://ordered_test(0)", false, 10, false,
+                                       Executors.newSingleThreadExecutor(), null, pool);
+        final CountDownLatch release_slow = new CountDownLatch(1);
+        final List<Integer> slow_values = Collections.synchronizedList(new ArrayList<Integer>());
+        final IPVListener slow = new IPVListener.Stub()
+        {
+            @Override
+            public void valueChanged(final IPV pv)
+            {
+                try
+                {
+                    release_slow.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+                slow_values.add(((VNumber) pv.getValue()).getValue().intValue());
+            }
+        };
+        final CountDownLatch fast_done = new CountDownLatch(1);
+        final IPVListener fast = new IPVListener.Stub()
+        {
+            @Override
+            public void valueChanged(final IPV pv)
+            {
+                if (((VNumber) pv.getValue()).getValue().intValue() == 10)
+                    fast_done.countDown();
+            }
+        };
+        pv.addListener(slow);
+        pv.addListener(fast);
+        pv.start();
+        waitForConnection(pv);
+        for (int i=0; i<10  &&  !pv.isWriteAllowed(); ++i)
+            TimeUnit.MILLISECONDS.sleep(100);
+
+        // Fast listener sees the last value while slow listener is blocked
+        for (int i=1; i<=10; ++i)
+        {
+            pv.setValue(i);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        assertTrue(fast_done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertThat(slow_values.size(), equalTo(0));
+
+        // Once unblocked, slow listener gets its notifications
+        pv.removeListener(fast);
+        release_slow.countDown();
+        for (int i=0; i<TIMEOUT_SECONDS*10  &&  (slow_values.isEmpty()  ||  slow_values.get(slow_values.size()-1) != 10); ++i)
+            TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(slow_values.get(slow_values.size()-1), equalTo(10));
+        pv.stop();
+        pool.shutdown();
+    }
+
+    /** Notifications of a blocked listener are combined, and dropped once it's removed */
+    @Test(timeout=60000)
+    public void testCoalesce() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger values = new AtomicInteger();
+        final AtomicInteger exceptions = new AtomicInteger();
+        final IPVListener listener = new IPVListener.Stub()
+        {
+            @Override
+            public void valueChanged(final IPV pv)
+            {
+                values.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+            }
+
+            @Override
+            public void exceptionOccurred(final IPV pv, final Exception exception)
+            {
+                exceptions.incrementAndGet();
+            }
+        };
+        OrderedPVListener ordered = new OrderedPVListener(listener, pool);
+        ordered.valueChanged(null);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // While the listener is busy, 100 updates result in one more notification
+        for (int i=0; i<100; ++i)
+        {
+            ordered.valueChanged(null);
+            ordered.exceptionOccurred(null, null);
+        }
+        release.countDown();
+        final CountDownLatch drained = new CountDownLatch(1);
+        new OrderedExecutor(pool).execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drained.countDown();
+            }
+        });
+        assertTrue(drained.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertThat(values.get(), equalTo(2));
+        assertThat(exceptions.get(), equalTo(100));
+
+        // Notifications that are queued when the listener is removed are dropped
+        final CountDownLatch block = new CountDownLatch(1);
+        pool.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    block.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+            }
+        });
+        ordered = new OrderedPVListener(listener, pool);
+        ordered.valueChanged(null);
+        ordered.exceptionOccurred(null, null);
+        ordered.remove();
+        block.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertThat(values.get(), equalTo(2));
+        assertThat(exceptions.get(), equalTo(100));
+    }
+
+    /** @param name Thread name
+     *  @return Single thread executor that uses the name
+     */
+    private ExecutorService createNamedExecutor(final String name)
+    {
+        return Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                return new Thread(runnable, name);
+            }
+        });
+    }
+
+    /** @param pv PV to start
+     *  @return Name of the thread that notified a listener of the first value
+     */
+    private String getNotificationThreadName(final IPV pv) throws Exception
+    {
+        final CountDownLatch notified = new CountDownLatch(1);
+        final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+        pv.addListener(new IPVListener.Stub()
+        {
+            @Override
+            public void valueChanged(final IPV pv)
+            {
+                names.add(Thread.currentThread().getName());
+                notified.countDown();
+            }
+        });
+        pv.start();
+        assertTrue(notified.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pv.stop();
+        return names.get(0);
+    }
+
+    /** Only the PVs that the caller requests with a listener pool use it */
+    @Test(timeout=60000)
+    public void testFactoryOptIn() throws Exception
+    {
+        final AbstractPVFactory factory = new PVManagerPVFactory();
+        final ExecutorService notification_thread = createNamedExecutor("Notify");
+        final ExecutorService pool = createNamedExecutor("Pool");
+
+        IPV pv = factory.createPV("loc://opt_in_test(1)", false, 10, false, notification_thread, null);
+        assertThat(getNotificationThreadName(pv), equalTo("Notify"));
+
+        pv = factory.createPV("loc://opt_in_test(1)", false, 10, false, notification_thread, null, pool);
+        assertThat(getNotificationThreadName(pv), equalTo("Pool"));
+
+        pv = factory.createPV("loc://opt_in_test(1)", false, 10, false, notification_thread, null, null);
+        assertThat(getNotificationThreadName(pv), equalTo("Notify"));
+
+        // PV that buffers all values doesn't use the pool,
+        // because a listener that runs behind would lose buffered values
+        pv = factory.createPV("loc://opt_in_test(1)", false, 10, true, notification_thread, null, pool);
+        assertThat(getNotificationThreadName(pv), equalTo("Notify"));
+
+        notification_thread.shutdown();
+        pool.shutdown();
+    }
+}
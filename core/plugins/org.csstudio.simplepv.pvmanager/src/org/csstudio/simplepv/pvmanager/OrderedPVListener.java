@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv.pvmanager;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.csstudio.simplepv.IPV;
+import org.csstudio.simplepv.IPVListener;
+import org.csstudio.simplepv.OrderedExecutor;
+
+/**
+ * {@link IPVListener} that forwards the notifications to a listener
+ * on its own {@link OrderedExecutor}.
+ *
+ * <p>While a value, connection or write permission notification is pending,
+ * further notifications of the same kind are dropped.
+ * The listener then reads the latest state from the PV,
+ * so a slow listener does not build up a backlog.
+ * It is therefore not used for PVs that buffer all values,
+ * since those values are only available until the next update.
+ * Exceptions and write results are always forwarded.
+ *
+ * <p>Once removed, pending notifications are no longer forwarded.
+ */
+class OrderedPVListener implements IPVListener {
+
+	final private IPVListener listener;
+	final private Executor executor;
+
+	final private AtomicBoolean valuePending = new AtomicBoolean(false);
+	final private AtomicBoolean connectionPending = new AtomicBoolean(false);
+	final private AtomicBoolean permissionPending = new AtomicBoolean(false);
+
+	private volatile boolean removed = false;
+
+	/**
+	 * @param listener listener to notify
+	 * @param pool pool that runs the ordered executor of the listener
+	 */
+	public OrderedPVListener(final IPVListener listener, final Executor pool) {
+		this.listener = listener;
+		this.executor = new OrderedExecutor(pool);
+	}
+
+	/** @return the listener that is notified */
+	public IPVListener getListener() {
+		return listener;
+	}
+
+	/** Stop forwarding notifications, including those already queued */
+	public void remove() {
+		removed = true;
+	}
+
+	/**
+	 * @param pending flag that is set while the notification is queued,
+	 *        or <code>null</code> to always queue the notification
+	 * @param notification notification of the listener
+	 */
+	private void submit(final AtomicBoolean pending, final Runnable notification) {
+		if (pending != null && !pending.compareAndSet(false, true))
+			return;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (pending != null)
+					pending.set(false);
+				if (!removed)
+					notification.run();
+			}
+		});
+	}
+
+	@Override
+	public void connectionChanged(final IPV pv) {
+		submit(connectionPending, new Runnable() {
+			@Override
+			public void run() {
+				listener.connectionChanged(pv);
+			}
+		});
+	}
+
+	@Override
+	public void exceptionOccurred(final IPV pv, final Exception exception) {
+		submit(null, new Runnable() {
+			@Override
+			public void run() {
+				listener.exceptionOccurred(pv, exception);
+			}
+		});
+	}
+
+	@Override
+	public void valueChanged(final IPV pv) {
+		submit(valuePending, new Runnable() {
+			@Override
+			public void run() {
+				listener.valueChanged(pv);
+			}
+		});
+	}
+
+	@Override
+	public void writeFinished(final IPV pv, final boolean isWriteSucceeded) {
+		submit(null, new Runnable() {
+			@Override
+			public void run() {
+				listener.writeFinished(pv, isWriteSucceeded);
+			}
+		});
+	}
+
+	@Override
+	public void writePermissionChanged(final IPV pv) {
+		submit(permissionPending, new Runnable() {
+			@Override
+			public void run() {
+				listener.writePermissionChanged(pv);
+			}
+		});
+	}
+
+}
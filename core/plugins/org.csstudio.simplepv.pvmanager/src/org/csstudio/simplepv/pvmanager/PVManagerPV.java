@@ -64,6 +64,12 @@ public class PVManagerPV implements IPV {
 	 */
 	private boolean readOnly;
 	private Executor notificationThread;
+	/**
+	 * Pool for the ordered executors of the listeners,
+	 * or null to notify all listeners on the notification thread.
+	 * Not used when all values are buffered.
+	 */
+	private Executor listenerPool;
 	private boolean isFormula;
 	private static boolean debug = false;
 	private static AtomicInteger counter = new AtomicInteger(0);
@@ -92,6 +98,38 @@ public class PVManagerPV implements IPV {
 	public PVManagerPV(final String name, final boolean readOnly,
 			final long minUpdatePeriodInMs,	final boolean bufferAllValues, final Executor notificationThread,
 			final org.csstudio.simplepv.ExceptionHandler exceptionHandler) {
+		this(name, readOnly, minUpdatePeriodInMs, bufferAllValues, notificationThread, exceptionHandler, null);
+	}
+
+	/**
+	 * Construct a PVManger PV.
+	 * 
+	 * @param name
+	 *            name of the PV. Must not be null.
+	 * @param readOnly
+	 *            true if the client doesn't need to write to the PV.
+	 * @param minUpdatePeriodInMs
+	 *            the minimum update period in millisecond. Must be large than 1ms.
+	 * @param bufferAllValues
+	 *            if all value on the PV should be buffered during two updates.
+	 * @param notificationThread
+	 *            the thread on which PVManager notifies the PV. Must not be null.
+	 * @param exceptionHandler
+	 *            the handler to handle all exceptions happened in pv connection
+	 *            layer. If this is null, pv read listener or pv write listener
+	 *            will be notified on read or write exceptions respectively.
+	 * @param listenerPool
+	 *            the pool on which each listener is notified in order, so a
+	 *            slow listener does not delay the others. Different listeners
+	 *            may be notified concurrently. If this is null, the
+	 *            listeners are notified on the notification thread.
+	 *            Ignored when all values are buffered, because a listener
+	 *            notified later would miss the buffered values of the
+	 *            updates in between.
+	 */
+	public PVManagerPV(final String name, final boolean readOnly,
+			final long minUpdatePeriodInMs,	final boolean bufferAllValues, final Executor notificationThread,
+			final org.csstudio.simplepv.ExceptionHandler exceptionHandler, final Executor listenerPool) {
 
 		this.name = name;
 		this.valueBuffered = bufferAllValues;
@@ -102,6 +140,7 @@ public class PVManagerPV implements IPV {
 		listeners = new CopyOnWriteArrayList<>();		
 
 		this.notificationThread = notificationThread;
+		this.listenerPool = listenerPool;
 		if (exceptionHandler != null) {
 			this.exceptionHandler = new ExceptionHandler() {
 				@Override
@@ -118,11 +157,17 @@ public class PVManagerPV implements IPV {
 									// buffered.
 		else
 			this.name = singleChannel;
+		// A listener that runs behind the notification thread would only
+		// see the values buffered for the latest update, losing the others.
+		if (valueBuffered)
+			this.listenerPool = null;
 
 	}
 
 	@Override
-	public synchronized void addListener(final IPVListener listener) {
+	public synchronized void addListener(final IPVListener pvListener) {
+		final IPVListener listener = listenerPool == null ? pvListener
+				: new OrderedPVListener(pvListener, listenerPool);
 		listeners.add(listener);
 		if (pvReader != null) {
 			// give an update on current value in notification thread.
@@ -322,7 +367,20 @@ public class PVManagerPV implements IPV {
 
 	@Override
 	public synchronized void removeListener(IPVListener listener) {
-		listeners.remove(listener);
+		for (IPVListener l : listeners) {
+			if (l instanceof OrderedPVListener) {
+				final OrderedPVListener ordered = (OrderedPVListener) l;
+				if (ordered.getListener().equals(listener)) {
+					// Drop notifications that are already queued
+					ordered.remove();
+					listeners.remove(l);
+					return;
+				}
+			} else if (l.equals(listener)) {
+				listeners.remove(l);
+				return;
+			}
+		}
 	}
 	
 	public static void setDebug(boolean debug) {
@@ -25,5 +25,12 @@ public class PVManagerPVFactory extends AbstractPVFactory {
 		return new PVManagerPV(name, readOnly, minUpdatePeriod, bufferAllValues, notificationThread, exceptionHandler);
 	}
 
+	@Override
+	public IPV createPV(String name, boolean readOnly, long minUpdatePeriod, boolean bufferAllValues,
+			Executor notificationThread, ExceptionHandler exceptionHandler, Executor listenerPool) {
+		return new PVManagerPV(name, readOnly, minUpdatePeriod, bufferAllValues, notificationThread,
+				exceptionHandler, listenerPool);
+	}
+
 	
 }
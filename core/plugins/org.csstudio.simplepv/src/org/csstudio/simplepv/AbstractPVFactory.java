@@ -11,6 +11,10 @@ package org.csstudio.simplepv;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The abstract factory that creates specific PV.
@@ -24,6 +28,12 @@ public abstract class AbstractPVFactory {
 	 */
 	static ExecutorService SIMPLE_PV_THREAD = null;
 	
+	/**
+	 * The pool that runs the ordered executors of the listeners. It will only be created
+	 * on its first use.
+	 */
+	static ExecutorService LISTENER_POOL = null;
+	
 	/**Create a PV.
 	 * @param name name of the PV. Must not be null.
 	 * @param readOnly true if the client doesn't need to write to the PV.
@@ -43,6 +53,42 @@ public abstract class AbstractPVFactory {
 			final Executor notificationThread,
 			final ExceptionHandler exceptionHandler) throws Exception;
 	
+	/**Create a PV whose listeners are each notified on their own {@link OrderedExecutor}.
+	 * <p>
+	 * The notifications of one listener keep their order and never overlap,
+	 * so a slow listener only delays its own notifications.
+	 * Different listeners, of the same PV or of different PVs, may be notified
+	 * concurrently on the threads of the pool.
+	 * <p>
+	 * The default implementation ignores the pool and notifies all listeners
+	 * on the notification thread. Factories that support the pool override it.
+	 * 
+	 * @param name name of the PV. Must not be null.
+	 * @param readOnly true if the client doesn't need to write to the PV.
+	 * @param minUpdatePeriodInMs the minimum update period in milliseconds, 
+	 * which means the PV change event notification will not be faster than this period.
+	 * @param bufferAllValues if all value on the PV should be buffered during two updates.
+	 * @param notificationThread the thread on which the PV is notified by the connection layer. Must not be null.
+	 * @param exceptionHandler the handler to handle all exceptions happened in pv connection layer. 
+	 * If this is null, pv read listener or pv write listener will be notified on read or write exceptions respectively.
+	 * @param listenerPool the pool that runs the ordered executors of the listeners,
+	 * for example {@link #getListenerNotificationPool()}.
+	 * If this is null, or if all values are buffered, all listeners are notified
+	 * on the notification thread.
+	 * 
+	 * @return the PV.
+	 * @throws Exception error on creating pv.
+	 */
+	public IPV createPV(final String name,
+			final boolean readOnly, final long minUpdatePeriodInMs,
+			final boolean bufferAllValues,
+			final Executor notificationThread,
+			final ExceptionHandler exceptionHandler,
+			final Executor listenerPool) throws Exception {
+		return createPV(name, readOnly, minUpdatePeriodInMs, bufferAllValues,
+				notificationThread, exceptionHandler);
+	}
+	
 	/**Create a PV with most of the parameters in default value:
 	 * <pre>
 	 * readOnly = false;
@@ -50,6 +96,7 @@ public abstract class AbstractPVFactory {
 	 * bufferAllValues = false;
 	 * notificationThread = {@link #SIMPLE_PV_THREAD}
 	 * exceptionHandler = null;
+	 * listenerPool = {@link #getDefaultListenerNotificationPool()}
 	 * </pre>
 	 * @param name name of the PV. Must not be null.
 	 * @return the pv.
@@ -59,7 +106,7 @@ public abstract class AbstractPVFactory {
 		if (SIMPLE_PV_THREAD == null)
 			SIMPLE_PV_THREAD = Executors.newSingleThreadExecutor();	
 		return createPV(name, false, 10,
-				false, SIMPLE_PV_THREAD, null);
+				false, SIMPLE_PV_THREAD, null, getDefaultListenerNotificationPool());
 	}
 	
 	public static synchronized ExecutorService getDefaultPVNotificationThread() {
@@ -68,4 +115,45 @@ public abstract class AbstractPVFactory {
 		return SIMPLE_PV_THREAD;
 	}
 
+	/**Get the pool for notifying each listener on its own {@link OrderedExecutor}.
+	 * Uses virtual threads when the JVM supports them, otherwise a pool
+	 * with the number of threads set in the preferences.
+	 * @return the shared pool for listener notifications.
+	 * @see #createPV(String, boolean, long, boolean, Executor, ExceptionHandler, Executor)
+	 */
+	public static synchronized ExecutorService getListenerNotificationPool() {
+		if (LISTENER_POOL == null) {
+			try {
+				LISTENER_POOL = (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+			} catch (Exception ex) {
+				// Virtual threads need Java 21
+				Logger.getLogger(AbstractPVFactory.class.getName()).log(Level.FINE,
+						"No virtual threads, using thread pool", ex); //$NON-NLS-1$
+				final AtomicInteger count = new AtomicInteger();
+				LISTENER_POOL = Executors.newFixedThreadPool(PreferenceHelper.getNotificationThreads(),
+						new ThreadFactory() {
+							public Thread newThread(final Runnable runnable) {
+								final Thread thread = new Thread(runnable,
+										"SimplePV Listener " + count.incrementAndGet()); //$NON-NLS-1$
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+			}
+		}
+		return LISTENER_POOL;
+	}
+
+	/**Get the listener pool for clients that follow the preferences
+	 * instead of selecting the listener notification themselves.
+	 * @return {@link #getListenerNotificationPool()} if the preferences select
+	 *         per-listener notification, otherwise <code>null</code>.
+	 * @see PreferenceHelper#isNotifyingListenersInOrder()
+	 */
+	public static Executor getDefaultListenerNotificationPool() {
+		return PreferenceHelper.isNotifyingListenersInOrder()
+				? getListenerNotificationPool() : null;
+	}
+
 }
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**An {@link Executor} that runs its tasks one at a time, in the order of submission,
+ * on a shared pool.
+ *
+ * <p>Each listener can have its own ordered executor on the same pool:
+ * The tasks of one listener never overlap and keep their order,
+ * while a slow listener only delays its own tasks.
+ *
+ * <p>The queue of tasks is not bounded.
+ * Callers that submit frequent updates should combine them
+ * instead of queuing one task per update.
+ */
+public class OrderedExecutor implements Executor {
+
+	final private Executor pool;
+
+	final private Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/** Is a drain of the queue submitted to the pool? */
+	final private AtomicBoolean active = new AtomicBoolean(false);
+
+	final private Runnable drain = new Runnable() {
+		public void run() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (Throwable ex) {
+					Logger.getLogger(OrderedExecutor.class.getName()).log(Level.WARNING,
+							"Notification failed", ex); //$NON-NLS-1$
+				}
+			}
+			active.set(false);
+			// Task added after the last poll, but before clearing 'active'?
+			if (!tasks.isEmpty())
+				schedule();
+		}
+	};
+
+	/**@param pool Pool that executes the tasks */
+	public OrderedExecutor(final Executor pool) {
+		this.pool = pool;
+	}
+
+	/**{@inheritDoc} */
+	public void execute(final Runnable task) {
+		tasks.add(task);
+		schedule();
+	}
+
+	private void schedule() {
+		if (active.compareAndSet(false, true))
+			pool.execute(drain);
+	}
+
+}
@@ -17,6 +17,11 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 public class PreferenceHelper {
 	
 	final public static String DEFAULT_PVFACTORY="default_pvfactory"; //$NON-NLS-1$
+	final public static String NOTIFICATION_EXECUTOR="notification_executor"; //$NON-NLS-1$
+	final public static String NOTIFICATION_THREADS="notification_threads"; //$NON-NLS-1$
+	
+	/** Value of {@link #NOTIFICATION_EXECUTOR} to notify each listener on its own ordered executor */
+	final public static String PER_LISTENER="per_listener"; //$NON-NLS-1$
 	
 	
 	 /** @param preferenceName Preference identifier
@@ -32,4 +37,27 @@ public class PreferenceHelper {
     	return getString(DEFAULT_PVFACTORY);
     }
 
+    /**Clients that select the listener notification when they create a PV
+     * are not affected by this preference.
+     * @return <code>true</code> if each listener is by default notified in order on its own
+     *         {@link OrderedExecutor}, <code>false</code> to notify all listeners
+     *         on the notification thread of the PV
+     * @see AbstractPVFactory#getDefaultListenerNotificationPool()
+     */
+    public static boolean isNotifyingListenersInOrder(){
+    	final IPreferencesService service = Platform.getPreferencesService();
+    	if (service == null)
+    		return false;
+    	return PER_LISTENER.equals(
+    			service.getString(SimplePVPlugin.PLUGIN_ID, NOTIFICATION_EXECUTOR, null, null));
+    }
+    
+    /**@return Number of threads for per-listener notifications when the JVM has no virtual threads */
+    public static int getNotificationThreads(){
+    	final IPreferencesService service = Platform.getPreferencesService();
+    	if (service == null)
+    		return 8;
+    	return Math.max(1, service.getInt(SimplePVPlugin.PLUGIN_ID, NOTIFICATION_THREADS, 8, null));
+    }
+
 }
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.utility.pv.epics;
+
+import static org.junit.Assert.assertTrue;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/** Benchmark for connecting many channels,
+ *  like a display or PV table with many PVs.
+ *
+ *  <p>Without an IOC that serves the 'perfN' channels,
+ *  this measures the time to create the channels and start their searches.
+ *  With such an IOC, the histogram shows the connection latency.
+ */
+@SuppressWarnings("nls")
+public class PVContextPerfTest
+{
+    final private static int CHANNELS = 20000;
+    final private static int THREADS = 4;
+
+    final private ConnectionListener conn_callback = new ConnectionListener()
+    {
+        @Override
+        public void connectionChanged(ConnectionEvent ev)
+        {
+            // Ignore
+        }
+    };
+
+    private String[] getNames(final String prefix)
+    {
+        final String[] names = new String[CHANNELS];
+        for (int i=0; i<CHANNELS; ++i)
+            names[i] = prefix + i;
+        return names;
+    }
+
+    private void release(final List<RefCountedChannel> channels)
+    {
+        for (RefCountedChannel channel : channels)
+            PVContext.releaseChannel(channel, conn_callback);
+        assertTrue(PVContext.allReleased());
+    }
+
+    @Test(timeout=120000)
+    public void testConnect() throws Exception
+    {
+        // Channels obtained one by one from several threads
+        final String[] names = getNames("perf_single");
+        final List<RefCountedChannel> channels = new ArrayList<RefCountedChannel>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        long start = System.nanoTime();
+        for (int t=0; t<THREADS; ++t)
+        {
+            final int offset = t;
+            final Thread thread = new Thread("Connect " + t)
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i=offset; i<names.length; i += THREADS)
+                        {
+                            final RefCountedChannel channel = PVContext.getChannel(names[i], conn_callback);
+                            synchronized (channels)
+                            {
+                                channels.add(channel);
+                            }
+                        }
+                    }
+                    catch (Exception ex)
+                    {
+                        ex.printStackTrace();
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.format("%d channels, %d threads: %.0f channels/sec\n",
+                          channels.size(), THREADS, channels.size() / seconds);
+        release(channels);
+
+        // Bulk connect
+        final String[] bulk_names = getNames("perf_bulk");
+        final ConnectionListener[] listeners = new ConnectionListener[CHANNELS];
+        Arrays.fill(listeners, conn_callback);
+        start = System.nanoTime();
+        final RefCountedChannel[] bulk = PVContext.getChannels(bulk_names, listeners);
+        seconds = (System.nanoTime() - start) / 1e9;
+        System.out.format("%d channels, bulk: %.0f channels/sec\n",
+                          bulk.length, bulk.length / seconds);
+
+        final ConnectionStatistics statistics = PVContext.connection_statistics;
+        System.out.println("Connections:   " + statistics.getConnections());
+        System.out.println("Pending:       " + statistics.getPending());
+        System.out.println("Limits (ms):   " + Arrays.toString(statistics.getBucketLimits()));
+        System.out.println("Histogram:     " + Arrays.toString(statistics.getHistogram()));
+        release(Arrays.asList(bulk));
+    }
+}
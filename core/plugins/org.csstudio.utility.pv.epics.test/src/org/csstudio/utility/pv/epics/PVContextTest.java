@@ -50,4 +50,47 @@ public class PVContextTest
         PVContext.releaseChannel(fred, conn_callback);
         assertTrue(PVContext.allReleased());
     }
+
+    @Test
+    @SuppressWarnings("nls")
+    public void testBulkChannels() throws Exception
+    {
+        final String[] names = { "fred", "jane", "fred" };
+        final ConnectionListener[] listeners = { conn_callback, conn_callback, conn_callback };
+        assertTrue(PVContext.allReleased());
+        final RefCountedChannel[] channels = PVContext.getChannels(names, listeners);
+        assertEquals(3, channels.length);
+        assertTrue(channels[0] == channels[2]);
+        assertFalse(channels[0] == channels[1]);
+        assertFalse(PVContext.allReleased());
+
+        for (int i=0; i<channels.length; ++i)
+            PVContext.releaseChannel(channels[i], listeners[i]);
+        assertTrue(PVContext.allReleased());
+    }
+
+    @Test
+    @SuppressWarnings("nls")
+    public void testBulkStart() throws Exception
+    {
+        assertTrue(PVContext.allReleased());
+        final EPICS_V3_PV[] pvs = { new EPICS_V3_PV("fred"), new EPICS_V3_PV("jane") };
+        pvs[0].start();
+        EPICS_V3_PV.start(pvs);
+        assertTrue(pvs[0].isRunning());
+        assertTrue(pvs[1].isRunning());
+        assertFalse(PVContext.allReleased());
+
+        for (EPICS_V3_PV pv : pvs)
+            pv.stop();
+        assertTrue(PVContext.allReleased());
+    }
+
+    @Test
+    public void testNoChannels() throws Exception
+    {
+        assertTrue(PVContext.allReleased());
+        assertEquals(0, PVContext.getChannels(new String[0], new ConnectionListener[0]).length);
+        assertTrue(PVContext.allReleased());
+    }
 }
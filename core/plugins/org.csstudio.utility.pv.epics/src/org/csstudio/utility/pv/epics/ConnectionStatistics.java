@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.utility.pv.epics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Histogram of the time from creating a channel to its first connection */
+public class ConnectionStatistics
+{
+    /** Upper limits of the histogram buckets in millisecs.
+     *  The last bucket counts connections that took longer.
+     */
+    final private static double[] LIMITS_MS =
+    {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000
+    };
+
+    /** Connections per bucket */
+    final private AtomicLongArray counts = new AtomicLongArray(LIMITS_MS.length + 1);
+
+    /** Channels that have been created but never connected */
+    final private AtomicInteger pending = new AtomicInteger();
+
+    /** Channel was created */
+    void channelCreated()
+    {
+        pending.incrementAndGet();
+    }
+
+    /** Channel connected for the first time
+     *  @param nanos Time since it was created
+     */
+    void channelConnected(final long nanos)
+    {
+        pending.decrementAndGet();
+        final double ms = nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        int bucket = 0;
+        while (bucket < LIMITS_MS.length  &&  ms > LIMITS_MS[bucket])
+            ++bucket;
+        counts.incrementAndGet(bucket);
+    }
+
+    /** Channel was released without ever connecting */
+    void channelReleased()
+    {
+        pending.decrementAndGet();
+    }
+
+    /** @return Upper limits of the histogram buckets in millisecs,
+     *          with one less element than the histogram
+     */
+    public double[] getBucketLimits()
+    {
+        return LIMITS_MS.clone();
+    }
+
+    /** @return Number of connections per bucket */
+    public double[] getHistogram()
+    {
+        final double[] histogram = new double[counts.length()];
+        for (int i=0; i<histogram.length; ++i)
+            histogram[i] = counts.get(i);
+        return histogram;
+    }
+
+    /** @return Total number of first connections */
+    public long getConnections()
+    {
+        long total = 0;
+        for (int i=0; i<counts.length(); ++i)
+            total += counts.get(i);
+        return total;
+    }
+
+    /** @return Number of channels that have been created but not yet connected */
+    public int getPending()
+    {
+        return pending.get();
+    }
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.utility.pv.epics;
+
+import org.csstudio.utility.pv.simu.SystemValueProvider;
+import org.csstudio.utility.pv.simu.Value;
+
+/** Provides the {@link ConnectionStatisticsValue}s as "sys://ca_connect_..." PVs */
+public class ConnectionStatisticsProvider implements SystemValueProvider
+{
+    /** {@inheritDoc} */
+    @Override
+    public Value createValue(final String name)
+    {
+        for (ConnectionStatisticsValue.Type type : ConnectionStatisticsValue.Type.values())
+            if (type.getName().equals(name))
+                return new ConnectionStatisticsValue(PVContext.connection_statistics, type);
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.utility.pv.epics;
+
+import org.csstudio.data.values.INumericMetaData;
+import org.csstudio.data.values.ISeverity;
+import org.csstudio.data.values.IValue.Quality;
+import org.csstudio.data.values.TimestampFactory;
+import org.csstudio.data.values.ValueFactory;
+import org.csstudio.utility.pv.simu.DynamicValue;
+
+/** 'System' PV for the {@link ConnectionStatistics}
+ *
+ *  <p>Provides "sys://ca_connect_histogram" with the number
+ *  of connections per latency bucket,
+ *  "sys://ca_connect_limits_ms" with the upper limits of the buckets,
+ *  "sys://ca_connect_count" with the total number of connections
+ *  and "sys://ca_connect_pending" with the channels that are not connected, yet.
+ */
+@SuppressWarnings("nls")
+public class ConnectionStatisticsValue extends DynamicValue
+{
+    /** Information provided by the value */
+    public enum Type
+    {
+        HISTOGRAM("ca_connect_histogram", "connections"),
+        LIMITS("ca_connect_limits_ms", "ms"),
+        COUNT("ca_connect_count", "connections"),
+        PENDING("ca_connect_pending", "channels");
+
+        final private String name, units;
+
+        private Type(final String name, final String units)
+        {
+            this.name = name;
+            this.units = units;
+        }
+
+        /** @return PV name without the "sys://" prefix */
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    final private ConnectionStatistics statistics;
+    final private Type type;
+    final private INumericMetaData meta;
+
+    /** Initialize
+     *  @param statistics Statistics to publish
+     *  @param type Information to publish
+     */
+    public ConnectionStatisticsValue(final ConnectionStatistics statistics, final Type type)
+    {
+        super(type.getName());
+        this.statistics = statistics;
+        this.type = type;
+        meta = ValueFactory.createNumericMetaData(0, 0, 0, 0, 0, 0, 0, type.units);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void update()
+    {
+        final double[] data;
+        switch (type)
+        {
+        case HISTOGRAM:
+            data = statistics.getHistogram();
+            break;
+        case LIMITS:
+            data = statistics.getBucketLimits();
+            break;
+        case COUNT:
+            data = new double[] { statistics.getConnections() };
+            break;
+        default:
+            data = new double[] { statistics.getPending() };
+        }
+        final ISeverity severity = ValueFactory.createOKSeverity();
+        setValue(ValueFactory.createDoubleValue(TimestampFactory.now(), severity, severity.toString(), meta, Quality.Original,
+                data));
+    }
+}
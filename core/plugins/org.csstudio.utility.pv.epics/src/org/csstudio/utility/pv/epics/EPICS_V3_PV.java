@@ -21,6 +21,8 @@ import gov.aps.jca.event.GetListener;
 import gov.aps.jca.event.MonitorEvent;
 import gov.aps.jca.event.MonitorListener;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -379,6 +381,12 @@ public class EPICS_V3_PV extends PlatformObject
             if (channel_ref == null)
                 channel_ref = PVContext.getChannel(name, EPICS_V3_PV.this);
 		}
+        checkImmediateConnection();
+    }
+
+    /** Handle a channel that was already connected when obtained */
+    private void checkImmediateConnection()
+    {
         if (channel_ref.getChannel().getConnectionState()
             == ConnectionState.CONNECTED)
         {
@@ -520,6 +528,72 @@ public class EPICS_V3_PV extends PlatformObject
         connect();
     }
 
+    /** Start several PVs.
+     *  <p>
+     *  Same as calling {@link #start()} on each PV, but the channels
+     *  are obtained in one call to {@link PVContext#getChannels(String[], ConnectionListener[])},
+     *  which is faster when for example opening a display with many PVs.
+     *  PVs that are already running are skipped.
+     *  @param pvs PVs to start
+     *  @throws Exception on error
+     */
+    public static void start(final EPICS_V3_PV[] pvs) throws Exception
+    {
+        final List<EPICS_V3_PV> starting = new ArrayList<EPICS_V3_PV>(pvs.length);
+        for (EPICS_V3_PV pv : pvs)
+        {
+            if (pv.running)
+                continue;
+            // PV that already has a channel, for example from getValue(timeout)
+            if (pv.channel_ref != null)
+                pv.start();
+            else
+            {
+                pv.running = true;
+                pv.state = State.Connecting;
+                starting.add(pv);
+            }
+        }
+        if (starting.isEmpty())
+            return;
+
+        final String[] names = new String[starting.size()];
+        final ConnectionListener[] callbacks = new ConnectionListener[names.length];
+        for (int i=0; i<names.length; ++i)
+        {
+            names[i] = starting.get(i).name;
+            callbacks[i] = starting.get(i);
+        }
+        final RefCountedChannel[] channel_refs;
+        try
+        {
+            channel_refs = PVContext.getChannels(names, callbacks);
+        }
+        catch (Exception ex)
+        {
+            for (EPICS_V3_PV pv : starting)
+                pv.running = false;
+            throw ex;
+        }
+        for (int i=0; i<channel_refs.length; ++i)
+        {
+            final EPICS_V3_PV pv = starting.get(i);
+            boolean used = false;
+            synchronized (pv)
+            {
+                if (pv.channel_ref == null)
+                {
+                    pv.channel_ref = channel_refs[i];
+                    used = true;
+                }
+            }
+            if (used)
+                pv.checkImmediateConnection();
+            else // PV connected on its own in the meantime
+                PVContext.releaseChannel(channel_refs[i], pv);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean isRunning()
@@ -19,20 +19,26 @@ import java.util.logging.Level;
  *      and the "DirectRequestDispatcher".
  *  <li>Instead of calling 'flushIO' after each command,
  *      this thread allows for a few requests to queue up,
- *      then periodically pumps them out with only a final
+ *      then pumps them out with only a final
  *      'flush'
  *  </ol>
+ *  The thread wakes up when commands are added or a flush is requested,
+ *  but waits a minimum delay between flushes so that
+ *  bursts of commands are still sent with one flush.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 class JCACommandThread extends Thread
 {
-    /** Delay between queue inspection.
+    /** Delay between queue inspection when there are no new commands */
+    final private static long DELAY_MILLIS = 100;
+
+    /** Minimum delay between flushes.
      *  Longer delay results in bigger 'batches',
      *  which is probably good, but also increases the
      *  latency.
      */
-    final private static long DELAY_MILLIS = 100;
+    final private static long MIN_DELAY_MILLIS = 10;
 
     /** The JCA Context */
     final Context jca_context;
@@ -47,8 +53,14 @@ class JCACommandThread extends Thread
     /** Maximum size that command_queue reached at runtime */
     private int max_size_reached = 0;
 
+    /** Has a flush been requested?
+     *  <p>
+     *  SYNC on command_queue
+     */
+    private boolean flush_requested = false;
+
     /** Flag to tell thread to run or quit */
-    private boolean run = false;
+    private volatile boolean run = false;
 
     /** Construct, but don't start the thread.
      *  @param jca_context
@@ -82,6 +94,10 @@ class JCACommandThread extends Thread
     void shutdown()
     {
         run = false;
+        synchronized (command_queue)
+        {
+            command_queue.notifyAll();
+        }
         try
         {
             join();
@@ -105,6 +121,17 @@ class JCACommandThread extends Thread
             if (command_queue.size() >= max_size_reached)
                 max_size_reached = command_queue.size() + 1;
             command_queue.addLast(command);
+            command_queue.notifyAll();
+        }
+    }
+
+    /** Request a flush without waiting for the periodic flush */
+    void requestFlush()
+    {
+        synchronized (command_queue)
+        {
+            flush_requested = true;
+            command_queue.notifyAll();
         }
     }
 
@@ -151,10 +178,17 @@ class JCACommandThread extends Thread
             {
                 Activator.getLogger().log(Level.WARNING, "JCA Flush exception", ex);
             }
-            // Then wait.
+            // Then wait, allowing commands to accumulate,
+            // until there are commands or a flush was requested
             try
             {
-                Thread.sleep(DELAY_MILLIS);
+                Thread.sleep(MIN_DELAY_MILLIS);
+                synchronized (command_queue)
+                {
+                    if (run  &&  command_queue.isEmpty()  &&  !flush_requested)
+                        command_queue.wait(DELAY_MILLIS - MIN_DELAY_MILLIS);
+                    flush_requested = false;
+                }
             }
             catch (InterruptedException ex)
             { /* don't even ignore */ }
@@ -14,7 +14,7 @@ import gov.aps.jca.event.ConnectionListener;
 import gov.aps.jca.event.ContextExceptionListener;
 import gov.aps.jca.event.ContextMessageListener;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import org.csstudio.platform.libs.epics.EpicsPlugin.MonitorMask;
@@ -28,6 +28,10 @@ import org.csstudio.platform.libs.epics.EpicsPlugin.MonitorMask;
  *  Calling destroy() on such a shared channel creates problems.<br>
  *  The PVContext adds its own hash map of channels and keeps a reference
  *  count.
+ *  <p>
+ *  Channels are created and released without a global lock, so that
+ *  many PVs can be connected in parallel. Operations on the same
+ *  channel name are serialized by one of several name-based locks.
  *
  *  @author Kay Kasemir
  */
@@ -66,17 +70,41 @@ public class PVContext
     /** The JCA context. */
     static private volatile Context jca_context = null;
 
-    /** The JCA context reference count. */
+    /** The JCA context reference count.
+     *  <p>
+     *  SYNC on PVContext.class
+     */
     static private long jca_refs = 0;
 
     /** map of channels. */
-    static private HashMap<String, RefCountedChannel> channels =
-                                new HashMap<String, RefCountedChannel>();
+    static private ConcurrentHashMap<String, RefCountedChannel> channels =
+                                new ConcurrentHashMap<String, RefCountedChannel>();
+
+    /** Locks for creating and releasing channels, selected by channel name */
+    final static private Object[] channel_locks = new Object[64];
+    static
+    {
+        for (int i=0; i<channel_locks.length; ++i)
+            channel_locks[i] = new Object();
+    }
+
+    /** Time from creating a channel to its first connection */
+    final static ConnectionStatistics connection_statistics = new ConnectionStatistics();
 
-    static private JCACommandThread command_thread = null;
+    static private volatile JCACommandThread command_thread = null;
 
-    /** Initialize the JA library, start the command thread. */
-    static private void initJCA() throws Exception
+    /** @param name Channel name
+     *  @return Lock for operations on that channel
+     */
+    static private Object getLock(final String name)
+    {
+        return channel_locks[(name.hashCode() & 0x7fffffff) % channel_locks.length];
+    }
+
+    /** Initialize the JA library, start the command thread.
+     *  @param refs Number of references to add
+     */
+    synchronized static private void initJCA(final int refs) throws Exception
     {
         if (jca_refs == 0)
         {
@@ -114,7 +142,7 @@ public class PVContext
             }
             command_thread = new JCACommandThread(jca_context);
         }
-        ++jca_refs;
+        jca_refs += refs;
     }
 
     /** Disconnect from the JA library.
@@ -122,7 +150,7 @@ public class PVContext
      *  Without this step, JCA threads can stay around and prevent the
      *  application from quitting.
      */
-    static private void exitJCA()
+    synchronized static private void exitJCA()
     {
         --jca_refs;
         if (jca_refs > 0)
@@ -149,62 +177,136 @@ public class PVContext
 
     /** Get a new channel, or a reference to an existing one.
      *  @param name Channel name
+     *  @param conn_callback Listener for connection changes
      *  @return reference to channel
      *  @throws Exception on error
-     *  @see #releaseChannel(RefCountedChannel)
+     *  @see #releaseChannel(RefCountedChannel, ConnectionListener)
      */
-    public synchronized static RefCountedChannel getChannel(final String name,
+    public static RefCountedChannel getChannel(final String name,
                      final ConnectionListener conn_callback) throws Exception
     {
-        initJCA();
-        RefCountedChannel channel_ref = channels.get(name);
-        if (channel_ref == null)
+        initJCA(1);
+        try
         {
-            Activator.getLogger().log(Level.FINER, "Creating CA channel {0}", name);
-            final Channel channel = jca_context.createChannel(name, conn_callback);
-            if (channel == null)
-                throw new Exception("Cannot create channel '" + name + "'");
-            channel_ref = new RefCountedChannel(channel);
-            channels.put(name, channel_ref);
-            // Start the command thread after the first channel is created.
-            // This starts it in any case, but follow-up calls are NOPs.
-            command_thread.start();
+            return referenceChannel(name, conn_callback);
         }
-        else
+        catch (Exception ex)
         {
-            channel_ref.incRefs();
-            // TODO: Saw null pointer exception here.
-            // Must have been getChannel() == null, but how is that possible?
-            channel_ref.getChannel().addConnectionListener(conn_callback);
-            Activator.getLogger().log(Level.FINER, "Re-using CA channel {0}", name);
+            exitJCA();
+            throw ex;
         }
-        return channel_ref;
     }
 
-    /** Release a channel.
-     *  @param channel_ref Channel to release.
-     *  @see #getChannel(String)
+    /** Get channels for several names.
+     *  <p>
+     *  Faster than calling {@link #getChannel(String, ConnectionListener)}
+     *  for each name when for example opening a display with many PVs.
+     *  The JCA context is referenced once for all names,
+     *  and a single flush is requested after all channels have been created
+     *  instead of waiting for the next periodic flush.
+     *  Packing the search requests into UDP packets is left to CAJ.
+     *
+     *  @param names Channel names
+     *  @param conn_callbacks Listener for connection changes of each channel
+     *  @return references to channels, same order as the names
+     *  @throws Exception on error. Channels obtained before the error are released.
+     *  @see #releaseChannel(RefCountedChannel, ConnectionListener)
      */
-    public synchronized static void releaseChannel(final RefCountedChannel channel_ref,
-                    final ConnectionListener conn_callback)
+    public static RefCountedChannel[] getChannels(final String[] names,
+                     final ConnectionListener[] conn_callbacks) throws Exception
     {
-        final String name = channel_ref.getChannel().getName();
+        if (names.length != conn_callbacks.length)
+            throw new IllegalArgumentException("Got " + names.length + " names but "
+                                               + conn_callbacks.length + " listeners");
+        final RefCountedChannel[] channel_refs = new RefCountedChannel[names.length];
+        // No channel would release the JCA context
+        if (names.length <= 0)
+            return channel_refs;
+        initJCA(names.length);
+        int i = 0;
         try
         {
-            channel_ref.getChannel().removeConnectionListener(conn_callback);
+            for (/**/; i<names.length; ++i)
+                channel_refs[i] = referenceChannel(names[i], conn_callbacks[i]);
+            command_thread.requestFlush();
         }
         catch (Exception ex)
         {
-            Activator.getLogger().log(Level.WARNING, "Remove connection listener", ex);
+            for (int r=0; r<i; ++r)
+                releaseChannel(channel_refs[r], conn_callbacks[r]);
+            for (/**/; i<names.length; ++i)
+                exitJCA();
+            throw ex;
+        }
+        return channel_refs;
+    }
+
+    /** Get a new channel, or a reference to an existing one.
+     *  Caller must hold a reference to the JCA context.
+     *  @param name Channel name
+     *  @param conn_callback Listener for connection changes
+     *  @return reference to channel
+     *  @throws Exception on error
+     */
+    static private RefCountedChannel referenceChannel(final String name,
+                     final ConnectionListener conn_callback) throws Exception
+    {
+        synchronized (getLock(name))
+        {
+            RefCountedChannel channel_ref = channels.get(name);
+            if (channel_ref == null)
+            {
+                Activator.getLogger().log(Level.FINER, "Creating CA channel {0}", name);
+                final Channel channel = jca_context.createChannel(name, conn_callback);
+                if (channel == null)
+                    throw new Exception("Cannot create channel '" + name + "'");
+                channel_ref = new RefCountedChannel(channel);
+                channels.put(name, channel_ref);
+                channel_ref.trackConnection(connection_statistics);
+                // Start the command thread after the first channel is created.
+                // This starts it in any case, but follow-up calls are NOPs.
+                command_thread.start();
+            }
+            else
+            {
+                channel_ref.incRefs();
+                // TODO: Saw null pointer exception here.
+                // Must have been getChannel() == null, but how is that possible?
+                channel_ref.getChannel().addConnectionListener(conn_callback);
+                Activator.getLogger().log(Level.FINER, "Re-using CA channel {0}", name);
+            }
+            return channel_ref;
         }
-        if (channel_ref.decRefs() <= 0)
+    }
+
+    /** Release a channel.
+     *  @param channel_ref Channel to release.
+     *  @param conn_callback Listener that was passed to <code>getChannel</code>
+     *  @see #getChannel(String, ConnectionListener)
+     */
+    public static void releaseChannel(final RefCountedChannel channel_ref,
+                    final ConnectionListener conn_callback)
+    {
+        final String name = channel_ref.getChannel().getName();
+        synchronized (getLock(name))
         {
-            Activator.getLogger().finer("Deleting CA channel " + name);
-            channels.remove(name);
-            channel_ref.dispose();
+            try
+            {
+                channel_ref.getChannel().removeConnectionListener(conn_callback);
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Remove connection listener", ex);
+            }
+            if (channel_ref.decRefs() <= 0)
+            {
+                Activator.getLogger().finer("Deleting CA channel " + name);
+                channels.remove(name);
+                channel_ref.dispose();
+            }
+            else
+                Activator.getLogger().finer("CA channel " + name + " still ref'ed");
         }
-        else
-            Activator.getLogger().finer("CA channel " + name + " still ref'ed");
         exitJCA();
     }
 
@@ -223,7 +325,7 @@ public class PVContext
     /** Helper for unit test.
      *  @return <code>true</code> if all has been release.
      */
-    static boolean allReleased()
+    synchronized static boolean allReleased()
     {
         return jca_refs == 0;
     }
@@ -10,6 +10,8 @@ package org.csstudio.utility.pv.epics;
 import java.util.logging.Level;
 
 import gov.aps.jca.Channel;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
 
 /** A Channel with thread-safe reference count.
  *  @author Kay Kasemir
@@ -21,6 +23,27 @@ public class RefCountedChannel
 
     private int refs;
 
+    /** Time when channel was created, System.nanoTime() */
+    final private long created = System.nanoTime();
+
+    /** Statistics to update on first connection.
+     *  <p>
+     *  <code>null</code> after the first connection was recorded.
+     *  SYNC on this
+     */
+    private ConnectionStatistics statistics = null;
+
+    /** Listener for the first connection */
+    final private ConnectionListener first_connection = new ConnectionListener()
+    {
+        @Override
+        public void connectionChanged(final ConnectionEvent ev)
+        {
+            if (ev.isConnected())
+                recordConnection();
+        }
+    };
+
     /** Initialize
      *  @param channel ChannelAccess channel
      *  @throws Error when channel is <code>null</code>
@@ -46,6 +69,36 @@ public class RefCountedChannel
         return refs;
     }
 
+    /** Track the time from creating the channel to its first connection
+     *  @param statistics Statistics to update
+     *  @throws Exception on error
+     */
+    void trackConnection(final ConnectionStatistics statistics) throws Exception
+    {
+        synchronized (this)
+        {
+            this.statistics = statistics;
+        }
+        statistics.channelCreated();
+        channel.addConnectionListener(first_connection);
+        // Channel might already have connected before the listener was added
+        if (channel.getConnectionState() == Channel.ConnectionState.CONNECTED)
+            recordConnection();
+    }
+
+    /** Record first connection */
+    private void recordConnection()
+    {
+        final ConnectionStatistics stats;
+        synchronized (this)
+        {
+            stats = statistics;
+            statistics = null;
+        }
+        if (stats != null)
+            stats.channelConnected(System.nanoTime() - created);
+    }
+
     /** @return ChannelAccess channel */
     public Channel getChannel()
     {   return channel;   }
@@ -57,8 +110,19 @@ public class RefCountedChannel
     {
         if (refs != 0)
             throw new Error("Channel destroyed while referenced " + refs + " times");
+        final ConnectionStatistics stats;
+        synchronized (this)
+        {
+            stats = statistics;
+            statistics = null;
+        }
         try
         {
+            if (stats != null)
+            {   // Released without ever connecting
+                stats.channelReleased();
+                channel.removeConnectionListener(first_connection);
+            }
             channel.destroy();
         }
         catch (Exception ex)
@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.utility.pv.epics;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.utility.pv.PV;
@@ -20,12 +21,12 @@ public class pvmonitor
     /** Counter for received values. */
     final AtomicInteger values = new AtomicInteger(0);
 
-    /** Monitor given PV.
-     *  @param pv_name Name of the PV
+    /** Monitor given PVs.
+     *  @param pv_names Names of the PVs
      *  @param updates Number of updates to monitor or -1 to continue forever.
      */
     @SuppressWarnings("nls")
-    private void run(final String pv_name, final int updates) throws Throwable
+    private void run(final String[] pv_names, final int updates) throws Throwable
     {
         /*
         System.setProperty("com.cosylab.epics.caj.CAJContext.addr_list",
@@ -59,9 +60,13 @@ public class pvmonitor
                 values.incrementAndGet();
             }
         };
-        final PV pv = new EPICS_V3_PV(pv_name);
-        pv.addListener(listener);
-        pv.start();
+        final EPICS_V3_PV[] pvs = new EPICS_V3_PV[pv_names.length];
+        for (int i=0; i<pvs.length; ++i)
+        {
+            pvs[i] = new EPICS_V3_PV(pv_names[i]);
+            pvs[i].addListener(listener);
+        }
+        EPICS_V3_PV.start(pvs);
         while (true)
         {
             Thread.sleep(1000);
@@ -70,7 +75,8 @@ public class pvmonitor
         }
         // If you don't stop the PV, the PV threads will run on
         // even after main() quits!
-        pv.stop();
+        for (PV pv : pvs)
+            pv.stop();
     }
 
     @SuppressWarnings("nls")
@@ -78,12 +84,12 @@ public class pvmonitor
     {
         try
         {
-            if (args.length == 2)
-                new pvmonitor().run(args[0], Integer.parseInt(args[1]));
-            else if (args.length == 1)
-                new pvmonitor().run(args[0], -1);
+            if (args.length >= 3  &&  args[0].equals("-c"))
+                new pvmonitor().run(Arrays.copyOfRange(args, 2, args.length), Integer.parseInt(args[1]));
+            else if (args.length >= 1  &&  !args[0].startsWith("-"))
+                new pvmonitor().run(args, -1);
             else
-                System.err.println("Usage: pvmonitor <PV Name> { count }");
+                System.err.println("Usage: pvmonitor { -c count } <PV Name> { <PV Name> ... }");
         }
         catch (Throwable ex)
         {
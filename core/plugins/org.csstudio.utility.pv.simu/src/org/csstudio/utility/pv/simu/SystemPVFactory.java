@@ -11,11 +11,22 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.csstudio.utility.pv.IPVFactory;
 import org.csstudio.utility.pv.PV;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.Platform;
 
 /** PV Factory for simulated PVs
+ *
+ *  <p>Values that other plugins provide, for example statistics
+ *  of a PV implementation, are located via the {@link #PROVIDER_EXT_ID}
+ *  extension point when a PV with a matching name is first created.
+ *  This activates the providing plugin as needed.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -24,14 +35,23 @@ public class SystemPVFactory implements IPVFactory
     /** PV type prefix */
     public static final String PREFIX = "sys";
 
-    /** All the 'system' PVs, mapped by name */
+    /** ID of the extension point for {@link SystemValueProvider}s */
+    public static final String PROVIDER_EXT_ID = "org.csstudio.utility.pv.simu.systemvalues";
+
+    /** All the 'system' PVs, mapped by name.
+     *  <p>
+     *  SYNC on access
+     */
     private static Map<String, Value> values =
         new HashMap<String, Value>();
 
     /** @return Number of values */
     public static int getValueCount()
     {
-        return values.size();
+        synchronized (values)
+        {
+            return values.size();
+        }
     }
 
     /** Create a 'dynamic' PV.
@@ -39,6 +59,21 @@ public class SystemPVFactory implements IPVFactory
      */
     @Override
     public PV createPV(final String name)
+    {
+        final Value value;
+        synchronized (values)
+        {
+            value = getValue(name);
+        }
+        if (value instanceof DynamicValue)
+            return new SimulatedPV(PREFIX, (DynamicValue) value);
+        return new StaticPV(PREFIX, value);
+    }
+
+    /** @param name Name of the PV
+     *  @return Existing or new value for the PV
+     */
+    private static Value getValue(final String name)
     {
         Value value = values.get(name);
         if (value == null)
@@ -75,12 +110,43 @@ public class SystemPVFactory implements IPVFactory
 					value = new TextValue(name, "Unknown Host", false);
 				}
 			else
-                value = new TextValue(name,
-                        "Unknown system PV '" + name + "'", false);
+            {   // Value from another plugin?
+                value = createProvidedValue(name);
+                if (value == null)
+                    value = new TextValue(name,
+                            "Unknown system PV '" + name + "'", false);
+            }
             values.put(name, value);
         }
-        if (value instanceof DynamicValue)
-            return new SimulatedPV(PREFIX, (DynamicValue) value);
-        return new StaticPV(PREFIX, value);
+        return value;
+    }
+
+    /** @param name Name of the PV
+     *  @return Value from a {@link SystemValueProvider} or <code>null</code>
+     */
+    private static Value createProvidedValue(final String name)
+    {
+        final IExtensionRegistry registry = Platform.getExtensionRegistry();
+        if (registry == null)
+            return null;
+        for (IConfigurationElement config : registry.getConfigurationElementsFor(PROVIDER_EXT_ID))
+        {
+            if (! name.startsWith(config.getAttribute("prefix")))
+                continue;
+            try
+            {
+                final SystemValueProvider provider =
+                    (SystemValueProvider) config.createExecutableExtension("class");
+                final Value value = provider.createValue(name);
+                if (value != null)
+                    return value;
+            }
+            catch (Exception ex)
+            {
+                Logger.getLogger(SystemPVFactory.class.getName()).log(Level.WARNING,
+                    "Cannot create system PV '" + name + "' from " + config.getContributor().getName(), ex);
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.utility.pv.simu;
+
+/** Provider of 'system' values that are implemented in another plugin,
+ *  for example statistics of a PV implementation.
+ *
+ *  <p>Registered via the {@link SystemPVFactory#PROVIDER_EXT_ID} extension point
+ *  with the prefix of the value names that it handles.
+ *  The {@link SystemPVFactory} asks the provider for a value the first time
+ *  that a PV with a matching name is created.
+ */
+public interface SystemValueProvider
+{
+    /** @param name Name of the value, without "sys://"
+     *  @return Value or <code>null</code> if the name is not known to this provider
+     */
+    public Value createValue(String name);
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2010-14 pvmanager developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.pvmanager.jca;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_CTRL_Double;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+import gov.aps.jca.dbr.Severity;
+import gov.aps.jca.dbr.Status;
+import gov.aps.jca.dbr.TimeStamp;
+import gov.aps.jca.event.MonitorEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.pvmanager.ValueCache;
+import org.epics.pvmanager.ValueCacheImpl;
+import org.epics.vtype.VDoubleArray;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Benchmark for the dispatch of array values to many readers of a channel
+ *
+ *  <p>A simulated waveform generator creates the DBR payload
+ *  the way CAJ does for each monitor, so no IOC is needed.
+ *  Several monitors arrive between scans, and at each scan
+ *  every reader looks at the data, sizes and time stamp of its value.
+ *
+ *  <p>Measures the bytes allocated by the data source
+ *  for each message, not counting the payload itself,
+ *  when each reader creates its own value
+ *  and when the readers share the value of the message.
+ */
+@SuppressWarnings("nls")
+public class JCAArrayDispatchPerfTest
+{
+    final private static int ELEMENTS = 1000000;
+    final private static int READERS = 100;
+    final private static int MESSAGES = 500;
+    final private static int MESSAGES_PER_SCAN = 10;
+
+    final private static JCATypeAdapter adapter = JCAVTypeAdapterSet.DBRDoubleToVDoubleArray;
+
+    private JCAConnectionPayload connPayload;
+    private DBR_CTRL_Double metadata;
+    private List<ValueCache<Object>> caches;
+
+    /** Bytes allocated by this thread while creating payloads */
+    private long generator_bytes;
+
+    @Before
+    public void setup()
+    {
+        final Channel channel = mock(Channel.class);
+        when(channel.getConnectionState()).thenReturn(Channel.ConnectionState.CONNECTED);
+        when(channel.getFieldType()).thenReturn(DBRType.DOUBLE);
+        when(channel.getElementCount()).thenReturn(ELEMENTS);
+        final JCAChannelHandler handler = mock(JCAChannelHandler.class);
+        when(handler.getJcaDataSource()).thenReturn(mock(JCADataSource.class));
+        connPayload = new JCAConnectionPayload(handler, channel, null);
+
+        metadata = new DBR_CTRL_Double();
+        metadata.setUnits("counts");
+        metadata.setPrecision((short) 2);
+
+        caches = new ArrayList<ValueCache<Object>>();
+        for (int i=0; i<READERS; ++i)
+            caches.add(new ValueCacheImpl<Object>(Object.class));
+    }
+
+    private static long getAllocatedBytes()
+    {
+        final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Simulated waveform generator
+     *  @param index Index of the message
+     *  @return Message with new DBR, as CAJ creates it for each monitor
+     */
+    private JCAMessagePayload createMessage(final int index)
+    {
+        final long start = getAllocatedBytes();
+        final DBR_TIME_Double dbr = new DBR_TIME_Double(new double[ELEMENTS]);
+        final double[] data = dbr.getDoubleValue();
+        for (int i=0; i<data.length; ++i)
+            data[i] = index + i;
+        dbr.setSeverity(Severity.NO_ALARM);
+        dbr.setStatus(Status.NO_ALARM);
+        dbr.setTimeStamp(new TimeStamp());
+        final JCAMessagePayload message =
+            new JCAMessagePayload(metadata, new MonitorEvent(connPayload.getChannel(), dbr, CAStatus.NORMAL));
+        generator_bytes += getAllocatedBytes() - start;
+        return message;
+    }
+
+    /** Read the values like a display with a plot and a text for each reader */
+    private double scan()
+    {
+        double sum = 0;
+        for (ValueCache<Object> cache : caches)
+        {
+            final VDoubleArray value = (VDoubleArray) cache.readValue();
+            for (int i=0; i<2; ++i)
+            {
+                sum += value.getData().getDouble(value.getSizes().getInt(0) - 1);
+                sum += value.getTimestamp().getNanoSec();
+            }
+        }
+        return sum;
+    }
+
+    private void runBenchmark(final boolean shared)
+    {
+        generator_bytes = 0;
+        final long start_bytes = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int m=1; m<=MESSAGES; ++m)
+        {
+            final JCAMessagePayload message = createMessage(m);
+            for (ValueCache<Object> cache : caches)
+            {
+                if (shared)
+                    adapter.updateCache(cache, connPayload, message);
+                else // Every reader creates its own value
+                    cache.writeValue(adapter.createValue(message.getEvent().getDBR(), metadata, connPayload));
+            }
+            if (m % MESSAGES_PER_SCAN == 0)
+                scan();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        final long bytes = getAllocatedBytes() - start_bytes - generator_bytes;
+
+        System.out.format("%-10s: %d readers, %d elements, %d messages: %.1f bytes/message, %.2f MB/s, %.1f messages/sec\n",
+                shared ? "Shared" : "Per reader", READERS, ELEMENTS, MESSAGES,
+                bytes / (double) MESSAGES, bytes / seconds / 1e6, MESSAGES / seconds);
+
+        // All readers have the last message
+        final VDoubleArray last = (VDoubleArray) caches.get(0).readValue();
+        assertThat(last.getData().getDouble(ELEMENTS - 1), equalTo((double) MESSAGES + ELEMENTS - 1));
+    }
+
+    @Test
+    public void testSharedValue()
+    {
+        final JCAMessagePayload message = createMessage(1);
+        for (ValueCache<Object> cache : caches)
+            adapter.updateCache(cache, connPayload, message);
+
+        final VDoubleArray value = (VDoubleArray) caches.get(0).readValue();
+        for (ValueCache<Object> cache : caches)
+            assertThat(cache.readValue(), sameInstance((Object) value));
+        assertThat(value.getData(), sameInstance(value.getData()));
+        assertThat(value.getData().size(), equalTo(ELEMENTS));
+        assertThat(value.getData().getDouble(42), equalTo(43.0));
+        assertThat(value.getSizes().getInt(0), equalTo(ELEMENTS));
+        assertThat(value.getDimensionDisplay().size(), equalTo(1));
+        assertThat(value.getUnits(), equalTo("counts"));
+    }
+
+    @Test(timeout=120000)
+    public void testAllocations()
+    {
+        runBenchmark(false);
+        runBenchmark(true);
+    }
+}
@@ -66,6 +66,10 @@ class JCAChannelHandler extends MultiplexedChannelHandler<JCAConnectionPayload,
     
     // For the AccessChaneListener we need to guard it differently
     private final AtomicBoolean needsAccessChangeListener = new AtomicBoolean(false);
+    // Combining the value and metadata of the last message with a new event
+    // only needs to be atomic with respect to the other events, so it does
+    // not use the handler lock that readers and writers are added with
+    private final Object messageLock = new Object();
     
     public static Pattern longStringPattern = Pattern.compile(".+\\..*\\$.*");
     private final static Pattern hasOptions = Pattern.compile("(.*) (\\{.*\\})");
@@ -307,7 +311,7 @@ class JCAChannelHandler extends MultiplexedChannelHandler<JCAConnectionPayload,
 
                 @Override
                 public void getCompleted(GetEvent ev) {
-                    synchronized(JCAChannelHandler.this) {
+                    synchronized(messageLock) {
                         if (log.isLoggable(Level.FINEST)) {
                             log.log(Level.FINEST, "JCA metadata getCompleted for channel {0} event {1}", new Object[] {getChannelName(), ev});
                         }
@@ -484,7 +488,7 @@ class JCAChannelHandler extends MultiplexedChannelHandler<JCAConnectionPayload,
 
         @Override
         public void monitorChanged(MonitorEvent event) {
-            synchronized(JCAChannelHandler.this) {
+            synchronized(messageLock) {
                 if (log.isLoggable(Level.FINEST)) {
                     log.log(Level.FINEST, "JCA value monitorChanged for channel {0} value {1}, event {2}", new Object[] {getChannelName(), toStringDBR(event.getDBR()), event});
                 }
@@ -502,7 +506,7 @@ class JCAChannelHandler extends MultiplexedChannelHandler<JCAConnectionPayload,
 
         @Override
         public void monitorChanged(MonitorEvent ev) {
-            synchronized(JCAChannelHandler.this) {
+            synchronized(messageLock) {
                 if (log.isLoggable(Level.FINEST)) {
                     log.log(Level.FINEST, "JCA metadata monitorChanged for channel {0} event {1}", new Object[] {getChannelName(), ev});
                 }
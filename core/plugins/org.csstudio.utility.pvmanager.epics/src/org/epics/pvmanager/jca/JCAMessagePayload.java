@@ -22,6 +22,22 @@ import gov.aps.jca.event.MonitorEvent;
 public class JCAMessagePayload {
     private final DBR metadata;
     private final MonitorEvent event;
+    private volatile CreatedValue createdValue;
+
+    /**
+     * Value created from this message by a type adapter.
+     */
+    private static class CreatedValue {
+        private final JCATypeAdapter typeAdapter;
+        private final JCAConnectionPayload connPayload;
+        private final Object value;
+
+        CreatedValue(JCATypeAdapter typeAdapter, JCAConnectionPayload connPayload, Object value) {
+            this.typeAdapter = typeAdapter;
+            this.connPayload = connPayload;
+            this.value = value;
+        }
+    }
 
     JCAMessagePayload(DBR metadata, MonitorEvent event) {
         if (event != null) {
@@ -60,6 +76,30 @@ public class JCAMessagePayload {
         return metadata;
     }
 
+    /**
+     * The value created by the given type adapter from this message.
+     * <p>
+     * The value is created once and then shared by all the readers of the
+     * channel that use the same type adapter, instead of creating a new
+     * value for each reader. Since the readers share it, the value must
+     * be immutable.
+     * 
+     * @param typeAdapter the type adapter that creates the value
+     * @param connPayload the connection payload
+     * @return the value created by the type adapter
+     */
+    Object getValue(JCATypeAdapter typeAdapter, JCAConnectionPayload connPayload) {
+        CreatedValue created = createdValue;
+        if (created != null && created.typeAdapter == typeAdapter && created.connPayload == connPayload) {
+            return created.value;
+        }
+        
+        // Readers that race here create equal values: keep the last one
+        Object value = typeAdapter.createValue(event.getDBR(), metadata, connPayload);
+        createdValue = new CreatedValue(typeAdapter, connPayload, value);
+        return value;
+    }
+
     @Override
     public String toString() {
         DBR value = null;
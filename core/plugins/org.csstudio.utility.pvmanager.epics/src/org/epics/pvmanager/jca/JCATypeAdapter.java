@@ -96,13 +96,16 @@ public abstract class JCATypeAdapter implements DataSourceTypeAdapter<JCAConnect
         if (message.getEvent() == null)
             return false;
         
-        Object value = createValue(message.getEvent().getDBR(), message.getMetadata(), connPayload);
+        Object value = message.getValue(this, connPayload);
         cache.writeValue(value);
         return true;
     }
 
     /**
      * Given the value and the (optional) metadata, will create the new value.
+     * <p>
+     * The value is created once for each message and shared by all
+     * the readers of the channel, so it must be immutable.
      * 
      * @param value the value taken from the monitor
      * @param metadata the value taken as metadata
@@ -6,6 +6,7 @@ package org.epics.pvmanager.jca;
 
 import gov.aps.jca.dbr.DBR_CTRL_Double;
 import gov.aps.jca.dbr.DBR_TIME_Byte;
+import java.util.Collections;
 import java.util.List;
 import org.epics.vtype.VByteArray;
 import org.epics.vtype.VTypeToString;
@@ -22,18 +23,33 @@ import org.epics.vtype.ValueUtil;
  */
 class VByteArrayFromDbr extends VNumberMetadata<DBR_TIME_Byte, DBR_CTRL_Double> implements VByteArray {
 
+    // Created when first requested, then shared by all readers of the value
+    private volatile ListByte data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimensionDisplay;
+
     public VByteArrayFromDbr(DBR_TIME_Byte dbrValue, DBR_CTRL_Double metadata, JCAConnectionPayload connPayload) {
         super(dbrValue, metadata, connPayload);
     }
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getByteValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getByteValue().length);
+            sizes = result;
+        }
+        return result;
     }
 
     @Override
     public ListByte getData() {
-        return new ArrayByte(dbrValue.getByteValue());
+        ListByte result = data;
+        if (result == null) {
+            result = new ArrayByte(dbrValue.getByteValue());
+            data = result;
+        }
+        return result;
     }
     
     @Override
@@ -43,7 +59,12 @@ class VByteArrayFromDbr extends VNumberMetadata<DBR_TIME_Byte, DBR_CTRL_Double>
 
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay() {
-        return ValueUtil.defaultArrayDisplay(this);
+        List<ArrayDimensionDisplay> result = dimensionDisplay;
+        if (result == null) {
+            result = Collections.unmodifiableList(ValueUtil.defaultArrayDisplay(this));
+            dimensionDisplay = result;
+        }
+        return result;
     }
 
 }
@@ -6,6 +6,7 @@ package org.epics.pvmanager.jca;
 
 import gov.aps.jca.dbr.DBR_CTRL_Double;
 import gov.aps.jca.dbr.DBR_TIME_Double;
+import java.util.Collections;
 import java.util.List;
 import org.epics.vtype.VDoubleArray;
 import org.epics.vtype.VTypeToString;
@@ -22,18 +23,33 @@ import org.epics.vtype.ValueUtil;
  */
 class VDoubleArrayFromDbr extends VNumberMetadata<DBR_TIME_Double, DBR_CTRL_Double> implements VDoubleArray {
 
+    // Created when first requested, then shared by all readers of the value
+    private volatile ListDouble data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimensionDisplay;
+
     public VDoubleArrayFromDbr(DBR_TIME_Double dbrValue, DBR_CTRL_Double metadata, JCAConnectionPayload connPayload) {
         super(dbrValue, metadata, connPayload);
     }
 
     @Override
     public ListDouble getData() {
-        return new ArrayDouble(dbrValue.getDoubleValue());
+        ListDouble result = data;
+        if (result == null) {
+            result = new ArrayDouble(dbrValue.getDoubleValue());
+            data = result;
+        }
+        return result;
     }
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getDoubleValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getDoubleValue().length);
+            sizes = result;
+        }
+        return result;
     }
     
     @Override
@@ -43,7 +59,12 @@ class VDoubleArrayFromDbr extends VNumberMetadata<DBR_TIME_Double, DBR_CTRL_Doub
 
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay() {
-        return ValueUtil.defaultArrayDisplay(this);
+        List<ArrayDimensionDisplay> result = dimensionDisplay;
+        if (result == null) {
+            result = Collections.unmodifiableList(ValueUtil.defaultArrayDisplay(this));
+            dimensionDisplay = result;
+        }
+        return result;
     }
 
 }
@@ -6,6 +6,7 @@ package org.epics.pvmanager.jca;
 
 import gov.aps.jca.dbr.DBR_CTRL_Double;
 import gov.aps.jca.dbr.DBR_TIME_Float;
+import java.util.Collections;
 import java.util.List;
 import org.epics.vtype.VFloatArray;
 import org.epics.vtype.VTypeToString;
@@ -22,18 +23,33 @@ import org.epics.vtype.ValueUtil;
  */
 class VFloatArrayFromDbr extends VNumberMetadata<DBR_TIME_Float, DBR_CTRL_Double> implements VFloatArray {
 
+    // Created when first requested, then shared by all readers of the value
+    private volatile ListFloat data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimensionDisplay;
+
     public VFloatArrayFromDbr(DBR_TIME_Float dbrValue, DBR_CTRL_Double metadata, JCAConnectionPayload connPayload) {
         super(dbrValue, metadata, connPayload);
     }
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getFloatValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getFloatValue().length);
+            sizes = result;
+        }
+        return result;
     }
 
     @Override
     public ListFloat getData() {
-        return new ArrayFloat(dbrValue.getFloatValue());
+        ListFloat result = data;
+        if (result == null) {
+            result = new ArrayFloat(dbrValue.getFloatValue());
+            data = result;
+        }
+        return result;
     }
     
     @Override
@@ -43,7 +59,12 @@ class VFloatArrayFromDbr extends VNumberMetadata<DBR_TIME_Float, DBR_CTRL_Double
 
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay() {
-        return ValueUtil.defaultArrayDisplay(this);
+        List<ArrayDimensionDisplay> result = dimensionDisplay;
+        if (result == null) {
+            result = Collections.unmodifiableList(ValueUtil.defaultArrayDisplay(this));
+            dimensionDisplay = result;
+        }
+        return result;
     }
 
 }
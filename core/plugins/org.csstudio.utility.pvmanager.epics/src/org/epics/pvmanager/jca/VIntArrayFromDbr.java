@@ -6,6 +6,7 @@ package org.epics.pvmanager.jca;
 
 import gov.aps.jca.dbr.DBR_CTRL_Double;
 import gov.aps.jca.dbr.DBR_TIME_Int;
+import java.util.Collections;
 import java.util.List;
 import org.epics.vtype.VIntArray;
 import org.epics.vtype.VTypeToString;
@@ -20,18 +21,33 @@ import org.epics.vtype.ValueUtil;
  */
 class VIntArrayFromDbr extends VNumberMetadata<DBR_TIME_Int, DBR_CTRL_Double> implements VIntArray {
 
+    // Created when first requested, then shared by all readers of the value
+    private volatile ListInt data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimensionDisplay;
+
     public VIntArrayFromDbr(DBR_TIME_Int dbrValue, DBR_CTRL_Double metadata, JCAConnectionPayload connPayload) {
         super(dbrValue, metadata, connPayload);
     }
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getIntValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getIntValue().length);
+            sizes = result;
+        }
+        return result;
     }
 
     @Override
     public ListInt getData() {
-        return new ArrayInt(dbrValue.getIntValue());
+        ListInt result = data;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getIntValue());
+            data = result;
+        }
+        return result;
     }
     
     @Override
@@ -41,7 +57,12 @@ class VIntArrayFromDbr extends VNumberMetadata<DBR_TIME_Int, DBR_CTRL_Double> im
 
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay() {
-        return ValueUtil.defaultArrayDisplay(this);
+        List<ArrayDimensionDisplay> result = dimensionDisplay;
+        if (result == null) {
+            result = Collections.unmodifiableList(ValueUtil.defaultArrayDisplay(this));
+            dimensionDisplay = result;
+        }
+        return result;
     }
 
 }
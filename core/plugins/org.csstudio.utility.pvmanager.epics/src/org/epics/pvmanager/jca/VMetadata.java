@@ -18,6 +18,7 @@ class VMetadata<TValue extends TIME> implements Alarm, Time {
 
     final TValue dbrValue;
     private final boolean disconnected;
+    private volatile Timestamp timestamp;
 
     VMetadata(TValue dbrValue, JCAConnectionPayload connPayload) {
         this.dbrValue = dbrValue;
@@ -40,7 +41,12 @@ class VMetadata<TValue extends TIME> implements Alarm, Time {
 
     @Override
     public Timestamp getTimestamp() {
-        return DataUtils.timestampOf(dbrValue.getTimeStamp());
+        Timestamp result = timestamp;
+        if (result == null) {
+            result = DataUtils.timestampOf(dbrValue.getTimeStamp());
+            timestamp = result;
+        }
+        return result;
     }
 
     @Override
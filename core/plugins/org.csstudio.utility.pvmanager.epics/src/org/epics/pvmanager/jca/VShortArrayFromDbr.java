@@ -6,6 +6,7 @@ package org.epics.pvmanager.jca;
 
 import gov.aps.jca.dbr.DBR_CTRL_Double;
 import gov.aps.jca.dbr.DBR_TIME_Short;
+import java.util.Collections;
 import java.util.List;
 import org.epics.vtype.VShortArray;
 import org.epics.vtype.VTypeToString;
@@ -22,18 +23,33 @@ import org.epics.vtype.ValueUtil;
  */
 class VShortArrayFromDbr extends VNumberMetadata<DBR_TIME_Short, DBR_CTRL_Double> implements VShortArray {
 
+    // Created when first requested, then shared by all readers of the value
+    private volatile ListShort data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimensionDisplay;
+
     public VShortArrayFromDbr(DBR_TIME_Short dbrValue, DBR_CTRL_Double metadata, JCAConnectionPayload connPayload) {
         super(dbrValue, metadata, connPayload);
     }
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getShortValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getShortValue().length);
+            sizes = result;
+        }
+        return result;
     }
 
     @Override
     public ListShort getData() {
-        return new ArrayShort(dbrValue.getShortValue());
+        ListShort result = data;
+        if (result == null) {
+            result = new ArrayShort(dbrValue.getShortValue());
+            data = result;
+        }
+        return result;
     }
     
     @Override
@@ -43,7 +59,12 @@ class VShortArrayFromDbr extends VNumberMetadata<DBR_TIME_Short, DBR_CTRL_Double
 
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay() {
-        return ValueUtil.defaultArrayDisplay(this);
+        List<ArrayDimensionDisplay> result = dimensionDisplay;
+        if (result == null) {
+            result = Collections.unmodifiableList(ValueUtil.defaultArrayDisplay(this));
+            dimensionDisplay = result;
+        }
+        return result;
     }
 
 }
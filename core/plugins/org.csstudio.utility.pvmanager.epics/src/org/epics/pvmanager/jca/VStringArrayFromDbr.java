@@ -20,6 +20,7 @@ import org.epics.util.array.ListInt;
 class VStringArrayFromDbr extends VMetadata<DBR_TIME_String> implements VStringArray {
     
     private List<String> data;
+    private volatile ListInt sizes;
 
     public VStringArrayFromDbr(DBR_TIME_String dbrValue, JCAConnectionPayload connPayload) {
         super(dbrValue, connPayload);
@@ -33,7 +34,12 @@ class VStringArrayFromDbr extends VMetadata<DBR_TIME_String> implements VStringA
 
     @Override
     public ListInt getSizes() {
-        return new ArrayInt(dbrValue.getStringValue().length);
+        ListInt result = sizes;
+        if (result == null) {
+            result = new ArrayInt(dbrValue.getStringValue().length);
+            sizes = result;
+        }
+        return result;
     }
     
     @Override
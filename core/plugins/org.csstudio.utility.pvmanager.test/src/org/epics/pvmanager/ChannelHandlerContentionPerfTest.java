@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2010-14 pvmanager developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.pvmanager;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Benchmark for the value dispatch of a {@link MultiplexedChannelHandler}
+ * with many readers, while other readers are added and removed
+ * and the channel reconnects.
+ * <p>
+ * Models one PV that is used by hundreds of widgets
+ * while displays that also use it are opened and closed.
+ */
+public class ChannelHandlerContentionPerfTest {
+
+    private static final int READERS = 500;
+    private static final int CHURN_THREADS = 4;
+    private static final int RUNTIME_SECONDS = 5;
+
+    /**
+     * Number of values that a type adapter processed with a connection
+     * payload other than the one it was found for.
+     */
+    private static final AtomicInteger payloadMismatches = new AtomicInteger();
+
+    /**
+     * Type adapter found for one connection payload.
+     */
+    private static class TestTypeAdapter implements DataSourceTypeAdapter<Object, Object> {
+
+        private final Object connection;
+
+        public TestTypeAdapter(Object connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public int match(ValueCache<?> cache, Object connection) {
+            return 1;
+        }
+
+        @Override
+        public Object getSubscriptionParameter(ValueCache<?> cache, Object connection) {
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean updateCache(ValueCache cache, Object connection, Object message) {
+            if (connection != this.connection) {
+                payloadMismatches.incrementAndGet();
+            }
+            cache.writeValue(message);
+            return true;
+        }
+    }
+
+    /**
+     * Type adapter that keeps all values in a list, like a queue collector.
+     */
+    private static class CollectingTypeAdapter extends TestTypeAdapter {
+
+        public CollectingTypeAdapter(Object connection) {
+            super(connection);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean updateCache(ValueCache cache, Object connection, Object message) {
+            List<Object> values = (List<Object>) cache.readValue();
+            if (values == null) {
+                values = new ArrayList<>();
+            }
+            values.add(message);
+            cache.writeValue(values);
+            return true;
+        }
+    }
+
+    /**
+     * Channel handler that exposes the protected API.
+     */
+    private static class TestChannelHandler extends MultiplexedChannelHandler<Object, Object> {
+
+        private final boolean collect;
+
+        public TestChannelHandler() {
+            this(false);
+        }
+
+        public TestChannelHandler(boolean collect) {
+            super("test");
+            this.collect = collect;
+        }
+
+        @Override
+        protected void connect() {
+            processConnection(new Object());
+        }
+
+        @Override
+        protected void disconnect() {
+            processConnection(null);
+        }
+
+        @Override
+        protected void write(Object newValue, ChannelWriteCallback callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected DataSourceTypeAdapter<Object, Object> findTypeAdapter(ValueCache<?> cache, Object connection) {
+            if (collect) {
+                return new CollectingTypeAdapter(connection);
+            }
+            return new TestTypeAdapter(connection);
+        }
+
+        public Object getPayload() {
+            return getConnectionPayload();
+        }
+
+        public void reconnect() {
+            processConnection(new Object());
+        }
+
+        public void send(Object value) {
+            processMessage(value);
+        }
+    }
+
+    private static final WriteFunction<Exception> ignoreExceptions = new WriteFunction<Exception>() {
+        @Override
+        public void writeValue(Exception value) {
+            // Ignore
+        }
+    };
+
+    private static final WriteFunction<Boolean> ignoreConnections = new WriteFunction<Boolean>() {
+        @Override
+        public void writeValue(Boolean value) {
+            // Ignore
+        }
+    };
+
+    private static ChannelHandlerReadSubscription createSubscription() {
+        return new ChannelHandlerReadSubscription(new ValueCacheImpl<Object>(Object.class),
+                ignoreExceptions, ignoreConnections);
+    }
+
+    @Test(timeout = 60000)
+    public void dispatchWhileAddingReaders() throws Exception {
+        final TestChannelHandler handler = new TestChannelHandler();
+        List<ChannelHandlerReadSubscription> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; ++i) {
+            ChannelHandlerReadSubscription reader = createSubscription();
+            handler.addReader(reader);
+            readers.add(reader);
+        }
+
+        final AtomicBoolean run = new AtomicBoolean(true);
+        final long[] churnCounts = new long[CHURN_THREADS];
+        List<Thread> churners = new ArrayList<>();
+        for (int t = 0; t < CHURN_THREADS; ++t) {
+            final int index = t;
+            Thread thread = new Thread("Churn " + t) {
+                @Override
+                public void run() {
+                    List<ChannelHandlerReadSubscription> display = new ArrayList<>();
+                    while (run.get()) {
+                        // 'Open' and 'close' a display with a few widgets for the channel
+                        for (int i = 0; i < 10; ++i) {
+                            ChannelHandlerReadSubscription reader = createSubscription();
+                            handler.addReader(reader);
+                            display.add(reader);
+                        }
+                        for (ChannelHandlerReadSubscription reader : display) {
+                            handler.removeReader(reader);
+                        }
+                        display.clear();
+                        // Every now and then, the channel reconnects
+                        if (index == 0 && churnCounts[index] % 100 == 0) {
+                            handler.reconnect();
+                        }
+                        ++churnCounts[index];
+                    }
+                }
+            };
+            churners.add(thread);
+            thread.start();
+        }
+
+        // Dispatch values
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(RUNTIME_SECONDS);
+        long messages = 0;
+        long maxNanos = 0;
+        Integer value = null;
+        while (System.nanoTime() < end) {
+            value = Integer.valueOf((int) messages);
+            long start = System.nanoTime();
+            handler.send(value);
+            maxNanos = Math.max(maxNanos, System.nanoTime() - start);
+            ++messages;
+        }
+        run.set(false);
+        long churns = 0;
+        for (int t = 0; t < CHURN_THREADS; ++t) {
+            churners.get(t).join();
+            churns += churnCounts[t];
+        }
+
+        System.out.format("%d readers, %d churn threads: %.0f messages/sec, max dispatch %.2f ms, %.0f displays opened/sec\n",
+                READERS, CHURN_THREADS, messages / (double) RUNTIME_SECONDS, maxNanos / 1e6,
+                churns / (double) RUNTIME_SECONDS);
+
+        // All readers have the last value, always processed by the
+        // type adapter for the connection payload that was used
+        for (ChannelHandlerReadSubscription reader : readers) {
+            assertThat(reader.getValueCache().readValue(), equalTo((Object) value));
+        }
+        assertThat(payloadMismatches.get(), equalTo(0));
+    }
+
+    @Test(timeout = 60000)
+    public void everyMessageFromSeveralProducersReachesEveryReader() throws Exception {
+        final TestChannelHandler handler = new TestChannelHandler(true);
+        List<ChannelHandlerReadSubscription> readers = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            ChannelHandlerReadSubscription reader = createSubscription();
+            handler.addReader(reader);
+            readers.add(reader);
+        }
+
+        final int producers = 4, messages = 10000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; ++t) {
+            Thread thread = new Thread("Producer " + t) {
+                @Override
+                public void run() {
+                    for (int i = 0; i < messages; ++i) {
+                        handler.send(Integer.valueOf(i));
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (ChannelHandlerReadSubscription reader : readers) {
+            assertThat(((List<?>) reader.getValueCache().readValue()).size(), equalTo(producers * messages));
+        }
+    }
+
+    @Test
+    public void connectionAfterDisconnectIsIgnored() throws Exception {
+        final TestChannelHandler handler = new TestChannelHandler();
+        ChannelHandlerReadSubscription reader = createSubscription();
+        handler.addReader(reader);
+        assertThat(handler.isConnected(), equalTo(true));
+        handler.removeReader(reader);
+        assertThat(handler.getPayload(), nullValue());
+
+        // Late connection callback of the closed channel
+        handler.reconnect();
+        assertThat(handler.getPayload(), nullValue());
+        assertThat(handler.isConnected(), equalTo(false));
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2010-14 pvmanager developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.pvmanager;
+
+import static org.epics.pvmanager.ExpressionLanguage.channel;
+import static org.epics.pvmanager.ExpressionLanguage.latestValueOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epics.util.time.TimeDuration;
+import org.junit.Test;
+
+/**
+ * Benchmark of periodic vs. event driven scanning of PVReaders.
+ * <p>
+ * Reads many quiet channels, which never change,
+ * and many noisy channels, which change once per second.
+ * Measures the CPU time used by all threads
+ * and the latency from value creation to notification.
+ */
+public class PVManagerScanPerfTest {
+
+    private static final int QUIET = 10000, NOISY = 10000;
+    private static final TimeDuration MAX_RATE = TimeDuration.ofMillis(100);
+    private static final int RUNTIME_SECONDS = 10;
+
+    /**
+     * Channel that sends the time in milliseconds when it connects,
+     * and again once per second when noisy.
+     */
+    private static class TestChannelHandler extends MultiplexedChannelHandler<Object, Long> {
+
+        private final List<TestChannelHandler> noisyChannels;
+
+        public TestChannelHandler(String channelName, List<TestChannelHandler> noisyChannels) {
+            super(channelName);
+            this.noisyChannels = noisyChannels;
+        }
+
+        @Override
+        protected void connect() {
+            processConnection(new Object());
+            processMessage(System.currentTimeMillis());
+            if (noisyChannels != null) {
+                noisyChannels.add(this);
+            }
+        }
+
+        @Override
+        protected void disconnect() {
+            if (noisyChannels != null) {
+                noisyChannels.remove(this);
+            }
+            processConnection(null);
+        }
+
+        @Override
+        protected void write(Object newValue, ChannelWriteCallback callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void update() {
+            processMessage(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Data source for "quiet..." and "noisy..." channels.
+     */
+    private static class TestDataSource extends DataSource {
+
+        private final List<TestChannelHandler> noisyChannels = new CopyOnWriteArrayList<>();
+        private final ScheduledExecutorService updates = Executors.newSingleThreadScheduledExecutor();
+
+        public TestDataSource() {
+            super(false);
+            updates.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    for (TestChannelHandler channel : noisyChannels) {
+                        channel.update();
+                    }
+                }
+            }, 1, 1, TimeUnit.SECONDS);
+        }
+
+        @Override
+        protected ChannelHandler createChannel(String channelName) {
+            return new TestChannelHandler(channelName,
+                    channelName.startsWith("noisy") ? noisyChannels : null);
+        }
+
+        @Override
+        public void close() {
+            updates.shutdown();
+            super.close();
+        }
+    }
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong latencySumMs = new AtomicLong();
+    private final AtomicLong latencyMaxMs = new AtomicLong();
+
+    private final PVReaderListener<Object> listener = new PVReaderListener<Object>() {
+        @Override
+        public void pvChanged(PVReaderEvent<Object> event) {
+            Object value = event.getPvReader().getValue();
+            if (!(value instanceof Long) || !event.isValueChanged()) {
+                return;
+            }
+            long ms = System.currentTimeMillis() - (Long) value;
+            updates.incrementAndGet();
+            latencySumMs.addAndGet(ms);
+            long max = latencyMaxMs.get();
+            while (ms > max && !latencyMaxMs.compareAndSet(max, ms)) {
+                max = latencyMaxMs.get();
+            }
+        }
+    };
+
+    /**
+     * Returns the CPU time of all threads.
+     *
+     * @return CPU time in nanoseconds
+     */
+    private static long getCPUTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long time = threads.getThreadCpuTime(id);
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+    private void runBenchmark(boolean eventDriven) throws Exception {
+        TestDataSource dataSource = new TestDataSource();
+        PVManager.setDefaultDataSource(dataSource);
+        PVManager.setEventDrivenScan(eventDriven);
+        List<PVReader<Object>> readers = new ArrayList<>();
+        for (int i = 0; i < QUIET; ++i) {
+            readers.add(PVManager.read(latestValueOf(channel("quiet" + i)))
+                    .readListener(listener).maxRate(MAX_RATE));
+        }
+        for (int i = 0; i < NOISY; ++i) {
+            readers.add(PVManager.read(latestValueOf(channel("noisy" + i)))
+                    .readListener(listener).maxRate(MAX_RATE));
+        }
+        // Let connections settle
+        TimeUnit.SECONDS.sleep(3);
+        updates.set(0);
+        latencySumMs.set(0);
+        latencyMaxMs.set(0);
+
+        long start = getCPUTime();
+        TimeUnit.SECONDS.sleep(RUNTIME_SECONDS);
+        long cpuMs = (getCPUTime() - start) / 1000000;
+
+        for (PVReader<Object> reader : readers) {
+            reader.close();
+        }
+        PVManager.setEventDrivenScan(false);
+        dataSource.close();
+
+        long count = updates.get();
+        System.out.format("%-12s: %d quiet, %d noisy channels, CPU %.1f %%, %d updates, latency avg %d ms, max %d ms\n",
+                eventDriven ? "Event driven" : "Periodic", QUIET, NOISY,
+                100.0 * cpuMs / (RUNTIME_SECONDS * 1000.0), count,
+                count > 0 ? latencySumMs.get() / count : 0, latencyMaxMs.get());
+        assertThat(count > 0, is(true));
+    }
+
+    @Test(timeout = 120000)
+    public void testScanPerformance() throws Exception {
+        runBenchmark(false);
+        runBenchmark(true);
+    }
+}
@@ -58,6 +58,12 @@ public class Activator extends Plugin {
 			// set as default data source
 			PVManager.setDefaultDataSource(composite);
 
+			// Scan readers periodically or only after channel events
+			if (ConfigurationHelper.eventDrivenScan()) {
+				log.log(Level.CONFIG, "Using event driven scan for PVReaders");
+				PVManager.setEventDrivenScan(true);
+			}
+
 		} catch (Exception e) {
 			log.log(Level.SEVERE,
 					"Couldn't configure PVManager with Datasources", e);
@@ -43,6 +43,21 @@ public class ConfigurationHelper {
 		null);
     }
 
+    /** Preference ID for event driven scanning of readers */
+    final public static String EVENT_DRIVEN_SCAN_KEY = "event_driven_scan";
+
+    /**
+     * @return true if readers should only scan after their channels had
+     *         events, see {@link org.epics.pvmanager.PVManager#setEventDrivenScan(boolean)}
+     */
+    public static boolean eventDrivenScan() {
+	final IPreferencesService prefs = Platform.getPreferencesService();
+	if (prefs == null)
+	    return false;
+	return prefs.getBoolean(Activator.ID, EVENT_DRIVEN_SCAN_KEY, false,
+		null);
+    }
+
     /**
      * Retrieves the data sources that have been registered through the
      * extension point.
@@ -23,14 +23,30 @@ public class ChannelHandlerReadSubscription {
      * @param connectionWriteFunction the connection write function to dispatch exceptions
      */
     public ChannelHandlerReadSubscription(ValueCache<?> valueCache, WriteFunction<Exception> exceptionWriteFunction, WriteFunction<Boolean> connectionWriteFunction) {
+        this(valueCache, exceptionWriteFunction, connectionWriteFunction, null);
+    }
+
+    /**
+     * Creates the parameters for a new subscription, with a listener
+     * for updates.
+     * 
+     * @param valueCache the cache where to write the value
+     * @param exceptionWriteFunction the write function to dispatch exceptions
+     * @param connectionWriteFunction the connection write function to dispatch exceptions
+     * @param updateListener called after value, connection or exception were written; can be null
+     */
+    public ChannelHandlerReadSubscription(ValueCache<?> valueCache, WriteFunction<Exception> exceptionWriteFunction, WriteFunction<Boolean> connectionWriteFunction,
+            Runnable updateListener) {
         this.valueCache = valueCache;
         this.exceptionWriteFunction = exceptionWriteFunction;
         this.connectionWriteFunction = connectionWriteFunction;
+        this.updateListener = updateListener;
     }
     
     private final ValueCache<?> valueCache;
     private final WriteFunction<Exception> exceptionWriteFunction;
     private final WriteFunction<Boolean> connectionWriteFunction;
+    private final Runnable updateListener;
 
     /**
      * The cache where to write the value.
@@ -58,6 +74,17 @@ public class ChannelHandlerReadSubscription {
     public WriteFunction<Boolean> getConnectionWriteFunction() {
         return connectionWriteFunction;
     }
+
+    /**
+     * Signals that the value, connection or exception was written.
+     * Channel handlers call this after each update, so that readers
+     * using event driven scanning know they need to be scanned.
+     */
+    public void fireUpdate() {
+        if (updateListener != null) {
+            updateListener.run();
+        }
+    }
     
     @Override
     public int hashCode() {
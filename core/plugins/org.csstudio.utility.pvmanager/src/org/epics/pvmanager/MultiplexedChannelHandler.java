@@ -4,8 +4,11 @@
  */
 package org.epics.pvmanager;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +38,20 @@ import java.util.logging.Logger;
  * message payload never leave this handler, only value types created by the
  * type adapters</li>
  * </ul>
+ * <p>
+ * Values and connection changes are dispatched without holding the lock
+ * of the handler, so that readers and writers being added or removed never
+ * delay the delivery of values. The subscribers are kept in a copy-on-write
+ * list. Publishing a message or connection payload and dispatching it to
+ * the monitors is serialized by a separate dispatch lock, so every message
+ * reaches every monitor before the next one is published.
+ * The dispatch lock may be taken while holding the lock of the handler,
+ * but not the other way around.
+ * Each monitor serializes its own updates and always applies the latest
+ * message, so a reader added during a dispatch does not end up with an
+ * older value. A monitor only applies a message with the connection payload
+ * its type adapter was found for, finding the adapter again when the
+ * payload changed.
  *
  * @param <ConnectionPayload> type of the payload for the connection
  * @param <MessagePayload> type of the payload for each message
@@ -43,50 +60,93 @@ import java.util.logging.Logger;
 public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayload> extends ChannelHandler {
     
     private static final Logger log = Logger.getLogger(MultiplexedChannelHandler.class.getName());
-    private int readUsageCounter = 0;
-    private int writeUsageCounter = 0;
-    private boolean connected = false;
-    private boolean writeConnected = false;
-    private MessagePayload lastMessage;
-    private ConnectionPayload connectionPayload;
-    private Map<ChannelHandlerReadSubscription, MonitorHandler> monitors = new ConcurrentHashMap<>();
-    private Map<WriteCache<?>, ChannelHandlerWriteSubscription> writeSubscriptions = new ConcurrentHashMap<>();
-    private boolean processMessageOnDisconnect = true;
-    private boolean processMessageOnReconnect = true;
+    // Written with the lock of the handler, read without it
+    private volatile int readUsageCounter = 0;
+    private volatile int writeUsageCounter = 0;
+    // Serializes publishing and dispatching of messages and connections
+    private final Object dispatchLock = new Object();
+    private volatile boolean connected = false;
+    private volatile boolean writeConnected = false;
+    private final AtomicReference<Message<MessagePayload>> lastMessage = new AtomicReference<>(new Message<MessagePayload>(null, 0));
+    private volatile ConnectionPayload connectionPayload;
+    private final List<MonitorHandler> monitors = new CopyOnWriteArrayList<>();
+    private final Map<WriteCache<?>, ChannelHandlerWriteSubscription> writeSubscriptions = new ConcurrentHashMap<>();
+    private volatile boolean processMessageOnDisconnect = true;
+    private volatile boolean processMessageOnReconnect = true;
+    
+    /**
+     * A message payload with its sequence number. Each published message
+     * has a higher number than the one it replaced.
+     */
+    private static class Message<MessagePayload> {
+        
+        private final MessagePayload payload;
+        private final long sequence;
+
+        public Message(MessagePayload payload, long sequence) {
+            this.payload = payload;
+            this.sequence = sequence;
+        }
+    }
     
     private class MonitorHandler {
 
         private final ChannelHandlerReadSubscription subscription;
+        // Guarded by this
         private DataSourceTypeAdapter<ConnectionPayload, MessagePayload> typeAdapter;
+        // Guarded by this: connection payload that typeAdapter was found for
+        private ConnectionPayload typeAdapterConnection;
+        // Guarded by this
+        private long lastSequence = 0;
 
         public MonitorHandler(ChannelHandlerReadSubscription subscription) {
             this.subscription = subscription;
         }
         
-        public final void processConnection(boolean connection) {
-            subscription.getConnectionWriteFunction().writeValue(connection);
+        public synchronized final void processConnection() {
+            // Always write the latest state, in case another thread
+            // changed it while this one was waiting
+            subscription.getConnectionWriteFunction().writeValue(isConnected());
+            subscription.fireUpdate();
         }
 
-        public final void processValue(MessagePayload payload) {
-            if (typeAdapter == null)
+        public synchronized final void processValue() {
+            // The connection payload may have changed after the adapter
+            // was found: never use an adapter with a different payload
+            ConnectionPayload connection = getConnectionPayload();
+            if (connection != typeAdapterConnection) {
+                findTypeAdapter(connection);
+            }
+            
+            // Always process the latest message, and never one that was
+            // already processed, in case another thread dispatched it first
+            Message<MessagePayload> message = lastMessage.get();
+            if (typeAdapter == null || message.payload == null || message.sequence <= lastSequence)
                 return;
+            lastSequence = message.sequence;
             
             // Lock the collector and prepare the new value.
             try {
-                typeAdapter.updateCache(subscription.getValueCache(), getConnectionPayload(), payload);
+                typeAdapter.updateCache(subscription.getValueCache(), connection, message.payload);
             } catch (RuntimeException e) {
                 subscription.getExceptionWriteFunction().writeValue(e);
             }
+            subscription.fireUpdate();
+        }
+        
+        public synchronized final void findTypeAdapter() {
+            findTypeAdapter(getConnectionPayload());
         }
         
-        public final void findTypeAdapter() {
-            if (getConnectionPayload() == null) {
-                typeAdapter = null;
-            } else {
+        private void findTypeAdapter(ConnectionPayload connection) {
+            typeAdapterConnection = connection;
+            typeAdapter = null;
+            if (connection != null) {
                 try {
-                    typeAdapter = MultiplexedChannelHandler.this.findTypeAdapter(subscription.getValueCache(), getConnectionPayload());
+                    typeAdapter = MultiplexedChannelHandler.this.findTypeAdapter(subscription.getValueCache(), connection);
                 } catch(RuntimeException ex) {
                     subscription.getExceptionWriteFunction().writeValue(ex);
+                    subscription.fireUpdate();
                 }
             }
         }
@@ -98,9 +158,10 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param ex the exception to notify
      */
-    protected synchronized final void reportExceptionToAllReadersAndWriters(Exception ex) {
-        for (MonitorHandler monitor : monitors.values()) {
+    protected final void reportExceptionToAllReadersAndWriters(Exception ex) {
+        for (MonitorHandler monitor : monitors) {
             monitor.subscription.getExceptionWriteFunction().writeValue(ex);
+            monitor.subscription.fireUpdate();
         }
         for (ChannelHandlerWriteSubscription subscription : writeSubscriptions.values()) {
             subscription.getExceptionWriteFunction().writeValue(ex);
@@ -112,15 +173,15 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param ex the exception to notify
      */
-    protected synchronized final void reportExceptionToAllWriters(Exception ex) {
+    protected final void reportExceptionToAllWriters(Exception ex) {
         for (ChannelHandlerWriteSubscription subscription : writeSubscriptions.values()) {
             subscription.getExceptionWriteFunction().writeValue(ex);
         }
     }
     
-    private void reportConnectionStatus(boolean connected) {
-        for (MonitorHandler monitor : monitors.values()) {
-            monitor.processConnection(connected);
+    private void reportConnectionStatus() {
+        for (MonitorHandler monitor : monitors) {
+            monitor.processConnection();
         }
     }
     
@@ -135,7 +196,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @return the connection payload or null
      */
-    protected synchronized final ConnectionPayload getConnectionPayload() {
+    protected final ConnectionPayload getConnectionPayload() {
         return connectionPayload;
     }
 
@@ -144,8 +205,36 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @return the message payload or null
      */
-    protected synchronized final MessagePayload getLastMessagePayload() {
-        return lastMessage;
+    protected final MessagePayload getLastMessagePayload() {
+        return lastMessage.get().payload;
+    }
+    
+    /**
+     * Publishes a new last message.
+     * 
+     * @param payload the payload, or null to reset
+     */
+    private void publishMessage(MessagePayload payload) {
+        Message<MessagePayload> previous;
+        do {
+            previous = lastMessage.get();
+        } while (!lastMessage.compareAndSet(previous, new Message<>(payload, previous.sequence + 1)));
+    }
+    
+    /**
+     * Publishes the current last message again, so that it is processed
+     * again by all monitors.
+     * 
+     * @return false if there is no last message
+     */
+    private boolean republishMessage() {
+        Message<MessagePayload> previous;
+        do {
+            previous = lastMessage.get();
+            if (previous.payload == null)
+                return false;
+        } while (!lastMessage.compareAndSet(previous, new Message<>(previous.payload, previous.sequence + 1)));
+        return true;
     }
 
     /**
@@ -154,24 +243,33 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param connectionPayload 
      */
-    protected synchronized final void processConnection(ConnectionPayload connectionPayload) {
+    protected final void processConnection(ConnectionPayload connectionPayload) {
         if (log.isLoggable(Level.FINEST)) {
             log.log(Level.FINEST, "processConnection for channel {0} connecionPayload {1}", new Object[] {getChannelName(), connectionPayload});
         }
         
-        this.connectionPayload = connectionPayload;
-        setConnected(isConnected(connectionPayload));
-        setWriteConnected(isWriteConnected(connectionPayload));
-        
-        for (MonitorHandler monitor : monitors.values()) {
-            monitor.findTypeAdapter();
-        }
-        
-        if (isConnected() && lastMessage != null && processMessageOnReconnect) {
-            processMessage(lastMessage);
-        }
-        if (!isConnected() && lastMessage != null && processMessageOnDisconnect) {
-            processMessage(lastMessage);
+        synchronized (dispatchLock) {
+            // A connection that is reported after the last reader or writer
+            // was removed must not bring back the payload that
+            // the disconnect cleared
+            if (connectionPayload != null && getUsageCounter() == 0) {
+                return;
+            }
+            this.connectionPayload = connectionPayload;
+            setConnected(isConnected(connectionPayload));
+            setWriteConnected(isWriteConnected(connectionPayload));
+
+            for (MonitorHandler monitor : monitors) {
+                monitor.findTypeAdapter();
+            }
+
+            // Process the last message again with the new connection payload
+            if ((isConnected() && processMessageOnReconnect) ||
+                    (!isConnected() && processMessageOnDisconnect)) {
+                if (republishMessage()) {
+                    dispatchMessage();
+                }
+            }
         }
     }
     
@@ -224,17 +322,17 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
     }
 
     @Override
-    public synchronized int getUsageCounter() {
+    public int getUsageCounter() {
         return readUsageCounter + writeUsageCounter;
     }
     
     @Override
-    public synchronized int getReadUsageCounter() {
+    public int getReadUsageCounter() {
         return readUsageCounter;
     }
     
     @Override
-    public synchronized int getWriteUsageCounter() {
+    public int getWriteUsageCounter() {
         return writeUsageCounter;
     }
 
@@ -242,26 +340,36 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
     protected synchronized void addReader(ChannelHandlerReadSubscription subscription) {
         readUsageCounter++;
         MonitorHandler monitor = new MonitorHandler(subscription);
-        monitors.put(subscription, monitor);
+        // Publish the monitor before reading the current state, so that
+        // updates dispatched in the meantime are not missed
+        removeMonitor(subscription);
+        monitors.add(monitor);
         monitor.findTypeAdapter();
         guardedConnect();
         if (getUsageCounter() > 1) {
             if (connectionPayload != null) {
-                monitor.processConnection(isConnected());
-            }
-            if (lastMessage != null) {
-                monitor.processValue(lastMessage);
+                monitor.processConnection();
             }
+            monitor.processValue();
         } 
     }
 
     @Override
     protected synchronized void removeReader(ChannelHandlerReadSubscription subscription) {
-        monitors.remove(subscription);
+        removeMonitor(subscription);
         readUsageCounter--;
         guardedDisconnect();
     }
     
+    private void removeMonitor(ChannelHandlerReadSubscription subscription) {
+        for (MonitorHandler monitor : monitors) {
+            if (monitor.subscription.equals(subscription)) {
+                monitors.remove(monitor);
+                return;
+            }
+        }
+    }
+    
     @Override
     protected synchronized void addWriter(ChannelHandlerWriteSubscription subscription) {
         writeUsageCounter++;
@@ -284,8 +392,10 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * the last message without triggering a notification. It is useful
      * when a reconnect should behave as the first connection.
      */
-    protected synchronized final void resetMessage() {
-        lastMessage = null;
+    protected final void resetMessage() {
+        synchronized (dispatchLock) {
+            publishMessage(null);
+        }
     }
 
     /**
@@ -296,14 +406,20 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param payload the payload of for this type of channel
      */
-    protected synchronized final void processMessage(MessagePayload payload) {
+    protected final void processMessage(MessagePayload payload) {
         if (log.isLoggable(Level.FINEST)) {
             log.log(Level.FINEST, "processMessage for channel {0} messagePayload {1}", new Object[]{getChannelName(), payload});
         }
         
-        lastMessage = payload;
-        for (MonitorHandler monitor : monitors.values()) {
-            monitor.processValue(payload);
+        synchronized (dispatchLock) {
+            publishMessage(payload);
+            dispatchMessage();
+        }
+    }
+    
+    private void dispatchMessage() {
+        for (MonitorHandler monitor : monitors) {
+            monitor.processValue();
         }
     }
 
@@ -321,10 +437,12 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
         if (getUsageCounter() == 0) {
             try {
                 disconnect();
-                if (!saveMessageAfterDisconnect()) {
-                    lastMessage = null;
+                synchronized (dispatchLock) {
+                    if (!saveMessageAfterDisconnect()) {
+                        publishMessage(null);
+                    }
+                    connectionPayload = null;
                 }
-                connectionPayload = null;
             } catch (RuntimeException ex) {
                 reportExceptionToAllReadersAndWriters(ex);
                 log.log(Level.WARNING, "Couldn't disconnect channel " + getChannelName(), ex);
@@ -361,7 +479,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
 
     private void setConnected(boolean connected) {
         this.connected = connected;
-        reportConnectionStatus(connected);
+        reportConnectionStatus();
     }
     
     private void setWriteConnected(boolean writeConnected) {
@@ -398,7 +516,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
     }
     
     @Override
-    public synchronized final boolean isConnected() {
+    public final boolean isConnected() {
         return connected;
     }
     
@@ -407,7 +525,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @return true if underlying channel is write ready
      */
-    public synchronized final boolean isWriteConnected() {
+    public final boolean isWriteConnected() {
         // TODO: push this in ChannleHandler?
         return writeConnected;
     }
@@ -419,7 +537,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param processMessageOnDisconnect whether to process the message on disconnect
      */
-    protected synchronized final void setProcessMessageOnDisconnect(boolean processMessageOnDisconnect) {
+    protected final void setProcessMessageOnDisconnect(boolean processMessageOnDisconnect) {
         this.processMessageOnDisconnect = processMessageOnDisconnect;
     }
 
@@ -430,7 +548,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * 
      * @param processMessageOnReconnect whether to process the message on disconnect
      */
-    protected synchronized final void setProcessMessageOnReconnect(boolean processMessageOnReconnect) {
+    protected final void setProcessMessageOnReconnect(boolean processMessageOnReconnect) {
         this.processMessageOnReconnect = processMessageOnReconnect;
     }
     
@@ -41,6 +41,12 @@ import org.epics.pvmanager.expression.WriteExpression;
  * scan for new values. By default this uses the internal PVManager work pool. The work
  * submitted here is the calculation of the corresponding {@link DesiredRateExpression}
  * and submission to the NotificationExecutor.
+ * <p>
+ * <b>EventDrivenScan</b> - By default, each reader periodically scans for new
+ * values at its maximum rate. With event driven scanning, a reader is only
+ * scanned after one of its channels had a new value, connection change or
+ * exception, and all readers with the same rate share one periodic task.
+ * The maximum rate is still respected.
  *
  * @author carcassi
  */
@@ -52,6 +58,8 @@ public class PVManager {
             org.epics.pvmanager.util.Executors.namedPool("PVMgr Worker "));
     private static ScheduledExecutorService readScannerExecutorService = workerPool;
     private static ScheduledExecutorService asyncWriteExecutor = workerPool;
+    private static volatile boolean eventDrivenScan = false;
+    private static ScanScheduler scanScheduler = null;
 
     /**
      * Changes the default executor on which all notifications are going to be posted.
@@ -191,5 +199,38 @@ public class PVManager {
     public static void setReadScannerExecutorService(ScheduledExecutorService readScannerExecutorService) {
         PVManager.readScannerExecutorService = readScannerExecutorService;
     }
+
+    /**
+     * Whether new readers only scan for new values after their channels
+     * had an event.
+     * 
+     * @return true if readers use event driven scanning
+     */
+    public static boolean isEventDrivenScan() {
+        return eventDrivenScan;
+    }
+
+    /**
+     * Changes whether new readers use event driven scanning instead of
+     * periodic scanning. Readers that were already created are not affected.
+     * 
+     * @param eventDrivenScan true for event driven scanning
+     */
+    public static void setEventDrivenScan(boolean eventDrivenScan) {
+        PVManager.eventDrivenScan = eventDrivenScan;
+    }
+
+    /**
+     * The scheduler for event driven scanning, which runs on the
+     * current ReadScannerExecutorService.
+     * 
+     * @return the scheduler
+     */
+    static synchronized ScanScheduler getScanScheduler() {
+        if (scanScheduler == null || scanScheduler.getScannerExecutor() != readScannerExecutorService) {
+            scanScheduler = new ScanScheduler(readScannerExecutorService);
+        }
+        return scanScheduler;
+    }
     
 }
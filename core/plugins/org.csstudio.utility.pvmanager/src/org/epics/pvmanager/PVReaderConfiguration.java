@@ -142,7 +142,11 @@ public class PVReaderConfiguration<T> extends CommonConfiguration {
             director.timeout(timeout, timeoutMessage);
         }
         director.connectExpression(aggregatedPVExpression);
-        director.startScan(rate);
+        if (PVManager.isEventDrivenScan()) {
+            director.startEventDrivenScan(rate, PVManager.getScanScheduler());
+        } else {
+            director.startScan(rate);
+        }
 
         return pv;
     }
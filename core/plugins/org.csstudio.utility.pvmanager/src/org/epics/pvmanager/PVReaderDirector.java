@@ -12,6 +12,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.epics.pvmanager.expression.DesiredRateExpression;
@@ -45,6 +46,24 @@ public class PVReaderDirector<T> {
     /** Executor used to scan the connection/exception queues */
     private final ScheduledExecutorService scannerExecutor;
     private volatile ScheduledFuture<?> scanTaskHandle;
+    /** Scheduler used for event driven scanning, null for periodic scanning */
+    private volatile ScanScheduler scanScheduler;
+    /** Bucket of the scheduler for event driven scanning */
+    private volatile ScanScheduler.Bucket scanBucket;
+    /** Whether the reader is queued for the next event driven scan */
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    /** Time of the last event driven scan, from System.nanoTime() */
+    private volatile long lastScanTime = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    /** Whether the last event driven scan was done right away instead of at a tick */
+    private volatile boolean lastScanImmediate = false;
+    /** Marks the reader dirty when a channel has a new value, connection or exception */
+    private final Runnable updateListener = new Runnable() {
+
+        @Override
+        public void run() {
+            markDirty();
+        }
+    };
     /** PVReader to update during the notification */
     private final WeakReference<PVReaderImpl<T>> pvRef;
     /** Function for the new value */
@@ -72,7 +91,7 @@ public class PVReaderDirector<T> {
                 builder.addChannel(channelReadRecipe.getChannelName(), channelReadRecipe.getReadSubscription().getValueCache());
             }
         }
-        return builder.build(exceptionCollector, connCollector);
+        return builder.build(exceptionCollector, connCollector, updateListener);
     }
     
     /**
@@ -87,7 +106,7 @@ public class PVReaderDirector<T> {
     public void connectExpression(DesiredRateExpression<?> expression) {
         ReadRecipeBuilder builder = new ReadRecipeBuilder();
         expression.fillReadRecipe(this, builder);
-        ReadRecipe recipe = builder.build(exceptionCollector, connCollector);
+        ReadRecipe recipe = builder.build(exceptionCollector, connCollector, updateListener);
         synchronized(lock) {
             recipes.put(expression, recipe);
         }
@@ -96,6 +115,7 @@ public class PVReaderDirector<T> {
                 dataSource.connectRead(recipe);
             } catch(Exception ex) {
                 recipe.getChannelReadRecipes().iterator().next().getReadSubscription().getExceptionWriteFunction().writeValue(ex);
+                markDirty();
             }
         }
     }
@@ -120,6 +140,7 @@ public class PVReaderDirector<T> {
     public void connectStatic(Exception ex, boolean connection, String channelName) {
         exceptionCollector.writeValue(ex);
         connCollector.addChannel(channelName).writeValue(connection);
+        markDirty();
     }
     
     /**
@@ -152,6 +173,7 @@ public class PVReaderDirector<T> {
     
     void close() {
         closed = true;
+        markDirty();
     }
 
     /**
@@ -348,13 +370,88 @@ public class PVReaderDirector<T> {
                 PVReaderImpl<T> pv = pvRef.get();
                 if (pv != null && !pv.isSentFirsEvent()) {
                     exceptionCollector.writeValue(new TimeoutException(timeoutMessage));
+                    markDirty();
                 }
             }
         }, timeout.toNanosLong(), TimeUnit.NANOSECONDS);
     }
     
+    /**
+     * Starts event driven scanning: the reader is scanned at the next
+     * tick of the given rate only if a channel had an event since the
+     * last scan.
+     * 
+     * @param duration the maximum notification rate
+     * @param scheduler the scheduler that coalesces the scans
+     */
+    void startEventDrivenScan(TimeDuration duration, ScanScheduler scheduler) {
+        scanScheduler = scheduler;
+        scanBucket = scheduler.register(this, duration);
+        // First scan to report the initial state
+        markDirty();
+    }
+    
+    /**
+     * Queues the reader for the next event driven scan, if not already queued.
+     * Does nothing when scanning periodically.
+     */
+    void markDirty() {
+        ScanScheduler.Bucket bucket = scanBucket;
+        if (bucket != null && dirty.compareAndSet(false, true)) {
+            bucket.add(this);
+        }
+    }
+    
+    long getLastScanTime() {
+        return lastScanTime;
+    }
+    
+    boolean isLastScanImmediate() {
+        return lastScanImmediate;
+    }
+    
+    void setLastScanTime(long time, boolean immediate) {
+        lastScanTime = time;
+        lastScanImmediate = immediate;
+    }
+    
+    /**
+     * Event driven scan of a dirty reader, called by the {@link ScanScheduler}.
+     */
+    void scanDirty() {
+        dirty.set(false);
+        if (isActive()) {
+            // If paused or still notifying, try again at the next tick
+            if (isPaused() || notificationInFlight) {
+                markDirty();
+            } else {
+                notifyPv();
+            }
+        } else {
+            stopScan();
+            disconnect();
+        }
+    }
+    
+    /**
+     * Disconnects the reader if it was closed or garbage collected,
+     * called periodically by the {@link ScanScheduler}.
+     */
+    void checkActive() {
+        if (!isActive()) {
+            markDirty();
+        }
+    }
+    
     void stopScan() {
-        if (scanTaskHandle != null) {
+        ScanScheduler.Bucket bucket = scanBucket;
+        if (bucket != null) {
+            scanBucket = null;
+            scanScheduler.unregister(this, bucket);
+        } else if (scanScheduler != null) {
+            // Event driven scan already stopped: a channel event can
+            // queue the reader again while it is being disconnected
+        } else if (scanTaskHandle != null) {
             scanTaskHandle.cancel(false);
             scanTaskHandle = null;
         } else {
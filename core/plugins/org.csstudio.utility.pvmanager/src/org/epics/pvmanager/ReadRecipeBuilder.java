@@ -48,13 +48,27 @@ public class ReadRecipeBuilder {
      * @return a new recipe
      */
     public ReadRecipe build(WriteFunction<Exception> exceptionWriteFunction, ConnectionCollector connectionCollector) {
+        return build(exceptionWriteFunction, connectionCollector, null);
+    }
+
+    /**
+     * Builds the recipe, with a listener to be notified whenever the
+     * channels have new values, connection status or exceptions.
+     * 
+     * @param exceptionWriteFunction where exception should be routed
+     * @param connectionCollector where connection status should be routed
+     * @param updateListener called after channel updates; can be null
+     * @return a new recipe
+     */
+    public ReadRecipe build(WriteFunction<Exception> exceptionWriteFunction, ConnectionCollector connectionCollector,
+            Runnable updateListener) {
         Set<ChannelReadRecipe> recipes = new HashSet<>();
         for (Map.Entry<String, Collection<ValueCache<?>>> entry : channelCaches.entrySet()) {
             String channelName = entry.getKey();
             Collection<ValueCache<?>> valueCaches = entry.getValue();
             for (ValueCache<?> valueCache : valueCaches) {
                 recipes.add(new ChannelReadRecipe(channelName, 
-                       new ChannelHandlerReadSubscription(valueCache, exceptionWriteFunction, connectionCollector.addChannel(channelName))));
+                       new ChannelHandlerReadSubscription(valueCache, exceptionWriteFunction, connectionCollector.addChannel(channelName), updateListener)));
            }
         }
         return new ReadRecipe(recipes);
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2010-14 pvmanager developers. See COPYRIGHT.TXT
+ * All rights reserved. Use is subject to license terms. See LICENSE.TXT
+ */
+package org.epics.pvmanager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.epics.util.time.TimeDuration;
+
+/**
+ * Schedules the scans of the readers that use event driven scanning.
+ * <p>
+ * Instead of a periodic task for each reader, there is one periodic task
+ * for each scan rate. A reader is marked dirty when one of its channels
+ * delivers a new value, connection state or exception, and the task for its
+ * rate only scans the readers that are dirty. A reader that was not scanned
+ * for a full period is scanned right away, so sporadic changes are notified
+ * without waiting for the next tick. A reader is therefore still
+ * notified at most once per period, while readers of quiet channels
+ * do not cost anything.
+ * <p>
+ * Every few seconds, all readers are checked so that the ones that were
+ * closed or garbage collected get disconnected even if no more events arrive.
+ */
+class ScanScheduler {
+
+    private static final Logger log = Logger.getLogger(ScanScheduler.class.getName());
+
+    /** Period for checking whether readers are still active */
+    private static final long SWEEP_PERIOD_NS = TimeUnit.SECONDS.toNanos(2);
+
+    private final ScheduledExecutorService scannerExecutor;
+
+    /** Buckets by scan period in nanoseconds, guarded by this */
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+
+    /**
+     * Readers that share the same scan rate.
+     */
+    class Bucket implements Runnable {
+
+        private final long periodNs;
+        private final long sweepTicks;
+        private final Queue<PVReaderDirector<?>> dirty = new ConcurrentLinkedQueue<>();
+        private final Set<PVReaderDirector<?>> directors =
+                Collections.newSetFromMap(new ConcurrentHashMap<PVReaderDirector<?>, Boolean>());
+        private ScheduledFuture<?> taskHandle;
+        private long ticks = 0;
+
+        private Bucket(long periodNs) {
+            this.periodNs = periodNs;
+            this.sweepTicks = Math.max(1, SWEEP_PERIOD_NS / periodNs);
+        }
+
+        /**
+         * Scans a dirty reader right away if it was not scanned
+         * within the last period, otherwise queues it for the next tick.
+         *
+         * @param director the reader director
+         */
+        void add(final PVReaderDirector<?> director) {
+            if (System.nanoTime() - director.getLastScanTime() >= periodNs) {
+                director.setLastScanTime(System.nanoTime(), true);
+                scannerExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        scan(director);
+                    }
+                });
+            } else {
+                dirty.add(director);
+            }
+        }
+
+        @Override
+        public void run() {
+            // Only scan what was dirty at the start of the tick:
+            // readers that become dirty again are scanned at the next tick
+            int count = dirty.size();
+            long now = System.nanoTime();
+            while (count-- > 0) {
+                PVReaderDirector<?> director = dirty.poll();
+                if (director == null)
+                    break;
+                // Reader scanned right away less than a period ago waits for the next tick
+                if (director.isLastScanImmediate() && now - director.getLastScanTime() < periodNs) {
+                    dirty.add(director);
+                    continue;
+                }
+                director.setLastScanTime(now, false);
+                scan(director);
+            }
+            if (++ticks % sweepTicks == 0) {
+                for (PVReaderDirector<?> director : directors) {
+                    director.checkActive();
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans a reader. An exception must not escape, since it would cancel
+     * the periodic task and with it the scans of all readers at that rate.
+     *
+     * @param director the reader director
+     */
+    private static void scan(PVReaderDirector<?> director) {
+        try {
+            director.scanDirty();
+        } catch (RuntimeException ex) {
+            log.log(Level.WARNING, "Scan of reader failed", ex);
+        }
+    }
+
+    /**
+     * Creates a new scheduler running the scan tasks on the given executor.
+     *
+     * @param scannerExecutor the executor for the scan tasks
+     */
+    ScanScheduler(ScheduledExecutorService scannerExecutor) {
+        this.scannerExecutor = scannerExecutor;
+    }
+
+    /**
+     * The executor used for the scan tasks.
+     *
+     * @return the executor
+     */
+    ScheduledExecutorService getScannerExecutor() {
+        return scannerExecutor;
+    }
+
+    /**
+     * Registers a reader to be scanned at the given rate.
+     *
+     * @param director the reader director
+     * @param rate the maximum notification rate
+     * @return the bucket in which the reader needs to queue itself when dirty
+     */
+    synchronized Bucket register(PVReaderDirector<?> director, TimeDuration rate) {
+        long periodNs = rate.toNanosLong();
+        Bucket bucket = buckets.get(periodNs);
+        if (bucket == null) {
+            bucket = new Bucket(periodNs);
+            bucket.taskHandle = scannerExecutor.scheduleAtFixedRate(bucket, periodNs, periodNs, TimeUnit.NANOSECONDS);
+            buckets.put(periodNs, bucket);
+        }
+        bucket.directors.add(director);
+        return bucket;
+    }
+
+    /**
+     * Removes a reader. The periodic task for its rate stops when
+     * no readers are left.
+     *
+     * @param director the reader director
+     * @param bucket the bucket returned at registration
+     */
+    synchronized void unregister(PVReaderDirector<?> director, Bucket bucket) {
+        bucket.directors.remove(director);
+        if (bucket.directors.isEmpty() && buckets.get(bucket.periodNs) == bucket) {
+            bucket.taskHandle.cancel(false);
+            buckets.remove(bucket.periodNs);
+        }
+    }
+
+    /**
+     * The number of scan rates that currently have a periodic task.
+     *
+     * @return the number of scan tasks
+     */
+    synchronized int getScanTaskCount() {
+        return buckets.size();
+    }
+}